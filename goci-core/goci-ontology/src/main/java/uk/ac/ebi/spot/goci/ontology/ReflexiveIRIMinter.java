@@ -12,14 +12,20 @@ import javax.persistence.Id;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.net.URLEncoder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An {@link IRIMinter} implementation that looks for annotations on the supplied model object to identify the unique
- * ID, which is then used to mint a new IRI for that object
+ * ID, which is then used to mint a new IRI for that object.  The ID field and type name of each class are looked up by
+ * reflection once and cached, as IRIs are minted for every object published.
  *
  * @author Tony Burdett Date 26/01/12
  */
 public class ReflexiveIRIMinter implements IRIMinter<Object> {
+    private final Map<Class<?>, Field> idFields = new ConcurrentHashMap<Class<?>, Field>();
+    private final Map<Class<?>, String> objectTypes = new ConcurrentHashMap<Class<?>, String>();
+
     private Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -93,66 +99,69 @@ public class ReflexiveIRIMinter implements IRIMinter<Object> {
     }
 
     private String getObjectType(Object o) {
-        // get interfaces o implements
-        Class<?>[] interfaces = o.getClass().getInterfaces();
-        if (interfaces.length == 1) {
-            return interfaces[0].getSimpleName();
-        }
-        else {
-            return o.getClass().getSimpleName();
-        }
-    }
-
-    private String inspectObjectForID(Object o) {
-
-        Field[] fields = o.getClass().getDeclaredFields();
-        Field annotatedField = null;
-        int fieldCount = 0;
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(Id.class)) {
-                annotatedField = field;
-                fieldCount++;
+        return objectTypes.computeIfAbsent(o.getClass(), cls -> {
+            // get interfaces o implements
+            Class<?>[] interfaces = cls.getInterfaces();
+            if (interfaces.length == 1) {
+                return interfaces[0].getSimpleName();
             }
             else {
-                // check all definitions of this method on superclasses too
+                return cls.getSimpleName();
+            }
+        });
+    }
 
+    private Field getIdField(Class<?> cls) {
+        Field idField = idFields.get(cls);
+        if (idField == null) {
+            Field[] fields = cls.getDeclaredFields();
+            Field annotatedField = null;
+            int fieldCount = 0;
+            for (Field field : fields) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    annotatedField = field;
+                    fieldCount++;
+                }
             }
 
+            // verify that there is only one unique ID method
+            if (fieldCount == 0 || fieldCount > 1) {
+                throw new IllegalArgumentException(
+                        "Provided " + cls.getSimpleName() + " contains " +
+                                fieldCount + " field with a @Id annotation");
+            }
+            annotatedField.setAccessible(true);
+            idFields.put(cls, annotatedField);
+            idField = annotatedField;
         }
+        return idField;
+    }
 
-
-        // verify that there is only one unique ID method
-        if (fieldCount == 0 || fieldCount > 1) {
-            throw new IllegalArgumentException(
-                    "Provided " + o.getClass().getSimpleName() + " contains " +
-                            fieldCount + " field with a @Id annotation");
-        }
-        else {
-            // invoke the method and return the result .toString()
-            try {
-                annotatedField.setAccessible(true);
-                Object result = annotatedField.get(o);
-                if (result != null) {
-                    if (result instanceof String) {
-                        return (String) result;
-                    }
-                    else {
-                        getLog().debug(
-                                "Unique ID for supplied " + o.getClass().getSimpleName() +
-                                        " was not a string getter: " +
-                                        "the unique ID will be converted using toString(), " +
-                                        "but you should check this returns sensible IDs");
-                        return result.toString();
-                    }
+    private String inspectObjectForID(Object o) {
+        Field annotatedField = getIdField(o.getClass());
+        // invoke the method and return the result .toString()
+        try {
+            Object result = annotatedField.get(o);
+            if (result != null) {
+                if (result instanceof String) {
+                    return (String) result;
                 }
                 else {
-                    throw new NullPointerException(
-                            "Null ID for the supplied " + o.getClass().getSimpleName() + " object");
+                    getLog().debug(
+                            "Unique ID for supplied " + o.getClass().getSimpleName() +
+                                    " was not a string getter: " +
+                                    "the unique ID will be converted using toString(), " +
+                                    "but you should check this returns sensible IDs");
+                    return result.toString();
                 }
             }
-            catch (IllegalAccessException e) {
-                throw new RuntimeException("This should never happen", e);
+            else {
+                throw new NullPointerException(
+                        "Null ID for the supplied " + o.getClass().getSimpleName() + " object");
             }
         }
+        catch (IllegalAccessException e) {
+            throw new RuntimeException("This should never happen", e);
+        }
     }
 }
@@ -1,9 +1,11 @@
 package uk.ac.ebi.spot.goci.ontology.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.ontology.owl.ReasonedOntologyLoader;
 
+import java.io.File;
 import java.net.URI;
 import java.util.Collections;
 
@@ -13,6 +15,9 @@ import java.util.Collections;
 @Service
 public class OntologyLoaderConfig {
 
+    @Value("${efo.snapshot:}")
+    private String efoSnapshot;
+
     public ReasonedOntologyLoader setEfoOntologyLoader(Resource efoResource){
         ReasonedOntologyLoader loader = new ReasonedOntologyLoader();
         loader.setOntologyName("efo");
@@ -21,6 +26,9 @@ public class OntologyLoaderConfig {
         loader.setExclusionClassURI(URI.create("http://www.geneontology.org/formats/oboInOwl#ObsoleteClass"));
         loader.setExclusionAnnotationURI(URI.create("http://www.ebi.ac.uk/efo/organizational_class"));
         loader.setSynonymURIs(Collections.singleton(URI.create("http://www.ebi.ac.uk/efo/alternative_term")));
+        if (!efoSnapshot.isEmpty()) {
+            loader.setSnapshotFile(new File(efoSnapshot));
+        }
         loader.init();
         return loader;
     }
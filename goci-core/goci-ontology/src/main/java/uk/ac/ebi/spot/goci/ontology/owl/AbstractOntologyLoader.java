@@ -26,6 +26,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -46,17 +49,14 @@ public abstract class AbstractOntologyLoader extends Initializable implements On
     private Collection<URI> synonymURIs;
     private URI exclusionClassURI;
     private URI exclusionAnnotationURI;
+    private int indexingThreads = Runtime.getRuntime().availableProcessors();
 
     private OWLOntologyManager manager;
     private OWLDataFactory factory;
     private IRI ontologyIRI;
     private OWLOntology ontology;
 
-    private Map<IRI, String> ontologyAccessions;
-    private Map<IRI, String> ontologyLabels;
-    private Map<IRI, Set<String>> ontologyParentLabels;
-    private Map<IRI, Set<String>> ontologyChildLabels;
-    private Map<IRI, Set<String>> ontologySynonyms;
+    private OntologyTermStore ontologyTerms;
     private Map<IRI, Set<Relationship<OWLClass, OWLObjectProperty, OWLClass>>> ontologyRelationships;
 
     private OWLAnnotationProperty rdfsLabelAnnotationProperty;
@@ -213,6 +213,25 @@ public abstract class AbstractOntologyLoader extends Initializable implements On
         this.exclusionAnnotationURI = exclusionAnnotationURI;
     }
 
+    /**
+     * Returns the number of threads used to index the classes of the ontology once it is loaded
+     *
+     * @return the number of indexing threads
+     */
+    public int getIndexingThreads() {
+        return indexingThreads;
+    }
+
+    /**
+     * Sets the number of threads used to index the classes of the ontology once it is loaded.  This property is
+     * optional, and defaults to the number of available processors.
+     *
+     * @param indexingThreads the number of indexing threads
+     */
+    public void setIndexingThreads(int indexingThreads) {
+        this.indexingThreads = indexingThreads;
+    }
+
     public OWLOntologyManager getManager() {
         return manager;
     }
@@ -230,23 +249,23 @@ public abstract class AbstractOntologyLoader extends Initializable implements On
     }
 
     @Override public Map<IRI, String> getOntologyClassAccessions() {
-        return lazyGet(() -> ontologyAccessions);
+        return lazyGet(() -> ontologyTerms.getAccessions());
     }
 
     @Override public Map<IRI, String> getOntologyClassLabels() {
-        return lazyGet(() -> ontologyLabels);
+        return lazyGet(() -> ontologyTerms.getLabels());
     }
 
     @Override public Map<IRI, Set<String>> getOntologyClassParentLabels() {
-        return lazyGet(() -> ontologyParentLabels);
+        return lazyGet(() -> ontologyTerms.getParentLabels());
     }
 
     @Override public Map<IRI, Set<String>> getOntologyClassChildLabels() {
-        return lazyGet(() -> ontologyChildLabels);
+        return lazyGet(() -> ontologyTerms.getChildLabels());
     }
 
     @Override public Map<IRI, Set<String>> getOntologyClassSynonyms() {
-        return lazyGet(() -> ontologySynonyms);
+        return lazyGet(() -> ontologyTerms.getSynonyms());
     }
 
     @Override
@@ -328,12 +347,8 @@ public abstract class AbstractOntologyLoader extends Initializable implements On
         }
         this.factory = manager.getOWLDataFactory();
 
-        // init cache fields
-        this.ontologyAccessions = new HashMap<>();
-        this.ontologyLabels = new HashMap<>();
-        this.ontologyParentLabels = new HashMap<>();
-        this.ontologyChildLabels = new HashMap<>();
-        this.ontologySynonyms = new HashMap<>();
+        // init cache fields: class terms go to a compact store, read back through map views
+        this.ontologyTerms = new OntologyTermStore();
         this.ontologyRelationships = new HashMap<>();
 
         // init other fields (label, synonym annotation properties)
@@ -370,23 +385,23 @@ public abstract class AbstractOntologyLoader extends Initializable implements On
     }
 
     protected void addClassAccession(IRI clsIri, String accession) {
-        this.ontologyAccessions.put(clsIri, accession);
+        this.ontologyTerms.addAccession(clsIri, accession);
     }
 
     protected void addClassLabel(IRI clsIri, String label) {
-        this.ontologyLabels.put(clsIri, label);
+        this.ontologyTerms.addLabel(clsIri, label);
     }
 
     protected void addClassParentLabels(IRI clsIri, Set<String> classParentLabels) {
-        this.ontologyParentLabels.put(clsIri, classParentLabels);
+        this.ontologyTerms.addParentLabels(clsIri, classParentLabels);
     }
 
     protected void addClassChildLabels(IRI clsIri, Set<String> classChildLabels) {
-        this.ontologyChildLabels.put(clsIri, classChildLabels);
+        this.ontologyTerms.addChildLabels(clsIri, classChildLabels);
     }
 
     protected void addSynonyms(IRI clsIri, Set<String> synonyms) {
-        this.ontologySynonyms.put(clsIri, synonyms);
+        this.ontologyTerms.addSynonyms(clsIri, synonyms);
     }
 
     protected void addRelationship(IRI clsIri, Set<Relationship<OWLClass, OWLObjectProperty, OWLClass>> relationships) {
@@ -530,6 +545,33 @@ public abstract class AbstractOntologyLoader extends Initializable implements On
         return synonyms;
     }
 
+    /**
+     * Runs an action for each of the given classes in parallel, on a fork-join pool of {@link #getIndexingThreads()}
+     * threads, and waits for all of them to complete.  Actions may read the ontology, but must not use a reasoner and
+     * must only write to concurrent collections.
+     *
+     * @param classes the classes to index
+     * @param action  the indexing of one class
+     * @throws OWLOntologyCreationException if indexing of any class fails or is interrupted
+     */
+    protected void forEachClassInParallel(Collection<OWLClass> classes, Consumer<OWLClass> action)
+            throws OWLOntologyCreationException {
+        ForkJoinPool pool = new ForkJoinPool(getIndexingThreads());
+        try {
+            pool.submit(() -> classes.parallelStream().forEach(action)).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OWLOntologyCreationException("Interrupted while indexing " + getOntologyURI(), e);
+        }
+        catch (ExecutionException e) {
+            throw new OWLOntologyCreationException("Failed to index " + getOntologyURI(), e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
     protected abstract OWLOntology indexOntology(OWLOntology ontology) throws OWLOntologyCreationException;
 
     /**
@@ -8,13 +8,16 @@ import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Loads an ontology using the OWLAPI, and considers only axioms that are asserted in the loaded ontology when
- * generating class labels and types
+ * generating class labels and types.  Classes are indexed in parallel, see {@link #setIndexingThreads(int)}
  *
  * @author Tony Burdett
  * @author James Malone
@@ -26,12 +29,13 @@ public class AssertedOntologyLoader extends AbstractOntologyLoader {
         Set<OWLClass> allClasses = ontology.getClassesInSignature();
         removeExcludedClasses(ontology, allClasses, superclass -> getSubClasses(ontology, superclass));
 
-        int labelCount = 0;
-        int labelledClassCount = 0;
-        int synonymCount = 0;
-        int synonymedClassCount = 0;
+        AtomicInteger labelCount = new AtomicInteger();
+        AtomicInteger labelledClassCount = new AtomicInteger();
+        AtomicInteger synonymCount = new AtomicInteger();
+        AtomicInteger synonymedClassCount = new AtomicInteger();
         getLog().debug("Loading labels and synonyms...");
-        for (OWLClass ontologyClass : allClasses) {
+        Map<OWLClass, String> classLabels = new ConcurrentHashMap<>();
+        forEachClassInParallel(allClasses, ontologyClass -> {
             IRI clsIri = ontologyClass.getIRI();
 
             // get IRI fragment/path
@@ -44,8 +48,9 @@ public class AssertedOntologyLoader extends AbstractOntologyLoader {
             Optional<String> label = evaluateLabelAnnotationValue(ontology, ontologyClass);
             if (label.isPresent()) {
                 addClassLabel(clsIri, label.get());
-                labelledClassCount++;
-                labelCount++;
+                classLabels.put(ontologyClass, label.get());
+                labelledClassCount.incrementAndGet();
+                labelCount.incrementAndGet();
             }
 
             // get all synonym annotations
@@ -53,9 +58,14 @@ public class AssertedOntologyLoader extends AbstractOntologyLoader {
             Set<String> synonyms = evaluateSynonymAnnotationValues(ontology, ontologyClass);
             if (!synonyms.isEmpty()) {
                 addSynonyms(clsIri, synonyms);
-                synonymCount += synonyms.size();
-                synonymedClassCount++;
+                synonymCount.addAndGet(synonyms.size());
+                synonymedClassCount.incrementAndGet();
             }
+        });
+
+        forEachClassInParallel(allClasses, ontologyClass -> {
+            IRI clsIri = ontologyClass.getIRI();
+            String label = classLabels.get(ontologyClass);
 
             // get parent labels
             getLog().debug("Loading parents...");
@@ -67,14 +77,14 @@ public class AssertedOntologyLoader extends AbstractOntologyLoader {
                     .forEach(parentClass -> {
                         // only add type if the parent isn't excluded
                         getLog().debug("Next parent of " + label + ": " + parentClass);
-                        evaluateLabelAnnotationValue(ontology, parentClass).ifPresent(parentLabelSet::add);
+                        Optional.ofNullable(classLabels.get(parentClass)).ifPresent(parentLabelSet::add);
                     });
             addClassParentLabels(clsIri, parentLabelSet);
 
             // get child labels
             getLog().debug("Loading children...");
             Set<String> childLabelSet = new HashSet<>();
-            label.ifPresent(childLabelSet::add); // always add current class to the parents
+            Optional.ofNullable(label).ifPresent(childLabelSet::add); // always add current class to the parents
             Set<OWLClass> children = getSubClasses(ontology, ontologyClass);
             // only add type if the child isn't excluded
             children.stream()
@@ -82,13 +92,13 @@ public class AssertedOntologyLoader extends AbstractOntologyLoader {
                     .forEach(childClass -> {
                         // only add type if the parent isn't excluded
                         getLog().debug("Next child of " + label + ": " + childClass);
-                        evaluateLabelAnnotationValue(ontology, childClass).ifPresent(childLabelSet::add);
+                        Optional.ofNullable(classLabels.get(childClass)).ifPresent(childLabelSet::add);
                     });
             addClassChildLabels(clsIri, childLabelSet);
 
             // todo - get relationships
 
-        }
+        });
 
         getLog().debug("Successfully indexed " + labelCount + " labels on " + labelledClassCount + " classes and " +
                                synonymCount + " synonyms on " + synonymedClassCount + " classes!");
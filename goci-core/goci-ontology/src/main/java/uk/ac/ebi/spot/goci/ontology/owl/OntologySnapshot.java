@@ -0,0 +1,205 @@
+package uk.ac.ebi.spot.goci.ontology.owl;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The caches computed by an ontology loader for one version of an ontology (class accessions, labels, synonyms and
+ * parent and child label sets), so that they can be saved to a file and loaded again without reasoning.
+ * <p>
+ * A snapshot is identified by a key, built by the loader from the ontology IRI, version IRI and checksum. Reading a
+ * snapshot file whose key differs returns nothing, so a changed ontology is always indexed again.
+ * <p>
+ * The file format is binary: a header with the key, a table of every distinct string (IRIs, labels and synonyms each
+ * stored once) and then each cache as a list of string table indexes.
+ * <p>
+ * The caches are concurrent maps, so that classes can be indexed into a snapshot in parallel.
+ */
+class OntologySnapshot {
+    private static final int MAGIC = 0x474f4349;
+    private static final int FORMAT_VERSION = 1;
+
+    private final String key;
+
+    private final Map<IRI, String> accessions = new ConcurrentHashMap<>();
+    private final Map<IRI, String> labels = new ConcurrentHashMap<>();
+    private final Map<IRI, Set<String>> synonyms = new ConcurrentHashMap<>();
+    private final Map<IRI, Set<String>> parentLabels = new ConcurrentHashMap<>();
+    private final Map<IRI, Set<String>> childLabels = new ConcurrentHashMap<>();
+
+    OntologySnapshot(String key) {
+        this.key = key;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    Map<IRI, String> getAccessions() {
+        return accessions;
+    }
+
+    Map<IRI, String> getLabels() {
+        return labels;
+    }
+
+    Map<IRI, Set<String>> getSynonyms() {
+        return synonyms;
+    }
+
+    Map<IRI, Set<String>> getParentLabels() {
+        return parentLabels;
+    }
+
+    Map<IRI, Set<String>> getChildLabels() {
+        return childLabels;
+    }
+
+    /**
+     * Read a snapshot file
+     *
+     * @param file the snapshot file
+     * @param key  the key the snapshot must have
+     * @return the snapshot, or null if the file does not exist or holds a snapshot with another key
+     * @throws IOException if the file cannot be read
+     */
+    static OntologySnapshot read(File file, String key) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+                return null;
+            }
+
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            OntologySnapshot snapshot = new OntologySnapshot(key);
+            readValues(in, strings, snapshot.accessions);
+            readValues(in, strings, snapshot.labels);
+            readValueSets(in, strings, snapshot.synonyms);
+            readValueSets(in, strings, snapshot.parentLabels);
+            readValueSets(in, strings, snapshot.childLabels);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Write this snapshot to a file, through a temporary file moved in place so that a crash never leaves a half
+     * written snapshot
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    void write(File file) throws IOException {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+        indexStrings(stringIndexes, accessions);
+        indexStrings(stringIndexes, labels);
+        indexStringSets(stringIndexes, synonyms);
+        indexStringSets(stringIndexes, parentLabels);
+        indexStringSets(stringIndexes, childLabels);
+
+        Path target = file.toPath();
+        if (target.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+        }
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+
+            out.writeInt(stringIndexes.size());
+            for (String string : stringIndexes.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            writeValues(out, stringIndexes, accessions);
+            writeValues(out, stringIndexes, labels);
+            writeValueSets(out, stringIndexes, synonyms);
+            writeValueSets(out, stringIndexes, parentLabels);
+            writeValueSets(out, stringIndexes, childLabels);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void indexStrings(Map<String, Integer> stringIndexes, Map<IRI, String> values) {
+        values.forEach((iri, value) -> {
+            stringIndexes.putIfAbsent(iri.toString(), stringIndexes.size());
+            stringIndexes.putIfAbsent(value, stringIndexes.size());
+        });
+    }
+
+    private static void indexStringSets(Map<String, Integer> stringIndexes, Map<IRI, Set<String>> values) {
+        values.forEach((iri, valueSet) -> {
+            stringIndexes.putIfAbsent(iri.toString(), stringIndexes.size());
+            valueSet.forEach(value -> stringIndexes.putIfAbsent(value, stringIndexes.size()));
+        });
+    }
+
+    private static void writeValues(DataOutputStream out, Map<String, Integer> stringIndexes, Map<IRI, String> values)
+            throws IOException {
+        out.writeInt(values.size());
+        for (Map.Entry<IRI, String> entry : values.entrySet()) {
+            out.writeInt(stringIndexes.get(entry.getKey().toString()));
+            out.writeInt(stringIndexes.get(entry.getValue()));
+        }
+    }
+
+    private static void writeValueSets(DataOutputStream out,
+                                       Map<String, Integer> stringIndexes,
+                                       Map<IRI, Set<String>> values) throws IOException {
+        out.writeInt(values.size());
+        for (Map.Entry<IRI, Set<String>> entry : values.entrySet()) {
+            out.writeInt(stringIndexes.get(entry.getKey().toString()));
+            out.writeInt(entry.getValue().size());
+            for (String value : entry.getValue()) {
+                out.writeInt(stringIndexes.get(value));
+            }
+        }
+    }
+
+    private static void readValues(DataInputStream in, String[] strings, Map<IRI, String> values) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            values.put(IRI.create(strings[in.readInt()]), strings[in.readInt()]);
+        }
+    }
+
+    private static void readValueSets(DataInputStream in, String[] strings, Map<IRI, Set<String>> values)
+            throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            IRI iri = IRI.create(strings[in.readInt()]);
+            int count = in.readInt();
+            Set<String> valueSet = new HashSet<>();
+            for (int j = 0; j < count; j++) {
+                valueSet.add(strings[in.readInt()]);
+            }
+            values.put(iri, valueSet);
+        }
+    }
+}
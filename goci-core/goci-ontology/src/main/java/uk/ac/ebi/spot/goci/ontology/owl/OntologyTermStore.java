@@ -0,0 +1,292 @@
+package uk.ac.ebi.spot.goci.ontology.owl;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact store for the per class caches of an ontology loader.  Each class IRI is given a dense integer id, and
+ * every string (accession, label or synonym) is interned once in a string table.  Accessions and labels are then kept
+ * as one int per class, and synonym, parent label and child label sets as sorted int arrays of string ids, instead of
+ * a {@link java.util.HashSet} of strings per class.
+ * <p>
+ * The caches are read through unmodifiable {@link Map} views that resolve ids back to IRIs and strings on access.
+ * Writes are synchronized; reads are not, and are only safe once loading is complete.
+ */
+class OntologyTermStore {
+    private static final int[] NO_STRINGS = new int[0];
+
+    private final Map<IRI, Integer> termIds = new HashMap<>();
+    private final List<IRI> terms = new ArrayList<>();
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    private final StringColumn accessions = new StringColumn();
+    private final StringColumn labels = new StringColumn();
+    private final StringSetColumn synonyms = new StringSetColumn();
+    private final StringSetColumn parentLabels = new StringSetColumn();
+    private final StringSetColumn childLabels = new StringSetColumn();
+
+    Map<IRI, String> getAccessions() {
+        return accessions;
+    }
+
+    Map<IRI, String> getLabels() {
+        return labels;
+    }
+
+    Map<IRI, Set<String>> getSynonyms() {
+        return synonyms;
+    }
+
+    Map<IRI, Set<String>> getParentLabels() {
+        return parentLabels;
+    }
+
+    Map<IRI, Set<String>> getChildLabels() {
+        return childLabels;
+    }
+
+    synchronized void addAccession(IRI clsIri, String accession) {
+        accessions.set(termId(clsIri), stringId(accession));
+    }
+
+    synchronized void addLabel(IRI clsIri, String label) {
+        labels.set(termId(clsIri), stringId(label));
+    }
+
+    synchronized void addSynonyms(IRI clsIri, Collection<String> values) {
+        synonyms.set(termId(clsIri), stringIds(values));
+    }
+
+    synchronized void addParentLabels(IRI clsIri, Collection<String> values) {
+        parentLabels.set(termId(clsIri), stringIds(values));
+    }
+
+    synchronized void addChildLabels(IRI clsIri, Collection<String> values) {
+        childLabels.set(termId(clsIri), stringIds(values));
+    }
+
+    private int termId(IRI iri) {
+        Integer id = termIds.get(iri);
+        if (id == null) {
+            id = terms.size();
+            terms.add(iri);
+            termIds.put(iri, id);
+        }
+        return id;
+    }
+
+    private int stringId(String string) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.add(string);
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    private int[] stringIds(Collection<String> values) {
+        if (values.isEmpty()) {
+            return NO_STRINGS;
+        }
+        return values.stream().mapToInt(this::stringId).distinct().sorted().toArray();
+    }
+
+    private Integer lookupTermId(Object key) {
+        return key instanceof IRI ? termIds.get(key) : null;
+    }
+
+    /**
+     * A read-only view of one string per class, stored as a string id per term id (-1 where the class has no value)
+     */
+    private class StringColumn extends AbstractMap<IRI, String> {
+        private int[] values = new int[0];
+        private int size = 0;
+
+        void set(int termId, int stringId) {
+            if (termId >= values.length) {
+                int length = values.length;
+                values = Arrays.copyOf(values, Math.max(termId + 1, length * 2));
+                Arrays.fill(values, length, values.length, -1);
+            }
+            if (values[termId] < 0) {
+                size++;
+            }
+            values[termId] = stringId;
+        }
+
+        @Override public String get(Object key) {
+            Integer termId = lookupTermId(key);
+            if (termId == null || termId >= values.length || values[termId] < 0) {
+                return null;
+            }
+            return strings.get(values[termId]);
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override public int size() {
+            return size;
+        }
+
+        @Override public Set<Entry<IRI, String>> entrySet() {
+            return new AbstractSet<Entry<IRI, String>>() {
+                @Override public Iterator<Entry<IRI, String>> iterator() {
+                    return new TermIterator<String>(values.length) {
+                        @Override boolean isPresent(int termId) {
+                            return values[termId] >= 0;
+                        }
+
+                        @Override String valueOf(int termId) {
+                            return strings.get(values[termId]);
+                        }
+                    };
+                }
+
+                @Override public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * A read-only view of a set of strings per class, stored as a sorted array of string ids per term id (null where
+     * the class has no value)
+     */
+    private class StringSetColumn extends AbstractMap<IRI, Set<String>> {
+        private int[][] values = new int[0][];
+        private int size = 0;
+
+        void set(int termId, int[] stringIds) {
+            if (termId >= values.length) {
+                values = Arrays.copyOf(values, Math.max(termId + 1, values.length * 2));
+            }
+            if (values[termId] == null) {
+                size++;
+            }
+            values[termId] = stringIds;
+        }
+
+        @Override public Set<String> get(Object key) {
+            Integer termId = lookupTermId(key);
+            if (termId == null || termId >= values.length || values[termId] == null) {
+                return null;
+            }
+            return new StringSet(values[termId]);
+        }
+
+        @Override public boolean containsKey(Object key) {
+            Integer termId = lookupTermId(key);
+            return termId != null && termId < values.length && values[termId] != null;
+        }
+
+        @Override public int size() {
+            return size;
+        }
+
+        @Override public Set<Entry<IRI, Set<String>>> entrySet() {
+            return new AbstractSet<Entry<IRI, Set<String>>>() {
+                @Override public Iterator<Entry<IRI, Set<String>>> iterator() {
+                    return new TermIterator<Set<String>>(values.length) {
+                        @Override boolean isPresent(int termId) {
+                            return values[termId] != null;
+                        }
+
+                        @Override Set<String> valueOf(int termId) {
+                            return new StringSet(values[termId]);
+                        }
+                    };
+                }
+
+                @Override public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * A read-only set of strings backed by a sorted array of string ids
+     */
+    private class StringSet extends AbstractSet<String> {
+        private final int[] ids;
+
+        StringSet(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override public boolean contains(Object o) {
+            Integer id = o instanceof String ? stringIds.get(o) : null;
+            return id != null && Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        @Override public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = 0;
+
+                @Override public boolean hasNext() {
+                    return next < ids.length;
+                }
+
+                @Override public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return strings.get(ids[next++]);
+                }
+            };
+        }
+
+        @Override public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Iterates over the term ids that have a value in a column, as IRI to value entries
+     */
+    private abstract class TermIterator<V> implements Iterator<Map.Entry<IRI, V>> {
+        private final int length;
+        private int next = 0;
+
+        TermIterator(int length) {
+            this.length = length;
+        }
+
+        abstract boolean isPresent(int termId);
+
+        abstract V valueOf(int termId);
+
+        @Override public boolean hasNext() {
+            while (next < length && !isPresent(next)) {
+                next++;
+            }
+            return next < length;
+        }
+
+        @Override public Map.Entry<IRI, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<IRI, V> entry = new AbstractMap.SimpleImmutableEntry<>(terms.get(next), valueOf(next));
+            next++;
+            return entry;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
@@ -13,8 +14,24 @@ import org.semanticweb.owlapi.reasoner.SimpleConfiguration;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -28,105 +45,267 @@ import java.util.stream.Collectors;
 @Component
 public class ReasonedOntologyLoader extends AbstractOntologyLoader {
 
-    private OWLReasoner reasoner;
+    private volatile OWLReasoner reasoner;
 
+    private File snapshotFile;
+
+    private volatile boolean loadedFromSnapshot = false;
+
+    /**
+     * Returns the reasoner over the loaded ontology.  If the caches of this loader were read from a snapshot, the
+     * ontology has not been classified yet: the reasoner is then created, and the ontology classified, on first use.
+     *
+     * @return the reasoner, or null if the ontology is not loaded yet
+     */
     public OWLReasoner getOWLReasoner() {
+        if (reasoner == null && loadedFromSnapshot) {
+            synchronized (this) {
+                if (reasoner == null) {
+                    try {
+                        reasoner = createReasoner(getOntology());
+                    }
+                    catch (OWLOntologyCreationException e) {
+                        throw new IllegalStateException("Failed to classify '" + getOntologyIRI() + "'", e);
+                    }
+                }
+            }
+        }
         return reasoner;
     }
 
-    protected OWLOntology indexOntology(OWLOntology ontology) throws OWLOntologyCreationException {
-        getLog().debug("Trying to create a reasoner over ontology '" + getOntologyURI() + "'");
-        OWLReasonerFactory factory = new Reasoner.ReasonerFactory();
-        ReasonerProgressMonitor progressMonitor = new LoggingReasonerProgressMonitor(getLog());
-        OWLReasonerConfiguration config = new SimpleConfiguration(progressMonitor);
-        this.reasoner = factory.createReasoner(ontology, config);
+    /**
+     * @return true if the caches of the last load were read from the snapshot file, false if it was classified
+     */
+    boolean isLoadedFromSnapshot() {
+        return loadedFromSnapshot;
+    }
 
-        getLog().debug("Precomputing inferences...");
-        reasoner.precomputeInferences();
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
 
-        getLog().debug("Checking ontology consistency...");
-        reasoner.isConsistent();
+    /**
+     * Sets the file used to save the computed caches (accessions, labels, synonyms, parent and child labels) after
+     * reasoning, and to read them back on the next start instead of reasoning again.  The snapshot is only reused for
+     * the same ontology IRI, version IRI and checksum of the ontology resource.  This property is optional.
+     *
+     * @param snapshotFile the snapshot file
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
 
-        getLog().debug("Checking for unsatisfiable classes...");
-        if (reasoner.getUnsatisfiableClasses().getEntitiesMinusBottom().size() > 0) {
-            throw new OWLOntologyCreationException(
-                    "Once classified, unsatisfiable classes were detected in '" + getOntologyIRI() + "'");
-        }
-        else {
-            getLog().debug("Reasoning complete! ");
+    protected OWLOntology indexOntology(OWLOntology ontology) throws OWLOntologyCreationException {
+        // forget the reasoner over any previously loaded ontology
+        this.reasoner = null;
+        this.loadedFromSnapshot = false;
+
+        String snapshotKey = getSnapshotFile() != null ? createSnapshotKey(ontology) : null;
+        if (snapshotKey != null) {
+            OntologySnapshot snapshot = readSnapshot(snapshotKey);
+            if (snapshot != null) {
+                addSnapshot(snapshot);
+                loadedFromSnapshot = true;
+                return ontology;
+            }
         }
 
+        this.reasoner = createReasoner(ontology);
+
+        OntologySnapshot snapshot = new OntologySnapshot(snapshotKey);
         Set<OWLClass> allClasses = ontology.getClassesInSignature();
         removeExcludedClasses(ontology,
                               allClasses,
                               superclass -> reasoner.getSubClasses(superclass, false).getFlattened());
 
-        int labelCount = 0;
-        int labelledClassCount = 0;
-        int synonymCount = 0;
-        int synonymedClassCount = 0;
+        // the reasoner is not thread-safe: take the direct taxonomy from it once, and walk that in parallel
+        getLog().debug("Extracting taxonomy of " + ontology.getClassesInSignature().size() + " classes...");
+        Map<OWLClass, Set<OWLClass>> directParents = new HashMap<>();
+        Map<OWLClass, Set<OWLClass>> directChildren = new HashMap<>();
+        for (OWLClass ontologyClass : ontology.getClassesInSignature()) {
+            directParents.put(ontologyClass, reasoner.getSuperClasses(ontologyClass, true).getFlattened());
+            directChildren.put(ontologyClass, reasoner.getSubClasses(ontologyClass, true).getFlattened());
+        }
+
         getLog().debug("Loading " + allClasses.size() + " classes...");
-        for (OWLClass ontologyClass : allClasses) {
+        Map<OWLClass, String> classLabels = new ConcurrentHashMap<>();
+        forEachClassInParallel(allClasses, ontologyClass -> {
             IRI clsIri = ontologyClass.getIRI();
 
             // get IRI fragment/path
-            Optional<String> accession = evaluateAccessionValue(ontology, ontologyClass);
-            if (accession.isPresent()) {
-                addClassAccession(clsIri, accession.get());
-            }
+            evaluateAccessionValue(ontology, ontologyClass)
+                    .ifPresent(accession -> snapshot.getAccessions().put(clsIri, accession));
 
             // get label annotations
             Optional<String> label = evaluateLabelAnnotationValue(ontology, ontologyClass);
             if (label.isPresent()) {
-                addClassLabel(clsIri, label.get());
-                labelledClassCount++;
-                labelCount++;
+                snapshot.getLabels().put(clsIri, label.get());
+                classLabels.put(ontologyClass, label.get());
             }
 
             // get all synonym annotations
             getLog().trace("Loading synonyms of " + clsIri.toString() + "...");
             Set<String> synonyms = evaluateSynonymAnnotationValues(ontology, ontologyClass);
             if (!synonyms.isEmpty()) {
-                addSynonyms(clsIri, synonyms);
-                synonymCount += synonyms.size();
-                synonymedClassCount++;
+                snapshot.getSynonyms().put(clsIri, synonyms);
             }
+        });
+
+        forEachClassInParallel(allClasses, ontologyClass -> {
+            IRI clsIri = ontologyClass.getIRI();
+            String label = classLabels.get(ontologyClass);
 
             // get parent labels
             getLog().trace("Loading parents of " + clsIri.toString() + "...");
-            Set<OWLClass> parents = reasoner.getSuperClasses(ontologyClass, false).getFlattened();
             // only add type if the parent isn't excluded
-            Set<String> parentLabelSet = parents.stream()
+            Set<String> parentLabelSet = collectClosure(ontologyClass, directParents).stream()
                     .filter(allClasses::contains)
                     .peek(parent -> getLog().trace("Next parent of " + label + ": " + parent))
-                    .map(parent -> evaluateLabelAnnotationValue(ontology, parent))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
+                    .map(classLabels::get)
+                    .filter(Objects::nonNull)
                     .collect(Collectors.toSet());
-            label.ifPresent(parentLabelSet::add); // always also add current class to the parents
-            addClassParentLabels(clsIri, parentLabelSet);
+            if (label != null) {
+                parentLabelSet.add(label); // always also add current class to the parents
+            }
+            snapshot.getParentLabels().put(clsIri, parentLabelSet);
 
             // get child labels
             getLog().trace("Loading children of " + clsIri.toString() + "...");
-            Set<OWLClass> children = reasoner.getSubClasses(ontologyClass, false).getFlattened();
             // only add type if the child isn't excluded
-            Set<String> childLabelSet = children.stream()
+            Set<String> childLabelSet = collectClosure(ontologyClass, directChildren).stream()
                     .filter(allClasses::contains)
                     .peek(child -> getLog().trace("Next child of " + label + ": " + child))
-                    .map(child -> evaluateLabelAnnotationValue(ontology, child))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
+                    .map(classLabels::get)
+                    .filter(Objects::nonNull)
                     .collect(Collectors.toSet());
-            label.ifPresent(childLabelSet::add); // always also add current class to the parents
-            addClassChildLabels(clsIri, childLabelSet);
-        }
+            if (label != null) {
+                childLabelSet.add(label); // always also add current class to the parents
+            }
+            snapshot.getChildLabels().put(clsIri, childLabelSet);
+        });
+
+        int labelCount = snapshot.getLabels().size();
+        int synonymCount = snapshot.getSynonyms().values().stream().mapToInt(Set::size).sum();
+        int synonymedClassCount = snapshot.getSynonyms().size();
+        addSnapshot(snapshot);
 
-        getLog().debug("Successfully indexed " + labelCount + " labels on " + labelledClassCount + " classes and " +
+        getLog().debug("Successfully indexed " + labelCount + " labels on " + labelCount + " classes and " +
                                synonymCount + " synonyms on " + synonymedClassCount + " classes!");
 
+        if (snapshotKey != null) {
+            writeSnapshot(snapshot);
+        }
         return ontology;
     }
 
+    /**
+     * Collects all the classes reachable from the given class in a direct taxonomy, that is all its superclasses given
+     * the direct parents, or all its subclasses given the direct children
+     */
+    private Set<OWLClass> collectClosure(OWLClass ontologyClass, Map<OWLClass, Set<OWLClass>> directRelatives) {
+        Set<OWLClass> closure = new HashSet<>();
+        Deque<OWLClass> toVisit = new ArrayDeque<>(directRelatives.getOrDefault(ontologyClass,
+                                                                                Collections.emptySet()));
+        while (!toVisit.isEmpty()) {
+            OWLClass next = toVisit.pop();
+            if (closure.add(next)) {
+                toVisit.addAll(directRelatives.getOrDefault(next, Collections.emptySet()));
+            }
+        }
+        return closure;
+    }
+
+    private OWLReasoner createReasoner(OWLOntology ontology) throws OWLOntologyCreationException {
+        getLog().debug("Trying to create a reasoner over ontology '" + getOntologyURI() + "'");
+        OWLReasonerFactory factory = new Reasoner.ReasonerFactory();
+        ReasonerProgressMonitor progressMonitor = new LoggingReasonerProgressMonitor(getLog());
+        OWLReasonerConfiguration config = new SimpleConfiguration(progressMonitor);
+        OWLReasoner reasoner = factory.createReasoner(ontology, config);
+
+        getLog().debug("Precomputing inferences...");
+        reasoner.precomputeInferences();
+
+        getLog().debug("Checking ontology consistency...");
+        reasoner.isConsistent();
+
+        getLog().debug("Checking for unsatisfiable classes...");
+        if (reasoner.getUnsatisfiableClasses().getEntitiesMinusBottom().size() > 0) {
+            throw new OWLOntologyCreationException(
+                    "Once classified, unsatisfiable classes were detected in '" + getOntologyIRI() + "'");
+        }
+        else {
+            getLog().debug("Reasoning complete! ");
+        }
+        return reasoner;
+    }
+
+    private void addSnapshot(OntologySnapshot snapshot) {
+        snapshot.getAccessions().forEach(this::addClassAccession);
+        snapshot.getLabels().forEach(this::addClassLabel);
+        snapshot.getSynonyms().forEach(this::addSynonyms);
+        snapshot.getParentLabels().forEach(this::addClassParentLabels);
+        snapshot.getChildLabels().forEach(this::addClassChildLabels);
+    }
+
+    /**
+     * The snapshot key: ontology IRI, version IRI, and a checksum of the ontology resource together with the settings
+     * that change what gets cached (exclusions and synonym properties)
+     */
+    private String createSnapshotKey(OWLOntology ontology) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (getOntologyResource() != null) {
+                try (InputStream in = getOntologyResource().getInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+            digest.update(String.valueOf(getExclusionClassURI()).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.valueOf(getExclusionAnnotationURI()).getBytes(StandardCharsets.UTF_8));
+            if (getSynonymURIs() != null) {
+                digest.update(new TreeSet<>(getSynonymURIs()).toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            OWLOntologyID id = ontology.getOntologyID();
+            return id.getOntologyIRI() + " " + id.getVersionIRI() + " " +
+                    String.format("%064x", new BigInteger(1, digest.digest()));
+        }
+        catch (IOException | NoSuchAlgorithmException e) {
+            getLog().warn("Unable to checksum ontology '" + getOntologyURI() + "', not using a snapshot", e);
+            return null;
+        }
+    }
+
+    private OntologySnapshot readSnapshot(String snapshotKey) {
+        try {
+            OntologySnapshot snapshot = OntologySnapshot.read(getSnapshotFile(), snapshotKey);
+            if (snapshot != null) {
+                getLog().info("Loaded ontology caches from snapshot " + getSnapshotFile() + ", skipping reasoning");
+            }
+            else {
+                getLog().info("No up to date snapshot in " + getSnapshotFile() + " for '" + snapshotKey + "'");
+            }
+            return snapshot;
+        }
+        catch (IOException e) {
+            getLog().warn("Unable to read ontology snapshot " + getSnapshotFile() + ", reasoning instead", e);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(OntologySnapshot snapshot) {
+        try {
+            snapshot.write(getSnapshotFile());
+            getLog().info("Saved ontology caches to snapshot " + getSnapshotFile());
+        }
+        catch (IOException e) {
+            getLog().error("Unable to save ontology snapshot " + getSnapshotFile(), e);
+        }
+    }
+
     protected class LoggingReasonerProgressMonitor implements ReasonerProgressMonitor {
         private final Logger log;
         private int lastPercent = 0;
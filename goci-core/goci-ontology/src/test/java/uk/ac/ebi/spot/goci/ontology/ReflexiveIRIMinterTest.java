@@ -0,0 +1,121 @@
+package uk.ac.ebi.spot.goci.ontology;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+
+import javax.persistence.Id;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that IRIs minted through the id field and type name cached for each class are those of the object minted for,
+ * whatever the order objects of different classes are minted in
+ */
+public class ReflexiveIRIMinterTest {
+
+    private static final String BASE = "http://example.org/gwas";
+
+    private ReflexiveIRIMinter minter;
+
+    @Before
+    public void setUp() {
+        minter = new ReflexiveIRIMinter();
+    }
+
+    @Test
+    public void testInterleavedClassesAreMintedFromTheirOwnIdField() throws Exception {
+        assertEquals(IRI.create(BASE + "/Study/1"), minter.mint(BASE, new Study(1L)));
+        assertEquals(IRI.create(BASE + "/Snp/rs123"), minter.mint(BASE, new Snp("rs123")));
+        assertEquals(IRI.create(BASE + "/Study/2"), minter.mint(BASE, new Study(2L)));
+        assertEquals(IRI.create(BASE + "/Snp/rs%20456"), minter.mint(BASE + "/", new Snp("rs 456")));
+        assertEquals(IRI.create(BASE + "/Chromosome#rs789"), minter.mint(BASE, "Chromosome", new Snp("rs789"), false));
+
+        // one id field per class, found once however many objects are minted
+        Map<Class<?>, Field> idFields = cachedIdFields();
+        assertEquals(2, idFields.size());
+        assertEquals("id", idFields.get(Study.class).getName());
+        assertEquals("rsId", idFields.get(Snp.class).getName());
+    }
+
+    @Test
+    public void testTypeOfClassWithOneInterfaceIsTheInterface() throws Exception {
+        assertEquals(IRI.create(BASE + "/Trackable/3"), minter.mint(BASE, new TrackedStudy(3L)));
+        assertEquals(IRI.create(BASE + "/Trackable/4"), minter.mint(BASE, "", new TrackedStudy(4L)));
+    }
+
+    @Test
+    public void testClassWithoutIdIsRefusedEachTime() throws Exception {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                minter.mint(BASE, new Unidentified());
+                fail("IRI minted for an object without an @Id field");
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertTrue(cachedIdFields().isEmpty());
+    }
+
+    @Test
+    public void testNullIdIsRefused() throws Exception {
+        minter.mint(BASE, new Study(1L));
+        try {
+            minter.mint(BASE, new Study(null));
+            fail("IRI minted for an object with a null id");
+        }
+        catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, Field> cachedIdFields() throws Exception {
+        Field idFields = ReflexiveIRIMinter.class.getDeclaredField("idFields");
+        idFields.setAccessible(true);
+        return (Map<Class<?>, Field>) idFields.get(minter);
+    }
+
+    private interface Trackable {
+    }
+
+    private static class Study {
+        @Id
+        private Long id;
+
+        private String title = "title";
+
+        private Study(Long id) {
+            this.id = id;
+        }
+    }
+
+    private static class Snp {
+        private Long version = 1L;
+
+        @Id
+        private String rsId;
+
+        private Snp(String rsId) {
+            this.rsId = rsId;
+        }
+    }
+
+    private static class TrackedStudy implements Trackable {
+        @Id
+        private Long id;
+
+        private TrackedStudy(Long id) {
+            this.id = id;
+        }
+    }
+
+    private static class Unidentified {
+        private Long id = 5L;
+    }
+}
@@ -0,0 +1,76 @@
+package uk.ac.ebi.spot.goci.ontology.owl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.IRI;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class OntologySnapshotTest {
+
+    private static final IRI DISEASE = IRI.create("http://example.org/test#disease");
+
+    private static final IRI CANCER = IRI.create("http://example.org/test#cancer");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OntologySnapshot snapshot;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        snapshot = new OntologySnapshot("http://example.org/test http://example.org/test/1 0123");
+        snapshot.getAccessions().put(DISEASE, "disease");
+        snapshot.getAccessions().put(CANCER, "cancer");
+        snapshot.getLabels().put(DISEASE, "disease");
+        snapshot.getLabels().put(CANCER, "cancer");
+        snapshot.getSynonyms().put(CANCER, new HashSet<>(Arrays.asList("neoplasm", "tumour")));
+        snapshot.getParentLabels().put(DISEASE, Collections.singleton("disease"));
+        snapshot.getParentLabels().put(CANCER, new HashSet<>(Arrays.asList("cancer", "disease")));
+        snapshot.getChildLabels().put(DISEASE, new HashSet<>(Arrays.asList("cancer", "disease")));
+        snapshot.getChildLabels().put(CANCER, Collections.singleton("cancer"));
+
+        file = new File(folder.getRoot(), "snapshots/efo.snapshot");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        snapshot.write(file);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        OntologySnapshot read = OntologySnapshot.read(file, snapshot.getKey());
+        assertNotNull(read);
+        assertEquals(snapshot.getKey(), read.getKey());
+        assertEquals(snapshot.getAccessions(), read.getAccessions());
+        assertEquals(snapshot.getLabels(), read.getLabels());
+        assertEquals(snapshot.getSynonyms(), read.getSynonyms());
+        assertEquals(snapshot.getParentLabels(), read.getParentLabels());
+        assertEquals(snapshot.getChildLabels(), read.getChildLabels());
+    }
+
+    @Test
+    public void testSnapshotOfAnotherKeyIsNotRead() throws Exception {
+        snapshot.write(file);
+
+        assertNull(OntologySnapshot.read(file, "http://example.org/other http://example.org/test/1 0123"));
+        assertNull(OntologySnapshot.read(file, "http://example.org/test http://example.org/test/2 0123"));
+        assertNull(OntologySnapshot.read(file, "http://example.org/test http://example.org/test/1 4567"));
+    }
+
+    @Test
+    public void testMissingFileIsNotRead() throws Exception {
+        assertNull(OntologySnapshot.read(file, snapshot.getKey()));
+    }
+}
@@ -0,0 +1,161 @@
+package uk.ac.ebi.spot.goci.ontology.owl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OntologyTermStoreTest {
+
+    private static final IRI DISEASE = IRI.create("http://example.org/test#disease");
+
+    private static final IRI CANCER = IRI.create("http://example.org/test#cancer");
+
+    private static final IRI UNKNOWN = IRI.create("http://example.org/test#unknown");
+
+    private OntologyTermStore store;
+
+    @Before
+    public void setUp() {
+        store = new OntologyTermStore();
+        store.addAccession(DISEASE, "disease");
+        store.addLabel(DISEASE, "disease");
+        store.addSynonyms(DISEASE, Collections.emptySet());
+        store.addParentLabels(DISEASE, Collections.singleton("disease"));
+        store.addAccession(CANCER, "cancer");
+        store.addLabel(CANCER, "cancer");
+        store.addSynonyms(CANCER, Arrays.asList("tumour", "neoplasm", "tumour"));
+        store.addParentLabels(CANCER, Arrays.asList("cancer", "disease"));
+        store.addChildLabels(DISEASE, Arrays.asList("disease", "cancer"));
+    }
+
+    @Test
+    public void testLookups() {
+        assertEquals("disease", store.getLabels().get(DISEASE));
+        assertEquals("cancer", store.getAccessions().get(CANCER));
+        assertEquals(set("neoplasm", "tumour"), store.getSynonyms().get(CANCER));
+        assertEquals(set("cancer", "disease"), store.getParentLabels().get(CANCER));
+        assertTrue(store.getChildLabels().get(DISEASE).contains("cancer"));
+        assertFalse(store.getChildLabels().get(DISEASE).contains("tumour"));
+        assertFalse(store.getChildLabels().get(DISEASE).contains("lymphoma"));
+
+        // a class stored with no synonyms has an empty set, not none
+        assertTrue(store.getSynonyms().containsKey(DISEASE));
+        assertTrue(store.getSynonyms().get(DISEASE).isEmpty());
+
+        // a class known to the store, but without a value in this cache
+        assertFalse(store.getChildLabels().containsKey(CANCER));
+        assertNull(store.getChildLabels().get(CANCER));
+
+        assertNull(store.getLabels().get(UNKNOWN));
+        assertNull(store.getLabels().get("http://example.org/test#disease"));
+        assertFalse(store.getSynonyms().containsKey(UNKNOWN));
+
+        assertEquals(2, store.getLabels().size());
+        assertEquals(1, store.getChildLabels().size());
+    }
+
+    @Test
+    public void testLaterValueReplacesEarlierOne() {
+        store.addLabel(CANCER, "malignant neoplasm");
+        store.addSynonyms(CANCER, Collections.singleton("carcinoma"));
+
+        assertEquals("malignant neoplasm", store.getLabels().get(CANCER));
+        assertEquals(set("carcinoma"), store.getSynonyms().get(CANCER));
+        assertEquals(2, store.getLabels().size());
+        assertEquals(2, store.getSynonyms().size());
+    }
+
+    @Test
+    public void testViewsAreReadOnly() {
+        assertUnsupported(() -> store.getLabels().put(UNKNOWN, "unknown"));
+        assertUnsupported(() -> store.getLabels().remove(DISEASE));
+        assertUnsupported(() -> store.getSynonyms().clear());
+        assertUnsupported(() -> store.getSynonyms().get(CANCER).add("carcinoma"));
+        assertUnsupported(() -> store.getParentLabels().get(CANCER).remove("disease"));
+        assertUnsupported(() -> {
+            Iterator<Map.Entry<IRI, String>> entries = store.getAccessions().entrySet().iterator();
+            entries.next();
+            entries.remove();
+        });
+        assertUnsupported(() -> store.getChildLabels().entrySet().iterator().next().setValue(set()));
+
+        assertEquals(2, store.getLabels().size());
+        assertEquals(set("neoplasm", "tumour"), store.getSynonyms().get(CANCER));
+    }
+
+    @Test
+    public void testConcurrentWritesMatchMaps() throws Exception {
+        Map<IRI, String> labels = new ConcurrentHashMap<>();
+        Map<IRI, Set<String>> synonyms = new ConcurrentHashMap<>();
+        store = new OntologyTermStore();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] writers = new Future<?>[4];
+            for (int writer = 0; writer < writers.length; writer++) {
+                int offset = writer;
+                writers[writer] = executor.submit(() -> {
+                    // each writer stores its own classes, with strings shared between all writers
+                    Random random = new Random(offset);
+                    for (int i = offset; i < 2000; i += writers.length) {
+                        IRI iri = IRI.create("http://example.org/test#class" + i);
+                        String label = "label " + random.nextInt(500);
+                        Set<String> synonymSet = set("synonym " + random.nextInt(50),
+                                                     "synonym " + random.nextInt(50));
+                        store.addLabel(iri, label);
+                        store.addSynonyms(iri, synonymSet);
+                        labels.put(iri, label);
+                        synonyms.put(iri, synonymSet);
+                    }
+                });
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertEquals(labels, new HashMap<>(store.getLabels()));
+        assertEquals(synonyms, new HashMap<>(store.getSynonyms()));
+        assertEquals(labels.size(), store.getLabels().size());
+        for (IRI iri : labels.keySet()) {
+            assertEquals(labels.get(iri), store.getLabels().get(iri));
+            assertEquals(synonyms.get(iri), store.getSynonyms().get(iri));
+        }
+    }
+
+    private static void assertUnsupported(Runnable write) {
+        try {
+            write.run();
+            fail("View was modified");
+        }
+        catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
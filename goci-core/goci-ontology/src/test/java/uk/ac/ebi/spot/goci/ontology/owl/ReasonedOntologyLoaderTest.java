@@ -0,0 +1,190 @@
+package uk.ac.ebi.spot.goci.ontology.owl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.IRI;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that caches read from an ontology snapshot are those of a reasoned load, and that a snapshot is only read for
+ * the ontology and settings it was saved with
+ */
+public class ReasonedOntologyLoaderTest {
+
+    private static final String ONTOLOGY = "http://example.org/test";
+
+    private static final String SYNONYM = ONTOLOGY + "#synonym";
+
+    private static final String OBSOLETE = ONTOLOGY + "#obsolete";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File ontologyFile;
+
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws Exception {
+        ontologyFile = folder.newFile("test.owl");
+        writeOntology("1", "");
+        snapshotFile = new File(folder.getRoot(), "test.snapshot");
+    }
+
+    @Test
+    public void testSnapshotHoldsTheCachesOfAReasonedLoad() throws Exception {
+        ReasonedOntologyLoader reference = load(null);
+        assertEquals("disease", reference.getLabel(IRI.create(ONTOLOGY + "#disease")));
+        assertEquals(set("cancer", "disease"), copy(reference.getParentLabels(IRI.create(ONTOLOGY + "#cancer"))));
+
+        ReasonedOntologyLoader cold = load(snapshotFile);
+        assertFalse(cold.isLoadedFromSnapshot());
+        assertTrue(snapshotFile.exists());
+
+        ReasonedOntologyLoader warm = load(snapshotFile);
+        assertTrue(warm.isLoadedFromSnapshot());
+        assertEquals(copy(reference.getOntologyClassAccessions()), copy(warm.getOntologyClassAccessions()));
+        assertEquals(copy(reference.getOntologyClassLabels()), copy(warm.getOntologyClassLabels()));
+        assertEquals(copySets(reference.getOntologyClassSynonyms()), copySets(warm.getOntologyClassSynonyms()));
+        assertEquals(copySets(reference.getOntologyClassParentLabels()),
+                     copySets(warm.getOntologyClassParentLabels()));
+        assertEquals(copySets(reference.getOntologyClassChildLabels()),
+                     copySets(warm.getOntologyClassChildLabels()));
+
+        // the reasoner is only created when asked for
+        assertNotNull(warm.getOWLReasoner());
+        assertSame(warm.getOntology(), warm.getOWLReasoner().getRootOntology());
+    }
+
+    @Test
+    public void testChangedOntologyInvalidatesSnapshot() throws Exception {
+        load(snapshotFile);
+
+        writeOntology("2", "<owl:Class rdf:about=\"" + ONTOLOGY + "#lymphoma\">" +
+                "<rdfs:label>lymphoma</rdfs:label>" +
+                "<rdfs:subClassOf rdf:resource=\"" + ONTOLOGY + "#cancer\"/></owl:Class>");
+
+        ReasonedOntologyLoader loader = load(snapshotFile);
+        assertFalse(loader.isLoadedFromSnapshot());
+        assertEquals("lymphoma", loader.getLabel(IRI.create(ONTOLOGY + "#lymphoma")));
+        assertTrue(loader.getChildLabels(IRI.create(ONTOLOGY + "#disease")).contains("lymphoma"));
+    }
+
+    @Test
+    public void testChangedSettingsInvalidateSnapshot() throws Exception {
+        load(snapshotFile);
+
+        ReasonedOntologyLoader loader = loader(snapshotFile);
+        loader.setExclusionAnnotationURI(URI.create(OBSOLETE));
+        loader.init();
+        loader.waitUntilReady();
+
+        assertFalse(loader.isLoadedFromSnapshot());
+        assertNull(loader.getLabel(IRI.create(ONTOLOGY + "#tumor")));
+        assertEquals("cancer", loader.getLabel(IRI.create(ONTOLOGY + "#cancer")));
+    }
+
+    @Test
+    public void testReloadForgetsThePreviousReasoner() throws Exception {
+        ReasonedOntologyLoader loader = load(snapshotFile);
+        assertFalse(loader.isLoadedFromSnapshot());
+        assertSame(loader.getOntology(), loader.getOWLReasoner().getRootOntology());
+
+        // reloading from the snapshot gives a reasoner over the new ontology, not the one of the first load
+        loader.doInitialization();
+        assertTrue(loader.isLoadedFromSnapshot());
+        assertSame(loader.getOntology(), loader.getOWLReasoner().getRootOntology());
+
+        // and reasoning again is no longer taken for a snapshot load
+        assertTrue(snapshotFile.delete());
+        loader.doInitialization();
+        assertFalse(loader.isLoadedFromSnapshot());
+        assertSame(loader.getOntology(), loader.getOWLReasoner().getRootOntology());
+    }
+
+    private ReasonedOntologyLoader load(File snapshotFile) throws Exception {
+        ReasonedOntologyLoader loader = loader(snapshotFile);
+        loader.init();
+        loader.waitUntilReady();
+        return loader;
+    }
+
+    private ReasonedOntologyLoader loader(File snapshotFile) {
+        ReasonedOntologyLoader loader = new ReasonedOntologyLoader();
+        loader.setOntologyURI(URI.create(ONTOLOGY));
+        loader.setOntologyResource(new FileSystemResource(ontologyFile));
+        loader.setSynonymURIs(Collections.singleton(URI.create(SYNONYM)));
+        loader.setIndexingThreads(2);
+        loader.setSnapshotFile(snapshotFile);
+        return loader;
+    }
+
+    // A disease with one subclass, and an obsolete class with a synonym, plus the given class declarations
+    private void writeOntology(String version, String extraClasses) throws Exception {
+        String owl = "<?xml version=\"1.0\"?>\n" +
+                "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n" +
+                "         xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\"\n" +
+                "         xmlns:owl=\"http://www.w3.org/2002/07/owl#\"\n" +
+                "         xmlns:test=\"" + ONTOLOGY + "#\">\n" +
+                "  <owl:Ontology rdf:about=\"" + ONTOLOGY + "\">\n" +
+                "    <owl:versionIRI rdf:resource=\"" + ONTOLOGY + "/" + version + "\"/>\n" +
+                "  </owl:Ontology>\n" +
+                "  <owl:AnnotationProperty rdf:about=\"" + SYNONYM + "\"/>\n" +
+                "  <owl:AnnotationProperty rdf:about=\"" + OBSOLETE + "\"/>\n" +
+                "  <owl:Class rdf:about=\"" + ONTOLOGY + "#disease\">\n" +
+                "    <rdfs:label>disease</rdfs:label>\n" +
+                "  </owl:Class>\n" +
+                "  <owl:Class rdf:about=\"" + ONTOLOGY + "#cancer\">\n" +
+                "    <rdfs:label>cancer</rdfs:label>\n" +
+                "    <test:synonym>neoplasm</test:synonym>\n" +
+                "    <rdfs:subClassOf rdf:resource=\"" + ONTOLOGY + "#disease\"/>\n" +
+                "  </owl:Class>\n" +
+                "  <owl:Class rdf:about=\"" + ONTOLOGY + "#tumor\">\n" +
+                "    <rdfs:label>tumor</rdfs:label>\n" +
+                "    <test:synonym>growth</test:synonym>\n" +
+                "    <test:obsolete>true</test:obsolete>\n" +
+                "  </owl:Class>\n" +
+                "  " + extraClasses + "\n" +
+                "</rdf:RDF>\n";
+        Files.write(ontologyFile.toPath(), owl.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Set<String> set(String... values) {
+        Set<String> set = new HashSet<>();
+        Collections.addAll(set, values);
+        return set;
+    }
+
+    private static Set<String> copy(Set<String> values) {
+        return new HashSet<>(values);
+    }
+
+    private static Map<IRI, String> copy(Map<IRI, String> values) {
+        return new HashMap<>(values);
+    }
+
+    private static Map<IRI, Set<String>> copySets(Map<IRI, Set<String>> values) {
+        Map<IRI, Set<String>> copy = new HashMap<>();
+        values.forEach((iri, valueSet) -> copy.put(iri, new HashSet<>(valueSet)));
+        return copy;
+    }
+}
@@ -4,22 +4,30 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.spot.goci.pussycat.utils.StringUtils;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * An abstract implementation of a pussycat session that provides functionality for reading and writing SVG documents to
- * and from a disk-based cache.
+ * and from a two tier cache.
+ * <p>
+ * Documents are kept gzipped, as {@link CachedSVG}s.  The most recently used ones are held in memory, up to
+ * "cache.memory.max_size" bytes, and all are written to files in the cache directory, up to "cache.disk.max_size"
+ * bytes, beyond which the least recently used files are deleted.  Cached documents are only valid for one version of
+ * the underlying data, set with "cache.data.version" or {@link #setDataVersion(String)}: when the cache is first used
+ * after a different version has been configured, or the version is changed once it is in use, both tiers are cleared.
  *
  * @author Tony Burdett
  * @date 02/08/12
@@ -28,11 +36,32 @@ import java.util.Map;
 public abstract class AbstractSVGIOPussycatSession extends AbstractPussycatSession {
     private static final String ENCODING = "SHA-1";
 
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private static final String VERSION_FILE = "data.version";
+
     @Value("${cache.directory}")
     private File cacheDirectory;
 
+    @Value("${cache.data.version:}")
+    private String dataVersion = "";
+
+    @Value("${cache.memory.max_size:67108864}")
+    private long maxMemorySize = 64L * 1024 * 1024;
+
+    @Value("${cache.disk.max_size:1073741824}")
+    private long maxDiskSize = 1024L * 1024 * 1024;
+
     private Map<String, Object[]> hashArgsMap = new HashMap<String, Object[]>();
 
+    // both tiers in access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, CachedSVG> memoryEntries =
+            new LinkedHashMap<String, CachedSVG>(16, 0.75f, true);
+    private long memorySize = 0;
+
+    private LinkedHashMap<String, Long> diskEntries;
+    private long diskSize = 0;
+
     protected AbstractSVGIOPussycatSession() {
         super();
     }
@@ -49,70 +78,211 @@ public abstract class AbstractSVGIOPussycatSession extends AbstractPussycatSessi
         this.cacheDirectory = cacheDirectory;
     }
 
-    protected synchronized void writeSVG(String filename, String svg) throws IOException {
-        if (getCacheDirectory() == null) {
-            throw new IllegalStateException("Cache directory must not be null");
+    public synchronized String getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Sets the version of the data SVG documents are rendered from.  If it differs from the current version, all cached
+     * documents are discarded, from memory and from disk, so none rendered from the previous version is served again.
+     *
+     * @param dataVersion the data (release) version
+     */
+    public synchronized void setDataVersion(String dataVersion) {
+        if (!dataVersion.equals(this.dataVersion)) {
+            this.dataVersion = dataVersion;
+            if (diskEntries != null) {
+                getLog().info("Data version is now '" + dataVersion + "', clearing SVG cache");
+                clearCache();
+            }
         }
-        Writer out = null;
-        try {
-            File f = new File(getCacheDirectory(), filename);
-            getLog().debug("Writing SVG to '" + f.getAbsolutePath() + "'...");
-            if (!getCacheDirectory().exists()) {
-                getLog().debug("Making parent directory '" + getCacheDirectory().getAbsolutePath() + "'...");
-                getCacheDirectory().mkdirs();
-                getLog().debug("Directory created!");
+    }
+
+    public long getMaxMemorySize() {
+        return maxMemorySize;
+    }
+
+    public void setMaxMemorySize(long maxMemorySize) {
+        this.maxMemorySize = maxMemorySize;
+    }
+
+    public long getMaxDiskSize() {
+        return maxDiskSize;
+    }
+
+    public void setMaxDiskSize(long maxDiskSize) {
+        this.maxDiskSize = maxDiskSize;
+    }
+
+    /**
+     * Returns the cached SVG document with the given key, from memory or else from disk
+     *
+     * @param filename the cache key, as generated by {@link #generateFilename(Object...)}
+     * @return the cached document, or null if it is not cached
+     * @throws IOException if the cached file cannot be read
+     */
+    protected CachedSVG readSVG(String filename) throws IOException {
+        File f;
+        synchronized (this) {
+            CachedSVG cached = memoryEntries.get(filename);
+            if (cached != null) {
+                getLog().trace("SVG '" + filename + "' found in memory");
+                return cached;
+            }
+            if (getDiskEntries().get(filename) == null) {
+                return null;
             }
-            out = new BufferedWriter(new FileWriter(f));
-            out.write(svg);
-            getLog().debug("SVG written to disk successfully!");
+            f = new File(getCacheDirectory(), filename + GZIP_EXTENSION);
+        }
+
+        getLog().debug("Reading SVG from '" + f.getAbsolutePath() + "'...");
+        CachedSVG cached;
+        try {
+            cached = new CachedSVG(filename, Files.readAllBytes(f.toPath()), f.lastModified());
+        }
+        catch (NoSuchFileException e) {
+            // evicted in the meantime
+            return null;
         }
-        finally {
-            if (out != null) {
-                out.close();
+        synchronized (this) {
+            if (!getDiskEntries().containsKey(filename)) {
+                // evicted, or the cache cleared, while the file was read
+                return null;
             }
+            addToMemory(cached);
         }
+        return cached;
     }
 
-    protected synchronized String readSVG(String filename) throws IOException {
+    /**
+     * Caches a rendered SVG document, in memory and on disk, evicting the least recently used documents beyond the size
+     * limits
+     *
+     * @param filename the cache key, as generated by {@link #generateFilename(Object...)}
+     * @param svg      the SVG document
+     * @return the cached document
+     * @throws IOException if the document cannot be written to disk
+     */
+    protected synchronized CachedSVG writeSVG(String filename, String svg) throws IOException {
         if (getCacheDirectory() == null) {
             throw new IllegalStateException("Cache directory must not be null");
         }
-        StringBuilder sb = new StringBuilder();
-        BufferedReader in = null;
-        try {
-            File f = new File(getCacheDirectory(), filename);
-            getLog().debug("Reading SVG from '" + f.getAbsolutePath() + "'...");
-            in = new BufferedReader(new FileReader(f));
-            String line;
-            while ((line = in.readLine()) != null) {
-                sb.append(line);
+        LinkedHashMap<String, Long> diskEntries = getDiskEntries();
+        CachedSVG cached = CachedSVG.of(filename, svg);
+        addToMemory(cached);
+
+        File f = new File(getCacheDirectory(), filename + GZIP_EXTENSION);
+        getLog().debug("Writing SVG to '" + f.getAbsolutePath() + "'...");
+        Files.write(f.toPath(), cached.getGzippedSVG());
+        Long previousSize = diskEntries.put(filename, (long) cached.getGzippedSVG().length);
+        diskSize += cached.getGzippedSVG().length - (previousSize != null ? previousSize : 0);
+        getLog().debug("SVG written to disk successfully!");
+
+        Iterator<Map.Entry<String, Long>> eldest = diskEntries.entrySet().iterator();
+        while (diskSize > getMaxDiskSize() && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(filename)) {
+                break;
             }
-            return sb.toString();
-        }
-        finally {
-            if (in != null) {
-                in.close();
+            File evicted = new File(getCacheDirectory(), entry.getKey() + GZIP_EXTENSION);
+            if (!evicted.delete()) {
+                getLog().warn("Failed to delete cached SVG file '" + evicted.getAbsolutePath() + "'");
             }
+            diskSize -= entry.getValue();
+            eldest.remove();
         }
+        return cached;
     }
 
     protected synchronized boolean isInCache(String filename) {
-        File f = new File(getCacheDirectory(), filename);
-        return f.exists();
+        return memoryEntries.containsKey(filename) || getDiskEntries().containsKey(filename);
     }
 
     protected synchronized void clearCache() {
         if (getCacheDirectory() == null) {
             throw new IllegalStateException("Cache directory must not be null");
         }
-        for (File f : getCacheDirectory().listFiles()) {
-            if (!f.delete()) {
-                getLog().warn("Failed to delete cached SVG file '" + f.getAbsolutePath() + "'");
+        memoryEntries.clear();
+        memorySize = 0;
+        File[] files = getCacheDirectory().listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (!f.delete()) {
+                    getLog().warn("Failed to delete cached SVG file '" + f.getAbsolutePath() + "'");
+                }
+            }
+        }
+        diskEntries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        diskSize = 0;
+        writeVersion();
+    }
+
+    private void addToMemory(CachedSVG cached) {
+        CachedSVG previous = memoryEntries.put(cached.getKey(), cached);
+        memorySize += cached.getGzippedSVG().length - (previous != null ? previous.getGzippedSVG().length : 0);
+        Iterator<CachedSVG> eldest = memoryEntries.values().iterator();
+        while (memorySize > getMaxMemorySize() && eldest.hasNext()) {
+            memorySize -= eldest.next().getGzippedSVG().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Index of the files in the cache directory, built from the directory on first use in least recently modified
+     * order.  If the directory holds documents rendered from another data version, they are all deleted first.
+     */
+    private LinkedHashMap<String, Long> getDiskEntries() {
+        if (diskEntries == null) {
+            if (getCacheDirectory() == null) {
+                throw new IllegalStateException("Cache directory must not be null");
             }
+            if (!getCacheDirectory().exists()) {
+                getLog().debug("Making parent directory '" + getCacheDirectory().getAbsolutePath() + "'...");
+                getCacheDirectory().mkdirs();
+                getLog().debug("Directory created!");
+            }
+            if (!getDataVersion().equals(readVersion())) {
+                getLog().info("SVG cache holds data version '" + readVersion() + "', " +
+                                      "current version is '" + getDataVersion() + "': clearing SVG cache");
+                clearCache();
+            }
+            else {
+                File[] files = getCacheDirectory().listFiles((dir, name) -> name.endsWith(GZIP_EXTENSION));
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                diskEntries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+                for (File f : files) {
+                    String name = f.getName();
+                    diskEntries.put(name.substring(0, name.length() - GZIP_EXTENSION.length()), f.length());
+                    diskSize += f.length();
+                }
+                getLog().debug("SVG cache holds " + diskEntries.size() + " files, " + diskSize + " bytes");
+            }
+        }
+        return diskEntries;
+    }
+
+    private String readVersion() {
+        File f = new File(getCacheDirectory(), VERSION_FILE);
+        try {
+            return f.exists() ? new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8) : "";
+        }
+        catch (IOException e) {
+            getLog().warn("Failed to read SVG cache data version from '" + f.getAbsolutePath() + "'", e);
+            return null;
+        }
+    }
+
+    private void writeVersion() {
+        File f = new File(getCacheDirectory(), VERSION_FILE);
+        try {
+            Files.write(f.toPath(), getDataVersion().getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            getLog().warn("Failed to write SVG cache data version to '" + f.getAbsolutePath() + "'", e);
         }
     }
 
-    protected String generateFilename(Object... objects) {
+    protected synchronized String generateFilename(Object... objects) {
         StringBuilder hashedArgs = new StringBuilder();
         for (Object o : objects) {
             hashedArgs.append(o.hashCode());
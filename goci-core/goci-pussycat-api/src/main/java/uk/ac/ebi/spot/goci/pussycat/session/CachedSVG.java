@@ -0,0 +1,146 @@
+package uk.ac.ebi.spot.goci.pussycat.session;
+
+import uk.ac.ebi.spot.goci.pussycat.utils.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A rendered SVG document held by the SVG cache of a pussycat session.  The document is kept gzipped, so that it can be
+ * sent as is to clients accepting gzip encoding, together with the entity tag and last modification time clients can
+ * use to revalidate it.  The gzipped and the uncompressed forms are different representations, so each has its own
+ * entity tag.
+ */
+public class CachedSVG {
+    private final String key;
+    private final byte[] gzippedSVG;
+    private final String eTag;
+    private final String gzipETag;
+    private final long lastModified;
+
+    public CachedSVG(String key, byte[] gzippedSVG, long lastModified) {
+        this.key = key;
+        this.gzippedSVG = gzippedSVG;
+        String digest = digest(gzippedSVG);
+        this.eTag = "\"" + digest + "\"";
+        this.gzipETag = "\"" + digest + "-gzip\"";
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Creates a cache entry for a freshly rendered SVG document
+     *
+     * @param key the cache key of the document
+     * @param svg the SVG document
+     * @return the cache entry, last modified now
+     */
+    public static CachedSVG of(String key, String svg) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(svg.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to compress SVG", e);
+        }
+        return new CachedSVG(key, bytes.toByteArray(), System.currentTimeMillis());
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public byte[] getGzippedSVG() {
+        return gzippedSVG;
+    }
+
+    /**
+     * @return the entity tag of the uncompressed document
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @return the entity tag of the gzipped document
+     */
+    public String getGzipETag() {
+        return gzipETag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Tells whether a client accepts gzip encoded documents, by name or through "*", with a non zero quality value
+     *
+     * @param acceptEncoding the Accept-Encoding header of the client request, or null if there is none
+     * @return true if the gzipped document can be sent
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String[] param = params[i].split("=", 2);
+                if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+                    try {
+                        quality = Double.parseDouble(param[1].trim());
+                    }
+                    catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            }
+            else if (name.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        double quality = gzipQuality != null ? gzipQuality : anyQuality != null ? anyQuality : 0;
+        return quality > 0;
+    }
+
+    /**
+     * @return the uncompressed SVG document
+     */
+    public String getSVG() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(gzippedSVG.length * 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzippedSVG))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to decompress cached SVG '" + key + "'", e);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String digest(byte[] content) {
+        try {
+            return StringUtils.getHexRepresentation(MessageDigest.getInstance("SHA-1").digest(content));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 algorithm not available, this is required to generate entity tags");
+        }
+    }
+}
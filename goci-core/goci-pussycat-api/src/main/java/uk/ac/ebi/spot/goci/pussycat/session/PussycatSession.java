@@ -35,7 +35,8 @@ public interface PussycatSession {
 
     /**
      * Fetches all data that fulfils the given filters and renders it using any available renderlets.  The
-     * RenderletNexus for this session is used to ensure available renderlets know how to arrange their output.
+     * RenderletNexus for this request is used to ensure available renderlets know how to arrange their output, and
+     * should not be shared with other requests so that several renderings can run at once.
      *
      * @param renderletNexus a renderletNexus that controls interactions between the configured renderlets for this
      *                       pussycat session
@@ -0,0 +1,166 @@
+package uk.ac.ebi.spot.goci.pussycat.session;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.ebi.spot.goci.pussycat.exception.PussycatSessionNotReadyException;
+import uk.ac.ebi.spot.goci.pussycat.lang.Filter;
+import uk.ac.ebi.spot.goci.pussycat.renderlet.RenderletNexus;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the two tier SVG cache of {@link AbstractSVGIOPussycatSession} and the entity tags of {@link CachedSVG}
+ */
+public class TestSVGCache {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheDirectory;
+
+    // size of each of the gzipped test documents, which all have the same length
+    private long documentSize;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDirectory = folder.newFolder("svg");
+        documentSize = CachedSVG.of("x", svg("x")).getGzippedSVG().length;
+    }
+
+    @Test
+    public void testCachedSVG() {
+        CachedSVG cached = CachedSVG.of("a", svg("a"));
+        assertEquals(svg("a"), cached.getSVG());
+        assertEquals(cached.getETag(), CachedSVG.of("a", svg("a")).getETag());
+        assertNotEquals(cached.getETag(), CachedSVG.of("b", svg("b")).getETag());
+
+        // each encoding of the document has its own entity tag
+        assertNotEquals(cached.getETag(), cached.getGzipETag());
+        assertTrue(cached.getETag().startsWith("\"") && cached.getETag().endsWith("\""));
+        assertTrue(cached.getGzipETag().startsWith("\"") && cached.getGzipETag().endsWith("\""));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertFalse(CachedSVG.acceptsGzip(null));
+        assertFalse(CachedSVG.acceptsGzip(""));
+        assertTrue(CachedSVG.acceptsGzip("gzip"));
+        assertTrue(CachedSVG.acceptsGzip("gzip, deflate, br"));
+        assertTrue(CachedSVG.acceptsGzip("deflate, GZIP ; q=0.8"));
+        assertTrue(CachedSVG.acceptsGzip("identity, *;q=0.5"));
+        assertFalse(CachedSVG.acceptsGzip("deflate"));
+        assertFalse(CachedSVG.acceptsGzip("gzip;q=0"));
+        assertFalse(CachedSVG.acceptsGzip("gzip;q=0.0, deflate"));
+        assertFalse(CachedSVG.acceptsGzip("*;q=0"));
+        assertFalse(CachedSVG.acceptsGzip("gzip;q=0, *"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDocumentIsEvictedFromMemory() throws Exception {
+        TestSession session = session("");
+        session.setMaxMemorySize(2 * documentSize);
+
+        CachedSVG a = session.writeSVG("a", svg("a"));
+        CachedSVG b = session.writeSVG("b", svg("b"));
+        assertSame(a, session.readSVG("a"));
+        CachedSVG c = session.writeSVG("c", svg("c"));
+
+        // b was used least recently, it is only left on disk
+        assertSame(a, session.readSVG("a"));
+        assertSame(c, session.readSVG("c"));
+        CachedSVG fromDisk = session.readSVG("b");
+        assertNotSame(b, fromDisk);
+        assertEquals(svg("b"), fromDisk.getSVG());
+        assertEquals(b.getETag(), fromDisk.getETag());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFileIsEvictedFromDisk() throws Exception {
+        TestSession session = session("");
+        session.setMaxMemorySize(0);
+        session.setMaxDiskSize(2 * documentSize);
+
+        session.writeSVG("a", svg("a"));
+        session.writeSVG("b", svg("b"));
+        assertNotNull(session.readSVG("a"));
+        session.writeSVG("c", svg("c"));
+
+        assertTrue(session.isInCache("a"));
+        assertFalse(session.isInCache("b"));
+        assertTrue(session.isInCache("c"));
+        assertNull(session.readSVG("b"));
+        assertFalse(new File(cacheDirectory, "b.gz").exists());
+        assertTrue(new File(cacheDirectory, "a.gz").exists());
+    }
+
+    @Test
+    public void testChangingDataVersionClearsBothTiers() throws Exception {
+        TestSession session = session("1");
+        session.writeSVG("a", svg("a"));
+        assertNotNull(session.readSVG("a"));
+
+        session.setDataVersion("2");
+
+        assertNull(session.readSVG("a"));
+        assertFalse(new File(cacheDirectory, "a.gz").exists());
+        assertEquals("2", new String(Files.readAllBytes(new File(cacheDirectory, "data.version").toPath()),
+                                     StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCacheOfAnotherDataVersionIsClearedOnFirstUse() throws Exception {
+        session("1").writeSVG("a", svg("a"));
+
+        // a new session for the same data finds the document on disk
+        assertEquals(svg("a"), session("1").readSVG("a").getSVG());
+
+        // one for a new release does not
+        assertNull(session("2").readSVG("a"));
+        assertFalse(new File(cacheDirectory, "a.gz").exists());
+    }
+
+    private TestSession session(String dataVersion) {
+        TestSession session = new TestSession();
+        session.setCacheDirectory(cacheDirectory);
+        session.setDataVersion(dataVersion);
+        return session;
+    }
+
+    private static String svg(String text) {
+        return "<svg>" + text + "</svg>";
+    }
+
+    private static class TestSession extends AbstractSVGIOPussycatSession {
+        @Override
+        public String getSessionID() {
+            return "foo";
+        }
+
+        @Override
+        public String performRendering(RenderletNexus renderletNexus, Filter... filters)
+                throws PussycatSessionNotReadyException {
+            return "";
+        }
+
+        @Override
+        public Set<URI> getRelatedTraits(String traitName) {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -46,7 +46,7 @@ public abstract class AssociationRenderlet<C, E> implements Renderlet<C, E> {
         }
 
         try {
-            BandInformation band = getBandInformation(context, associationEntity);
+            BandInformation band = getBandInformation(nexus, context, associationEntity);
             if (!nexus.alreadyRendered(band)) {
                 // there is no other association in this chromosomal band yet - render
                 getLog().trace("This is the first association for band '" + band.getBandName() + "', " +
@@ -186,12 +186,13 @@ public abstract class AssociationRenderlet<C, E> implements Renderlet<C, E> {
     /**
      * Fetches the band information about the cytogenetic region the current association is located in
      *
+     * @param nexus       the renderlet nexus
      * @param context     the context
      * @param association the association to lookup band information for
      * @return the band information for this association
      * @throws DataIntegrityViolationException
      */
-    protected abstract BandInformation getBandInformation(C context, E association)
+    protected abstract BandInformation getBandInformation(RenderletNexus nexus, C context, E association)
             throws DataIntegrityViolationException;
 
     /**
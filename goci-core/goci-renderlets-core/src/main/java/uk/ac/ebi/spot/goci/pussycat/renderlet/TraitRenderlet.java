@@ -53,7 +53,7 @@ public abstract class TraitRenderlet<C, E> implements Renderlet<C, E> {
             for (E association : getAssociationsForTrait(nexus, context, trait)) {
                 try {
                     // get the band for this association
-                    E band = getBandForAssociation(context, association);
+                    E band = getBandForAssociation(nexus, context, association);
                     if (!bandToAssociationMap.containsKey(band)) {
                         bandToAssociationMap.put(band, new HashSet<E>());
                     }
@@ -170,7 +170,8 @@ public abstract class TraitRenderlet<C, E> implements Renderlet<C, E> {
     protected abstract Set<E> getAssociationsForTrait(RenderletNexus nexus, C context, E trait)
             throws DataIntegrityViolationException;
 
-    protected abstract E getBandForAssociation(C context, E association) throws DataIntegrityViolationException;
+    protected abstract E getBandForAssociation(RenderletNexus nexus, C context, E association)
+            throws DataIntegrityViolationException;
 
     protected abstract List<SVGArea> getLocationsOfOtherTraitsinBand(RenderletNexus nexus, C context, E band)
             throws DataIntegrityViolationException;
@@ -2,16 +2,22 @@ package uk.ac.ebi.spot.goci.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.spot.goci.model.Association;
 
+import javax.persistence.QueryHint;
+
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 /**
@@ -32,6 +38,22 @@ public interface AssociationRepository extends JpaRepository<Association, Long>
 
     Collection<Association> findByLociStrongestRiskAllelesSnpId(long snpId);
 
+    @RestResource(exported = false)
+    List<Association> findByStudyIdIn(Collection<Long> studyIds);
+
+    // Published associations that changed or were mapped, or whose study's housekeeping changed, after the given date
+    @RestResource(exported = false)
+    @Query("select a from Association a " +
+            "where a.study.housekeeping.catalogPublishDate is not null " +
+            "and a.study.housekeeping.catalogUnpublishDate is null " +
+            "and (a.lastUpdateDate > :since or a.lastMappingDate > :since " +
+            "or a.study.housekeeping.lastUpdateDate > :since or a.study.housekeeping.catalogPublishDate > :since)")
+    List<Association> findPublishedAssociationsChangedSince(@Param("since") Date since);
+
+    @RestResource(exported = false)
+    List<Association> findDistinctByEfoTraitsIdInAndStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull(
+            Collection<Long> efoTraitIds);
+
     @RestResource(exported = false)
     List<Association> findByStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull();
 
@@ -42,6 +64,17 @@ public interface AssociationRepository extends JpaRepository<Association, Long>
     Page<Association> findByStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull(
             Pageable pageable);
 
+    // Keyset pagination: the next page after the given id, without a count query
+    @RestResource(exported = false)
+    Slice<Association> findByIdGreaterThanAndStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull(
+            Long id,
+            Pageable pageable);
+
+    // Only usable inside a transaction, the stream holds an open database cursor
+    @RestResource(exported = false)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<Association> streamByStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNullOrderByIdAsc();
+
     @RestResource(exported = false)
     List<Association> findByLociStrongestRiskAllelesSnpIdAndStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull(
             Long snpId);
@@ -89,4 +122,6 @@ public interface AssociationRepository extends JpaRepository<Association, Long>
 
 
     Collection<Association> findBylastMappingDateIsNull();
+
+    List<Association> findByIdLessThan(Long id, Sort sort);
 }
@@ -4,6 +4,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import uk.ac.ebi.spot.goci.model.DeletedAssociation;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * Created by emma on 06/06/16.
  *
@@ -13,5 +16,8 @@ import uk.ac.ebi.spot.goci.model.DeletedAssociation;
  */
 @RepositoryRestResource(exported = false)
 public interface DeletedAssociationRepository extends JpaRepository<DeletedAssociation, Long> {
+
+    // Event dates have no time part, so the given date should be the start of a day
+    List<DeletedAssociation> findDistinctByEventsEventDateGreaterThanEqual(Date date);
 }
 
@@ -4,6 +4,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import uk.ac.ebi.spot.goci.model.DeletedStudy;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * Created by emma on 31/05/16.
  *
@@ -13,5 +16,8 @@ import uk.ac.ebi.spot.goci.model.DeletedStudy;
  */
 @RepositoryRestResource(exported = false)
 public interface DeletedStudyRepository extends JpaRepository<DeletedStudy, Long> {
+
+    // Event dates have no time part, so the given date should be the start of a day
+    List<DeletedStudy> findDistinctByEventsEventDateGreaterThanEqual(Date date);
 }
 
@@ -2,6 +2,7 @@ package uk.ac.ebi.spot.goci.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
@@ -49,5 +50,8 @@ public interface EfoTraitRepository extends JpaRepository<EfoTrait, Long> {
 
     Page<EfoTrait> findByUri(Pageable pageable, String uri);
 
+    // Keyset pagination: the next page after the given id, without a count query
+    @RestResource(exported = false)
+    Slice<EfoTrait> findByIdGreaterThan(Long id, Pageable pageable);
 }
 
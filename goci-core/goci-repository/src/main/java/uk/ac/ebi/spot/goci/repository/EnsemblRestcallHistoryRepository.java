@@ -20,4 +20,8 @@ public interface EnsemblRestcallHistoryRepository extends JpaRepository<EnsemblR
 
     Collection<EnsemblRestcallHistory> findByRequestTypeAndEnsemblParamAndEnsemblVersion(String requestType, String ensemblParam, String ensemblVersion);
 
+    Collection<EnsemblRestcallHistory> findByRequestTypeAndEnsemblVersionAndEnsemblParamIn(String requestType, String ensemblVersion, Collection<String> ensemblParams);
+
+    Collection<EnsemblRestcallHistory> findByRequestTypeAndEnsemblVersion(String requestType, String ensemblVersion);
+
 }
@@ -21,4 +21,6 @@ public interface GenomicContextRepository extends JpaRepository<GenomicContext,
 
     List<GenomicContext> findByLocationId(Long locationId);
 
+    List<GenomicContext> findByLocationIdIn(Collection<Long> locationIds);
+
 }
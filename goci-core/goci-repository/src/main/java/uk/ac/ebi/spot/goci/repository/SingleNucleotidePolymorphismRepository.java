@@ -33,6 +33,8 @@ public interface SingleNucleotidePolymorphismRepository extends JpaRepository<Si
 
     List<SingleNucleotidePolymorphism> findByLocationsId(Long locationId);
 
+    List<SingleNucleotidePolymorphism> findByLocationsIdIn(Collection<Long> locationIds);
+
     List<SingleNucleotidePolymorphism> findByLocationsChromosomePosition(@Param("bpLocation") int chromosomePosition);
 
 //    List<SingleNucleotidePolymorphism> findByLocationsChromosomeNameAndLocationsChromosomePositionBetween(@Param("chrom") String chromosomeName, @Param("bpStart") int start, @Param("bpEnd") int end);
@@ -2,16 +2,22 @@ package uk.ac.ebi.spot.goci.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.spot.goci.model.Study;
 
+import javax.persistence.QueryHint;
+
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Created by emma on 20/11/14.
@@ -108,6 +114,17 @@ public interface StudyRepository extends JpaRepository<Study, Long> {
     @RestResource(exported = false)
     Page<Study> findByHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(Pageable pageable);
 
+    // Keyset pagination: the next page after the given id, without a count query
+    @RestResource(exported = false)
+    Slice<Study> findByIdGreaterThanAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+            Long id,
+            Pageable pageable);
+
+    // Only usable inside a transaction, the stream holds an open database cursor
+    @RestResource(exported = false)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<Study> streamByHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNullOrderByIdAsc();
+
     @RestResource(exported = false)
     List<Study> findByAssociationsLociStrongestRiskAllelesSnpIdAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
             Long snpId);
@@ -116,6 +133,29 @@ public interface StudyRepository extends JpaRepository<Study, Long> {
     List<Study> findByAssociationsIdAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
             Long associationId);
 
+    @RestResource(exported = false)
+    List<Study> findDistinctByAssociationsIdInAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+            Collection<Long> associationIds);
+
+    @RestResource(exported = false)
+    List<Study> findByDiseaseTraitIdInAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+            Collection<Long> diseaseTraitIds);
+
+    @RestResource(exported = false)
+    List<Study> findByIdInAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+            Collection<Long> ids);
+
+    // Published studies whose housekeeping, or any of whose associations, changed or was mapped after the given date
+    @RestResource(exported = false)
+    @Query("select distinct s from Study s left join s.associations a " +
+            "where s.housekeeping.catalogPublishDate is not null and s.housekeeping.catalogUnpublishDate is null " +
+            "and (s.housekeeping.lastUpdateDate > :since or s.housekeeping.catalogPublishDate > :since " +
+            "or a.lastUpdateDate > :since or a.lastMappingDate > :since)")
+    List<Study> findPublishedStudiesChangedSince(@Param("since") Date since);
+
+    @RestResource(exported = false)
+    List<Study> findByHousekeepingCatalogUnpublishDateAfter(Date since);
+
     @RestResource(exported = false)
     List<Study> findByDiseaseTraitIdAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
             Long diseaseTraitId);
@@ -5,10 +5,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.spot.goci.model.Association;
+import uk.ac.ebi.spot.goci.model.EfoTrait;
 import uk.ac.ebi.spot.goci.model.EnsemblGene;
 import uk.ac.ebi.spot.goci.model.EntrezGene;
 import uk.ac.ebi.spot.goci.model.Gene;
@@ -19,14 +21,21 @@ import uk.ac.ebi.spot.goci.model.SingleNucleotidePolymorphism;
 import uk.ac.ebi.spot.goci.model.Study;
 import uk.ac.ebi.spot.goci.repository.AssociationRepository;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Javadocs go here!
@@ -36,11 +45,17 @@ import java.util.stream.Collectors;
  */
 @Service
 public class AssociationService {
+    // Stays below the Oracle limit of 1000 expressions in an IN list
+    private static final int FIND_CHUNK_SIZE = 1000;
+
     private AssociationRepository associationRepository;
 
     private StudyService studyService;
     private SingleNucleotidePolymorphismService snpService;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     @Autowired
@@ -128,6 +143,59 @@ public class AssociationService {
         return allAssociations;
     }
 
+    /**
+     * Get the page of published associations following the given association id. Paging on the id this way seeks
+     * straight to the first row of each page, and no total count is run, so reading the whole catalogue page by page
+     * costs the same for the last page as for the first.
+     *
+     * @param id       id of the last association of the previous page
+     * @param pageable page size and sort, which should be on id
+     * @return the next page of associations
+     */
+    @Transactional(readOnly = true)
+    public Slice<Association> findPublishedAssociationsAfter(Long id, Pageable pageable) {
+        Slice<Association> associations =
+                associationRepository.findByIdGreaterThanAndStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull(
+                        id,
+                        pageable);
+        associations.forEach(this::loadAssociatedData);
+        return associations;
+    }
+
+    /**
+     * Read all published associations, in id order, through a single query and database cursor, and hand them over in
+     * lists of the given size as they are read
+     * <p>
+     * Each list is detached from the persistence context before it is handed over, so the context never holds more
+     * than one list and the consumer may pass the associations to other threads while the cursor moves on. Only the
+     * data loaded by {@link #loadAssociatedData(Association)} is available on them.
+     *
+     * @param batchSize number of associations per list
+     * @param consumer  receives each list, once its associated data is loaded and it is detached
+     */
+    @Transactional(readOnly = true)
+    public void streamPublishedAssociations(int batchSize, Consumer<List<Association>> consumer) {
+        try (Stream<Association> associations =
+                     associationRepository.streamByStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNullOrderByIdAsc()) {
+            List<Association> batch = new ArrayList<>(batchSize);
+            Iterator<Association> iterator = associations.iterator();
+            while (iterator.hasNext()) {
+                Association association = iterator.next();
+                loadAssociatedData(association);
+                batch.add(association);
+                if (batch.size() == batchSize) {
+                    entityManager.clear();
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                entityManager.clear();
+                consumer.accept(batch);
+            }
+        }
+    }
+
     @Transactional(readOnly = true)
     public Collection<Association> findPublishedAssociationsByStudyId(Long studyId) {
         Collection<Association> associations = associationRepository.findByStudyId(studyId);
@@ -135,6 +203,27 @@ public class AssociationService {
         return associations;
     }
 
+    /**
+     * Set-based version of {@link #findPublishedAssociationsByStudyId(Long)}
+     *
+     * @param studyIds ids of the studies
+     * @return the associations of each study, by study id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Association>> findPublishedAssociationsByStudyIds(Collection<Long> studyIds) {
+        List<Long> ids = new ArrayList<>(studyIds);
+        Map<Long, List<Association>> associations = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += FIND_CHUNK_SIZE) {
+            associationRepository.findByStudyIdIn(ids.subList(i, Math.min(i + FIND_CHUNK_SIZE, ids.size())))
+                    .forEach(association -> {
+                        loadAssociatedData(association);
+                        associations.computeIfAbsent(association.getStudy().getId(), id -> new ArrayList<>())
+                                .add(association);
+                    });
+        }
+        return associations;
+    }
+
     @Transactional(readOnly = true)
     public Collection<Association> findPublishedAssociationsBySnpId(Long snpId) {
         Collection<Association> associations = associationRepository
@@ -162,6 +251,47 @@ public class AssociationService {
         return associations;
     }
 
+    /**
+     * Set-based version of {@link #findPublishedAssociationsByEfoTraitId(Long)}
+     *
+     * @param efoTraitIds ids of the EFO traits
+     * @return the published associations mapped to each EFO trait, by EFO trait id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Association>> findPublishedAssociationsByEfoTraitIds(Collection<Long> efoTraitIds) {
+        List<Long> ids = new ArrayList<>(efoTraitIds);
+        Map<Long, List<Association>> associations = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += FIND_CHUNK_SIZE) {
+            Set<Long> chunk = new HashSet<>(ids.subList(i, Math.min(i + FIND_CHUNK_SIZE, ids.size())));
+            associationRepository.findDistinctByEfoTraitsIdInAndStudyHousekeepingCatalogPublishDateIsNotNullAndStudyHousekeepingCatalogUnpublishDateIsNull(
+                    chunk)
+                    .forEach(association -> {
+                        loadAssociatedData(association);
+                        association.getEfoTraits()
+                                .stream()
+                                .map(EfoTrait::getId)
+                                .filter(chunk::contains)
+                                .forEach(id -> associations.computeIfAbsent(id, key -> new ArrayList<>())
+                                        .add(association));
+                    });
+        }
+        return associations;
+    }
+
+    /**
+     * Get the published associations whose index documents are out of date since the given date: associations updated
+     * or mapped after it, and associations of studies published or with housekeeping updated after it
+     *
+     * @param since date of the last indexing
+     * @return the changed associations, with their associated data
+     */
+    @Transactional(readOnly = true)
+    public List<Association> findPublishedAssociationsChangedSince(Date since) {
+        List<Association> associations = associationRepository.findPublishedAssociationsChangedSince(since);
+        associations.forEach(this::loadAssociatedData);
+        return associations;
+    }
+
     public void loadAssociatedDataIncludingHousekeeping(Association association) {
         loadAssociatedData(association);
         association.getStudy().getHousekeeping().getCatalogPublishDate();
@@ -0,0 +1,57 @@
+package uk.ac.ebi.spot.goci.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Properties file holding the checkpoint of a long running job.
+ * <p>
+ * The file is written to a temporary file first and moved in place, so a crash never leaves a half written checkpoint.
+ */
+public class CheckpointFile {
+
+    private final Path path;
+
+    public CheckpointFile(String file) {
+        this.path = Paths.get(file);
+    }
+
+    /**
+     * @return the saved properties, or null if no checkpoint has been saved yet
+     * @throws IOException if the file cannot be read
+     */
+    public Properties load() throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * @param properties the checkpoint
+     * @param comments   description written at the top of the file
+     * @throws IOException if the file cannot be written, the previous checkpoint is then left as it was
+     */
+    public void save(Properties properties, String comments) throws IOException {
+        Path target = path.toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Path temporary = Paths.get(target + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, comments);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,232 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.model.RestResponseResult;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Service that looks up many Ensembl identifiers at once, so that the single GET calls later made for each of them
+ * find their results in the REST call history instead of calling Ensembl.
+ * <p>
+ * Stored results are first loaded into the history cache with a few set-based queries. The remaining identifiers are
+ * sent to the POST form of their endpoint with {@link EnsemblRestTemplateService#postRestCall} in batches of
+ * "ensembl.lookup.batch_size", several batches at a time on "ensembl.lookup.threads" threads. Each result is stored in
+ * the history under the type and parameter of the equivalent GET call. Identifiers Ensembl does not return are then
+ * passed to the fallback of their lookup, if it has one, also concurrently. Without an Ensembl release nothing can be
+ * stored, so the lookup is skipped.
+ */
+@Service
+public class EnsemblIdentifierLookupService {
+
+    @Value("${ensembl.lookup.threads:8}")
+    private int lookupThreads = 8;
+
+    @Value("${ensembl.lookup.batch_size:200}")
+    private int lookupBatchSize = 200;
+
+    private EnsemblRestTemplateService ensemblRestTemplateService;
+
+    private EnsemblRestcallHistoryService ensemblRestcallHistoryService;
+
+    private ExecutorService lookupExecutor;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @Autowired
+    public EnsemblIdentifierLookupService(EnsemblRestTemplateService ensemblRestTemplateService,
+                                          EnsemblRestcallHistoryService ensemblRestcallHistoryService) {
+        this.ensemblRestTemplateService = ensemblRestTemplateService;
+        this.ensemblRestcallHistoryService = ensemblRestcallHistoryService;
+    }
+
+    /**
+     * Identifiers of one endpoint to look up
+     */
+    public static class Lookup {
+
+        private final String endpointType;
+
+        private final String historyType;
+
+        private final Set<String> ids;
+
+        private final Consumer<String> fallback;
+
+        /**
+         * @param endpointType endpoint with a POST form, "variation" or "lookup_symbol"
+         * @param historyType  type the results of the GET calls are stored under in the REST call history
+         * @param ids          identifiers to look up, may contain duplicates
+         * @param fallback     single lookup of an identifier Ensembl did not return, or null to leave those to the
+         *                     caller
+         */
+        public Lookup(String endpointType, String historyType, Collection<String> ids, Consumer<String> fallback) {
+            this.endpointType = endpointType;
+            this.historyType = historyType;
+            this.ids = new LinkedHashSet<>(ids);
+            this.fallback = fallback;
+        }
+    }
+
+    /**
+     * Look up the identifiers of one or more endpoints, all batches and fallbacks sharing the same threads
+     *
+     * @param eRelease Ensembl release
+     * @param lookups  identifiers to look up
+     */
+    public void lookup(String eRelease, Lookup... lookups) {
+        if (eRelease == null || eRelease.isEmpty()) {
+            return;
+        }
+
+        List<Set<String>> missing = new ArrayList<>();
+        boolean anyMissing = false;
+        for (Lookup lookup : lookups) {
+            Set<String> missingIds = ensemblRestcallHistoryService.prefetch(lookup.historyType, lookup.ids, eRelease);
+            getLog().info("Looking up " + missingIds.size() + " of " + lookup.ids.size() + " " + lookup.historyType +
+                                  " identifiers in Ensembl");
+            missing.add(missingIds);
+            anyMissing |= !missingIds.isEmpty();
+        }
+        if (!anyMissing) {
+            return;
+        }
+
+        try {
+            // Send all batches, then hand what Ensembl did not return to the fallbacks
+            List<Callable<Set<String>>> batches = new ArrayList<>();
+            List<Integer> batchCounts = new ArrayList<>();
+            for (int i = 0; i < lookups.length; i++) {
+                List<Callable<Set<String>>> lookupBatches = createBatches(lookups[i], missing.get(i), eRelease);
+                batches.addAll(lookupBatches);
+                batchCounts.add(lookupBatches.size());
+            }
+            List<Set<String>> found = runAll(batches);
+
+            List<Callable<Set<String>>> fallbacks = new ArrayList<>();
+            int next = 0;
+            for (int i = 0; i < lookups.length; i++) {
+                Set<String> unknown = new LinkedHashSet<>(missing.get(i));
+                found.subList(next, next + batchCounts.get(i)).forEach(unknown::removeAll);
+                next += batchCounts.get(i);
+                getLog().debug("Batch " + lookups[i].endpointType + " lookup: " +
+                                       (missing.get(i).size() - unknown.size()) + " of " + missing.get(i).size() +
+                                       " found");
+                if (lookups[i].fallback != null) {
+                    fallbacks.addAll(createFallbacks(unknown, lookups[i].fallback));
+                }
+            }
+            runAll(fallbacks);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLog().warn("Ensembl lookup interrupted, remaining identifiers will be looked up one by one");
+        }
+    }
+
+    private List<Callable<Set<String>>> createBatches(Lookup lookup, Set<String> ids, String eRelease) {
+        List<Callable<Set<String>>> batches = new ArrayList<>();
+        List<String> idList = new ArrayList<>(ids);
+        int batchSize = Math.max(1, getLookupBatchSize());
+        for (int start = 0; start < idList.size(); start += batchSize) {
+            List<String> batch = idList.subList(start, Math.min(start + batchSize, idList.size()));
+            batches.add(() -> {
+                Map<String, RestResponseResult> results =
+                        ensemblRestTemplateService.postRestCall(lookup.endpointType, batch, batch.size());
+                results.forEach((id, result) -> ensemblRestcallHistoryService.create(result, lookup.historyType, id,
+                                                                                     eRelease));
+                return results.keySet();
+            });
+        }
+        return batches;
+    }
+
+    private List<Callable<Set<String>>> createFallbacks(Set<String> ids, Consumer<String> fallback) {
+        List<Callable<Set<String>>> fallbacks = new ArrayList<>();
+        for (String id : ids) {
+            fallbacks.add(() -> {
+                fallback.accept(id);
+                return Collections.singleton(id);
+            });
+        }
+        return fallbacks;
+    }
+
+    /**
+     * Run tasks concurrently and wait for all of them
+     *
+     * @return the identifiers each task found, in the order of the tasks (none for a task that failed)
+     */
+    private List<Set<String>> runAll(List<Callable<Set<String>>> tasks) throws InterruptedException {
+        List<Set<String>> results = new ArrayList<>();
+        for (Future<Set<String>> future : getLookupExecutor().invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            }
+            catch (ExecutionException e) {
+                // Identifiers of a failed lookup are simply looked up again one by one later
+                getLog().error("Ensembl lookup failed", e.getCause());
+                results.add(Collections.<String>emptySet());
+            }
+        }
+        return results;
+    }
+
+    protected synchronized ExecutorService getLookupExecutor() {
+        if (lookupExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            lookupExecutor = Executors.newFixedThreadPool(Math.max(1, getLookupThreads()), runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("ensembl-lookup-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return lookupExecutor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (lookupExecutor != null) {
+            lookupExecutor.shutdownNow();
+        }
+    }
+
+    public int getLookupThreads() {
+        return lookupThreads;
+    }
+
+    public void setLookupThreads(int lookupThreads) {
+        this.lookupThreads = lookupThreads;
+    }
+
+    public int getLookupBatchSize() {
+        return lookupBatchSize;
+    }
+
+    public void setLookupBatchSize(int lookupBatchSize) {
+        this.lookupBatchSize = lookupBatchSize;
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram of the requests sent to the Ensembl REST API since startup.
+ * <p>
+ * Latencies are counted in buckets a quarter of an octave wide (each bound is about 19% above the previous one), from
+ * 1ms up to about 17 minutes. Percentiles are therefore accurate to one bucket whatever the number of requests, with
+ * constant memory and no locking. A run that only wants its own requests takes a {@link #copy()} when it starts and
+ * reads the histogram {@link #since(EnsemblLatencyHistogram)} that copy.
+ */
+@Service
+public class EnsemblLatencyHistogram {
+
+    private static final int BUCKETS_PER_OCTAVE = 4;
+
+    // The last bucket also counts everything slower than 2^20 ms
+    private static final int LAST_BUCKET = 20 * BUCKETS_PER_OCTAVE;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LAST_BUCKET + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    public EnsemblLatencyHistogram() {
+    }
+
+    private EnsemblLatencyHistogram(long[] counts) {
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            this.counts.set(bucket, counts[bucket]);
+            this.count.addAndGet(counts[bucket]);
+        }
+    }
+
+    public void record(long nanos) {
+        double millis = nanos / 1e6;
+        int bucket = millis <= 1 ? 0 : (int) Math.ceil(Math.log(millis) / Math.log(2) * BUCKETS_PER_OCTAVE);
+        counts.incrementAndGet(Math.min(bucket, LAST_BUCKET));
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return a copy of the histogram as it is now, which later requests are not recorded in
+     */
+    public EnsemblLatencyHistogram copy() {
+        return since(new EnsemblLatencyHistogram());
+    }
+
+    /**
+     * @param earlier a copy of this histogram taken earlier
+     * @return a histogram of the requests recorded since that copy was taken
+     */
+    public EnsemblLatencyHistogram since(EnsemblLatencyHistogram earlier) {
+        long[] difference = new long[LAST_BUCKET + 1];
+        for (int bucket = 0; bucket <= LAST_BUCKET; bucket++) {
+            difference[bucket] = counts.get(bucket) - earlier.counts.get(bucket);
+        }
+        return new EnsemblLatencyHistogram(difference);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param percentile percentile to get, between 0 and 100
+     * @return the upper bound, in milliseconds, of the bucket holding the percentile, or 0 before the first request
+     */
+    public double getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < LAST_BUCKET; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return upperBound(bucket);
+            }
+        }
+        return upperBound(LAST_BUCKET);
+    }
+
+    private double upperBound(int bucket) {
+        return Math.pow(2, (double) bucket / BUCKETS_PER_OCTAVE);
+    }
+}
@@ -0,0 +1,187 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket shared by all Ensembl REST clients of the application.
+ * <p>
+ * Every caller takes one token per request with {@link #acquire()}. Tokens are refilled at "mapping.requestPerSecond"
+ * per second and at most one second worth of them can be saved up. Waiting callers reserve their token before
+ * sleeping, so the limiter is fair and never lets more than the allowed rate through, whatever the number of threads.
+ * <p>
+ * The rate is adapted on the fly from the X-RateLimit-* headers Ensembl sends with each response: when the remaining
+ * hourly budget would run out before the reset, the rate is lowered to spread what is left until then. A Retry-After
+ * (429 response) stops all callers until the server asks us to come back.
+ */
+@Service
+public class EnsemblRateLimiter {
+
+    // Never go below one request every ten seconds, even when Ensembl says the budget is spent
+    private static final double MIN_RATE = 0.1;
+
+    @Value("${mapping.requestPerSecond:15}")
+    private double maxRate;
+
+    private double rate;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    private long blockedUntil;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @PostConstruct
+    public synchronized void init() {
+        maxRate = Math.max(MIN_RATE, maxRate);
+        rate = maxRate;
+        tokens = maxRate;
+        lastRefill = System.nanoTime();
+        blockedUntil = lastRefill;
+    }
+
+    /**
+     * Wait until a request can be sent to Ensembl
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        requestCount.incrementAndGet();
+        if (wait > 0) {
+            waitCount.incrementAndGet();
+            waitNanos.addAndGet(wait);
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Take a token, possibly in advance, and return how long the caller has to wait before using it
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+
+        long wait = 0;
+        if (tokens < 0) {
+            wait = (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+        if (blockedUntil - now > wait) {
+            wait = blockedUntil - now;
+        }
+        return wait;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(rate, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+
+    /**
+     * Stop all callers for the given time, used when Ensembl answers 429 with a Retry-After header
+     *
+     * @param seconds time to wait before the next request
+     */
+    public synchronized void pause(long seconds) {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        if (until - blockedUntil > 0) {
+            blockedUntil = until;
+        }
+        getLog().debug("Ensembl asked to retry after " + seconds + "s");
+    }
+
+    /**
+     * Adapt the rate to the rate limit headers of an Ensembl response
+     *
+     * @param headers response headers, as sent by either RestTemplate or Unirest
+     */
+    public void update(Map<String, List<String>> headers) {
+        Long remaining = getHeader(headers, "X-RateLimit-Remaining");
+        Long reset = getHeader(headers, "X-RateLimit-Reset");
+        if (remaining != null && reset != null && reset > 0) {
+            setRate(Math.max(MIN_RATE, Math.min(maxRate, (double) remaining / reset)));
+        }
+
+        Long retryAfter = getHeader(headers, "Retry-After");
+        if (retryAfter != null) {
+            pause(retryAfter);
+        }
+    }
+
+    private Long getHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                try {
+                    return (long) Double.parseDouble(header.getValue().get(0).trim());
+                }
+                catch (NumberFormatException e) {
+                    getLog().debug("Ignoring " + name + " header: " + header.getValue().get(0));
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized void setRate(double rate) {
+        refill(System.nanoTime());
+        if (rate != this.rate) {
+            getLog().debug("Ensembl request rate set to " + rate + "/s");
+        }
+        this.rate = rate;
+        tokens = Math.min(tokens, rate);
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    public void setMaxRate(double maxRate) {
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * @return number of requests let through since startup
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return number of requests that had to wait for a token
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return total time callers spent waiting for a token, in milliseconds
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+}
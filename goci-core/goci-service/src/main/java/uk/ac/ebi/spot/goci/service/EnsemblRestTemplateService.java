@@ -18,8 +18,11 @@ import javax.validation.constraints.NotNull;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -47,6 +50,20 @@ public class EnsemblRestTemplateService {
 
     private Hashtable<String, String> endpoints = new Hashtable<String, String>();
 
+    // Name of the ids list in the body of the POST form of an endpoint
+    private Hashtable<String, String> batchFields = new Hashtable<String, String>();
+
+    private EnsemblRateLimiter ensemblRateLimiter;
+
+    private EnsemblLatencyHistogram ensemblLatencyHistogram;
+
+    @Autowired
+    public EnsemblRestTemplateService(EnsemblRateLimiter ensemblRateLimiter,
+                                      EnsemblLatencyHistogram ensemblLatencyHistogram) {
+        this.ensemblRateLimiter = ensemblRateLimiter;
+        this.ensemblLatencyHistogram = ensemblLatencyHistogram;
+    }
+
     @Autowired
     public void createEndpoints() {
         Hashtable<String, String> endpointsToCreate = new Hashtable<String, String>();
@@ -58,6 +75,11 @@ public class EnsemblRestTemplateService {
         endpointsToCreate.put("info_variation", "/info/variation/" + species + "/");
         endpointsToCreate.put("info_data", "/info/data/");
         setEndpoints(endpointsToCreate);
+
+        Hashtable<String, String> batchFieldsToCreate = new Hashtable<String, String>();
+        batchFieldsToCreate.put("variation", "ids");
+        batchFieldsToCreate.put("lookup_symbol", "symbols");
+        setBatchFields(batchFieldsToCreate);
     }
 
 
@@ -151,24 +173,31 @@ public class EnsemblRestTemplateService {
     }
 
     public RestResponseResult exec(String url) {
+        return exec(url, HttpMethod.GET, this.getEntity());
+    }
+
+    public RestResponseResult exec(String url, HttpMethod method, HttpEntity<Object> entity) {
         ResponseEntity<String> out;
         RestResponseResult result = new RestResponseResult();
         RestTemplate restTemplate = this.getRestTemplate();
-        HttpEntity<Object> entity = this.getEntity();
 
         getLog().debug("Querying " + url);
 
         //and do I need this JSON media type for my use case?
+        long start = System.nanoTime();
         try {
-            out = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            out = restTemplate.exchange(url, method, entity, String.class);
+            ensemblLatencyHistogram.record(System.nanoTime() - start);
             result.setStatus(out.getStatusCode().value());
             result.setUrl(url);
+            ensemblRateLimiter.update(out.getHeaders());
             JsonNode body = new JsonNode(out.getBody().toString());
             result.setRestResult(body);
             getLog().debug("Response: 200");
             //result.setValue(out.getBody());
         }
         catch(EnsemblRestClientException erce) {
+            ensemblLatencyHistogram.record(System.nanoTime() - start);
             getLog().debug("EnsemblRestClientException");
             result = erce.getEnsemblLookup();
             result.setUrl(url);
@@ -183,6 +212,11 @@ public class EnsemblRestTemplateService {
 
     public RestResponseResult fetch(String url)
             throws InterruptedException{
+        return fetch(url, HttpMethod.GET, this.getEntity());
+    }
+
+    public RestResponseResult fetch(String url, HttpMethod method, HttpEntity<Object> entity)
+            throws InterruptedException{
         ResponseEntity<String> out;
         Boolean ensemblDone = false;
         int maxTries = 0;
@@ -190,10 +224,12 @@ public class EnsemblRestTemplateService {
 
         RestResponseResult ensembl = new RestResponseResult();
         while ((!ensemblDone)  && (maxTries < 5 )){
-            ensembl = this.exec(url);
+            ensemblRateLimiter.acquire();
+            ensembl = this.exec(url, method, entity);
             if (ensembl.getStatus() == 429) {
                 maxTries = maxTries+1;
-                Thread.sleep(ensembl.getWaitSeconds() * 1000);
+                // Holds back every client sharing the limiter, not only this thread
+                ensemblRateLimiter.pause(ensembl.getWaitSeconds());
             }
             else { ensemblDone = true;}
         }
@@ -207,6 +243,59 @@ public class EnsemblRestTemplateService {
         return ensembl;
     }
 
+    /**
+     * Batch form of {@link #getRestCall(String, String, String)}, using the POST version of the endpoint.
+     * <p>
+     * Only "variation" and "lookup_symbol" have a POST form. The ids are sent in chunks of at most batchSize and the
+     * response is split back into one result per id, with the URL of the equivalent GET call so that the results
+     * can be stored in the REST call history like single calls. Ids missing from the response (unknown to Ensembl)
+     * are left out of the returned map; callers should fall back to the GET call for those.
+     *
+     * @param endpoint_type the endpoint name
+     * @param ids           the ids/symbols we want to query
+     * @param batchSize     maximum number of ids per POST
+     * @return the results found, keyed by id
+     */
+    public Map<String, RestResponseResult> postRestCall(String endpoint_type, Collection<String> ids, int batchSize)
+            throws InterruptedException {
+
+        Map<String, RestResponseResult> results = new HashMap<>();
+        String idsField = getBatchFields().get(endpoint_type);
+        if (idsField == null) {
+            throw new IllegalArgumentException("Endpoint '" + endpoint_type + "' has no batch form");
+        }
+
+        String endpoint = getEndpoints().get(endpoint_type);
+        String url = getServer() + endpoint.substring(0, endpoint.length() - 1);
+
+        List<String> idList = new ArrayList<>(ids);
+        for (int start = 0; start < idList.size(); start += batchSize) {
+            List<String> chunk = idList.subList(start, Math.min(start + batchSize, idList.size()));
+
+            JSONObject body = new JSONObject();
+            body.put(idsField, new JSONArray(chunk));
+            HttpEntity<Object> entity = new HttpEntity<Object>(body.toString(), this.getEntity().getHeaders());
+
+            RestResponseResult batchResult = fetch(url, HttpMethod.POST, entity);
+            if (batchResult.getRestResult() == null || batchResult.getRestResult().getObject() == null) {
+                getLog().debug("Batch call to '" + url + "' returned no result: " + batchResult.getError());
+                continue;
+            }
+
+            JSONObject batchObject = batchResult.getRestResult().getObject();
+            for (String id : chunk) {
+                if (batchObject.has(id) && batchObject.get(id) instanceof JSONObject) {
+                    RestResponseResult result = new RestResponseResult();
+                    result.setStatus(batchResult.getStatus());
+                    result.setUrl(getServer() + endpoint + id);
+                    result.setRestResult(new JsonNode(batchObject.getJSONObject(id).toString()));
+                    results.put(id, result);
+                }
+            }
+        }
+        return results;
+    }
+
     public Hashtable<String, String> getEndpoints() {
         return endpoints;
     }
@@ -215,4 +304,12 @@ public class EnsemblRestTemplateService {
         this.endpoints = endpoints;
     }
 
+    public Hashtable<String, String> getBatchFields() {
+        return batchFields;
+    }
+
+    public void setBatchFields(Hashtable<String, String> batchFields) {
+        this.batchFields = batchFields;
+    }
+
 }
@@ -0,0 +1,171 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.model.RestResponseResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two tier cache of parsed Ensembl REST call results, keyed by (type, param, release), in front of the
+ * EnsemblRestcallHistory table.
+ * <p>
+ * The first tier is an on-heap LRU map of at most "ensembl.cache.size" results. The second tier is an optional
+ * memory-mapped file, set with "ensembl.cache.file", that keeps results across restarts. The table stays the source of
+ * truth: the cache only holds results that were read from or written to it, never misses.
+ * <p>
+ * Cached results are shared between callers and must not be modified.
+ */
+@Service
+public class EnsemblRestcallCache {
+
+    @Value("${ensembl.cache.size:50000}")
+    private int maxSize;
+
+    @Value("${ensembl.cache.file:}")
+    private String file;
+
+    private Map<String, RestResponseResult> memory;
+
+    private EnsemblRestcallDiskStore disk;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    private final AtomicLong diskHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @PostConstruct
+    public void init() {
+        int capacity = Math.max(1, maxSize);
+        memory = new LinkedHashMap<String, RestResponseResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RestResponseResult> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        if (file != null && !file.isEmpty()) {
+            try {
+                disk = new EnsemblRestcallDiskStore(Paths.get(file));
+                getLog().info("Opened Ensembl REST call cache " + file + " with " + disk.size() + " entries");
+            }
+            catch (IOException e) {
+                // The disk tier is only an optimisation, carry on with the memory tier
+                getLog().error("Unable to open Ensembl REST call cache " + file + ", disk tier disabled", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (disk != null) {
+            try {
+                disk.close();
+            }
+            catch (IOException e) {
+                getLog().error("Unable to close Ensembl REST call cache " + file, e);
+            }
+        }
+    }
+
+    public RestResponseResult get(String type, String param, String eRelease) {
+        String key = key(type, param, eRelease);
+
+        RestResponseResult result;
+        synchronized (memory) {
+            result = memory.get(key);
+        }
+        if (result != null) {
+            memoryHits.incrementAndGet();
+            return result;
+        }
+
+        if (disk != null) {
+            try {
+                result = disk.get(key);
+            }
+            catch (IOException e) {
+                getLog().error("Unable to read " + key + " from Ensembl REST call cache", e);
+            }
+            if (result != null) {
+                diskHits.incrementAndGet();
+                synchronized (memory) {
+                    memory.put(key, result);
+                }
+                return result;
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Check whether a result is cached, without counting a hit or miss nor refreshing its LRU position
+     */
+    public boolean contains(String type, String param, String eRelease) {
+        String key = key(type, param, eRelease);
+        synchronized (memory) {
+            if (memory.containsKey(key)) {
+                return true;
+            }
+        }
+        return disk != null && disk.contains(key);
+    }
+
+    public void put(String type, String param, String eRelease, RestResponseResult result) {
+        String key = key(type, param, eRelease);
+        synchronized (memory) {
+            memory.put(key, result);
+        }
+
+        if (disk != null) {
+            try {
+                disk.put(key, result);
+            }
+            catch (IOException e) {
+                getLog().error("Unable to write " + key + " to Ensembl REST call cache", e);
+            }
+        }
+    }
+
+    private String key(String type, String param, String eRelease) {
+        return type + '\t' + eRelease + '\t' + param;
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the share of lookups answered by either tier since startup
+     */
+    public double getHitRatio() {
+        long hits = getMemoryHits() + getDiskHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,206 @@
+package uk.ac.ebi.spot.goci.service;
+
+import com.mashape.unirest.http.JsonNode;
+import uk.ac.ebi.spot.goci.model.RestResponseResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only file of Ensembl REST call results, memory-mapped for reading.
+ * <p>
+ * Each record is the key followed by the status, URL, error and JSON response of a {@link RestResponseResult}, all
+ * length prefixed. The key index is rebuilt by scanning the file on open, and a record left half written by a crash
+ * is cut off. Records appended after the file was mapped are read from the channel until the next remap.
+ */
+final class EnsemblRestcallDiskStore implements Closeable {
+
+    // Remap once this many bytes have been appended since the last mapping
+    private static final long REMAP_THRESHOLD = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+
+    private volatile MappedByteBuffer mapped;
+
+    private volatile long mappedSize;
+
+    private long size;
+
+    EnsemblRestcallDiskStore(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        remap(channel.size());
+        size = scan();
+        if (size < channel.size()) {
+            channel.truncate(size);
+            remap(size);
+        }
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    RestResponseResult get(String key) throws IOException {
+        Long offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+
+        long mappedLength = mappedSize;
+        MappedByteBuffer mappedBuffer = mapped;
+
+        int length;
+        if (offset + 4 <= mappedLength) {
+            length = mappedBuffer.getInt(offset.intValue());
+        }
+        else {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, offset);
+            header.flip();
+            length = header.getInt();
+        }
+
+        ByteBuffer record;
+        if (offset + 4 + length <= mappedLength) {
+            record = mappedBuffer.duplicate();
+            record.position(offset.intValue());
+            record = record.slice();
+            record.limit(4 + length);
+        }
+        else {
+            // Appended since the last mapping
+            record = ByteBuffer.allocate(4 + length);
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    throw new IOException("Unexpected end of Ensembl REST call store at " + offset);
+                }
+            }
+            record.flip();
+        }
+        record.position(4);
+        readString(record); // key
+        RestResponseResult result = new RestResponseResult();
+        result.setStatus(record.getInt());
+        result.setUrl(readString(record));
+        result.setError(readString(record));
+        String json = readString(record);
+        if (json != null) {
+            result.setRestResult(new JsonNode(json));
+        }
+        return result;
+    }
+
+    synchronized void put(String key, RestResponseResult result) throws IOException {
+        if (index.containsKey(key)) {
+            return;
+        }
+
+        byte[][] fields = {bytes(key),
+                bytes(result.getUrl()),
+                bytes(result.getError()),
+                bytes(result.getRestResult() != null ? result.getRestResult().toString() : null)};
+        int length = 4;
+        for (byte[] field : fields) {
+            length += 4 + (field != null ? field.length : 0);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length);
+        writeString(buffer, fields[0]);
+        buffer.putInt(result.getStatus());
+        for (int i = 1; i < fields.length; i++) {
+            writeString(buffer, fields[i]);
+        }
+        buffer.flip();
+
+        long offset = size;
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer, size);
+        }
+        index.put(key, offset);
+
+        if (mappedSize < Integer.MAX_VALUE && size - mappedSize > REMAP_THRESHOLD) {
+            remap(size);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void remap(long length) throws IOException {
+        // A single mapping is limited to 2GB, records past that are read from the channel
+        long mapLength = Math.min(length, Integer.MAX_VALUE);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, mapLength);
+        mappedSize = mapLength;
+    }
+
+    /**
+     * Index all complete records of the file
+     *
+     * @return the end of the last complete record
+     */
+    private long scan() throws IOException {
+        long end = 0;
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (end + 8 <= fileSize) {
+            header.clear();
+            channel.read(header, end);
+            header.flip();
+            int length = header.getInt();
+            int keyLength = header.getInt();
+            if (length < 8 || end + 4 + length > fileSize || keyLength < 0 || keyLength > length - 8) {
+                break;
+            }
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            channel.read(key, end + 8);
+            index.put(new String(key.array(), StandardCharsets.UTF_8), end);
+            end += 4 + length;
+        }
+        return end;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        }
+        else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
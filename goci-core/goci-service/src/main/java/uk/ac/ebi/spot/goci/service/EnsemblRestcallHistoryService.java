@@ -10,7 +10,11 @@ import uk.ac.ebi.spot.goci.repository.EnsemblRestcallHistoryRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mashape.unirest.http.JsonNode;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Created by Cinzia on 31/01/2017.
@@ -20,16 +24,26 @@ import java.util.Collection;
  *         EnsemblRestCallHistoryService provides some methods to create and to retrieve from EnsemblRestCallHistory
  *         table.
  *         The goal is avoid to query Ensembl if the data are already stored.
+ *         <p>
+ *         Lookups go through {@link EnsemblRestcallCache} first, so a result is only read and parsed from the table
+ *         once.
  */
 @Service
 public class EnsemblRestcallHistoryService {
 
+    // Oracle does not accept more than 1000 values in an IN list
+    private static final int PREFETCH_CHUNK_SIZE = 1000;
+
     private EnsemblRestcallHistoryRepository ensemblRestcallHistoryRepository;
 
+    private EnsemblRestcallCache ensemblRestcallCache;
+
 
     @Autowired
-    public EnsemblRestcallHistoryService(EnsemblRestcallHistoryRepository ensemblRestcallHistoryRepository) {
+    public EnsemblRestcallHistoryService(EnsemblRestcallHistoryRepository ensemblRestcallHistoryRepository,
+                                         EnsemblRestcallCache ensemblRestcallCache) {
         this.ensemblRestcallHistoryRepository = ensemblRestcallHistoryRepository;
+        this.ensemblRestcallCache = ensemblRestcallCache;
     }
 
     //Without release version, the data are not stored.
@@ -56,6 +70,7 @@ public class EnsemblRestcallHistoryService {
                         }
 
                         this.ensemblRestcallHistoryRepository.save(ensemblRestcallHistory);
+                        ensemblRestcallCache.put(type, param, eRelease, toRestResponseResult(ensemblRestcallHistory));
                     } catch (Exception e) {
                         // BEWARE: the following code MUST NOT block Ensembl Rest API Call
                     }
@@ -73,22 +88,17 @@ public class EnsemblRestcallHistoryService {
         if (eRelease != null) {
             if (!(eRelease.isEmpty())) {
                 try {
+                    restResponseResult = ensemblRestcallCache.get(type, param, eRelease);
+                    if (restResponseResult != null) {
+                        return restResponseResult;
+                    }
+
                     Collection<EnsemblRestcallHistory> urls =
                             ensemblRestcallHistoryRepository.findByRequestTypeAndEnsemblParamAndEnsemblVersion(type,
                                     param, eRelease);
                     if (urls.size() > 0) {
-                        EnsemblRestcallHistory result = urls.iterator().next();
-                        restResponseResult = new RestResponseResult();
-                        restResponseResult.setUrl(result.getEnsemblUrl());
-                        String restApiError = result.getEnsemblError();
-
-                        if (restApiError != null && !restApiError.isEmpty()) {
-                            restResponseResult.setError(restApiError);
-                        } else {
-                            ObjectMapper mapper = new ObjectMapper();
-                            JsonNode jsonNode = mapper.convertValue(result.getEnsemblResponse().toString(), JsonNode.class);
-                            restResponseResult.setRestResult(jsonNode);
-                        }
+                        restResponseResult = toRestResponseResult(urls.iterator().next());
+                        ensemblRestcallCache.put(type, param, eRelease, restResponseResult);
                     }
                 } catch (Exception e) {
                     // BEWARE: the following code MUST NOT block Ensembl Rest API Call
@@ -97,4 +107,83 @@ public class EnsemblRestcallHistoryService {
         }
         return restResponseResult;
     }
+
+    /**
+     * Load the stored results of many calls of the same type into the cache with a few set-based queries, instead of
+     * one query per call.
+     *
+     * @param type     request type
+     * @param params   parameters of the calls
+     * @param eRelease Ensembl release
+     * @return the parameters with no stored result, i.e. the calls that still have to be sent to Ensembl
+     */
+    public Set<String> prefetch(String type, Collection<String> params, String eRelease) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String param : params) {
+            if (!ensemblRestcallCache.contains(type, param, eRelease)) {
+                missing.add(param);
+            }
+        }
+
+        if (eRelease == null || eRelease.isEmpty() || missing.isEmpty()) {
+            return missing;
+        }
+
+        try {
+            List<String> toLoad = new ArrayList<>(missing);
+            for (int start = 0; start < toLoad.size(); start += PREFETCH_CHUNK_SIZE) {
+                List<String> chunk = toLoad.subList(start, Math.min(start + PREFETCH_CHUNK_SIZE, toLoad.size()));
+                Collection<EnsemblRestcallHistory> results =
+                        ensemblRestcallHistoryRepository.findByRequestTypeAndEnsemblVersionAndEnsemblParamIn(type,
+                                                                                                             eRelease,
+                                                                                                             chunk);
+                for (EnsemblRestcallHistory result : results) {
+                    if (missing.remove(result.getEnsemblParam())) {
+                        ensemblRestcallCache.put(type, result.getEnsemblParam(), eRelease, toRestResponseResult(result));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // BEWARE: the following code MUST NOT block Ensembl Rest API Call
+        }
+        return missing;
+    }
+
+    /**
+     * Load all stored results of one type for a release into the cache, for small sets of calls that every mapping
+     * repeats, like the "info_assembly" chromosome lookups.
+     *
+     * @param type     request type
+     * @param eRelease Ensembl release
+     */
+    public void prefetchAll(String type, String eRelease) {
+        if (eRelease == null || eRelease.isEmpty()) {
+            return;
+        }
+        try {
+            for (EnsemblRestcallHistory result :
+                    ensemblRestcallHistoryRepository.findByRequestTypeAndEnsemblVersion(type, eRelease)) {
+                if (!ensemblRestcallCache.contains(type, result.getEnsemblParam(), eRelease)) {
+                    ensemblRestcallCache.put(type, result.getEnsemblParam(), eRelease, toRestResponseResult(result));
+                }
+            }
+        } catch (Exception e) {
+            // BEWARE: the following code MUST NOT block Ensembl Rest API Call
+        }
+    }
+
+    private RestResponseResult toRestResponseResult(EnsemblRestcallHistory result) {
+        RestResponseResult restResponseResult = new RestResponseResult();
+        restResponseResult.setUrl(result.getEnsemblUrl());
+        String restApiError = result.getEnsemblError();
+
+        if (restApiError != null && !restApiError.isEmpty()) {
+            restResponseResult.setError(restApiError);
+        } else {
+            ObjectMapper mapper = new ObjectMapper();
+            JsonNode jsonNode = mapper.convertValue(result.getEnsemblResponse().toString(), JsonNode.class);
+            restResponseResult.setRestResult(jsonNode);
+        }
+        return restResponseResult;
+    }
 }
@@ -5,16 +5,26 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.spot.goci.model.*;
 import uk.ac.ebi.spot.goci.repository.StudyRepository;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Javadocs go here!
@@ -24,6 +34,9 @@ import java.util.List;
  */
 @Service
 public class StudyService {
+    // Stays below the Oracle limit of 1000 expressions in an IN list
+    private static final int FIND_CHUNK_SIZE = 1000;
+
     private StudyRepository studyRepository;
 
     private CuratorTrackingService curatorTrackingService;
@@ -32,6 +45,9 @@ public class StudyService {
 
     private StudyNoteService studyNoteService;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     @Autowired
@@ -160,6 +176,76 @@ public class StudyService {
         return studies;
     }
 
+    /**
+     * Get the page of published studies following the given study id, without a total count. Each page seeks straight
+     * to its first row, so reading all studies page by page takes time linear in their number.
+     *
+     * @param id       id of the last study of the previous page
+     * @param pageable page size and sort, which should be on id
+     * @return the next page of studies
+     */
+    @Transactional(readOnly = true)
+    public Slice<Study> findPublishedStudiesAfter(Long id, Pageable pageable) {
+        Slice<Study> studies =
+                studyRepository.findByIdGreaterThanAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+                        id,
+                        pageable);
+        studies.forEach(this::loadAssociatedData);
+        return studies;
+    }
+
+    /**
+     * Get the page of published studies following the given study id, like {@link #findPublishedStudiesAfter(Long,
+     * Pageable)}, with each study's associations, loci, risk alleles, SNPs and SNP locations loaded
+     *
+     * @param id       id of the last study of the previous page
+     * @param pageable page size and sort, which should be on id
+     * @return the next page of studies
+     */
+    @Transactional(readOnly = true)
+    public Slice<Study> deepFindPublishedStudiesAfter(Long id, Pageable pageable) {
+        Slice<Study> studies =
+                studyRepository.findByIdGreaterThanAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+                        id,
+                        pageable);
+        studies.forEach(this::deepLoadAssociatedData);
+        return studies;
+    }
+
+    /**
+     * Read all published studies, in id order, through a single query and database cursor, and hand them over in lists
+     * of the given size as they are read
+     * <p>
+     * Each list is detached from the persistence context before it is handed over, so the context never holds more
+     * than one list and the consumer may pass the studies to other threads while the cursor moves on. Only the
+     * data loaded by {@link #loadAssociatedData(Study)} is available on them.
+     *
+     * @param batchSize number of studies per list
+     * @param consumer  receives each list, once its associated data is loaded and it is detached
+     */
+    @Transactional(readOnly = true)
+    public void streamPublishedStudies(int batchSize, Consumer<List<Study>> consumer) {
+        try (Stream<Study> studies =
+                     studyRepository.streamByHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNullOrderByIdAsc()) {
+            List<Study> batch = new ArrayList<>(batchSize);
+            Iterator<Study> iterator = studies.iterator();
+            while (iterator.hasNext()) {
+                Study study = iterator.next();
+                loadAssociatedData(study);
+                batch.add(study);
+                if (batch.size() == batchSize) {
+                    entityManager.clear();
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                entityManager.clear();
+                consumer.accept(batch);
+            }
+        }
+    }
+
     @Transactional(readOnly = true)
     public Study fetchOne(Study study) {
         loadAssociatedData(study);
@@ -199,7 +285,97 @@ public class StudyService {
         return studies;
     }
 
+    /**
+     * Set-based version of {@link #findByAssociationId(Long)}: get the published studies of many associations at once,
+     * with one query per thousand associations
+     *
+     * @param associationIds ids of the associations
+     * @return the published study of each association, by association id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Study> findByAssociationIds(Collection<Long> associationIds) {
+        List<Long> ids = new ArrayList<>(associationIds);
+        Set<Long> idSet = new HashSet<>(associationIds);
+        Map<Long, Study> studies = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += FIND_CHUNK_SIZE) {
+            studyRepository.findDistinctByAssociationsIdInAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+                    ids.subList(i, Math.min(i + FIND_CHUNK_SIZE, ids.size())))
+                    .forEach(study -> {
+                        loadAssociatedData(study);
+                        study.getAssociations()
+                                .stream()
+                                .map(Association::getId)
+                                .filter(idSet::contains)
+                                .forEach(associationId -> studies.put(associationId, study));
+                    });
+        }
+        return studies;
+    }
 
+    /**
+     * Set-based version of {@link #findByDiseaseTraitId(Long)}
+     *
+     * @param diseaseTraitIds ids of the disease traits
+     * @return the published studies of each disease trait, by disease trait id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Study>> findByDiseaseTraitIds(Collection<Long> diseaseTraitIds) {
+        List<Long> ids = new ArrayList<>(diseaseTraitIds);
+        Map<Long, List<Study>> studies = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += FIND_CHUNK_SIZE) {
+            studyRepository.findByDiseaseTraitIdInAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+                    ids.subList(i, Math.min(i + FIND_CHUNK_SIZE, ids.size())))
+                    .forEach(study -> {
+                        loadAssociatedData(study);
+                        studies.computeIfAbsent(study.getDiseaseTrait().getId(), id -> new ArrayList<>()).add(study);
+                    });
+        }
+        return studies;
+    }
+
+    /**
+     * @param studyIds ids of the studies
+     * @return those of the studies that are published, with their associated data, by id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Study> findPublishedStudiesByIds(Collection<Long> studyIds) {
+        List<Long> ids = new ArrayList<>(studyIds);
+        Map<Long, Study> studies = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += FIND_CHUNK_SIZE) {
+            studyRepository.findByIdInAndHousekeepingCatalogPublishDateIsNotNullAndHousekeepingCatalogUnpublishDateIsNull(
+                    ids.subList(i, Math.min(i + FIND_CHUNK_SIZE, ids.size())))
+                    .forEach(study -> {
+                        loadAssociatedData(study);
+                        studies.put(study.getId(), study);
+                    });
+        }
+        return studies;
+    }
+
+    /**
+     * Get the published studies whose index documents are out of date since the given date: studies published or with
+     * housekeeping updated after it, and studies with an association updated or mapped after it
+     *
+     * @param since date of the last indexing
+     * @return the changed studies, with their associated data
+     */
+    @Transactional(readOnly = true)
+    public List<Study> findPublishedStudiesChangedSince(Date since) {
+        List<Study> studies = studyRepository.findPublishedStudiesChangedSince(since);
+        studies.forEach(this::loadAssociatedData);
+        return studies;
+    }
+
+    /**
+     * @param since date of the last indexing
+     * @return the studies unpublished after the given date, with their associated data
+     */
+    @Transactional(readOnly = true)
+    public List<Study> findStudiesUnpublishedSince(Date since) {
+        List<Study> studies = studyRepository.findByHousekeepingCatalogUnpublishDateAfter(since);
+        studies.forEach(this::loadAssociatedData);
+        return studies;
+    }
 
     public void loadAssociatedData(Study study) {
         int efoTraitCount = study.getEfoTraits().size();
@@ -3,13 +3,18 @@ package uk.ac.ebi.spot.goci.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.DiseaseTrait;
 import uk.ac.ebi.spot.goci.model.EfoTrait;
+import uk.ac.ebi.spot.goci.repository.AssociationRepository;
 import uk.ac.ebi.spot.goci.repository.DiseaseTraitRepository;
 import uk.ac.ebi.spot.goci.repository.EfoTraitRepository;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Javadocs go here!
@@ -19,14 +24,20 @@ import java.util.List;
  */
 @Service
 public class TraitService {
+    // Stays below the Oracle limit of 1000 expressions in an IN list
+    private static final int FIND_CHUNK_SIZE = 1000;
+
     private DiseaseTraitRepository diseaseTraitRepository;
     private EfoTraitRepository efoTraitRepository;
+    private AssociationRepository associationRepository;
 
     @Autowired
     public TraitService(DiseaseTraitRepository diseaseTraitRepository,
-                        EfoTraitRepository efoTraitRepository) {
+                        EfoTraitRepository efoTraitRepository,
+                        AssociationRepository associationRepository) {
         this.diseaseTraitRepository = diseaseTraitRepository;
         this.efoTraitRepository = efoTraitRepository;
+        this.associationRepository = associationRepository;
     }
 
     public Collection<DiseaseTrait> findReportedTraitByStudyId(Long studyId) {
@@ -48,6 +59,25 @@ public class TraitService {
         return efoTraitRepository.findByAssociationsId(associationId);
     }
 
+    /**
+     * Set-based version of {@link #findMappedTraitByAssociationId(Long)}
+     *
+     * @param associationIds ids of the associations
+     * @return the EFO traits of each association, by association id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Collection<EfoTrait>> findMappedTraitByAssociationIds(Collection<Long> associationIds) {
+        List<Long> ids = new ArrayList<>(associationIds);
+        Map<Long, Collection<EfoTrait>> traits = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += FIND_CHUNK_SIZE) {
+            for (Association association : associationRepository.findAll(
+                    ids.subList(i, Math.min(i + FIND_CHUNK_SIZE, ids.size())))) {
+                traits.put(association.getId(), new ArrayList<>(association.getEfoTraits()));
+            }
+        }
+        return traits;
+    }
+
 
     @Transactional(readOnly = true)
     public List<EfoTrait> findAllEfoTraits() {
@@ -0,0 +1,138 @@
+package uk.ac.ebi.spot.goci.sparql.pussycat.query;
+
+import uk.ac.ebi.spot.goci.pussycat.exception.DataIntegrityViolationException;
+import uk.ac.ebi.spot.goci.pussycat.layout.BandInformation;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory index of every (association, band, trait) located in a cytogenetic band that passes one set of
+ * rendering filters, built from a single SPARQL query by {@link QueryManager#getBandIndex(SparqlTemplate, List)}.
+ * <p>
+ * Renderlets read bands, traits and associations from the index instead of querying the SPARQL store once per
+ * individual.  Lookups of individuals the index does not know return empty results, as the equivalent filtered
+ * queries would; only {@link #getBand(URI)} and {@link #getBandInformation(URI)} return null, so callers can fall back
+ * to querying the store.
+ * <p>
+ * An index is only modified while it is built, and is safe to share between renderings once complete.
+ */
+public class BandIndex {
+    private final Map<URI, URI> bandByAssociation = new HashMap<URI, URI>();
+    private final Set<URI> associationsInSeveralBands = new HashSet<URI>();
+    private final Map<URI, BandInformation> bandInformation = new HashMap<URI, BandInformation>();
+
+    private final Map<URI, Map<URI, List<URI>>> associationsByBandAndTrait = new HashMap<URI, Map<URI, List<URI>>>();
+    private final Map<URI, Set<URI>> datedTraitsByBand = new HashMap<URI, Set<URI>>();
+    private final Map<URI, Set<URI>> associationsByTrait = new HashMap<URI, Set<URI>>();
+    private final Map<String, Set<URI>> associationsByBandName = new HashMap<String, Set<URI>>();
+    private final Map<String, Set<URI>> traitsByBandName = new HashMap<String, Set<URI>>();
+
+    /**
+     * Adds one association located in a band.  Associations must be added in order of the publication date of their
+     * study, so that traits can be ordered by the date they were first identified in a band.
+     *
+     * @param association the association
+     * @param band        the band the association is located in
+     * @param bandName    the label of the band, or null if it has none
+     * @param trait       the trait of the association
+     * @param dated       whether the study of the association has a publication date
+     */
+    void add(URI association, URI band, String bandName, URI trait, boolean dated) {
+        URI previousBand = bandByAssociation.putIfAbsent(association, band);
+        if (previousBand != null && !previousBand.equals(band)) {
+            associationsInSeveralBands.add(association);
+        }
+        if (bandName != null && !bandInformation.containsKey(band)) {
+            bandInformation.put(band, new BandInformation(bandName));
+        }
+
+        List<URI> associations = associationsByBandAndTrait.computeIfAbsent(band, b -> new LinkedHashMap<>())
+                .computeIfAbsent(trait, t -> new ArrayList<URI>());
+        if (!associations.contains(association)) {
+            associations.add(association);
+        }
+        if (dated) {
+            datedTraitsByBand.computeIfAbsent(band, b -> new LinkedHashSet<URI>()).add(trait);
+        }
+        associationsByTrait.computeIfAbsent(trait, t -> new HashSet<URI>()).add(association);
+
+        if (bandName != null) {
+            associationsByBandName.computeIfAbsent(bandName, b -> new HashSet<URI>()).add(association);
+            traitsByBandName.computeIfAbsent(bandName, b -> new HashSet<URI>()).add(trait);
+        }
+    }
+
+    /**
+     * @param association the association
+     * @return the band the association is located in, or null if the index does not know the association
+     * @throws DataIntegrityViolationException if the association is located in more than one band
+     */
+    public URI getBand(URI association) throws DataIntegrityViolationException {
+        if (associationsInSeveralBands.contains(association)) {
+            throw new DataIntegrityViolationException("More than one band for association '" + association + "'");
+        }
+        return bandByAssociation.get(association);
+    }
+
+    /**
+     * @param band the band
+     * @return the band information, or null if the index does not know the band or its label
+     */
+    public BandInformation getBandInformation(URI band) {
+        return bandInformation.get(band);
+    }
+
+    public Set<URI> getTraitsInBand(URI band) {
+        Map<URI, List<URI>> associationsByTrait = associationsByBandAndTrait.get(band);
+        return associationsByTrait != null ? Collections.unmodifiableSet(associationsByTrait.keySet())
+                : Collections.<URI>emptySet();
+    }
+
+    public Set<URI> getTraitsInBand(String bandName) {
+        return unmodifiable(traitsByBandName.get(bandName));
+    }
+
+    public Set<URI> getAssociationsInBand(String bandName) {
+        return unmodifiable(associationsByBandName.get(bandName));
+    }
+
+    public Set<URI> getAssociationsForTrait(URI trait) {
+        return unmodifiable(associationsByTrait.get(trait));
+    }
+
+    /**
+     * @param band the band
+     * @return the traits located in the band with a dated study, ordered by the date they were first identified
+     */
+    public List<URI> getTraitsOrderedByIdentificationDate(URI band) {
+        Set<URI> traits = datedTraitsByBand.get(band);
+        return traits != null ? new ArrayList<URI>(traits) : Collections.<URI>emptyList();
+    }
+
+    public List<URI> getAssociationsForTraitAndBand(URI trait, URI band) {
+        Map<URI, List<URI>> associationsByTrait = associationsByBandAndTrait.get(band);
+        List<URI> associations = associationsByTrait != null ? associationsByTrait.get(trait) : null;
+        return associations != null ? Collections.unmodifiableList(associations) : Collections.<URI>emptyList();
+    }
+
+    public int getAssociationCount() {
+        return bandByAssociation.size();
+    }
+
+    public int getBandCount() {
+        return associationsByBandAndTrait.size();
+    }
+
+    private static Set<URI> unmodifiable(Set<URI> uris) {
+        return uris != null ? Collections.unmodifiableSet(uris) : Collections.<URI>emptySet();
+    }
+}
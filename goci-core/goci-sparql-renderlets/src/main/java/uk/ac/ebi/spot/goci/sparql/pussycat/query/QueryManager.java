@@ -1,5 +1,7 @@
 package uk.ac.ebi.spot.goci.sparql.pussycat.query;
 
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.spot.goci.model.Association;
@@ -11,33 +13,143 @@ import uk.ac.ebi.spot.goci.pussycat.layout.BandInformation;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Convenience singleton class to access common SPARQL queries required in rendering and to cache the results for
  * subsequent lookup.
+ * <p>
+ * The cache is shared by all concurrent renderings.  It holds at most {@link #getMaxSize()} results, evicting the least
+ * recently used first, and each result for at most {@link #getTimeToLive()} milliseconds.  Hits, misses and evictions
+ * are counted.  Results are tied to the release of the data in the SPARQL store: setting a different data version, or
+ * calling {@link #invalidate()}, discards them all.  The data version is set once at startup, so results read before a
+ * reload of the store without a restart are only dropped when they expire.
+ * <p>
+ * Cached results are shared between callers and must not be modified.
  */
 public class QueryManager {
 
+    public static final int DEFAULT_MAX_SIZE = 100000;
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(24);
+
     private static final QueryManager instance = new QueryManager();
 
     public static QueryManager getCachingInstance() {
         return instance;
     }
 
-    private final Map<List<Object>, Object> requestCache;
+    private final Map<List<Object>, CachedResult> requestCache;
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+    private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private String dataVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
     private final Logger log = LoggerFactory.getLogger("rendering");
 
     protected Logger getLog() {
         return log;
     }
 
-    private QueryManager() {
-        this.requestCache = new HashMap<List<Object>, Object>();
+    // package-private so that tests can use a cache of their own
+    QueryManager() {
+        this.requestCache = new LinkedHashMap<List<Object>, CachedResult>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedResult> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @param timeToLive the time, in milliseconds, a result is cached for
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public String getDataVersion() {
+        synchronized (requestCache) {
+            return dataVersion;
+        }
+    }
+
+    /**
+     * Sets the version (release) of the data in the SPARQL store.  If it differs from the current version, all cached
+     * results are discarded.
+     *
+     * @param dataVersion the data version
+     */
+    public void setDataVersion(String dataVersion) {
+        synchronized (requestCache) {
+            if (dataVersion != null && !dataVersion.equals(this.dataVersion)) {
+                if (this.dataVersion != null) {
+                    getLog().info("SPARQL data version is now '" + dataVersion + "', clearing query cache");
+                }
+                this.dataVersion = dataVersion;
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * Discards all cached results, for example once the SPARQL store has been reloaded
+     */
+    public void invalidate() {
+        synchronized (requestCache) {
+            requestCache.clear();
+        }
+    }
+
+    public int getSize() {
+        synchronized (requestCache) {
+            return requestCache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the share of lookups answered from the cache since startup
+     */
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
     }
 
     public URI getCytogeneticBandForAssociation(SparqlTemplate sparqlTemplate, URI association) throws
@@ -807,6 +919,76 @@ public class QueryManager {
         return cache(results, "getAllTraitTypes", sparqlTemplate, trait);
     }
 
+    /**
+     * Gets the index of every association located in a band that passes the given filters, together with its band and
+     * trait.  The index is built with one SPARQL query and cached like any other result, so renderlets can read from it
+     * instead of querying the store once per association or trait.
+     *
+     * @param sparqlTemplate the template to query the SPARQL store with
+     * @param filters        the p-value and study date filters to apply
+     * @return the band index for these filters
+     */
+    public BandIndex getBandIndex(SparqlTemplate sparqlTemplate, List<Filter> filters) {
+        Object pval_min = null, pval_max = null, date_min = null, date_max = null;
+        for (Filter filter : filters) {
+            if (filter.getFilteredType().equals(Association.class)) {
+                pval_min = filter.getFilteredValues().get(0);
+                pval_max = filter.getFilteredValues().get(1);
+            }
+            else if (filter.getFilteredType().equals(Study.class)) {
+                date_min = filter.getFilteredRange().from();
+                date_max = filter.getFilteredRange().to();
+            }
+        }
+
+        Object retrieved = checkCache("getBandIndex", sparqlTemplate, pval_max, pval_min, date_max, date_min);
+        if (retrieved != null) {
+            return (BandIndex) retrieved;
+        }
+
+        String query = SparqlQueries.BAND_INDEX;
+        List<Object> arguments = new ArrayList<Object>();
+        if (pval_max != null) {
+            query = query.concat(SparqlQueries.BAND_INDEX_PVALUE_FILTER);
+            arguments.add(pval_max);
+            arguments.add(pval_min);
+        }
+        if (date_max != null) {
+            query = query.concat(SparqlQueries.BAND_INDEX_DATE_FILTER);
+            arguments.add(date_max);
+            arguments.add(date_min);
+        }
+        else {
+            query = query.concat(SparqlQueries.BAND_INDEX_DATE);
+        }
+        query = query.concat(SparqlQueries.BAND_INDEX_ORDER);
+
+        getLog().debug("Building band index...");
+        BandIndex bandIndex = sparqlTemplate.query(query, new ResultSetMapper<BandIndex>() {
+            @Override public BandIndex mapResultSet(ResultSet resultSet) {
+                URIMapper associationMapper = new URIMapper("association");
+                URIMapper bandMapper = new URIMapper("band");
+                URIMapper traitMapper = new URIMapper("trait");
+                BandIndex index = new BandIndex();
+                while (resultSet.hasNext()) {
+                    QuerySolution qs = resultSet.next();
+                    URI association = associationMapper.mapQuerySolution(qs);
+                    URI band = bandMapper.mapQuerySolution(qs);
+                    URI trait = traitMapper.mapQuerySolution(qs);
+                    if (association != null && band != null && trait != null) {
+                        String bandName = qs.contains("bandName") ? qs.getLiteral("bandName").getLexicalForm() : null;
+                        index.add(association, band, bandName, trait, qs.contains("date"));
+                    }
+                }
+                return index;
+            }
+        }, arguments.toArray());
+        getLog().debug("Indexed " + bandIndex.getAssociationCount() + " associations in " +
+                               bandIndex.getBandCount() + " bands");
+
+        return cache(bandIndex, "getBandIndex", sparqlTemplate, pval_max, pval_min, date_max, date_min);
+    }
+
     public BandInformation getBandInformation(SparqlTemplate sparqlTemplate, URI bandIndividual)
             throws DataIntegrityViolationException {
         Object retrieved = checkCache("getBandInformation", sparqlTemplate, bandIndividual);
@@ -821,27 +1003,40 @@ public class QueryManager {
     }
 
     private Object checkCache(String methodName, Object... arguments) {
+        List<Object> key = new ArrayList<Object>();
+        key.add(methodName);
+        Collections.addAll(key, arguments);
         synchronized (requestCache) {
-            List<Object> key = new ArrayList<Object>();
-            key.add(methodName);
-            Collections.addAll(key, arguments);
-            if (requestCache.containsKey(key)) {
-                return requestCache.get(key);
+            CachedResult cached = requestCache.get(key);
+            if (cached != null && System.currentTimeMillis() - cached.created < timeToLive) {
+                hits.incrementAndGet();
+                return cached.result;
             }
-            else {
-                return null;
+            if (cached != null) {
+                requestCache.remove(key);
             }
         }
+        misses.incrementAndGet();
+        return null;
     }
 
     private <O> O cache(O result, String methodName, Object... arguments) {
+        List<Object> key = new ArrayList<Object>();
+        key.add(methodName);
+        Collections.addAll(key, arguments);
         synchronized (requestCache) {
-            List<Object> key = new ArrayList<Object>();
-            key.add(methodName);
-            Collections.addAll(key, arguments);
-            requestCache.put(key, result);
+            requestCache.put(key, new CachedResult(result, System.currentTimeMillis()));
             return result;
         }
     }
-}
 
+    private static class CachedResult {
+        private final Object result;
+        private final long created;
+
+        private CachedResult(Object result, long created) {
+            this.result = result;
+            this.created = created;
+        }
+    }
+}
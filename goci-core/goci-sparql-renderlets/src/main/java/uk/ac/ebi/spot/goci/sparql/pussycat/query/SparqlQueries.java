@@ -264,5 +264,23 @@ public class SparqlQueries {
                     "FILTER ( ?pvalue >= ??) " +
                     "FILTER (?date < ??) " +
                     "FILTER (?date >= ??) }";
+    public static final String BAND_INDEX =
+            "SELECT DISTINCT ?association ?band ?bandName ?trait ?date " +
+                    "WHERE { ?association a gt:TraitAssociation ; oban:has_subject ?snp ; oban:has_object ?trait . " +
+                    "?snp ro:located_in ?band . " +
+                    "OPTIONAL { ?band rdfs:label ?bandName } ";
+    public static final String BAND_INDEX_PVALUE_FILTER =
+            "?association gt:has_p_value ?pvalue . " +
+                    "FILTER (?pvalue < ??) " +
+                    "FILTER (?pvalue >= ??) ";
+    public static final String BAND_INDEX_DATE_FILTER =
+            "?association ro:part_of ?study . " +
+                    "?study gt:has_publication_date ?date . " +
+                    "FILTER (?date < ??) " +
+                    "FILTER (?date >= ??) ";
+    public static final String BAND_INDEX_DATE =
+            "OPTIONAL { ?association ro:part_of ?study . ?study gt:has_publication_date ?date } ";
+    public static final String BAND_INDEX_ORDER =
+            "} ORDER BY ?date";
 
 }
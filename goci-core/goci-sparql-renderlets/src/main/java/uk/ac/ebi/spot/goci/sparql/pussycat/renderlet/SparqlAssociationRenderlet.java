@@ -8,6 +8,7 @@ import uk.ac.ebi.spot.goci.pussycat.layout.BandInformation;
 import uk.ac.ebi.spot.goci.pussycat.layout.SVGArea;
 import uk.ac.ebi.spot.goci.pussycat.renderlet.AssociationRenderlet;
 import uk.ac.ebi.spot.goci.pussycat.renderlet.RenderletNexus;
+import uk.ac.ebi.spot.goci.sparql.pussycat.query.BandIndex;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.QueryManager;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.QuerySolutionMapper;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.SparqlTemplate;
@@ -42,19 +43,54 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
         return association.toString();
     }
 
+    /**
+     * Fetches the index of associations, bands and traits that pass the filters of the current rendering
+     *
+     * @param nexus          the renderlet nexus
+     * @param sparqlTemplate the sparqlTemplate
+     * @return the band index for the rendering context of the nexus
+     */
+    protected BandIndex getBandIndex(RenderletNexus nexus, SparqlTemplate sparqlTemplate) {
+        return QueryManager.getCachingInstance().getBandIndex(sparqlTemplate, nexus.getRenderingContext());
+    }
+
+    /**
+     * Fetches the cytogenetic band the current association is located in, from the band index if it knows the
+     * association or else from the SPARQL store
+     *
+     * @param nexus          the renderlet nexus
+     * @param sparqlTemplate the sparqlTemplate
+     * @param association    the association to lookup the band for
+     * @return the band individual this association is located in
+     * @throws DataIntegrityViolationException
+     */
+    protected URI getBandIndividual(RenderletNexus nexus, SparqlTemplate sparqlTemplate, URI association)
+            throws DataIntegrityViolationException {
+        URI bandIndividual = getBandIndex(nexus, sparqlTemplate).getBand(association);
+        if (bandIndividual == null) {
+            bandIndividual =
+                    QueryManager.getCachingInstance().getCytogeneticBandForAssociation(sparqlTemplate, association);
+        }
+        return bandIndividual;
+    }
+
     /**
      * Fetches the band information about the cytogenetic region the current association is located in
      *
+     * @param nexus          the renderlet nexus
      * @param sparqlTemplate the sparqlTemplate
      * @param association    the association to lookup band information for
      * @return the band information for this association
      * @throws DataIntegrityViolationException
      */
-    protected BandInformation getBandInformation(SparqlTemplate sparqlTemplate, URI association)
+    protected BandInformation getBandInformation(RenderletNexus nexus, SparqlTemplate sparqlTemplate, URI association)
             throws DataIntegrityViolationException {
-        URI bandIndividual =
-                QueryManager.getCachingInstance().getCytogeneticBandForAssociation(sparqlTemplate, association);
+        URI bandIndividual = getBandIndividual(nexus, sparqlTemplate, association);
         if (bandIndividual != null) {
+            BandInformation bandInformation = getBandIndex(nexus, sparqlTemplate).getBandInformation(bandIndividual);
+            if (bandInformation != null) {
+                return bandInformation;
+            }
             return QueryManager.getCachingInstance().getBandInformation(sparqlTemplate, bandIndividual);
         }
         else {
@@ -74,17 +110,13 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
      */
     protected int getNumberOfTraitsInSameBand(RenderletNexus nexus, SparqlTemplate sparqlTemplate, URI association)
             throws DataIntegrityViolationException {
-        URI bandIndividual =
-                QueryManager.getCachingInstance().getCytogeneticBandForAssociation(sparqlTemplate, association);
+        URI bandIndividual = getBandIndividual(nexus, sparqlTemplate, association);
         if (bandIndividual != null) {
             //            Set<URI> associations =
             //                    QueryManager.getCachingInstance()
             //                            .getAssociationsLocatedInCytogeneticBand(sparqlTemplate, bandIndividual);
             //            return associations.size();
-            Set<URI> currentBandTraits =
-                    QueryManager.getCachingInstance().getTraitsLocatedInCytogeneticBand(sparqlTemplate,
-                                                                                        bandIndividual,
-                                                                                        nexus.getRenderingContext());
+            Set<URI> currentBandTraits = getBandIndex(nexus, sparqlTemplate).getTraitsInBand(bandIndividual);
             return currentBandTraits.size();
         }
         else {
@@ -104,7 +136,7 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
      */
     protected int getNumberOfTraitsInPreviousBand(RenderletNexus nexus, SparqlTemplate sparqlTemplate, URI association)
             throws DataIntegrityViolationException {
-        BandInformation band = getBandInformation(sparqlTemplate, association);
+        BandInformation band = getBandInformation(nexus, sparqlTemplate, association);
         if (band != null) {
             BandInformation current = band;
             BandInformation previousBand = null;
@@ -115,10 +147,7 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
 
                 // now find the traits in the previous band
                 Set<URI> previousBandAssociations =
-                        QueryManager.getCachingInstance().getAssociationsLocatedInCytogeneticBand(
-                                sparqlTemplate,
-                                previousBand.getBandName(),
-                                nexus.getRenderingContext());
+                        getBandIndex(nexus, sparqlTemplate).getAssociationsInBand(previousBand.getBandName());
 
                 // get first not-null location for an association in the previous band
                 for (URI previousBandAssociation : previousBandAssociations) {
@@ -133,9 +162,7 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
 
 
             Set<URI> previousBandTraits =
-                    QueryManager.getCachingInstance().getTraitsLocatedInCytogeneticBand(sparqlTemplate,
-                                                                                        previousBand.getBandName(),
-                                                                                        nexus.getRenderingContext());
+                    getBandIndex(nexus, sparqlTemplate).getTraitsInBand(previousBand.getBandName());
             return previousBandTraits.size();
         }
         else {
@@ -148,7 +175,7 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
                                                        SparqlTemplate sparqlTemplate,
                                                        URI association)
             throws DataIntegrityViolationException {
-        BandInformation band = getBandInformation(sparqlTemplate, association);
+        BandInformation band = getBandInformation(nexus, sparqlTemplate, association);
         if (band != null) {
             BandInformation current = band;
             boolean done = false;
@@ -167,10 +194,7 @@ public class SparqlAssociationRenderlet extends AssociationRenderlet<SparqlTempl
 
                 // now find the traits in the previous band
                 Set<URI> previousBandAssociations =
-                        QueryManager.getCachingInstance().getAssociationsLocatedInCytogeneticBand(
-                                sparqlTemplate,
-                                previousBand.getBandName(),
-                                nexus.getRenderingContext());
+                        getBandIndex(nexus, sparqlTemplate).getAssociationsInBand(previousBand.getBandName());
 
                 // get first not-null location for an association in the previous band
                 for (URI previousBandAssociation : previousBandAssociations) {
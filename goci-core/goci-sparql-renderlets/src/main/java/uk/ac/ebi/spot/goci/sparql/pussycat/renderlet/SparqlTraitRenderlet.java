@@ -6,6 +6,7 @@ import uk.ac.ebi.spot.goci.pussycat.layout.ColourMapper;
 import uk.ac.ebi.spot.goci.pussycat.layout.SVGArea;
 import uk.ac.ebi.spot.goci.pussycat.renderlet.RenderletNexus;
 import uk.ac.ebi.spot.goci.pussycat.renderlet.TraitRenderlet;
+import uk.ac.ebi.spot.goci.sparql.pussycat.query.BandIndex;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.QueryManager;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.SparqlTemplate;
 
@@ -38,16 +39,29 @@ public class SparqlTraitRenderlet extends TraitRenderlet<SparqlTemplate, URI> {
         }
     }
 
+    /**
+     * Fetches the index of associations, bands and traits that pass the filters of the current rendering
+     *
+     * @param nexus          the renderlet nexus
+     * @param sparqlTemplate the sparqlTemplate
+     * @return the band index for the rendering context of the nexus
+     */
+    protected BandIndex getBandIndex(RenderletNexus nexus, SparqlTemplate sparqlTemplate) {
+        return QueryManager.getCachingInstance().getBandIndex(sparqlTemplate, nexus.getRenderingContext());
+    }
+
     protected Set<URI> getAssociationsForTrait(RenderletNexus nexus, SparqlTemplate sparqlTemplate, URI trait)
             throws DataIntegrityViolationException {
-        return QueryManager.getCachingInstance()
-                .getAssociationsForTrait(sparqlTemplate, trait, nexus.getRenderingContext());
+        return getBandIndex(nexus, sparqlTemplate).getAssociationsForTrait(trait);
     }
 
-    protected URI getBandForAssociation(SparqlTemplate sparqlTemplate, URI association)
+    protected URI getBandForAssociation(RenderletNexus nexus, SparqlTemplate sparqlTemplate, URI association)
             throws DataIntegrityViolationException {
-        URI bandIndividual =
-                QueryManager.getCachingInstance().getCytogeneticBandForAssociation(sparqlTemplate, association);
+        URI bandIndividual = getBandIndex(nexus, sparqlTemplate).getBand(association);
+        if (bandIndividual == null) {
+            bandIndividual =
+                    QueryManager.getCachingInstance().getCytogeneticBandForAssociation(sparqlTemplate, association);
+        }
         getLog().trace("Band for association '" + association + "' is '" + bandIndividual + "'");
         return bandIndividual;
     }
@@ -56,9 +70,7 @@ public class SparqlTraitRenderlet extends TraitRenderlet<SparqlTemplate, URI> {
                                                             SparqlTemplate sparqlTemplate,
                                                             URI band)
             throws DataIntegrityViolationException {
-        Set<URI> allTraits =
-                QueryManager.getCachingInstance()
-                        .getTraitsLocatedInCytogeneticBand(sparqlTemplate, band, nexus.getRenderingContext());
+        Set<URI> allTraits = getBandIndex(nexus, sparqlTemplate).getTraitsInBand(band);
         getLog().trace("Identified " + allTraits.size() + " traits in band '" + band + "'");
 
         List<SVGArea> locations = new ArrayList<SVGArea>();
@@ -98,17 +110,15 @@ public class SparqlTraitRenderlet extends TraitRenderlet<SparqlTemplate, URI> {
                                              URI trait,
                                              URI band,
                                              List<SVGArea> locations) {
-        List<URI> dateOrderedTraits =
-                QueryManager.getCachingInstance()
-                        .getTraitsOrderedByIdentificationDateForBand(sparqlTemplate, band, nexus.getRenderingContext());
+        BandIndex bandIndex = getBandIndex(nexus, sparqlTemplate);
+        List<URI> dateOrderedTraits = bandIndex.getTraitsOrderedByIdentificationDate(band);
 
         //        if(dateOrderedTraits.contains(trait)){
         //            return dateOrderedTraits.indexOf(trait);
         //        }
         List<URI> renderableDateOrderedTraits = new ArrayList<URI>();
         for (URI t : dateOrderedTraits) {
-            List<URI> associations = QueryManager.getCachingInstance()
-                    .getAssociationForTraitAndBand(sparqlTemplate, t, band, nexus.getRenderingContext());
+            List<URI> associations = bandIndex.getAssociationsForTraitAndBand(t, band);
             for (URI a : associations) {
                 if (nexus.getLocationOfRenderedEntity(a) != null && !renderableDateOrderedTraits.contains(t)) {
                     renderableDateOrderedTraits.add(t);
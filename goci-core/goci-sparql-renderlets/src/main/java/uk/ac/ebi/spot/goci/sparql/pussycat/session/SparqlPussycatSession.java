@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.Study;
@@ -20,19 +21,34 @@ import uk.ac.ebi.spot.goci.pussycat.service.OntologyService;
 import uk.ac.ebi.spot.goci.pussycat.session.AbstractPussycatSession;
 import uk.ac.ebi.spot.goci.pussycat.utils.StringUtils;
 import uk.ac.ebi.spot.goci.sparql.exception.SparqlQueryException;
+import uk.ac.ebi.spot.goci.sparql.pussycat.query.QueryManager;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.QuerySolutionMapper;
 import uk.ac.ebi.spot.goci.sparql.pussycat.query.SparqlTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 //import uk.ac.ebi.spot.goci.ui.model.AssociationSummary;
 
@@ -71,7 +87,24 @@ public class SparqlPussycatSession extends AbstractPussycatSession {
             "               oban:has_object ?trait . ";
 
 
-    private boolean rendering = false;
+    @Value("${pussycat.rendering.threads:4}")
+    private int renderingThreads = 4;
+
+    @Value("${pussycat.rendering.queue:32}")
+    private int renderingQueue = 32;
+
+    @Value("${sparql.cache.max_size:100000}")
+    private int queryCacheMaxSize = QueryManager.DEFAULT_MAX_SIZE;
+
+    @Value("${sparql.cache.ttl:86400}")
+    private long queryCacheTimeToLive = TimeUnit.MILLISECONDS.toSeconds(QueryManager.DEFAULT_TIME_TO_LIVE);
+
+    @Value("${cache.data.version:}")
+    private String dataVersion = "";
+
+    private ExecutorService renderingExecutor;
+
+    private final ConcurrentMap<List<Object>, Future<String>> inFlightRenderings = new ConcurrentHashMap<>();
 
     private Logger log = LoggerFactory.getLogger("rendering");
 
@@ -97,114 +130,185 @@ public class SparqlPussycatSession extends AbstractPussycatSession {
         return sparqlTemplate;
     }
 
-    public synchronized boolean isRendering() {
-        return rendering;
-    }
-
-    public synchronized void setRendering(boolean rendering) {
-        this.rendering = rendering;
-    }
-
+    /**
+     * Renders on a bounded pool of "pussycat.rendering.threads" threads, each request in the renderlet nexus it is
+     * given, which must not be shared with other requests.  Requests queue up to "pussycat.rendering.queue" deep, and
+     * beyond that are refused as not ready.  A request identical to one already rendering (same filters and rendering
+     * context) waits for that rendering and shares its SVG instead of rendering again.
+     */
     @Override public String performRendering(RenderletNexus renderletNexus, Filter... filters)
             throws PussycatSessionNotReadyException, NoRenderableDataException {
+        List<Object> requestKey = new ArrayList<Object>(Arrays.asList(filters));
+        requestKey.add(new ArrayList<Filter>(renderletNexus.getRenderingContext()));
 
-            // render
-        if (!isRendering()) {
-            setRendering(true);
+        FutureTask<String> task = new FutureTask<String>(() -> {
+            try {
+                return render(renderletNexus, filters);
+            }
+            finally {
+                inFlightRenderings.remove(requestKey);
+            }
+        });
+        Future<String> rendering = inFlightRenderings.putIfAbsent(requestKey, task);
+        if (rendering == null) {
+            rendering = task;
+            try {
+                getRenderingExecutor().execute(task);
+            }
+            catch (RejectedExecutionException e) {
+                inFlightRenderings.remove(requestKey, task);
+                getLog().debug("Too many GWAS diagrams are already being rendered");
+                throw new PussycatSessionNotReadyException("Too many GWAS diagrams are currently being rendered");
+            }
+        }
+        else {
+            getLog().debug("An identical GWAS diagram is already being rendered, waiting for it");
+        }
 
-            String associationQueryString = associationQueryMain;
-            String traitQueryString = traitQueryMain;
+        try {
+            return rendering.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PussycatSessionNotReadyException("Interrupted while the GWAS diagram was being rendered", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof NoRenderableDataException) {
+                throw (NoRenderableDataException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to render SVG", e.getCause());
+        }
+    }
 
-            getLog().debug("Rendering SVG from SPARQL endpoint (filters = '" + filters + "')...");
+    /**
+     * Bounds the SPARQL query cache to "sparql.cache.max_size" results, each kept for "sparql.cache.ttl" seconds, and
+     * ties it to the "cache.data.version" of the data in the SPARQL store.  A store reloaded without a restart is seen
+     * once the cached results expire.
+     */
+    @PostConstruct
+    public void configureQueryCache() {
+        QueryManager queryManager = QueryManager.getCachingInstance();
+        queryManager.setMaxSize(queryCacheMaxSize);
+        queryManager.setTimeToLive(TimeUnit.SECONDS.toMillis(queryCacheTimeToLive));
+        if (dataVersion != null && !dataVersion.isEmpty()) {
+            queryManager.setDataVersion(dataVersion);
+        }
+    }
 
-            String associationPvalueFilters = "";
-            String traitPvalueFilters = "";
+    protected synchronized ExecutorService getRenderingExecutor() {
+        if (renderingExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            renderingExecutor = new ThreadPoolExecutor(renderingThreads, renderingThreads,
+                                                       60L, TimeUnit.SECONDS,
+                                                       new LinkedBlockingQueue<Runnable>(renderingQueue),
+                                                       runnable -> {
+                                                           Thread thread = new Thread(runnable);
+                                                           thread.setName("pussycat-rendering-" +
+                                                                                  threadCount.incrementAndGet());
+                                                           thread.setDaemon(true);
+                                                           return thread;
+                                                       });
+        }
+        return renderingExecutor;
+    }
 
-            String associationDateFilters = "";
-            String traitDateFilters = "";
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (renderingExecutor != null) {
+            renderingExecutor.shutdownNow();
+        }
+    }
 
-            for (Filter filter : filters) {
-                if (filter.getFilteredType().equals(Association.class)) {
-                    List<Double> values = filter.getFilteredValues();
+    private String render(RenderletNexus renderletNexus, Filter... filters) throws NoRenderableDataException {
+        String associationQueryString = associationQueryMain;
+        String traitQueryString = traitQueryMain;
 
-                    associationQueryString = associationQueryString.concat("?association gt:has_p_value ?pvalue .");
-                    traitQueryString = traitQueryString.concat("?association gt:has_p_value ?pvalue .");
+        getLog().debug("Rendering SVG from SPARQL endpoint (filters = '" + filters + "')...");
 
-                    associationPvalueFilters = associationPvalueFilters.concat("  FILTER ( ?pvalue < ?? )")
-                            .concat("  FILTER ( ?pvalue >= ?? )");
+        String associationPvalueFilters = "";
+        String traitPvalueFilters = "";
 
-                    traitPvalueFilters = traitPvalueFilters.concat("  FILTER ( ?pvalue < ?? )")
-                            .concat("  FILTER ( ?pvalue >= ?? )");
+        String associationDateFilters = "";
+        String traitDateFilters = "";
 
-                }
-                if (filter.getFilteredType().equals(Study.class)) {
+        for (Filter filter : filters) {
+            if (filter.getFilteredType().equals(Association.class)) {
+                List<Double> values = filter.getFilteredValues();
 
-                    associationQueryString = associationQueryString.concat(
-                            "?association ro:part_of ?study . ?study gt:has_publication_date ?date .");
-                    traitQueryString = traitQueryString.concat(
-                            "?association ro:part_of ?study . ?study gt:has_publication_date ?date . ");
+                associationQueryString = associationQueryString.concat("?association gt:has_p_value ?pvalue .");
+                traitQueryString = traitQueryString.concat("?association gt:has_p_value ?pvalue .");
 
-                    associationDateFilters = associationDateFilters.concat("  FILTER ( ?date < ?? ) ")
-                            .concat("  FILTER ( ?date >= ?? ) ");
+                associationPvalueFilters = associationPvalueFilters.concat("  FILTER ( ?pvalue < ?? )")
+                        .concat("  FILTER ( ?pvalue >= ?? )");
+
+                traitPvalueFilters = traitPvalueFilters.concat("  FILTER ( ?pvalue < ?? )")
+                        .concat("  FILTER ( ?pvalue >= ?? )");
 
-                    traitDateFilters = traitDateFilters.concat("  FILTER ( ?date < ?? ) ")
-                            .concat("  FILTER ( ?date >= ?? ) ");
-                }
             }
-            associationQueryString = associationQueryString.concat(associationPvalueFilters)
-                    .concat(associationDateFilters)
-                    .concat(associationQueryBandFilter);
-            traitQueryString = traitQueryString.concat(traitPvalueFilters).concat(traitDateFilters).concat(" }");
+            if (filter.getFilteredType().equals(Study.class)) {
 
-            System.out.println(associationQueryString);
-            System.out.println(traitQueryString);
+                associationQueryString = associationQueryString.concat(
+                        "?association ro:part_of ?study . ?study gt:has_publication_date ?date .");
+                traitQueryString = traitQueryString.concat(
+                        "?association ro:part_of ?study . ?study gt:has_publication_date ?date . ");
 
-            try {
-                getLog().debug("Querying SPARQL endpoint for GWAS data...");
-                List<URI> chromosomes = loadChromosomes(getSparqlTemplate());
-                getLog().debug("Acquired " + chromosomes.size() + " chromosomes to render");
-                List<URI> individuals = new ArrayList<URI>();
-                individuals.addAll(loadAssociations(getSparqlTemplate(),
-                                                    associationQueryString,
-                                                    renderletNexus.getRenderingContext()));
-                individuals.addAll(loadTraits(getSparqlTemplate(),
-                                              traitQueryString,
-                                              renderletNexus.getRenderingContext()));
-                getLog().debug("Acquired " + individuals.size() + " individuals to render");
-
-                if (individuals.size() == 0) {
-                    throw new NoRenderableDataException("No individuals available for rendering");
-                }
+                associationDateFilters = associationDateFilters.concat("  FILTER ( ?date < ?? ) ")
+                        .concat("  FILTER ( ?date >= ?? ) ");
 
-                getLog().debug("GWAS data acquired, starting rendering...");
+                traitDateFilters = traitDateFilters.concat("  FILTER ( ?date < ?? ) ")
+                        .concat("  FILTER ( ?date >= ?? ) ");
+            }
+        }
+        associationQueryString = associationQueryString.concat(associationPvalueFilters)
+                .concat(associationDateFilters)
+                .concat(associationQueryBandFilter);
+        traitQueryString = traitQueryString.concat(traitPvalueFilters).concat(traitDateFilters).concat(" }");
+
+        getLog().debug("Association query: " + associationQueryString);
+        getLog().debug("Trait query: " + traitQueryString);
+
+        try {
+            getLog().debug("Querying SPARQL endpoint for GWAS data...");
+            List<URI> chromosomes = loadChromosomes(getSparqlTemplate());
+            getLog().debug("Acquired " + chromosomes.size() + " chromosomes to render");
+            List<URI> individuals = new ArrayList<URI>();
+            individuals.addAll(loadAssociations(getSparqlTemplate(),
+                                                associationQueryString,
+                                                renderletNexus.getRenderingContext()));
+            individuals.addAll(loadTraits(getSparqlTemplate(),
+                                          traitQueryString,
+                                          renderletNexus.getRenderingContext()));
+            getLog().debug("Acquired " + individuals.size() + " individuals to render");
+
+            if (individuals.size() == 0) {
+                throw new NoRenderableDataException("No individuals available for rendering");
+            }
 
-                // render chromosomes first
-                for (URI chromosome : chromosomes) {
-                    dispatchRenderlet(renderletNexus, chromosome);
-                }
+            // prefetch the bands, traits and associations renderlets need in one query, instead of one per individual
+            QueryManager.getCachingInstance().getBandIndex(getSparqlTemplate(), renderletNexus.getRenderingContext());
 
-                // then render individuals
-                for (URI individual : individuals) {
-                    dispatchRenderlet(renderletNexus, individual);
-                }
-                getLog().debug("SVG rendering complete!");
-                return renderletNexus.getSVG();
-            }
-            catch (SparqlQueryException e) {
-                throw new RuntimeException("Failed to load data - cannot render SVG", e);
+            getLog().debug("GWAS data acquired, starting rendering...");
+
+            // render chromosomes first
+            for (URI chromosome : chromosomes) {
+                dispatchRenderlet(renderletNexus, chromosome);
             }
-            finally {
-                getLog().debug("About to reset the renderlet nexus");
-                setRendering(false);
-                renderletNexus.reset();
+
+            // then render individuals
+            for (URI individual : individuals) {
+                dispatchRenderlet(renderletNexus, individual);
             }
+            QueryManager queryManager = QueryManager.getCachingInstance();
+            getLog().debug(String.format("SVG rendering complete! Query cache holds %d results, hit ratio %.1f%%",
+                                         queryManager.getSize(), queryManager.getHitRatio() * 100));
+            return renderletNexus.getSVG();
         }
-        else {
-            getLog().debug("The GWAS diagram is already being rendered");
-            throw new PussycatSessionNotReadyException("The GWAS diagram is currently being rendered");
+        catch (SparqlQueryException e) {
+            throw new RuntimeException("Failed to load data - cannot render SVG", e);
         }
-
-
     }
 
     @Override public Set<URI> getRelatedTraits(String traitName) {
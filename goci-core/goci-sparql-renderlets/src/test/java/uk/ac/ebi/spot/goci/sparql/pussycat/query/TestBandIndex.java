@@ -0,0 +1,142 @@
+package uk.ac.ebi.spot.goci.sparql.pussycat.query;
+
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.spot.goci.pussycat.exception.DataIntegrityViolationException;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests a {@link BandIndex} built by {@link QueryManager#getBandIndex(SparqlTemplate, java.util.List)} from the
+ * result of the band index query over a small graph
+ */
+public class TestBandIndex {
+
+    private static final String PREFIXES = "PREFIX rdfs:<http://www.w3.org/2000/01/rdf-schema#>\n" +
+            "PREFIX xsd:<http://www.w3.org/2001/XMLSchema#>\n" +
+            "PREFIX oban:<http://purl.org/oban/>\n" +
+            "PREFIX ro:<http://www.obofoundry.org/ro/ro.owl#>\n" +
+            "PREFIX gt:<http://rdf.ebi.ac.uk/terms/gwas/>\n" +
+            "PREFIX ex:<http://example.org/>\n";
+
+    // Three associations in the labelled band 1p36.33, one of them undated, and one in a band without a label
+    private static final String DATA = PREFIXES.replaceAll("PREFIX (\\w+):(<[^>]+>)", "@prefix $1: $2 .") +
+            "ex:a1 a gt:TraitAssociation ; oban:has_subject ex:s1 ; oban:has_object ex:t1 ; ro:part_of ex:study1 .\n" +
+            "ex:a2 a gt:TraitAssociation ; oban:has_subject ex:s2 ; oban:has_object ex:t2 ; ro:part_of ex:study2 .\n" +
+            "ex:a3 a gt:TraitAssociation ; oban:has_subject ex:s3 ; oban:has_object ex:t1 .\n" +
+            "ex:a4 a gt:TraitAssociation ; oban:has_subject ex:s4 ; oban:has_object ex:t2 ; ro:part_of ex:study1 .\n" +
+            "ex:s1 ro:located_in ex:band1 .\n" +
+            "ex:s2 ro:located_in ex:band1 .\n" +
+            "ex:s3 ro:located_in ex:band1 .\n" +
+            "ex:s4 ro:located_in ex:band2 .\n" +
+            "ex:band1 rdfs:label \"1p36.33\" .\n" +
+            "ex:study1 gt:has_publication_date \"2010-01-01T00:00:00\"^^xsd:dateTime .\n" +
+            "ex:study2 gt:has_publication_date \"2008-01-01T00:00:00\"^^xsd:dateTime .\n";
+
+    private static final URI A1 = URI.create("http://example.org/a1");
+    private static final URI A2 = URI.create("http://example.org/a2");
+    private static final URI A3 = URI.create("http://example.org/a3");
+    private static final URI A4 = URI.create("http://example.org/a4");
+    private static final URI T1 = URI.create("http://example.org/t1");
+    private static final URI T2 = URI.create("http://example.org/t2");
+    private static final URI BAND1 = URI.create("http://example.org/band1");
+    private static final URI BAND2 = URI.create("http://example.org/band2");
+    private static final URI UNKNOWN = URI.create("http://example.org/unknown");
+
+    private BandIndex bandIndex;
+
+    @Before
+    public void setUp() {
+        Model model = ModelFactory.createDefaultModel();
+        model.read(new StringReader(DATA), null, "TURTLE");
+        bandIndex = new QueryManager().getBandIndex(new ModelSparqlTemplate(model), Collections.emptyList());
+    }
+
+    @Test
+    public void testBandLookups() throws Exception {
+        assertEquals(4, bandIndex.getAssociationCount());
+        assertEquals(2, bandIndex.getBandCount());
+
+        assertEquals(BAND1, bandIndex.getBand(A1));
+        assertEquals(BAND2, bandIndex.getBand(A4));
+        assertNull(bandIndex.getBand(UNKNOWN));
+
+        assertEquals("1p36.33", bandIndex.getBandInformation(BAND1).getBandName());
+        assertNull(bandIndex.getBandInformation(BAND2));
+        assertNull(bandIndex.getBandInformation(UNKNOWN));
+    }
+
+    @Test
+    public void testTraitAndAssociationLookups() {
+        assertEquals(set(T1, T2), bandIndex.getTraitsInBand(BAND1));
+        assertEquals(set(T2), bandIndex.getTraitsInBand(BAND2));
+        assertEquals(set(T1, T2), bandIndex.getTraitsInBand("1p36.33"));
+        assertEquals(set(A1, A2, A3), bandIndex.getAssociationsInBand("1p36.33"));
+        assertEquals(set(A1, A3), bandIndex.getAssociationsForTrait(T1));
+        assertEquals(set(A1, A3), new HashSet<>(bandIndex.getAssociationsForTraitAndBand(T1, BAND1)));
+
+        // traits of band 1 in order of their first dated study, the undated association is left out
+        assertEquals(Arrays.asList(T2, T1), bandIndex.getTraitsOrderedByIdentificationDate(BAND1));
+
+        assertTrue(bandIndex.getTraitsInBand(UNKNOWN).isEmpty());
+        assertTrue(bandIndex.getTraitsInBand("2q11").isEmpty());
+        assertTrue(bandIndex.getAssociationsForTrait(UNKNOWN).isEmpty());
+        assertTrue(bandIndex.getAssociationsForTraitAndBand(T1, BAND2).isEmpty());
+        assertTrue(bandIndex.getTraitsOrderedByIdentificationDate(UNKNOWN).isEmpty());
+    }
+
+    @Test
+    public void testAssociationInSeveralBandsIsRefused() throws Exception {
+        BandIndex index = new BandIndex();
+        index.add(A1, BAND1, "1p36.33", T1, false);
+        index.add(A1, BAND2, null, T1, false);
+        try {
+            index.getBand(A1);
+            fail("Band returned for an association located in two bands");
+        }
+        catch (DataIntegrityViolationException e) {
+            // expected
+        }
+    }
+
+    private static Set<URI> set(URI... uris) {
+        return new HashSet<>(Arrays.asList(uris));
+    }
+
+    /**
+     * Runs queries against an in-memory model instead of a SPARQL store
+     */
+    private static class ModelSparqlTemplate extends SparqlTemplate {
+        private final Model model;
+
+        private ModelSparqlTemplate(Model model) {
+            this.model = model;
+            setPrefixes(PREFIXES);
+        }
+
+        @Override
+        public <T> T query(String sparql, ResultSetMapper<T> rsm, Object... args) {
+            QueryExecution execution = QueryExecutionFactory.create(getPrefixString() + sparql, model);
+            try {
+                return rsm.mapResultSet(execution.execSelect());
+            }
+            finally {
+                execution.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package uk.ac.ebi.spot.goci.sparql.pussycat.query;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the bounds, expiry, invalidation and counters of the {@link QueryManager} result cache
+ */
+public class TestQueryManager {
+
+    private static final URI A = URI.create("http://example.org/association/a");
+
+    private static final URI B = URI.create("http://example.org/association/b");
+
+    private static final URI C = URI.create("http://example.org/association/c");
+
+    private QueryManager queryManager;
+
+    private CountingSparqlTemplate sparqlTemplate;
+
+    @Before
+    public void setUp() {
+        queryManager = new QueryManager();
+        sparqlTemplate = new CountingSparqlTemplate();
+    }
+
+    @Test
+    public void testRepeatedLookupIsAnsweredFromCache() throws Exception {
+        assertEquals(band(A), queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A));
+        assertEquals(band(A), queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A));
+
+        assertEquals(1, sparqlTemplate.queries.size());
+        assertEquals(1, queryManager.getHits());
+        assertEquals(1, queryManager.getMisses());
+        assertEquals(0.5, queryManager.getHitRatio(), 0);
+        assertEquals(1, queryManager.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() throws Exception {
+        queryManager.setMaxSize(2);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, B);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, C);
+
+        assertEquals(2, queryManager.getSize());
+        assertEquals(1, queryManager.getEvictions());
+
+        // B was used least recently
+        sparqlTemplate.queries.clear();
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, C);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+        assertEquals(Collections.emptyList(), sparqlTemplate.queries);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, B);
+        assertEquals(Collections.singletonList(B), sparqlTemplate.queries);
+        assertEquals(2, queryManager.getEvictions());
+    }
+
+    @Test
+    public void testExpiredResultIsQueriedAgain() throws Exception {
+        queryManager.setTimeToLive(0);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+
+        assertEquals(2, sparqlTemplate.queries.size());
+        assertEquals(0, queryManager.getHits());
+        assertEquals(2, queryManager.getMisses());
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        queryManager.setDataVersion("1");
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+
+        // the same data version keeps the results
+        queryManager.setDataVersion("1");
+        assertEquals(1, queryManager.getSize());
+
+        queryManager.setDataVersion("2");
+        assertEquals("2", queryManager.getDataVersion());
+        assertEquals(0, queryManager.getSize());
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+        assertEquals(2, sparqlTemplate.queries.size());
+
+        queryManager.invalidate();
+        assertEquals(0, queryManager.getSize());
+        queryManager.getCytogeneticBandForAssociation(sparqlTemplate, A);
+        assertEquals(3, sparqlTemplate.queries.size());
+        assertEquals(0, queryManager.getHits());
+    }
+
+    private static URI band(URI association) {
+        return URI.create(association + "/band");
+    }
+
+    /**
+     * Answers the band of an association query without a SPARQL store, and records the associations queried
+     */
+    private static class CountingSparqlTemplate extends SparqlTemplate {
+        private final List<Object> queries = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sparql, QuerySolutionMapper<T> qsm, Object... args) {
+            queries.add(args[0]);
+            return (List<T>) Collections.singletonList(band((URI) args[0]));
+        }
+    }
+}
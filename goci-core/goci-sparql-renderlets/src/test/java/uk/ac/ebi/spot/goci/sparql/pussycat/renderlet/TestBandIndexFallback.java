@@ -0,0 +1,80 @@
+package uk.ac.ebi.spot.goci.sparql.pussycat.renderlet;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.spot.goci.pussycat.renderlet.RenderletNexus;
+import uk.ac.ebi.spot.goci.sparql.pussycat.query.BandIndex;
+import uk.ac.ebi.spot.goci.sparql.pussycat.query.QuerySolutionMapper;
+import uk.ac.ebi.spot.goci.sparql.pussycat.query.SparqlTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that renderlets query the SPARQL store for bands their (empty) band index does not know
+ */
+public class TestBandIndexFallback {
+
+    private static final URI ASSOCIATION = URI.create("http://example.org/association");
+
+    private static final URI BAND = URI.create("http://example.org/band");
+
+    private final BandIndex emptyIndex = new BandIndex();
+
+    private StoreSparqlTemplate sparqlTemplate;
+
+    @Before
+    public void setUp() {
+        sparqlTemplate = new StoreSparqlTemplate();
+    }
+
+    @Test
+    public void testAssociationRenderletQueriesUnknownBand() throws Exception {
+        SparqlAssociationRenderlet renderlet = new SparqlAssociationRenderlet() {
+            @Override protected BandIndex getBandIndex(RenderletNexus nexus, SparqlTemplate sparqlTemplate) {
+                return emptyIndex;
+            }
+        };
+
+        assertEquals("9q34", renderlet.getBandInformation(null, sparqlTemplate, ASSOCIATION).getBandName());
+        assertEquals(Collections.singletonList(ASSOCIATION), sparqlTemplate.bandQueries);
+        assertEquals(Collections.singletonList(BAND), sparqlTemplate.labelQueries);
+    }
+
+    @Test
+    public void testTraitRenderletQueriesUnknownBand() throws Exception {
+        SparqlTraitRenderlet renderlet = new SparqlTraitRenderlet() {
+            @Override protected BandIndex getBandIndex(RenderletNexus nexus, SparqlTemplate sparqlTemplate) {
+                return emptyIndex;
+            }
+        };
+
+        assertEquals(BAND, renderlet.getBandForAssociation(null, sparqlTemplate, ASSOCIATION));
+        assertEquals(Collections.singletonList(ASSOCIATION), sparqlTemplate.bandQueries);
+    }
+
+    /**
+     * Answers the band of any association, and the label of any band, as a SPARQL store would
+     */
+    private static class StoreSparqlTemplate extends SparqlTemplate {
+        private final List<Object> bandQueries = new ArrayList<>();
+        private final List<URI> labelQueries = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sparql, QuerySolutionMapper<T> qsm, Object... args) {
+            bandQueries.add(args[0]);
+            return (List<T>) Collections.singletonList(BAND);
+        }
+
+        @Override
+        public String label(URI entity) {
+            labelQueries.add(entity);
+            return "9q34";
+        }
+    }
+}
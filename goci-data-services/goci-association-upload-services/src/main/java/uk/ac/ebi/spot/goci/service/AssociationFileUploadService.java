@@ -2,25 +2,37 @@ package uk.ac.ebi.spot.goci.service;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.exception.SheetProcessingException;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.AssociationSummary;
 import uk.ac.ebi.spot.goci.model.AssociationUploadRow;
+import uk.ac.ebi.spot.goci.model.Locus;
 import uk.ac.ebi.spot.goci.model.RowValidationSummary;
 import uk.ac.ebi.spot.goci.model.ValidationError;
 import uk.ac.ebi.spot.goci.model.ValidationSummary;
+import uk.ac.ebi.spot.goci.service.rest.IdentifierLookupService;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by emma on 01/04/2016.
@@ -28,6 +40,11 @@ import java.util.Collection;
  * @author emma
  *         <p>
  *         This service class acts an an entry point for processing an XLSX file that contains GWAS association data
+ *         <p>
+ *         The file is streamed, so the workbook itself is never held in memory, and a file is rejected as soon as one
+ *         of its rows fails the syntax checks. Memory use is not flat for a file that passes them: all its rows are
+ *         kept until the end of the sheet, so that the SNPs and genes of all of them can be looked up at once, and
+ *         the summary returned holds an association for every row.
  */
 @Service
 public class AssociationFileUploadService {
@@ -42,6 +59,13 @@ public class AssociationFileUploadService {
 
     private EnsemblRestTemplateService ensemblRestTemplateService;
 
+    private IdentifierLookupService identifierLookupService;
+
+    @Value("${upload.validation_threads:8}")
+    private int validationThreads = 8;
+
+    private ExecutorService validationExecutor;
+
     private Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -53,12 +77,14 @@ public class AssociationFileUploadService {
                                         AssociationRowProcessor associationRowProcessor,
                                         ValidationService validationService,
                                         SheetCreationService sheetCreationService,
-                                        EnsemblRestTemplateService ensemblRestTemplateService) {
+                                        EnsemblRestTemplateService ensemblRestTemplateService,
+                                        IdentifierLookupService identifierLookupService) {
         this.uploadSheetProcessorBuilder = uploadSheetProcessorBuilder;
         this.associationRowProcessor = associationRowProcessor;
         this.validationService = validationService;
         this.sheetCreationService = sheetCreationService;
         this.ensemblRestTemplateService = ensemblRestTemplateService;
+        this.identifierLookupService = identifierLookupService;
     }
 
     /**
@@ -72,18 +98,33 @@ public class AssociationFileUploadService {
         ValidationSummary validationSummary = new ValidationSummary();
         Collection<RowValidationSummary> rowValidationSummaries = new ArrayList<>();
         Collection<AssociationSummary> associationSummaries = new ArrayList<>();
-        Collection<AssociationUploadRow> fileRows = new ArrayList<>();
+        // Rows that passed syntax checks, kept for full checks until a row fails them (all rows of a valid file)
+        List<AssociationUploadRow> checkedRows = new ArrayList<>();
+        AtomicInteger rowCount = new AtomicInteger();
+        String eRelease;
 
         if (file.exists()) {
-            // Create sheet
-            XSSFSheet sheet = null;
+            eRelease = ensemblRestTemplateService.getRelease();
             try {
-                // Create a sheet for reading
-                sheet = sheetCreationService.createSheet(file.getAbsolutePath());
-
-                // Process file, depending on validation level, into a generic row object
+                // Process file, depending on validation level, into a generic row object. The file is streamed, so
+                // that each row is checked for missing values and syntax errors that would prevent code creating an
+                // association as soon as it has been read, and the workbook is never loaded into memory
                 UploadSheetProcessor uploadSheetProcessor = uploadSheetProcessorBuilder.buildProcessor(validationLevel);
-                fileRows = uploadSheetProcessor.readSheetRows(sheet);
+                sheetCreationService.streamSheet(file.getAbsolutePath(), uploadSheetProcessor.createRowHandler(row -> {
+                    rowCount.incrementAndGet();
+                    getLog().info("Syntax checking row: " + row.getRowNumber() + " of file, " +
+                                          file.getAbsolutePath());
+                    RowValidationSummary rowValidationSummary = createRowValidationSummary(row, eRelease);
+
+                    // Only store summary if there is an error
+                    if (!rowValidationSummary.getErrors().isEmpty()) {
+                        rowValidationSummaries.add(rowValidationSummary);
+                        checkedRows.clear();
+                    }
+                    else if (rowValidationSummaries.isEmpty()) {
+                        checkedRows.add(row);
+                    }
+                }));
             }
             catch (InvalidFormatException | InvalidOperationException | IOException e) {
                 getLog().error("File: " + file.getName() + " cannot be processed", e);
@@ -96,25 +137,10 @@ public class AssociationFileUploadService {
             throw new FileNotFoundException("File does not exist");
         }
 
-        String eRelease = ensemblRestTemplateService.getRelease();
-        // Error check each row
-        if (!fileRows.isEmpty()) {
-            // Check for missing values and syntax errors that would prevent code creating an association
-            for (AssociationUploadRow row : fileRows) {
-                getLog().info("Syntax checking row: " + row.getRowNumber() + " of file, " + file.getAbsolutePath());
-                RowValidationSummary rowValidationSummary = createRowValidationSummary(row, eRelease);
-
-                // Only store summary if there is an error
-                if (!rowValidationSummary.getErrors().isEmpty()) {
-                    rowValidationSummaries.add(rowValidationSummary);
-                }
-            }
-
+        if (rowCount.get() > 0) {
             if (rowValidationSummaries.isEmpty()) {
                 //Proceed to carry out full checks of values
-                fileRows.forEach(row -> {
-                    associationSummaries.add(createAssociationSummary(row, validationLevel, eRelease));
-                });
+                associationSummaries.addAll(createAssociationSummaries(checkedRows, validationLevel, eRelease));
             }
         }
         else {
@@ -142,14 +168,67 @@ public class AssociationFileUploadService {
     }
 
     /**
-     * Process uploaded file, create an association and return a list of its errors
+     * Create an association from each row and run full checks on all of them. The distinct SNPs and genes of all
+     * associations are looked up first, so that the checks of each association, which run in parallel, find them in
+     * the REST call history instead of calling Ensembl once per row
      *
-     * @param row             Row to validate and convert into an association
+     * @param rows            Rows to validate and convert into associations
      * @param validationLevel level of validation to run
+     * @return a summary per row, in the order of the rows
      */
-    private AssociationSummary createAssociationSummary(AssociationUploadRow row, String validationLevel, String eRelease) {
+    private List<AssociationSummary> createAssociationSummaries(List<AssociationUploadRow> rows,
+                                                                String validationLevel,
+                                                                String eRelease) {
+        List<Association> associations = new ArrayList<>();
+        Set<String> snps = new LinkedHashSet<>();
+        Set<String> genes = new LinkedHashSet<>();
+        for (AssociationUploadRow row : rows) {
+            Association association = associationRowProcessor.createAssociationFromUploadRow(row);
+            associations.add(association);
+            if (association.getLoci() != null) {
+                for (Locus locus : association.getLoci()) {
+                    locus.getAuthorReportedGenes().forEach(gene -> genes.add(gene.getGeneName()));
+                    locus.getStrongestRiskAlleles().forEach(riskAllele -> snps.add(riskAllele.getSnp().getRsId()));
+                }
+            }
+        }
+        identifierLookupService.lookup(snps, genes, eRelease);
+
+        List<Callable<AssociationSummary>> checks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            AssociationUploadRow row = rows.get(i);
+            Association association = associations.get(i);
+            checks.add(() -> createAssociationSummary(row, association, validationLevel, eRelease));
+        }
+
+        List<AssociationSummary> associationSummaries = new ArrayList<>();
+        try {
+            for (Future<AssociationSummary> check : getValidationExecutor().invokeAll(checks)) {
+                associationSummaries.add(check.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SheetProcessingException("Validation of associations was interrupted", e);
+        }
+        catch (ExecutionException e) {
+            throw new SheetProcessingException("Validation of associations failed", e.getCause());
+        }
+        return associationSummaries;
+    }
+
+    /**
+     * Run full checks on an association created from an uploaded row and return a list of its errors
+     *
+     * @param row             Row the association was created from
+     * @param association     Association to validate
+     * @param validationLevel level of validation to run
+     */
+    private AssociationSummary createAssociationSummary(AssociationUploadRow row,
+                                                        Association association,
+                                                        String validationLevel,
+                                                        String eRelease) {
         getLog().info("Creating association summary for row " + row.getRowNumber());
-        Association association = associationRowProcessor.createAssociationFromUploadRow(row);
         Collection<ValidationError> errors =
                 validationService.runAssociationValidation(association, validationLevel, eRelease);
         AssociationSummary associationSummary = new AssociationSummary();
@@ -158,4 +237,24 @@ public class AssociationFileUploadService {
         associationSummary.setErrors(errors);
         return associationSummary;
     }
+
+    protected synchronized ExecutorService getValidationExecutor() {
+        if (validationExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            validationExecutor = Executors.newFixedThreadPool(Math.max(1, validationThreads), runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("upload-validation-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return validationExecutor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (validationExecutor != null) {
+            validationExecutor.shutdownNow();
+        }
+    }
 }
\ No newline at end of file
@@ -2,31 +2,92 @@ package uk.ac.ebi.spot.goci.service;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import uk.ac.ebi.spot.goci.utils.SharedStringsHandler;
+import uk.ac.ebi.spot.goci.utils.SheetRowHandler;
+import uk.ac.ebi.spot.goci.utils.StreamingSheetHandler;
 
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 
 /**
  * Created by emma on 13/04/2016.
  *
  * @author emma
  *         <p>
- *         Create sheet from file, this is then used to read through each row
+ *         Stream the sheet of a file, each row is passed on as it is read
  */
 @Lazy
 @Service
 public class SheetCreationService {
 
-    public XSSFSheet createSheet(String fileName) throws InvalidFormatException, IOException,
-                                                         InvalidOperationException {
-        // Open file
-        OPCPackage pkg = OPCPackage.open(fileName);
-        XSSFWorkbook current = new XSSFWorkbook(pkg);
-        pkg.close();
-        return current.getSheetAt(0);
+    /**
+     * Stream the first sheet of a file, one row at a time, without loading the workbook into memory
+     * <p>
+     * The shared strings table and the sheet are read with a parser that refuses any DTD, so that an uploaded file
+     * cannot make it resolve external entities.
+     *
+     * @param fileName   XLSX file supplied by user
+     * @param rowHandler handler each row is passed to as soon as it has been read
+     */
+    public void streamSheet(String fileName, SheetRowHandler rowHandler) throws InvalidFormatException, IOException,
+                                                                                InvalidOperationException {
+        // Open file read only, so it is never written back on close
+        OPCPackage pkg = OPCPackage.open(fileName, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+
+            SharedStringsHandler sharedStrings = new SharedStringsHandler();
+            for (PackagePart part : pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType())) {
+                try (InputStream sharedStringsData = part.getInputStream()) {
+                    parse(sharedStringsData, sharedStrings);
+                }
+            }
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new InvalidFormatException("File " + fileName + " contains no sheets");
+            }
+            try (InputStream sheet = sheets.next()) {
+                parse(sheet, new StreamingSheetHandler(sharedStrings, rowHandler));
+            }
+        }
+        catch (InvalidFormatException e) {
+            throw e;
+        }
+        catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("File " + fileName + " could not be read", e);
+        }
+        finally {
+            pkg.revert();
+        }
+    }
+
+    private void parse(InputStream part, ContentHandler handler)
+            throws SAXException, ParserConfigurationException, IOException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        XMLReader partParser = factory.newSAXParser().getXMLReader();
+        partParser.setContentHandler(handler);
+        partParser.parse(new InputSource(part));
     }
-}
\ No newline at end of file
+}
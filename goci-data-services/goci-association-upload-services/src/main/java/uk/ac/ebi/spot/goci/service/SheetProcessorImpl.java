@@ -1,7 +1,6 @@
 package uk.ac.ebi.spot.goci.service;
 
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.slf4j.Logger;
@@ -13,13 +12,16 @@ import uk.ac.ebi.spot.goci.exception.CellProcessingException;
 import uk.ac.ebi.spot.goci.model.AssociationUploadRow;
 import uk.ac.ebi.spot.goci.model.ValidationError;
 import uk.ac.ebi.spot.goci.utils.SheetCellProcessingService;
+import uk.ac.ebi.spot.goci.utils.SheetRowHandler;
 import uk.ac.ebi.spot.goci.utils.TranslateUploadHeaders;
+import uk.ac.ebi.spot.goci.utils.UploadCell;
 import uk.ac.ebi.spot.goci.utils.UploadFileHeader;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * @author emma
@@ -57,128 +59,174 @@ public class SheetProcessorImpl implements UploadSheetProcessor {
         Integer rowNum = 1;
 
         while (rowNum <= lastRow) {
-            AssociationUploadRow associationUploadRow = new AssociationUploadRow();
-
-            // Set row number so its consistent with numbering curator will see via Excel
-            associationUploadRow.setRowNumber(rowNum + 1);
             XSSFRow row = sheet.getRow(rowNum);
 
             // If the row contains defined cell values
             if (row.getPhysicalNumberOfCells() > 0) {
-                for (Map.Entry<Integer, UploadFileHeader> heading : headerRowMap.entrySet()) {
-                    Integer colNum = heading.getKey();
-                    UploadFileHeader headerName = heading.getValue();
-                    XSSFCell cell = row.getCell(colNum, Row.RETURN_BLANK_AS_NULL);
-
+                Map<Integer, UploadCell> cells = new HashMap<>();
+                for (Integer colNum : headerRowMap.keySet()) {
+                    UploadCell cell = UploadCell.of(row.getCell(colNum, Row.RETURN_BLANK_AS_NULL));
                     if (cell != null) {
-                        try {
-                            switch (headerName) {
-                                case GENES:
-                                    associationUploadRow.setAuthorReportedGene(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case SNP:
-                                    associationUploadRow.setSnp(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case EFFECT_ALLELE:
-                                    associationUploadRow.setStrongestAllele(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case OTHER_ALLELES:
-                                    associationUploadRow.setOtherAllele(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case PROXY_SNP:
-                                    associationUploadRow.setProxy(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case EFFECT_ELEMENT_FREQUENCY_IN_CONTROLS:
-                                    associationUploadRow.setAssociationRiskFrequency(SheetCellProcessingService.processStringValue(
-                                            cell));
-                                    break;
-                                case INDEPENDENT_SNP_EFFECT_ALLELE_FREQUENCY_IN_CONTROLS:
-                                    associationUploadRow.setRiskFrequency(SheetCellProcessingService.processStringValue(
-                                            cell));
-                                    break;
-                                case PVALUE_MANTISSA:
-                                    associationUploadRow.setPvalueMantissa(SheetCellProcessingService.processIntValues(cell));
-                                    break;
-                                case PVALUE_EXPONENT:
-                                    associationUploadRow.setPvalueExponent(SheetCellProcessingService.processIntValues(cell));
-                                    break;
-                                case PVALUE_DESCRIPTION:
-                                    associationUploadRow.setPvalueDescription(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case OR:
-                                    associationUploadRow.setOrPerCopyNum(SheetCellProcessingService.processFloatValues(cell));
-                                    break;
-                                case OR_RECIPROCAL:
-                                    associationUploadRow.setOrPerCopyRecip(SheetCellProcessingService.processFloatValues(cell));
-                                    break;
-                                case BETA:
-                                    associationUploadRow.setBetaNum(SheetCellProcessingService.processFloatValues(cell));
-                                    break;
-                                case BETA_UNIT:
-                                    associationUploadRow.setBetaUnit(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case BETA_DIRECTION:
-                                    associationUploadRow.setBetaDirection(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case RANGE:
-                                    associationUploadRow.setRange(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case OR_RECIPROCAL_RANGE:
-                                    associationUploadRow.setOrPerCopyRecipRange(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case STANDARD_ERROR:
-                                    associationUploadRow.setStandardError(SheetCellProcessingService.processFloatValues(cell));
-                                    break;
-
-                                case DESCRIPTION:
-                                    associationUploadRow.setDescription(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case MULTI_SNP_HAPLOTYPE:
-                                    associationUploadRow.setMultiSnpHaplotype(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case SNP_INTERACTION:
-                                    associationUploadRow.setSnpInteraction(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case SNP_STATUS:
-                                    associationUploadRow.setSnpStatus(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case SNP_TYPE:
-                                    associationUploadRow.setSnpType(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                case EFO_TRAITS:
-                                    associationUploadRow.setEfoTrait(SheetCellProcessingService.processMandatoryStringValue(cell));
-                                    break;
-                                default:
-                                    getLog().warn("Column with unknown heading found in file.");
-                                    break;
-                            }
-                        } catch (CellProcessingException cpe) {
-                            // Add an excel error to the list of the errors.
-                            ValidationError cpeValidationError = new ValidationError(headerName.toString(),cpe.getMessage(),false,"excel");
-                            associationUploadRow.addCellErrorType(cpeValidationError);
-
-                        }
+                        cells.put(colNum, cell);
                     }
                 }
-                associationUploadRows.add(associationUploadRow);
+                associationUploadRows.add(createUploadRow(rowNum, headerRowMap, cells));
             }
             rowNum++;
         }
         return associationUploadRows;
     }
 
+    // Read a streamed spreadsheet, the first row is the header
+    @Override public SheetRowHandler createRowHandler(Consumer<AssociationUploadRow> rowConsumer) {
+        return new SheetRowHandler() {
+            private Map<Integer, UploadFileHeader> headerRowMap;
+
+            @Override public void handleRow(int rowNum, int cellCount, Map<Integer, UploadCell> cells) {
+                if (headerRowMap == null) {
+                    headerRowMap = createHeaderMap(cells);
+                }
+                // If the row contains defined cell values
+                else if (cellCount > 0) {
+                    rowConsumer.accept(createUploadRow(rowNum, headerRowMap, cells));
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a row object from the non-blank cells of a spreadsheet row
+     *
+     * @param rowNum       zero based index of the row in the sheet
+     * @param headerRowMap headers of the sheet, by column
+     * @param cells        non-blank cells of the row, by column
+     */
+    private AssociationUploadRow createUploadRow(int rowNum,
+                                                 Map<Integer, UploadFileHeader> headerRowMap,
+                                                 Map<Integer, UploadCell> cells) {
+        AssociationUploadRow associationUploadRow = new AssociationUploadRow();
+
+        // Set row number so its consistent with numbering curator will see via Excel
+        associationUploadRow.setRowNumber(rowNum + 1);
+
+        for (Map.Entry<Integer, UploadFileHeader> heading : headerRowMap.entrySet()) {
+            Integer colNum = heading.getKey();
+            UploadFileHeader headerName = heading.getValue();
+            UploadCell cell = cells.get(colNum);
+
+            if (cell != null) {
+                try {
+                    switch (headerName) {
+                        case GENES:
+                            associationUploadRow.setAuthorReportedGene(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case SNP:
+                            associationUploadRow.setSnp(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case EFFECT_ALLELE:
+                            associationUploadRow.setStrongestAllele(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case OTHER_ALLELES:
+                            associationUploadRow.setOtherAllele(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case PROXY_SNP:
+                            associationUploadRow.setProxy(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case EFFECT_ELEMENT_FREQUENCY_IN_CONTROLS:
+                            associationUploadRow.setAssociationRiskFrequency(SheetCellProcessingService.processStringValue(
+                                    cell));
+                            break;
+                        case INDEPENDENT_SNP_EFFECT_ALLELE_FREQUENCY_IN_CONTROLS:
+                            associationUploadRow.setRiskFrequency(SheetCellProcessingService.processStringValue(
+                                    cell));
+                            break;
+                        case PVALUE_MANTISSA:
+                            associationUploadRow.setPvalueMantissa(SheetCellProcessingService.processIntValues(cell));
+                            break;
+                        case PVALUE_EXPONENT:
+                            associationUploadRow.setPvalueExponent(SheetCellProcessingService.processIntValues(cell));
+                            break;
+                        case PVALUE_DESCRIPTION:
+                            associationUploadRow.setPvalueDescription(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case OR:
+                            associationUploadRow.setOrPerCopyNum(SheetCellProcessingService.processFloatValues(cell));
+                            break;
+                        case OR_RECIPROCAL:
+                            associationUploadRow.setOrPerCopyRecip(SheetCellProcessingService.processFloatValues(cell));
+                            break;
+                        case BETA:
+                            associationUploadRow.setBetaNum(SheetCellProcessingService.processFloatValues(cell));
+                            break;
+                        case BETA_UNIT:
+                            associationUploadRow.setBetaUnit(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case BETA_DIRECTION:
+                            associationUploadRow.setBetaDirection(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case RANGE:
+                            associationUploadRow.setRange(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case OR_RECIPROCAL_RANGE:
+                            associationUploadRow.setOrPerCopyRecipRange(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case STANDARD_ERROR:
+                            associationUploadRow.setStandardError(SheetCellProcessingService.processFloatValues(cell));
+                            break;
+
+                        case DESCRIPTION:
+                            associationUploadRow.setDescription(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case MULTI_SNP_HAPLOTYPE:
+                            associationUploadRow.setMultiSnpHaplotype(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case SNP_INTERACTION:
+                            associationUploadRow.setSnpInteraction(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case SNP_STATUS:
+                            associationUploadRow.setSnpStatus(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case SNP_TYPE:
+                            associationUploadRow.setSnpType(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        case EFO_TRAITS:
+                            associationUploadRow.setEfoTrait(SheetCellProcessingService.processMandatoryStringValue(cell));
+                            break;
+                        default:
+                            getLog().warn("Column with unknown heading found in file.");
+                            break;
+                    }
+                } catch (CellProcessingException cpe) {
+                    // Add an excel error to the list of the errors.
+                    ValidationError cpeValidationError = new ValidationError(headerName.toString(),cpe.getMessage(),false,"excel");
+                    associationUploadRow.addCellErrorType(cpeValidationError);
+
+                }
+            }
+        }
+        return associationUploadRow;
+    }
+
     @Override public Map<Integer, UploadFileHeader> createHeaderMap(XSSFRow row) {
-        Map<Integer, UploadFileHeader> headerMap = new HashMap<>();
+        Map<Integer, UploadCell> cells = new HashMap<>();
+        for (short colIx = row.getFirstCellNum(); colIx >= 0 && colIx < row.getLastCellNum(); colIx++) {
+            UploadCell cell = UploadCell.of(row.getCell(colIx, Row.RETURN_BLANK_AS_NULL));
+            if (cell != null) {
+                cells.put((int) colIx, cell);
+            }
+        }
+        return createHeaderMap(cells);
+    }
 
-        if (row.getPhysicalNumberOfCells() != 0) {
+    @Override public Map<Integer, UploadFileHeader> createHeaderMap(Map<Integer, UploadCell> cells) {
+        Map<Integer, UploadFileHeader> headerMap = new HashMap<>();
 
-            short minColIx = row.getFirstCellNum();
-            short maxColIx = row.getLastCellNum();
-            for (short colIx = minColIx; colIx < maxColIx; colIx++) {
-                XSSFCell cell = row.getCell(colIx);
-                UploadFileHeader headerType =
-                        translateUploadHeaders.translateToEnumValue(cell.getStringCellValue().trim());
-                headerMap.put((int) colIx, headerType);
+        if (!cells.isEmpty()) {
+            for (Map.Entry<Integer, UploadCell> cell : cells.entrySet()) {
+                String heading = cell.getValue().getStringValue();
+                if (heading != null) {
+                    headerMap.put(cell.getKey(), translateUploadHeaders.translateToEnumValue(heading.trim()));
+                }
             }
         }
         else {
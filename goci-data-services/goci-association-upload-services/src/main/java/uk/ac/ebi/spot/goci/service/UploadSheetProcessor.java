@@ -3,10 +3,13 @@ package uk.ac.ebi.spot.goci.service;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import uk.ac.ebi.spot.goci.model.AssociationUploadRow;
+import uk.ac.ebi.spot.goci.utils.SheetRowHandler;
+import uk.ac.ebi.spot.goci.utils.UploadCell;
 import uk.ac.ebi.spot.goci.utils.UploadFileHeader;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by emma on 13/04/2016.
@@ -31,4 +34,19 @@ public interface UploadSheetProcessor {
      * @param sheet Sheet created from a file supplied by user
      */
     Collection<AssociationUploadRow> readSheetRows(XSSFSheet sheet);
+
+    /**
+     * Create a map of each header from the header row of a streamed spreadsheet
+     *
+     * @param cells Non-blank cells of the header row, by column
+     */
+    Map<Integer, UploadFileHeader> createHeaderMap(Map<Integer, UploadCell> cells);
+
+    /**
+     * Create a handler to read a streamed spreadsheet. The first row is read as the header, each further row is
+     * converted and passed on as soon as it has been read, so rows do not need to be held in memory
+     *
+     * @param rowConsumer Consumer of each row read from the spreadsheet
+     */
+    SheetRowHandler createRowHandler(Consumer<AssociationUploadRow> rowConsumer);
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package uk.ac.ebi.spot.goci.utils;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SAX handler for the shared strings table of an XLSX workbook, which worksheets refer to by index.  The text of each
+ * string is the text of all its runs, without phonetic readings.
+ * <p>
+ * This replaces POI's read only shared strings table so that the table is read with the same parser as the worksheet,
+ * see {@link uk.ac.ebi.spot.goci.service.SheetCreationService}.
+ */
+public class SharedStringsHandler extends DefaultHandler {
+
+    private final List<String> strings = new ArrayList<>();
+
+    private StringBuilder string;
+
+    private boolean readingText;
+
+    private boolean inPhonetic;
+
+    public String getEntryAt(int index) {
+        return strings.get(index);
+    }
+
+    public int getCount() {
+        return strings.size();
+    }
+
+    @Override public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+        switch (localName) {
+            case "si":
+                string = new StringBuilder();
+                break;
+            case "rPh":
+                inPhonetic = true;
+                break;
+            case "t":
+                readingText = string != null && !inPhonetic;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override public void characters(char[] ch, int start, int length) throws SAXException {
+        if (readingText) {
+            string.append(ch, start, length);
+        }
+    }
+
+    @Override public void endElement(String uri, String localName, String qName) throws SAXException {
+        switch (localName) {
+            case "si":
+                strings.add(string.toString());
+                string = null;
+                break;
+            case "rPh":
+                inPhonetic = false;
+                break;
+            case "t":
+                readingText = false;
+                break;
+            default:
+                break;
+        }
+    }
+}
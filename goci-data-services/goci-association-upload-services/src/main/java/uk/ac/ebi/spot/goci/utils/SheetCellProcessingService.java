@@ -14,29 +14,42 @@ import uk.ac.ebi.spot.goci.exception.CellProcessingException;
 public class SheetCellProcessingService {
 
 
-    // This method raises an exception if the cell is not a String. The cell must be a String.
+    // The methods below read a cell from a workbook loaded in memory and convert it like a cell from a streamed sheet
+
     public static String processMandatoryStringValue(XSSFCell cell) {
-        String stringValue = null;
-        try {
-            stringValue = cell.getRichStringCellValue()
-                    .getString()
-                    .trim();
-        } catch (Exception ise){
+        return processMandatoryStringValue(UploadCell.of(cell));
+    }
+
+    public static String processStringValue(XSSFCell cell) {
+        return processStringValue(UploadCell.of(cell));
+    }
+
+    public static Integer processIntValues(XSSFCell cell) {
+        return processIntValues(UploadCell.of(cell));
+    }
+
+    public static Float processFloatValues(XSSFCell cell) {
+        return processFloatValues(UploadCell.of(cell));
+    }
+
+    // This method raises an exception if the cell is not a String. The cell must be a String.
+    public static String processMandatoryStringValue(UploadCell cell) {
+        if (cell == null || cell.getCellType() != Cell.CELL_TYPE_STRING) {
             throw new CellProcessingException("The field must contain both letters and numbers");
         }
-        return stringValue;
+        return cell.getStringValue().trim();
     }
 
     // This method raises an exception if the conversation fails.
-    public static String processStringValue(XSSFCell cell) {
+    public static String processStringValue(UploadCell cell) {
         String stringValue = null;
         if (cell != null) {
             switch (cell.getCellType()) {
                 case Cell.CELL_TYPE_STRING:
-                    stringValue = cell.getRichStringCellValue().getString().trim();
+                    stringValue = cell.getStringValue().trim();
                     break;
                 case Cell.CELL_TYPE_NUMERIC:
-                    stringValue = Double.toString(cell.getNumericCellValue());
+                    stringValue = Double.toString(cell.getNumericValue());
                     break;
                 default:
                     throw new CellProcessingException("The field value cannot be converted");
@@ -46,32 +59,26 @@ public class SheetCellProcessingService {
     }
 
     // This method raises an exception if the conversation fails.
-    public static Integer processIntValues(XSSFCell cell) {
+    public static Integer processIntValues(UploadCell cell) {
         Integer intValue = null;
         if (cell != null) {
-            switch (cell.getCellType()) {
-                case Cell.CELL_TYPE_NUMERIC:
-                    Long roundedValue = Math.round(cell.getNumericCellValue());
-                    intValue = roundedValue.intValue();
-                    break;
-                default:
-                    throw new CellProcessingException("The field must be a Number");
+            if (cell.getCellType() != Cell.CELL_TYPE_NUMERIC) {
+                throw new CellProcessingException("The field must be a Number");
             }
+            Long roundedValue = Math.round(cell.getNumericValue());
+            intValue = roundedValue.intValue();
         }
         return intValue;
     }
 
     // This method raises an exception if the conversation fails.
-    public static Float processFloatValues(XSSFCell cell) {
+    public static Float processFloatValues(UploadCell cell) {
         Float floatValue = null;
         if (cell != null) {
-            switch (cell.getCellType()) {
-                case Cell.CELL_TYPE_NUMERIC:
-                    floatValue = (float) cell.getNumericCellValue();
-                    break;
-                default:
-                    throw new CellProcessingException("The field must be a Float");
+            if (cell.getCellType() != Cell.CELL_TYPE_NUMERIC) {
+                throw new CellProcessingException("The field must be a Float");
             }
+            floatValue = (float) cell.getNumericValue();
         }
         return floatValue;
     }
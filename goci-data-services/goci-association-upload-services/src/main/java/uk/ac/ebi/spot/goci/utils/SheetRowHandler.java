@@ -0,0 +1,18 @@
+package uk.ac.ebi.spot.goci.utils;
+
+import java.util.Map;
+
+/**
+ * Receives the rows of a sheet one at a time, in order, as it is streamed by {@link StreamingSheetHandler}
+ */
+public interface SheetRowHandler {
+
+    /**
+     * Handle a single row of a sheet
+     *
+     * @param rowNum    zero based index of the row in the sheet
+     * @param cellCount number of cells defined in the row, including blank cells
+     * @param cells     the non-blank cells of the row, by zero based column index
+     */
+    void handleRow(int rowNum, int cellCount, Map<Integer, UploadCell> cells);
+}
@@ -0,0 +1,127 @@
+package uk.ac.ebi.spot.goci.utils;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.util.CellReference;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SAX handler for the XML of a single XLSX worksheet.  Rows are passed to a {@link SheetRowHandler} as soon as they
+ * have been read, so only one row is held in memory at a time whatever the size of the sheet.
+ * <p>
+ * Shared strings are resolved against the shared strings table of the workbook, as read by a {@link
+ * SharedStringsHandler}; inline strings and the cached results of formulas are read from the sheet itself.  Boolean
+ * and error cells are passed on with their type but no value.
+ */
+public class StreamingSheetHandler extends DefaultHandler {
+
+    private final SharedStringsHandler sharedStrings;
+
+    private final SheetRowHandler rowHandler;
+
+    private int rowNum = -1;
+
+    private int cellCount;
+
+    private Map<Integer, UploadCell> cells;
+
+    private int colNum;
+
+    private String cellType;
+
+    private boolean readingValue;
+
+    private final StringBuilder value = new StringBuilder();
+
+    public StreamingSheetHandler(SharedStringsHandler sharedStrings, SheetRowHandler rowHandler) {
+        this.sharedStrings = sharedStrings;
+        this.rowHandler = rowHandler;
+    }
+
+    @Override public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+        switch (localName) {
+            case "row":
+                String rowRef = attributes.getValue("r");
+                rowNum = rowRef != null ? Integer.parseInt(rowRef) - 1 : rowNum + 1;
+                cellCount = 0;
+                cells = new HashMap<>();
+                colNum = -1;
+                break;
+            case "c":
+                String cellRef = attributes.getValue("r");
+                colNum = cellRef != null ? new CellReference(cellRef).getCol() : colNum + 1;
+                cellType = attributes.getValue("t");
+                cellCount++;
+                value.setLength(0);
+                break;
+            case "v":
+            case "t":
+                // <t> holds the text of inline strings, <v> every other value
+                readingValue = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override public void characters(char[] ch, int start, int length) throws SAXException {
+        if (readingValue) {
+            value.append(ch, start, length);
+        }
+    }
+
+    @Override public void endElement(String uri, String localName, String qName) throws SAXException {
+        switch (localName) {
+            case "v":
+            case "t":
+                readingValue = false;
+                break;
+            case "c":
+                UploadCell cell = createCell();
+                if (cell != null) {
+                    cells.put(colNum, cell);
+                }
+                break;
+            case "row":
+                rowHandler.handleRow(rowNum, cellCount, cells);
+                cells = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private UploadCell createCell() throws SAXException {
+        String text = value.toString();
+        if (cellType == null || cellType.equals("n")) {
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return UploadCell.numeric(Double.parseDouble(text));
+            }
+            catch (NumberFormatException e) {
+                throw new SAXException("Cell in row " + (rowNum + 1) + " holds an invalid number '" + text + "'", e);
+            }
+        }
+
+        switch (cellType) {
+            case "s":
+                return UploadCell.string(sharedStrings.getEntryAt(Integer.parseInt(text.trim())));
+            case "inlineStr":
+            case "str":
+                return UploadCell.string(text);
+            case "b":
+                return UploadCell.other(Cell.CELL_TYPE_BOOLEAN);
+            case "e":
+                return UploadCell.other(Cell.CELL_TYPE_ERROR);
+            default:
+                return UploadCell.string(text);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package uk.ac.ebi.spot.goci.utils;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+
+/**
+ * The value of a single cell in an upload spreadsheet, read either from a workbook loaded in memory or from a sheet
+ * streamed by {@link StreamingSheetHandler}.
+ * <p>
+ * The cell type is one of the {@link Cell} cell type constants.  Formula cells take the type of their cached result,
+ * as that is all a streamed sheet holds.
+ */
+public class UploadCell {
+
+    private final int cellType;
+
+    private final String stringValue;
+
+    private final double numericValue;
+
+    private UploadCell(int cellType, String stringValue, double numericValue) {
+        this.cellType = cellType;
+        this.stringValue = stringValue;
+        this.numericValue = numericValue;
+    }
+
+    public static UploadCell string(String value) {
+        return new UploadCell(Cell.CELL_TYPE_STRING, value, 0);
+    }
+
+    public static UploadCell numeric(double value) {
+        return new UploadCell(Cell.CELL_TYPE_NUMERIC, null, value);
+    }
+
+    /**
+     * @param cellType a cell type with no value that can be read as a string or number, e.g. boolean or error
+     */
+    public static UploadCell other(int cellType) {
+        return new UploadCell(cellType, null, 0);
+    }
+
+    /**
+     * Read the value of a cell from a workbook loaded in memory
+     *
+     * @param cell the cell, or null for a missing cell
+     * @return the value, or null for a missing cell
+     */
+    public static UploadCell of(XSSFCell cell) {
+        if (cell == null) {
+            return null;
+        }
+        int cellType = cell.getCellType() == Cell.CELL_TYPE_FORMULA ? cell.getCachedFormulaResultType()
+                : cell.getCellType();
+        switch (cellType) {
+            case Cell.CELL_TYPE_STRING:
+                return string(cell.getRichStringCellValue().getString());
+            case Cell.CELL_TYPE_NUMERIC:
+                return numeric(cell.getNumericCellValue());
+            default:
+                return other(cellType);
+        }
+    }
+
+    public int getCellType() {
+        return cellType;
+    }
+
+    public String getStringValue() {
+        return stringValue;
+    }
+
+    public double getNumericValue() {
+        return numericValue;
+    }
+}
@@ -1,7 +1,5 @@
 package uk.ac.ebi.spot.goci.service;
 
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -11,6 +9,8 @@ import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import uk.ac.ebi.spot.goci.model.ValidationSummary;
+import uk.ac.ebi.spot.goci.service.rest.IdentifierLookupService;
+import uk.ac.ebi.spot.goci.utils.SheetRowHandler;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -45,6 +45,12 @@ public class AssociationFileUploadServiceTest {
     @Mock
     private EnsemblRestTemplateService ensemblRestTemplateService;
 
+    @Mock
+    private SheetRowHandler rowHandler;
+
+    @Mock
+    private IdentifierLookupService identifierLookupService;
+
     @Rule
     public TemporaryFolder folder = new TemporaryFolder();
 
@@ -56,7 +62,8 @@ public class AssociationFileUploadServiceTest {
                 associationRowProcessor,
                 validationService,
                 sheetCreationService,
-                ensemblRestTemplateService);
+                ensemblRestTemplateService,
+                identifierLookupService);
     }
 
     @Test
@@ -66,16 +73,14 @@ public class AssociationFileUploadServiceTest {
         final File file = folder.newFile("myfile.txt");
 
         // Stubbing
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("test");
-        when(sheetCreationService.createSheet(file.getAbsolutePath())).thenReturn(sheet);
         when(uploadSheetProcessorBuilder.buildProcessor("full")).thenReturn(uploadSheetProcessor);
+        when(uploadSheetProcessor.createRowHandler(Matchers.any())).thenReturn(rowHandler);
 
         ValidationSummary validationSummary =
                 associationFileUploadService.processAndValidateAssociationFile(file, "full");
-        verify(sheetCreationService, times(1)).createSheet(Matchers.anyString());
         verify(uploadSheetProcessorBuilder, times(1)).buildProcessor("full");
-        verify(uploadSheetProcessor, times(1)).readSheetRows(sheet);
+        verify(uploadSheetProcessor, times(1)).createRowHandler(Matchers.any());
+        verify(sheetCreationService, times(1)).streamSheet(file.getAbsolutePath(), rowHandler);
     }
 
     @Test(expected = FileNotFoundException.class)
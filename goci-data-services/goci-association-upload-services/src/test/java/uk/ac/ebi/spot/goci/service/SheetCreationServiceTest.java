@@ -0,0 +1,132 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.ebi.spot.goci.utils.SheetRowHandler;
+import uk.ac.ebi.spot.goci.utils.UploadCell;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SheetCreationServiceTest {
+
+    private static final String SECRET = "not to be read";
+
+    private static final String SPREADSHEETML = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SheetCreationService sheetCreationService;
+
+    private File workbookFile;
+
+    private File secretFile;
+
+    private final List<String> values = new ArrayList<>();
+
+    private final SheetRowHandler rowHandler = (rowNum, cellCount, cells) -> {
+        for (UploadCell cell : cells.values()) {
+            values.add(cell.getStringValue());
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        sheetCreationService = new SheetCreationService();
+
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        XSSFRow row = workbook.createSheet("test").createRow(0);
+        row.createCell(0).setCellValue("SNP ID (ideally rsID) (see below) (mandatory)");
+        row.createCell(1).setCellValue(12);
+        workbookFile = folder.newFile("test.xlsx");
+        try (OutputStream out = new FileOutputStream(workbookFile)) {
+            workbook.write(out);
+        }
+
+        secretFile = folder.newFile("secret.txt");
+        Files.write(secretFile.toPath(), SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStreamSheet() throws Exception {
+        sheetCreationService.streamSheet(workbookFile.getAbsolutePath(), rowHandler);
+        assertThat(values).containsOnly("SNP ID (ideally rsID) (see below) (mandatory)", null);
+    }
+
+    @Test
+    public void testExternalEntityInSheetIsRefused() throws Exception {
+        File tampered = replacePart("xl/worksheets/sheet1.xml",
+                                    doctype("worksheet") + "<worksheet xmlns=\"" + SPREADSHEETML + "\"><sheetData>" +
+                                            "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>&secret;</t></is></c>" +
+                                            "</row></sheetData></worksheet>");
+        assertRefused(tampered);
+    }
+
+    @Test
+    public void testExternalEntityInSharedStringsIsRefused() throws Exception {
+        File tampered = replacePart("xl/sharedStrings.xml",
+                                    doctype("sst") + "<sst xmlns=\"" + SPREADSHEETML + "\" count=\"1\" " +
+                                            "uniqueCount=\"1\"><si><t>&secret;</t></si></sst>");
+        assertRefused(tampered);
+    }
+
+    // Declaration of an entity holding the content of the secret file
+    private String doctype(String rootElement) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><!DOCTYPE " + rootElement + " [<!ENTITY secret SYSTEM \"" +
+                secretFile.toURI() + "\">]>";
+    }
+
+    private void assertRefused(File file) throws Exception {
+        try {
+            sheetCreationService.streamSheet(file.getAbsolutePath(), rowHandler);
+            fail("File with a DOCTYPE was read");
+        }
+        catch (IOException e) {
+            assertThat(values).doesNotContain(SECRET);
+        }
+    }
+
+    // Copy of the test workbook with one of its parts replaced
+    private File replacePart(String partName, String xml) throws IOException {
+        File tampered = folder.newFile("tampered.xlsx");
+        try (ZipFile zip = new ZipFile(workbookFile);
+             ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tampered))) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals(partName)) {
+                    out.write(xml.getBytes(StandardCharsets.UTF_8));
+                }
+                else {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        return tampered;
+    }
+}
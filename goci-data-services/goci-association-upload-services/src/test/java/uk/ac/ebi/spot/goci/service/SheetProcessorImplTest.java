@@ -4,14 +4,21 @@ import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import uk.ac.ebi.spot.goci.model.AssociationUploadRow;
+import uk.ac.ebi.spot.goci.utils.SheetRowHandler;
 import uk.ac.ebi.spot.goci.utils.TranslateAuthorUploadHeaders;
 import uk.ac.ebi.spot.goci.utils.UploadFileHeader;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
@@ -38,6 +45,9 @@ public class SheetProcessorImplTest {
     @Mock
     private TranslateAuthorUploadHeaders translateAuthorUploadHeaders;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setUp() throws Exception {
         uploadSheetProcessor = new SheetProcessorImpl(translateAuthorUploadHeaders);
@@ -298,6 +308,39 @@ public class SheetProcessorImplTest {
                                        null, (float) 0.56, null, "N", "N", null, "novel", null));
     }
 
+    @Test
+    public void testStreamSheetRowsCuratorSheet() throws Exception {
+
+        // Write the curator sheet to a file and stream it back
+        File file = folder.newFile("curator_test.xlsx");
+        try (OutputStream out = new FileOutputStream(file)) {
+            curatorSheet.getWorkbook().write(out);
+        }
+        Collection<AssociationUploadRow> rows = new ArrayList<>();
+        SheetRowHandler rowHandler = uploadSheetProcessor.createRowHandler(rows::add);
+        new SheetCreationService().streamSheet(file.getAbsolutePath(), rowHandler);
+        assertThat(rows).hasSize(1);
+
+        // Check rows are read as they are from a sheet loaded in memory
+        assertThat(rows).extracting("rowNumber",
+                                    "authorReportedGene",
+                                    "strongestAllele",
+                                    "snp",
+                                    "pvalueMantissa",
+                                    "pvalueExponent",
+                                    "pvalueDescription",
+                                    "orPerCopyNum",
+                                    "standardError",
+                                    "snpType")
+                .containsExactly(tuple(2,
+                                       "HIBCH, INPP1, STAT1, PMS1",
+                                       "rs9845942-?",
+                                       "rs9845942",
+                                       1,
+                                       -9,
+                                       "test", (float) 2.48, (float) 0.56, "novel"));
+    }
+
     @Test
     public void testCreateHeaderMapWithAuthorSheet() throws Exception {
 
@@ -2,6 +2,7 @@ package uk.ac.ebi.spot.goci.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.model.FilterAssociation;
 
@@ -13,10 +14,21 @@ import java.util.stream.Collectors;
 
 /**
  * Created by dwelter on 05/04/16.
+ * <p>
+ * Associations within "filtering.window" base pairs of each other, or in the same LD block, form a locus; only those
+ * with a p-value exponent below "filtering.pvalue_exponent" can be top associations.  See {@link LocusClumper}.
  */
 @Service
 public class FilteringService {
 
+    @Value("${filtering.window:100000}")
+    private int window = LocusClumper.DEFAULT_WINDOW;
+
+    @Value("${filtering.pvalue_exponent:-5}")
+    private int pvalueExponent = LocusClumper.DEFAULT_PVALUE_EXPONENT;
+
+    private LdBlockSource ldBlockSource = LocusClumper::ldBlocksOf;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -46,314 +58,66 @@ public class FilteringService {
         return byBPLocation;
     }
 
+    /**
+     * Mark the top association of each locus, clumping chromosomes in parallel
+     *
+     * @param byBPLocation associations by chromosome, sorted by base pair location
+     * @return all associations, chromosome by chromosome
+     */
     public List<FilterAssociation> filterTopAssociations(Map<String, List<FilterAssociation>> byBPLocation){
 
-        List<FilterAssociation> filtered = new ArrayList<>();
-        byBPLocation.forEach((chromName, associations) -> {
-            getLog().info("Processing chromosome " + chromName + " with " + associations.size() + " associations");
-
-            if(associations.size() == 1 && associations.get(0).getPvalueExponent() < -5){
-                associations.get(0).setIsTopAssociation(true);
-            }
-            else {
-                int i =0;
-
-                while(i < associations.size()) {
-
-                    FilterAssociation current = associations.get(i);
-
-                    if(current.getPvalueExponent() < -5) {
-                        List<FilterAssociation> ldBlock = new ArrayList<>();
-
-                        if(current.getLdBlock() != null){
-                            boolean end = false;
-                            ldBlock.add(current);
-
-                            while (!end) {
-                                if (i == associations.size() - 1) {
-                                    end = true;
-                                }
-                                else {
-                                    FilterAssociation b = associations.get(i + 1);
-
-                                    if (current.getLdBlock().equals(b.getLdBlock())) {
-                                        ldBlock.add(b);
-                                        i++;
-                                    }
-                                    else {
-                                        end = true;
-                                    }
-                                }
-                            }
-
-                        }
-
-                        else {
-                            Integer distToPrev = null;
-                            if (i > 0) {
-                                distToPrev = current.getChromosomePosition() -
-                                        associations.get(i - 1).getChromosomePosition();
-                            }
-
-                            Integer distToNext = null;
-                            if (i < associations.size() - 1) {
-                                distToNext = associations.get(i + 1).getChromosomePosition() -
-                                        current.getChromosomePosition();
-                            }
-
-
-                            if (distToPrev != null && distToNext != null && distToPrev > 100000 &&
-                                    distToNext > 100000) {
-                                current.setIsTopAssociation(true);
-                            }
-                            else if (distToPrev == null && distToNext != null && distToNext > 100000) {
-                                current.setIsTopAssociation(true);
-                            }
-                            else if (distToPrev != null && distToNext == null && distToPrev > 100000) {
-                                current.setIsTopAssociation(true);
-                            }
-                            else if (distToPrev != null && distToPrev < 100000 &&
-                                    !(associations.get(i - 1).getPvalueExponent() < -5)
-                                    && ((distToNext != null && distToNext > 100000) || distToNext == null)) {
-                                current.setIsTopAssociation(true);
-                            }
-                            else if (distToNext != null && distToNext < 100000) {
-                                int j = i;
-                                boolean end = false;
-
-                                ldBlock.add(current);
-
-                                while (!end) {
-                                    FilterAssociation a = associations.get(j);
-                                    FilterAssociation b = associations.get(j + 1);
-
-
-                                    Integer dist = b.getChromosomePosition() - a.getChromosomePosition();
-
-                                    if (dist < 100000) {
-                                        ldBlock.add(b);
-                                        j++;
-                                    }
-                                    else {
-                                        end = true;
-                                    }
-
-                                    if (j == associations.size() - 1) {
-                                        end = true;
-                                    }
-
-                                }
-                                i = j;
-                            }
-                        }
-
-                        if(ldBlock.size() != 0) {
-
-                            int min = ldBlock.get(0).getChromosomePosition();
-                            int maxDist = ldBlock.get(ldBlock.size()-1).getChromosomePosition() - min;
-
-                            if(maxDist > 100000){
-                                setSecondaryBlocks(ldBlock);
-                            }
-                            else {
-                                setMostSignificant(ldBlock);
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-            filtered.addAll(associations);
+        LocusClumper clumper = getLocusClumper();
+        byBPLocation.entrySet().parallelStream().forEach(entry -> {
+            getLog().info("Processing chromosome " + entry.getKey() + " with " + entry.getValue().size() +
+                                  " associations");
+            clumper.clump(entry.getKey(), entry.getValue());
         });
+
+        List<FilterAssociation> filtered = new ArrayList<>();
+        byBPLocation.values().forEach(filtered::addAll);
         return filtered;
     }
 
     public void setMostSignificant(List<FilterAssociation> ldBlock){
-        FilterAssociation mostSignificant;
-        List<FilterAssociation> secondary = new ArrayList<>();
-        if (ldBlock.size() > 1) {
-            List<FilterAssociation> byPval = ldBlock.stream()
-                    .sorted((fa1, fa2) -> Double.compare(fa1.getPvalue(),
-                                                         fa2.getPvalue()))
-                    .collect(Collectors.toList());
-
-            mostSignificant = byPval.get(0);
-
-            if (mostSignificant.getPrecisionConcern()) {
-                for (int k = 1; k < byPval.size(); k++) {
-                    FilterAssociation fa = byPval.get(k);
-                    if (fa.getPvalueExponent() == mostSignificant.getPvalueExponent()) {
-                        if (fa.getPvalueMantissa() < mostSignificant.getPvalueMantissa()) {
-                            mostSignificant = fa;
-                        }
-                        else if (fa.getPvalueMantissa() ==
-                                mostSignificant.getPvalueMantissa()) {
-                            secondary.add(fa);
-                        }
-                    }
-                    else {
-                        break;
-                    }
-                }
-            }
-            else {
-                boolean done = false;
-                int p = 0;
-                while(!done && p < byPval.size()-1) {
-                    if (byPval.get(p).getPvalue() == byPval.get(p+1).getPvalue()) {
-                        secondary.add(byPval.get(p+1));
-                        p++;
-                    }
-                    else{
-                        done = true;
-                    }
-                }
-            }
-        }
-        else {
-            mostSignificant = ldBlock.get(0);
-        }
-        if (mostSignificant.getPvalueExponent() < -5) {
-            mostSignificant.setIsTopAssociation(true);
-        }
-        //account for the case where multiple p-values within the same LD block are identical
-        if (secondary.size() != 0){
-            mostSignificant.setIsAmbigious(true);
-            for(FilterAssociation s : secondary){
-                if(s.getPvalue() == mostSignificant.getPvalue()){
-                    s.setIsTopAssociation(true);
-                    s.setIsAmbigious(true);
-                }
-            }
-        }
+        getLocusClumper().setMostSignificant(ldBlock);
     }
 
-
     public void setSecondaryBlocks(List<FilterAssociation> ldBlock){
+        getLocusClumper().setSecondaryBlocks(ldBlock);
+    }
 
-        List<List<FilterAssociation>> secondaryBlocks = new ArrayList<>();
-
-        List<FilterAssociation> mostSign = new ArrayList<>();
-
-        Integer index = 0;
-        boolean done = false;
-
-        while(!done){
-            int min = ldBlock.get(index).getChromosomePosition();
-            ArrayList<FilterAssociation> block = new ArrayList<FilterAssociation>();
-
-            block.add(ldBlock.get(index));
-            boolean next = false;
-            int q = index+1;
-            while(!next && q < ldBlock.size()) {
-
-                int max = ldBlock.get(q).getChromosomePosition();
-
-                if (max - min < 100000) {
-                    block.add(ldBlock.get(q));
-                    q++;
-                }
-                else {
-                    next = true;
-                }
-            }
-
-            setMostSignificant(block);
-
-            FilterAssociation msib = findMostSignificantInBlock(block);
-
-            int i = ldBlock.indexOf(msib);
-            mostSign.add(msib);
-
-            secondaryBlocks.add(block);
-
-            if(i == index){
-                index = i + block.size();
-            }
-            else {
-                index = i;
-            }
-
-            if(q == ldBlock.size()){
-                done = true;
-            }
-        }
-
-        int p = 0;
-
-        while (p < mostSign.size()-1){
-            if(mostSign.get(p+1).getChromosomePosition() - mostSign.get(p).getChromosomePosition() < 100000){
-                if(!mostSign.get(p).equals(mostSign.get(p+1))) {
-                    if (mostSign.get(p).getPvalue() > mostSign.get(p + 1).getPvalue() &&
-                            !mostSign.get(p).getIsAmbigious()) {
-                        mostSign.get(p).setIsTopAssociation(false);
-                        p++;
-                    }
-                    else if (mostSign.get(p).getPvalue() > mostSign.get(p + 1).getPvalue() &&
-                            mostSign.get(p).getIsAmbigious()) {
-                        FilterAssociation notSign = mostSign.get(p);
-                        notSign.setIsTopAssociation(false);
-                        notSign.setIsAmbigious(false);
-
-                        for(List<FilterAssociation> block : secondaryBlocks){
-                            if(block.contains(notSign)){
-                                for(FilterAssociation s : block){
-                                    s.setIsTopAssociation(false);
-                                    s.setIsAmbigious(false);
-                                }
-                            }
-                        }
-                        p++;
-
-                    }
-                    else if (mostSign.get(p).getPvalue() < mostSign.get(p + 1).getPvalue() &&
-                            !mostSign.get(p + 1).getIsAmbigious()) {
-                        mostSign.get(p + 1).setIsTopAssociation(false);
-                        p = p+2;
-                    }
-                    else {
-                        FilterAssociation notSign = mostSign.get(p+1);
-                        notSign.setIsTopAssociation(false);
-                        notSign.setIsAmbigious(false);
+    public FilterAssociation findMostSignificantInBlock(ArrayList<FilterAssociation> block){
+        return getLocusClumper().findMostSignificantInBlock(block);
+    }
 
-                        for(List<FilterAssociation> block : secondaryBlocks){
-                            if(block.contains(notSign)){
-                                for(FilterAssociation s : block){
-                                    s.setIsTopAssociation(false);
-                                    s.setIsAmbigious(false);
-                                }
-                            }
-                        }
-                        p = p+2;
-                    }
-                }
-                else {
-                    p++;
-                }
-            }
-            else {
-                p++;
-            }
-        }
+    public LocusClumper getLocusClumper() {
+        return new LocusClumper(window, pvalueExponent, ldBlockSource);
+    }
 
+    public int getWindow() {
+        return window;
+    }
 
+    public void setWindow(int window) {
+        this.window = window;
     }
 
-    public FilterAssociation findMostSignificantInBlock(ArrayList<FilterAssociation> block){
+    public int getPvalueExponent() {
+        return pvalueExponent;
+    }
 
-        List<FilterAssociation> byPval = block.stream()
-                .sorted((fa1, fa2) -> Double.compare(fa1.getPvalue(),
-                                                     fa2.getPvalue()))
-                .collect(Collectors.toList());
+    public void setPvalueExponent(int pvalueExponent) {
+        this.pvalueExponent = pvalueExponent;
+    }
 
-        FilterAssociation ms = null;
-        for(FilterAssociation fa : byPval){
-            if(fa.getIsTopAssociation()){
-                ms  = fa;
-                break;
-            }
-        }
+    public LdBlockSource getLdBlockSource() {
+        return ldBlockSource;
+    }
 
-        return ms;
+    /**
+     * @param ldBlockSource source of the LD blocks to clump by, instead of the LD block given for each association
+     */
+    public void setLdBlockSource(LdBlockSource ldBlockSource) {
+        this.ldBlockSource = ldBlockSource;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package uk.ac.ebi.spot.goci.service;
+
+import uk.ac.ebi.spot.goci.model.FilterAssociation;
+
+import java.util.List;
+
+/**
+ * Source of the LD blocks used by {@link LocusClumper} to group the associations of a chromosome.  Associations that
+ * are in no known block are grouped by distance instead.
+ */
+public interface LdBlockSource {
+
+    /**
+     * Assign the associations of a chromosome to LD blocks
+     *
+     * @param chromosomeName name of the chromosome
+     * @param positions      base pair location of each association, in ascending order
+     * @param associations   the associations, in the same order as their positions
+     * @return the block of each association, as any non-negative id, or -1 for an association in no known block
+     */
+    int[] assignBlocks(String chromosomeName, int[] positions, List<FilterAssociation> associations);
+}
@@ -0,0 +1,320 @@
+package uk.ac.ebi.spot.goci.service;
+
+import uk.ac.ebi.spot.goci.model.FilterAssociation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the most significant association of each locus of a chromosome.
+ * <p>
+ * The associations of a chromosome are swept once in order of position.  A significant association (one with a p-value
+ * exponent below the threshold) starts a locus that extends to the end of its LD block, or, for an association in no
+ * known block, for as long as each next association lies within the window.  The most significant association of each
+ * locus is marked as top association; a locus wider than the window is first split into window sized blocks whose
+ * top associations are then compared with their neighbours.  Associations with identical p-values are all marked and
+ * flagged as ambiguous.
+ * <p>
+ * Positions and LD blocks are held in primitive arrays for the sweep.  A clumper holds no state between chromosomes,
+ * so chromosomes can be clumped concurrently.
+ */
+public class LocusClumper {
+
+    public static final int DEFAULT_WINDOW = 100000;
+
+    public static final int DEFAULT_PVALUE_EXPONENT = -5;
+
+    private final int window;
+
+    private final int pvalueExponent;
+
+    private final LdBlockSource ldBlockSource;
+
+    public LocusClumper() {
+        this(DEFAULT_WINDOW, DEFAULT_PVALUE_EXPONENT, LocusClumper::ldBlocksOf);
+    }
+
+    /**
+     * @param window         distance in base pairs within which associations belong to the same locus
+     * @param pvalueExponent associations with a p-value exponent below this are significant
+     * @param ldBlockSource  source of LD blocks
+     */
+    public LocusClumper(int window, int pvalueExponent, LdBlockSource ldBlockSource) {
+        this.window = window;
+        this.pvalueExponent = pvalueExponent;
+        this.ldBlockSource = ldBlockSource;
+    }
+
+    /**
+     * LD blocks as given in the input, by the LD block name of each association
+     */
+    public static int[] ldBlocksOf(String chromosomeName, int[] positions, List<FilterAssociation> associations) {
+        int[] blocks = new int[positions.length];
+        Map<String, Integer> blockIds = new HashMap<>();
+        for (int i = 0; i < blocks.length; i++) {
+            String ldBlock = associations.get(i).getLdBlock();
+            blocks[i] = ldBlock == null ? -1 : blockIds.computeIfAbsent(ldBlock, name -> blockIds.size());
+        }
+        return blocks;
+    }
+
+    /**
+     * Mark the top associations of a chromosome
+     *
+     * @param chromosomeName name of the chromosome
+     * @param associations   associations of the chromosome, sorted by base pair location
+     */
+    public void clump(String chromosomeName, List<FilterAssociation> associations) {
+        int n = associations.size();
+        int[] positions = new int[n];
+        boolean[] significant = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            FilterAssociation association = associations.get(i);
+            positions[i] = association.getChromosomePosition();
+            significant[i] = association.getPvalueExponent() < pvalueExponent;
+        }
+
+        if (n == 1 && significant[0]) {
+            associations.get(0).setIsTopAssociation(true);
+            return;
+        }
+
+        int[] blocks = ldBlockSource.assignBlocks(chromosomeName, positions, associations);
+
+        int i = 0;
+        while (i < n) {
+            if (significant[i]) {
+                int start = i;
+                int end = -1;
+
+                if (blocks[i] >= 0) {
+                    while (i < n - 1 && blocks[i + 1] == blocks[start]) {
+                        i++;
+                    }
+                    end = i;
+                }
+                else {
+                    boolean hasPrev = i > 0;
+                    boolean hasNext = i < n - 1;
+                    int distToPrev = hasPrev ? positions[i] - positions[i - 1] : 0;
+                    int distToNext = hasNext ? positions[i + 1] - positions[i] : 0;
+
+                    if ((!hasPrev || distToPrev > window) && (!hasNext || distToNext > window)) {
+                        associations.get(i).setIsTopAssociation(true);
+                    }
+                    else if (hasPrev && distToPrev < window && !significant[i - 1] &&
+                            (!hasNext || distToNext > window)) {
+                        // Only preceded by associations that are not significant
+                        associations.get(i).setIsTopAssociation(true);
+                    }
+                    else if (hasNext && distToNext < window) {
+                        while (i < n - 1 && positions[i + 1] - positions[i] < window) {
+                            i++;
+                        }
+                        end = i;
+                    }
+                }
+
+                if (end >= 0) {
+                    List<FilterAssociation> locus = associations.subList(start, end + 1);
+                    if (positions[end] - positions[start] > window) {
+                        setSecondaryBlocks(locus, positions, start);
+                    }
+                    else {
+                        setMostSignificant(locus);
+                    }
+                }
+            }
+            i++;
+        }
+    }
+
+    public void setMostSignificant(List<FilterAssociation> ldBlock) {
+        FilterAssociation mostSignificant;
+        List<FilterAssociation> secondary = new ArrayList<>();
+        if (ldBlock.size() > 1) {
+            List<FilterAssociation> byPval = ldBlock.stream()
+                    .sorted((fa1, fa2) -> Double.compare(fa1.getPvalue(), fa2.getPvalue()))
+                    .collect(Collectors.toList());
+
+            mostSignificant = byPval.get(0);
+
+            if (mostSignificant.getPrecisionConcern()) {
+                for (int k = 1; k < byPval.size(); k++) {
+                    FilterAssociation fa = byPval.get(k);
+                    if (fa.getPvalueExponent().equals(mostSignificant.getPvalueExponent())) {
+                        if (fa.getPvalueMantissa() < mostSignificant.getPvalueMantissa()) {
+                            mostSignificant = fa;
+                        }
+                        else if (fa.getPvalueMantissa().equals(mostSignificant.getPvalueMantissa())) {
+                            secondary.add(fa);
+                        }
+                    }
+                    else {
+                        break;
+                    }
+                }
+            }
+            else {
+                int p = 0;
+                while (p < byPval.size() - 1 && byPval.get(p).getPvalue() == byPval.get(p + 1).getPvalue()) {
+                    secondary.add(byPval.get(p + 1));
+                    p++;
+                }
+            }
+        }
+        else {
+            mostSignificant = ldBlock.get(0);
+        }
+        if (mostSignificant.getPvalueExponent() < pvalueExponent) {
+            mostSignificant.setIsTopAssociation(true);
+        }
+        //account for the case where multiple p-values within the same LD block are identical
+        if (secondary.size() != 0) {
+            mostSignificant.setIsAmbigious(true);
+            for (FilterAssociation s : secondary) {
+                if (s.getPvalue() == mostSignificant.getPvalue()) {
+                    s.setIsTopAssociation(true);
+                    s.setIsAmbigious(true);
+                }
+            }
+        }
+    }
+
+    public void setSecondaryBlocks(List<FilterAssociation> ldBlock) {
+        int[] positions = new int[ldBlock.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = ldBlock.get(i).getChromosomePosition();
+        }
+        setSecondaryBlocks(ldBlock, positions, 0);
+    }
+
+    /**
+     * Split a locus wider than the window into blocks and keep only the more significant of the top associations of
+     * neighbouring blocks that lie within the window of each other
+     *
+     * @param ldBlock   associations of the locus
+     * @param positions positions of the associations of the locus, starting at offset
+     * @param offset    index of the position of the first association of the locus
+     */
+    private void setSecondaryBlocks(List<FilterAssociation> ldBlock, int[] positions, int offset) {
+        int size = ldBlock.size();
+
+        // Start and end (exclusive) index of each block, in order, and the index of its most significant association
+        List<int[]> secondaryBlocks = new ArrayList<>();
+        List<Integer> mostSign = new ArrayList<>();
+
+        int index = 0;
+        int q = 0;
+        while (q < size) {
+            int min = positions[offset + index];
+            q = index + 1;
+            while (q < size && positions[offset + q] - min < window) {
+                q++;
+            }
+
+            List<FilterAssociation> block = ldBlock.subList(index, q);
+            setMostSignificant(block);
+            secondaryBlocks.add(new int[]{index, q});
+
+            // The next block starts at the top association of this one, unless that is its first association
+            int msib = indexOfMostSignificant(block);
+            if (msib > 0) {
+                mostSign.add(index + msib);
+                index += msib;
+            }
+            else {
+                if (msib == 0) {
+                    mostSign.add(index);
+                }
+                index = q;
+            }
+        }
+
+        int p = 0;
+        while (p < mostSign.size() - 1) {
+            int currentIndex = mostSign.get(p);
+            int nextIndex = mostSign.get(p + 1);
+            FilterAssociation current = ldBlock.get(currentIndex);
+            FilterAssociation next = ldBlock.get(nextIndex);
+
+            if (currentIndex != nextIndex &&
+                    positions[offset + nextIndex] - positions[offset + currentIndex] < window) {
+                if (current.getPvalue() > next.getPvalue() && !current.getIsAmbigious()) {
+                    current.setIsTopAssociation(false);
+                    p++;
+                }
+                else if (current.getPvalue() > next.getPvalue()) {
+                    clearBlocksOf(ldBlock, secondaryBlocks, currentIndex);
+                    p++;
+                }
+                else if (current.getPvalue() < next.getPvalue() && !next.getIsAmbigious()) {
+                    next.setIsTopAssociation(false);
+                    p = p + 2;
+                }
+                else {
+                    clearBlocksOf(ldBlock, secondaryBlocks, nextIndex);
+                    p = p + 2;
+                }
+            }
+            else {
+                p++;
+            }
+        }
+    }
+
+    /**
+     * Unmark an ambiguous top association and every association in the blocks it belongs to
+     */
+    private void clearBlocksOf(List<FilterAssociation> ldBlock, List<int[]> secondaryBlocks, int notSign) {
+        ldBlock.get(notSign).setIsTopAssociation(false);
+        ldBlock.get(notSign).setIsAmbigious(false);
+
+        for (int[] block : secondaryBlocks) {
+            if (block[0] > notSign) {
+                break;
+            }
+            if (notSign < block[1]) {
+                for (FilterAssociation s : ldBlock.subList(block[0], block[1])) {
+                    s.setIsTopAssociation(false);
+                    s.setIsAmbigious(false);
+                }
+            }
+        }
+    }
+
+    public FilterAssociation findMostSignificantInBlock(List<FilterAssociation> block) {
+        int ms = indexOfMostSignificant(block);
+        return ms < 0 ? null : block.get(ms);
+    }
+
+    /**
+     * @return index of the top association of a block with the lowest p-value, the first of these if several have
+     * the same p-value, or -1 if the block has no top association
+     */
+    private int indexOfMostSignificant(List<FilterAssociation> block) {
+        int ms = -1;
+        for (int i = 0; i < block.size(); i++) {
+            FilterAssociation fa = block.get(i);
+            if (fa.getIsTopAssociation() && (ms < 0 || Double.compare(fa.getPvalue(), block.get(ms).getPvalue()) < 0)) {
+                ms = i;
+            }
+        }
+        return ms;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getPvalueExponent() {
+        return pvalueExponent;
+    }
+
+    public LdBlockSource getLdBlockSource() {
+        return ldBlockSource;
+    }
+}
@@ -8,10 +8,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ebi.spot.goci.model.FilterAssociation;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by dwelter on 07/04/16.
@@ -150,4 +154,65 @@ public class FilteringServiceTest {
         assertEquals("SNPs in LD", 6, ldCount);
 
     }
+
+    @Test
+    public void testParallelFilteringMatchesSequentialClumping() {
+        Random random = new Random(7);
+        List<FilterAssociation> many = new ArrayList<>();
+        for (int chromosome = 1; chromosome <= 22; chromosome++) {
+            int position = 0;
+            for (int i = 0; i < 300; i++) {
+                position += 1 + random.nextInt(60000);
+                many.add(new FilterAssociation("rs" + chromosome + "_" + i + "-A",
+                                               1.0 + random.nextInt(9),
+                                               -1 - random.nextInt(20),
+                                               String.valueOf(chromosome),
+                                               String.valueOf(position)));
+            }
+        }
+        for (FilterAssociation fa : many) {
+            fa.setPvalue(fa.getPvalueMantissa() * Math.pow(10, (double) fa.getPvalueExponent()));
+        }
+        Map<String, List<FilterAssociation>> byLocation =
+                filteringService.sortByBPLocation(filteringService.groupByChromosomeName(many));
+
+        // Copies of the same associations, clumped one chromosome after the other
+        Map<String, List<FilterAssociation>> sequential = new HashMap<>();
+        byLocation.forEach((chromosome, associations) -> {
+            List<FilterAssociation> copies = associations.stream().map(this::copy).collect(Collectors.toList());
+            new LocusClumper().clump(chromosome, copies);
+            sequential.put(chromosome, copies);
+        });
+
+        List<FilterAssociation> expectedOrder = new ArrayList<>();
+        byLocation.values().forEach(expectedOrder::addAll);
+        List<FilterAssociation> filtered = filteringService.filterTopAssociations(byLocation);
+
+        // The same associations in the same order, chromosome by chromosome, with the flags of a sequential run
+        assertEquals(expectedOrder, filtered);
+        int i = 0;
+        int topCount = 0;
+        for (String chromosome : byLocation.keySet()) {
+            for (FilterAssociation expected : sequential.get(chromosome)) {
+                FilterAssociation actual = filtered.get(i++);
+                assertEquals(expected.getStrongestAllele(), actual.getStrongestAllele());
+                assertEquals(expected.getIsTopAssociation(), actual.getIsTopAssociation());
+                assertEquals(expected.getIsAmbigious(), actual.getIsAmbigious());
+                if (actual.getIsTopAssociation()) {
+                    topCount++;
+                }
+            }
+        }
+        assertTrue(topCount > 0 && topCount < filtered.size());
+    }
+
+    private FilterAssociation copy(FilterAssociation fa) {
+        FilterAssociation copy = new FilterAssociation(fa.getStrongestAllele(),
+                                                       fa.getPvalueMantissa(),
+                                                       fa.getPvalueExponent(),
+                                                       fa.getChromosomeName(),
+                                                       String.valueOf(fa.getChromosomePosition()));
+        copy.setPvalue(fa.getPvalue());
+        return copy;
+    }
 }
@@ -0,0 +1,160 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.spot.goci.model.FilterAssociation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocusClumperTest {
+
+    private List<FilterAssociation> assocs;
+
+    @Before
+    public void setUp() {
+        assocs = new ArrayList<>();
+
+        assocs.add(new FilterAssociation("rs1-A", 2.0, -8, "1", "1000000"));
+        assocs.add(new FilterAssociation("rs2-A", 1.0, -9, "1", "1040000"));
+        assocs.add(new FilterAssociation("rs3-A", 3.0, -7, "1", "1080000"));
+        assocs.add(new FilterAssociation("rs4-A", 5.0, -12, "1", "1500000"));
+        assocs.add(new FilterAssociation("rs5-A", 4.0, -6, "1", "1530000"));
+
+        for (FilterAssociation fa : assocs) {
+            fa.setPvalue(fa.getPvalueMantissa() * Math.pow(10, (double) fa.getPvalueExponent()));
+        }
+    }
+
+    @Test
+    public void testDefaultWindow() {
+        new LocusClumper().clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(false, true, false, true, false), topAssociations());
+    }
+
+    @Test
+    public void testNarrowWindow() {
+        new LocusClumper(35000, LocusClumper.DEFAULT_PVALUE_EXPONENT, LocusClumper::ldBlocksOf).clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(true, true, true, true, false), topAssociations());
+    }
+
+    @Test
+    public void testPvalueThreshold() {
+        new LocusClumper(LocusClumper.DEFAULT_WINDOW, -10, LocusClumper::ldBlocksOf).clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(false, false, false, true, false), topAssociations());
+    }
+
+    @Test
+    public void testLdBlockSource() {
+        // Blocks split the first three associations, which would otherwise be grouped by distance
+        LdBlockSource ldBlocks = (chromosomeName, positions, associations) -> new int[]{0, 0, 1, -1, -1};
+        new LocusClumper(LocusClumper.DEFAULT_WINDOW, LocusClumper.DEFAULT_PVALUE_EXPONENT, ldBlocks)
+                .clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(false, true, true, true, false), topAssociations());
+    }
+
+    @Test
+    public void testIdenticalPvaluesAreAmbiguous() {
+        assocs.get(0).setPvalue(assocs.get(1).getPvalue());
+        assocs.get(0).setPvalueExponent(-9);
+        new LocusClumper().clump("1", assocs);
+
+        assertTrue("First in LD block", assocs.get(0).getIsTopAssociation());
+        assertTrue("First ambiguous", assocs.get(0).getIsAmbigious());
+        assertTrue("Second in LD block", assocs.get(1).getIsTopAssociation());
+        assertTrue("Second ambiguous", assocs.get(1).getIsAmbigious());
+        assertFalse("Third in LD block", assocs.get(2).getIsTopAssociation());
+    }
+
+    @Test
+    public void testWideLocusIsSplitIntoBlocks() {
+        // Chained within the window, but spanning 260kb: the middle block holds no significant association
+        assocs = Arrays.asList(association("rs1-A", 1.0, -8, 1000000),
+                               association("rs2-A", 1.0, -3, 1050000),
+                               association("rs3-A", 1.0, -4, 1120000),
+                               association("rs4-A", 2.0, -4, 1190000),
+                               association("rs5-A", 1.0, -9, 1260000));
+        new LocusClumper().clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(true, false, false, false, true), topAssociations());
+    }
+
+    @Test
+    public void testSecondaryBlocksWithoutSignificantAssociation() {
+        assocs = Arrays.asList(association("rs1-A", 1.0, -3, 1000000),
+                               association("rs2-A", 1.0, -8, 1050000),
+                               association("rs3-A", 1.0, -4, 1200000),
+                               association("rs4-A", 1.0, -7, 1350000),
+                               association("rs5-A", 1.0, -9, 1400000));
+        new LocusClumper().setSecondaryBlocks(assocs);
+
+        // rs3 is a block of its own, between blocks topped by rs2 and rs5, which are over the window apart
+        assertEquals("Top associations", Arrays.asList(false, true, false, false, true), topAssociations());
+    }
+
+    @Test
+    public void testSecondaryBlockTopsWithinWindowKeepMostSignificant() {
+        // rs2 tops the first block, rs3 the second one, which starts at rs2 and lies within the window of it
+        assocs = Arrays.asList(association("rs1-A", 1.0, -6, 1000000),
+                               association("rs2-A", 1.0, -8, 1050000),
+                               association("rs3-A", 1.0, -10, 1120000));
+        new LocusClumper().clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(false, false, true), topAssociations());
+    }
+
+    @Test
+    public void testPrecisionConcernTiesAreComparedByValue() {
+        // Exponents outside the Integer cache and separately boxed mantissas, equal in value only
+        assocs = Arrays.asList(association("rs1-A", 3.0, -200, 1000000),
+                               association("rs2-A", 3.0, -200, 1040000),
+                               association("rs3-A", 3.0, -150, 1080000));
+        assocs.get(0).setPrecisionConcern(true);
+        assocs.get(1).setPrecisionConcern(true);
+        new LocusClumper().clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(true, true, false), topAssociations());
+        assertTrue("First ambiguous", assocs.get(0).getIsAmbigious());
+        assertTrue("Second ambiguous", assocs.get(1).getIsAmbigious());
+        assertFalse("Third ambiguous", assocs.get(2).getIsAmbigious());
+    }
+
+    @Test
+    public void testPrecisionConcernPrefersLowerMantissa() {
+        // The p-values could not be told apart, the mantissas can
+        assocs = Arrays.asList(association("rs1-A", 2.5, -300, 1000000),
+                               association("rs2-A", 2.4, -300, 1040000));
+        for (FilterAssociation fa : assocs) {
+            fa.setPvalue(0);
+            fa.setPrecisionConcern(true);
+        }
+        new LocusClumper().clump("1", assocs);
+
+        assertEquals("Top associations", Arrays.asList(false, true), topAssociations());
+        assertFalse("First ambiguous", assocs.get(0).getIsAmbigious());
+        assertFalse("Second ambiguous", assocs.get(1).getIsAmbigious());
+    }
+
+    private static FilterAssociation association(String allele, Double mantissa, int exponent, int position) {
+        FilterAssociation fa = new FilterAssociation(allele, mantissa, exponent, "1", String.valueOf(position));
+        fa.setPvalue(mantissa * Math.pow(10, (double) exponent));
+        return fa;
+    }
+
+    private List<Boolean> topAssociations() {
+        List<Boolean> tops = new ArrayList<>();
+        for (FilterAssociation fa : assocs) {
+            tops.add(fa.getIsTopAssociation());
+        }
+        return tops;
+    }
+}
@@ -0,0 +1,102 @@
+package uk.ac.ebi.spot.goci.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.spot.goci.model.EnsemblMappingResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded worker pool driving the {@link EnsemblMappingPipeline}.
+ * <p>
+ * Each submitted SNP is mapped on its own worker with its own {@link EnsemblMappingResult}. The number of workers is
+ * set by "mapping.parallelism"; once "mapping.parallelism * 4" SNPs are queued, further submissions run on the
+ * calling thread, which throttles the caller instead of queueing the whole catalogue in memory.
+ */
+@Component
+public class EnsemblMappingExecutor {
+
+    @Value("${mapping.parallelism:4}")
+    private int parallelism;
+
+    private EnsemblMappingPipeline ensemblMappingPipeline;
+
+    private ThreadPoolExecutor executor;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @Autowired
+    public EnsemblMappingExecutor(EnsemblMappingPipeline ensemblMappingPipeline) {
+        this.ensemblMappingPipeline = ensemblMappingPipeline;
+    }
+
+    @PostConstruct
+    public void init() {
+        int workers = Math.max(1, getParallelism());
+        AtomicInteger threadCount = new AtomicInteger(0);
+        executor = new ThreadPoolExecutor(workers,
+                                          workers,
+                                          0L,
+                                          TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(workers * 4),
+                                          runnable -> {
+                                              Thread thread = new Thread(runnable);
+                                              thread.setName("ensembl-mapping-" + threadCount.incrementAndGet());
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          },
+                                          new ThreadPoolExecutor.CallerRunsPolicy());
+        getLog().info("Ensembl mapping will run with " + workers + " worker(s)");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a SNP for mapping
+     *
+     * @param rsId          the SNP rsID
+     * @param reportedGenes author reported genes linked to the SNP
+     * @param eRelease      the Ensembl release used for the REST call history
+     * @return a future holding the result of this SNP only
+     */
+    public Future<EnsemblMappingResult> submit(String rsId, Collection<String> reportedGenes, String eRelease) {
+        // Defensive copy, the caller may reuse its collection while the SNP is still queued
+        Collection<String> genes = new ArrayList<>(reportedGenes);
+        return executor.submit(() -> ensemblMappingPipeline.run_pipeline(rsId, genes, eRelease));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
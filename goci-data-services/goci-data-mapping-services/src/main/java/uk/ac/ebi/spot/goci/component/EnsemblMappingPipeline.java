@@ -64,10 +64,10 @@ public class EnsemblMappingPipeline {
 
     private EnsemblRestTemplateService ensemblRestTemplateService;
 
-    private EnsemblMappingResult ensemblMappingResult;
-
     private EnsemblRestcallHistoryService ensemblRestcallHistoryService;
 
+    private GenomeAnnotationIndex genomeAnnotationIndex;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -76,18 +76,21 @@ public class EnsemblMappingPipeline {
     
     @Autowired
     public EnsemblMappingPipeline(EnsemblRestTemplateService ensemblRestTemplateService,
-                                  EnsemblRestcallHistoryService ensemblRestcallHistoryService) {
+                                  EnsemblRestcallHistoryService ensemblRestcallHistoryService,
+                                  GenomeAnnotationIndex genomeAnnotationIndex) {
         this.ensemblRestTemplateService = ensemblRestTemplateService;
         this.ensemblRestcallHistoryService = ensemblRestcallHistoryService;
+        this.genomeAnnotationIndex = genomeAnnotationIndex;
     }
 
-    // Run the pipeline for a given SNP
-    public synchronized EnsemblMappingResult run_pipeline(String rsId, Collection<String> reportedGenes, String eRelease)
+    // Run the pipeline for a given SNP. Each call builds its own result object and the pipeline keeps no per-call
+    // state, so several SNPs can be mapped concurrently (see EnsemblMappingExecutor)
+    public EnsemblMappingResult run_pipeline(String rsId, Collection<String> reportedGenes, String eRelease)
             throws EnsemblRestIOException {
 
         // Create our result object
-        setEnsemblMappingResult(new EnsemblMappingResult());
-        getEnsemblMappingResult().setRsId(rsId);
+        EnsemblMappingResult ensemblMappingResult = new EnsemblMappingResult();
+        ensemblMappingResult.setRsId(rsId);
 
         // Variation call
         RestResponseResult variationDataApiResult = ensemblRestcallHistoryService.getEnsemblRestCallByTypeAndParamAndVersion("snp",rsId, eRelease);
@@ -100,33 +103,34 @@ public class EnsemblMappingPipeline {
 
         // Check for any errors
         if (restApiError != null && !restApiError.isEmpty()) {
-            getEnsemblMappingResult().addPipelineErrors(restApiError);
+            ensemblMappingResult.addPipelineErrors(restApiError);
         }
 
         if (variationDataApiResult.getRestResult() != null) {
             JSONObject variationResult = variationDataApiResult.getRestResult().getObject();
 
             if (variationResult.has("error")) {
-                checkError(variationResult, "variation", "Variant " + rsId + " is not found in Ensembl");
+                checkError(ensemblMappingResult, variationResult, "variation",
+                           "Variant " + rsId + " is not found in Ensembl");
             }
             else if (variationResult.length() > 0) {
 
                 // Merged SNP
                 String currentRsId = variationResult.getString("name");
-                getEnsemblMappingResult().setMerged((currentRsId.equals(rsId)) ? 0 : 1);
-                if (getEnsemblMappingResult().getMerged() == 1) {
-                    getEnsemblMappingResult().setCurrentSnpId(currentRsId);
+                ensemblMappingResult.setMerged((currentRsId.equals(rsId)) ? 0 : 1);
+                if (ensemblMappingResult.getMerged() == 1) {
+                    ensemblMappingResult.setCurrentSnpId(currentRsId);
                 }
 
                 // Mapping errors
                 if (variationResult.has("failed")) {
-                    getEnsemblMappingResult().addPipelineErrors(variationResult.getString("failed"));
+                    ensemblMappingResult.addPipelineErrors(variationResult.getString("failed"));
                 }
 
                 // Mapping and genomic context calls
                 JSONArray mappings = variationResult.getJSONArray("mappings");
-                Collection<Location> locations = getMappings(mappings, eRelease);
-                getEnsemblMappingResult().setLocations(locations);
+                Collection<Location> locations = getMappings(ensemblMappingResult, mappings, eRelease);
+                ensemblMappingResult.setLocations(locations);
 
                 // Add genomic context
                 if (locations.size() > 0) {
@@ -134,12 +138,12 @@ public class EnsemblMappingPipeline {
                     // Functional class (most severe consequence).
                     // This implies there is at least one variant location.
                     if (variationResult.has("most_severe_consequence")) {
-                        getEnsemblMappingResult().setFunctionalClass(variationResult.getString("most_severe_consequence"));
+                        ensemblMappingResult.setFunctionalClass(variationResult.getString("most_severe_consequence"));
                     }
 
                     // Genomic context (loop over the "locations" object)
                     for (Location snp_location : locations) {
-                        getAllGenomicContexts(snp_location, eRelease);
+                        getAllGenomicContexts(ensemblMappingResult, snp_location, eRelease);
                     }
                 }
             }
@@ -150,10 +154,10 @@ public class EnsemblMappingPipeline {
 
         // Reported genes checks
         if (reportedGenes.size() > 0) {
-            checkReportedGenes(reportedGenes, getEnsemblMappingResult().getLocations(), eRelease);
+            checkReportedGenes(ensemblMappingResult, reportedGenes, ensemblMappingResult.getLocations(), eRelease);
         }
 
-        return getEnsemblMappingResult();
+        return ensemblMappingResult;
     }
 
 
@@ -164,7 +168,8 @@ public class EnsemblMappingPipeline {
      * @param locations
      */
 
-    private void checkReportedGenes(Collection<String> reportedGenes, Collection<Location> locations,
+    private void checkReportedGenes(EnsemblMappingResult ensemblMappingResult,
+                                    Collection<String> reportedGenes, Collection<Location> locations,
                                     String eRelease)
             throws EnsemblRestIOException {
 
@@ -185,7 +190,7 @@ public class EnsemblMappingPipeline {
                 }
                 // Check for errors
                 if (reportedGeneApiResult.getError() != null && !reportedGeneApiResult.getError().isEmpty()) {
-                    getEnsemblMappingResult().addPipelineErrors(reportedGeneApiResult.getError());
+                    ensemblMappingResult.addPipelineErrors(reportedGeneApiResult.getError());
                 }
 
                 if (reportedGeneApiResult.getRestResult() != null) {
@@ -204,19 +209,19 @@ public class EnsemblMappingPipeline {
                                 }
                             }
                             if (same_chromosome == 0) {
-                                getEnsemblMappingResult().addPipelineErrors(
+                                ensemblMappingResult.addPipelineErrors(
                                         "Reported gene " + reportedGene + " is on a different chromosome (chr" +
                                                 gene_chromosome + ")");
                             }
                         }
                         else {
-                            getEnsemblMappingResult().addPipelineErrors("Can't compare the " + reportedGene +
+                            ensemblMappingResult.addPipelineErrors("Can't compare the " + reportedGene +
                                                                                 " location in Ensembl: no mapping available for the variant");
                         }
                     }
                     // No gene location found
                     else {
-                        getEnsemblMappingResult().addPipelineErrors(
+                        ensemblMappingResult.addPipelineErrors(
                                 "Can't find a location in Ensembl for the reported gene " + reportedGene);
                     }
 
@@ -235,7 +240,8 @@ public class EnsemblMappingPipeline {
      *
      * @param mappings A JSONArray object containing the list the variant locations
      */
-    private Collection<Location> getMappings(JSONArray mappings, String eRelease) throws EnsemblRestIOException {
+    private Collection<Location> getMappings(EnsemblMappingResult ensemblMappingResult,
+                                             JSONArray mappings, String eRelease) throws EnsemblRestIOException {
 
         Collection<Location> locations = new ArrayList<>();
 
@@ -247,7 +253,7 @@ public class EnsemblMappingPipeline {
             String chromosome = mapping.getString("seq_region_name");
             Integer position = Integer.valueOf(mapping.getInt("start"));
 
-            Region cytogeneticBand = getRegion(chromosome, position, eRelease);
+            Region cytogeneticBand = getRegion(ensemblMappingResult, chromosome, position, eRelease);
 
             Location location = new Location(chromosome, position, cytogeneticBand);
             locations.add(location);
@@ -263,13 +269,15 @@ public class EnsemblMappingPipeline {
      * @param position   the position of the variant
      * @return Region object only containing a region name
      */
-    private Region getRegion(String chromosome, Integer position, String eRelease) throws EnsemblRestIOException {
+    private Region getRegion(EnsemblMappingResult ensemblMappingResult,
+                             String chromosome, Integer position, String eRelease) throws EnsemblRestIOException {
 
         String band = null; // Default value
         String rest_opt = "feature=band";
 
         // REST Call
-        JSONArray cytogenetic_band_result = getOverlapRegionCalls(chromosome, position, position, rest_opt, eRelease);
+        JSONArray cytogenetic_band_result = getOverlapRegionCalls(ensemblMappingResult,
+                                                                  chromosome, position, position, rest_opt, eRelease);
 
         if (cytogenetic_band_result.length() != 0 && !cytogenetic_band_result.getJSONObject(0).has("overlap_error")) {
             String cytogenetic_band = cytogenetic_band_result.getJSONObject(0).getString("id");
@@ -290,13 +298,14 @@ public class EnsemblMappingPipeline {
      *
      * @param snp_location an instance of the Location class (chromosome name and position)
      */
-    private void getAllGenomicContexts(Location snp_location, String eRelease) throws EnsemblRestIOException {
+    private void getAllGenomicContexts(EnsemblMappingResult ensemblMappingResult,
+                                       Location snp_location, String eRelease) throws EnsemblRestIOException {
 
         int chr_start = 1;
         int chr_end = getChromosomeEnd(snp_location.getChromosomeName(), eRelease);
 
-        getGenomicContext(snp_location, chr_start, chr_end, getEnsemblSource(), eRelease);
-        getGenomicContext(snp_location, chr_start, chr_end, getNcbiSource(), eRelease);
+        getGenomicContext(ensemblMappingResult, snp_location, chr_start, chr_end, getEnsemblSource(), eRelease);
+        getGenomicContext(ensemblMappingResult, snp_location, chr_start, chr_end, getNcbiSource(), eRelease);
     }
 
 
@@ -308,7 +317,8 @@ public class EnsemblMappingPipeline {
      * @param chr_end      3' end position of the chromosome
      * @param source       the source of the data (Ensembl or NCBI)
      */
-    private void getGenomicContext(Location snp_location, int chr_start, int chr_end, String source, String eRelease)
+    private void getGenomicContext(EnsemblMappingResult ensemblMappingResult,
+                                   Location snp_location, int chr_start, int chr_end, String source, String eRelease)
             throws EnsemblRestIOException {
         // By default the db_type is 'core' (i.e. Ensembl)
         String rest_opt = "feature=gene";
@@ -317,16 +327,16 @@ public class EnsemblMappingPipeline {
             rest_opt += "&db_type=" + getNcbiDbType();
         }
         // Overlapping genes
-        getLog().debug("Getting overlapping genes from " + source + " for " + getEnsemblMappingResult().getRsId());
-        getOverlappingGenes(snp_location, source, rest_opt, eRelease);
+        getLog().debug("Getting overlapping genes from " + source + " for " + ensemblMappingResult.getRsId());
+        getOverlappingGenes(ensemblMappingResult, snp_location, source, rest_opt, eRelease);
 
         // Upstream genes
-        getLog().debug("Getting upstream genes from " + source + " for " + getEnsemblMappingResult().getRsId());
-        getUpstreamGenes(snp_location, source, chr_start, rest_opt, eRelease);
+        getLog().debug("Getting upstream genes from " + source + " for " + ensemblMappingResult.getRsId());
+        getUpstreamGenes(ensemblMappingResult, snp_location, source, chr_start, rest_opt, eRelease);
 
         // Downstream genes
-        getLog().debug("Getting downstream genes from " + source + " for " + getEnsemblMappingResult().getRsId());
-        getDownstreamGenes(snp_location, source, chr_end, rest_opt, eRelease);
+        getLog().debug("Getting downstream genes from " + source + " for " + ensemblMappingResult.getRsId());
+        getDownstreamGenes(ensemblMappingResult, snp_location, source, chr_end, rest_opt, eRelease);
     }
 
 
@@ -337,14 +347,16 @@ public class EnsemblMappingPipeline {
      * @param source       the source of the data (Ensembl or NCBI)
      * @param rest_opt     the extra parameters to add at the end of the REST call url
      */
-    private void getOverlappingGenes(Location snp_location, String source, String rest_opt, String eRelease)
+    private void getOverlappingGenes(EnsemblMappingResult ensemblMappingResult,
+                                     Location snp_location, String source, String rest_opt, String eRelease)
             throws EnsemblRestIOException {
 
         String chromosome = snp_location.getChromosomeName();
         Integer position = snp_location.getChromosomePosition();
 
         // Check if there are overlap genes
-        JSONArray overlap_gene_result = getOverlapRegionCalls(chromosome, position, position, rest_opt, eRelease);
+        JSONArray overlap_gene_result = getGeneOverlapCalls(ensemblMappingResult,
+                                                            chromosome, position, position, rest_opt, source, eRelease);
 
         if (overlap_gene_result.length() != 0 && !overlap_gene_result.getJSONObject(0).has("overlap_error")) {
             for (int i = 0; i < overlap_gene_result.length(); ++i) {
@@ -353,13 +365,13 @@ public class EnsemblMappingPipeline {
                 String geneName = gene_json_object.getString("external_name");
 
                 if (source.equals(getNcbiSource())) {
-                    getEnsemblMappingResult().addNcbiOverlappingGene(geneName);
+                    ensemblMappingResult.addNcbiOverlappingGene(geneName);
                 }
                 else {
-                    getEnsemblMappingResult().addEnsemblOverlappingGene(geneName);
+                    ensemblMappingResult.addEnsemblOverlappingGene(geneName);
                 }
             }
-            addGenomicContext(overlap_gene_result, snp_location, source, "overlap");
+            addGenomicContext(ensemblMappingResult, overlap_gene_result, snp_location, source, "overlap");
         }
     }
 
@@ -372,7 +384,8 @@ public class EnsemblMappingPipeline {
      * @param chr_start    5' start position of the chromosome
      * @param rest_opt     the extra parameters to add at the end of the REST call url
      */
-    private void getUpstreamGenes(Location snp_location, String source, int chr_start, String rest_opt,
+    private void getUpstreamGenes(EnsemblMappingResult ensemblMappingResult,
+                                  Location snp_location, String source, int chr_start, String rest_opt,
                                   String eRelease)
             throws EnsemblRestIOException {
         String type = "upstream";
@@ -387,17 +400,20 @@ public class EnsemblMappingPipeline {
         Integer pos_up = Integer.valueOf(position_up);
 
         // Check if there are overlap genes
-        JSONArray overlap_gene_result = getOverlapRegionCalls(chromosome, pos_up, position, rest_opt, eRelease);
+        JSONArray overlap_gene_result = getGeneOverlapCalls(ensemblMappingResult,
+                                                            chromosome, pos_up, position, rest_opt, source, eRelease);
 
         if ((overlap_gene_result.length() != 0 && !overlap_gene_result.getJSONObject(0).has("overlap_error")) ||
                 overlap_gene_result.length() == 0) {
-            boolean closest_found = addGenomicContext(overlap_gene_result, snp_location, source, type);
+            boolean closest_found = addGenomicContext(ensemblMappingResult,
+                                                      overlap_gene_result, snp_location, source, type);
             if (!closest_found) {
                 if (position_up > chr_start) {
-                    JSONArray closest_gene = getNearestGene(chromosome, position, pos_up, 1, rest_opt, type, source,
+                    JSONArray closest_gene = getNearestGene(ensemblMappingResult,
+                                                            chromosome, position, pos_up, 1, rest_opt, type, source,
                             eRelease);
                     if (closest_gene.length() > 0) {
-                        addGenomicContext(closest_gene, snp_location, source, type);
+                        addGenomicContext(ensemblMappingResult, closest_gene, snp_location, source, type);
                     }
                 }
             }
@@ -413,7 +429,8 @@ public class EnsemblMappingPipeline {
      * @param chr_end      3' end position of the chromosome
      * @param rest_opt     the extra parameters to add at the end of the REST call url
      */
-    private void getDownstreamGenes(Location snp_location, String source, int chr_end, String rest_opt,
+    private void getDownstreamGenes(EnsemblMappingResult ensemblMappingResult,
+                                    Location snp_location, String source, int chr_end, String rest_opt,
                                     String eRelease)
             throws EnsemblRestIOException {
         String type = "downstream";
@@ -430,18 +447,22 @@ public class EnsemblMappingPipeline {
             Integer pos_down = Integer.valueOf(position_down);
 
             // Check if there are overlap genes
-            JSONArray overlap_gene_result = getOverlapRegionCalls(chromosome, position, pos_down, rest_opt, eRelease);
+            JSONArray overlap_gene_result = getGeneOverlapCalls(ensemblMappingResult,
+                                                                chromosome, position, pos_down, rest_opt, source,
+                                                                eRelease);
 
             if ((overlap_gene_result.length() != 0 && !overlap_gene_result.getJSONObject(0).has("overlap_error")) ||
                     overlap_gene_result.length() == 0) {
-                boolean closest_found = addGenomicContext(overlap_gene_result, snp_location, source, type);
+                boolean closest_found = addGenomicContext(ensemblMappingResult,
+                                                          overlap_gene_result, snp_location, source, type);
                 if (!closest_found) {
                     if (position_down != chr_end) {
                         JSONArray closest_gene =
-                                getNearestGene(chromosome, position, pos_down, chr_end, rest_opt, type, source,
+                                getNearestGene(ensemblMappingResult,
+                                               chromosome, position, pos_down, chr_end, rest_opt, type, source,
                                         eRelease);
                         if (closest_gene.length() > 0) {
-                            addGenomicContext(closest_gene, snp_location, source, type);
+                            addGenomicContext(ensemblMappingResult, closest_gene, snp_location, source, type);
                         }
                     }
                 }
@@ -460,7 +481,8 @@ public class EnsemblMappingPipeline {
      * @return boolean to indicate whether a closest gene has been found or not (only relevant for upstream and
      * downstream gene)
      */
-    private boolean addGenomicContext(JSONArray json_gene_list, Location snp_location, String source, String type) {
+    private boolean addGenomicContext(EnsemblMappingResult ensemblMappingResult,
+                                      JSONArray json_gene_list, Location snp_location, String source, String type) {
         String closest_gene = "";
         int closest_distance = 0;
         boolean intergenic = (type.equals("overlap")) ? false : true;
@@ -471,7 +493,7 @@ public class EnsemblMappingPipeline {
 
         SingleNucleotidePolymorphism snp_tmp =
                 new SingleNucleotidePolymorphism();
-        snp_tmp.setRsId(getEnsemblMappingResult().getRsId());
+        snp_tmp.setRsId(ensemblMappingResult.getRsId());
 
         // Get closest gene
         if (intergenic) {
@@ -483,14 +505,14 @@ public class EnsemblMappingPipeline {
                 String gene_name = json_gene.getString("external_name");
 
                 if (source.equals(getNcbiSource())) {
-                    if ((gene_name != null && getEnsemblMappingResult().getNcbiOverlappingGene().contains(gene_name)) ||
+                    if ((gene_name != null && ensemblMappingResult.getNcbiOverlappingGene().contains(gene_name)) ||
                             gene_name ==
                                     null) { // Skip overlapping genes which also overlap upstream and/or downstream of the variant
                         continue;
                     }
                 }
                 else {
-                    if ((gene_name != null && getEnsemblMappingResult().getEnsemblOverlappingGene().contains(gene_name)) ||
+                    if ((gene_name != null && ensemblMappingResult.getEnsemblOverlappingGene().contains(gene_name)) ||
                             gene_name ==
                                     null) { // Skip overlapping genes which also overlap upstream and/or downstream of the variant
                         continue;
@@ -522,14 +544,14 @@ public class EnsemblMappingPipeline {
 
             if (intergenic) {
                 if (source.equals(getNcbiSource())) {
-                    if ((gene_name != null && getEnsemblMappingResult().getNcbiOverlappingGene().contains(gene_name)) ||
+                    if ((gene_name != null && ensemblMappingResult.getNcbiOverlappingGene().contains(gene_name)) ||
                             gene_name ==
                                     null) { // Skip overlapping genes which also overlap upstream and/or downstream of the variant
                         continue;
                     }
                 }
                 else {
-                    if ((gene_name != null && getEnsemblMappingResult().getEnsemblOverlappingGene().contains(gene_name)) ||
+                    if ((gene_name != null && ensemblMappingResult.getEnsemblOverlappingGene().contains(gene_name)) ||
                             gene_name ==
                                     null) { // Skip overlapping genes which also overlap upstream and/or downstream of the variant
                         continue;
@@ -572,7 +594,7 @@ public class EnsemblMappingPipeline {
                                                    getMappingMethod(),
                                                    is_closest_gene);
 
-            getEnsemblMappingResult().addGenomicContext(gc);
+            ensemblMappingResult.addGenomicContext(gc);
         }
         return (closest_gene != "") ? true : false;
     }
@@ -593,7 +615,7 @@ public class EnsemblMappingPipeline {
      * @return A JSONArray object containing a single JSONObject corresponding to the closest gene (upstream or
      * downstream) over the 100kb range
      */
-    private JSONArray getNearestGene(String chromosome,
+    private JSONArray getNearestGene(EnsemblMappingResult ensemblMappingResult, String chromosome,
                                      Integer snp_position,
                                      Integer position,
                                      int boundary,
@@ -627,7 +649,8 @@ public class EnsemblMappingPipeline {
         Integer pos2 = Integer.valueOf(position2);
         Integer new_pos_string = Integer.valueOf(new_pos);
 
-        JSONArray json_gene_list = this.getOverlapRegionCalls(chromosome, pos1, pos2, rest_opt, eRelease);
+        JSONArray json_gene_list = this.getGeneOverlapCalls(ensemblMappingResult,
+                                                            chromosome, pos1, pos2, rest_opt, source, eRelease);
 
         boolean gene_error = false;
 
@@ -642,14 +665,14 @@ public class EnsemblMappingPipeline {
                     String gene_name = json_gene.getString("external_name");
 
                     if (source.equals(getNcbiSource())) {
-                        if ((gene_name != null && getEnsemblMappingResult().getNcbiOverlappingGene().contains(gene_name)) ||
+                        if ((gene_name != null && ensemblMappingResult.getNcbiOverlappingGene().contains(gene_name)) ||
                                 gene_name ==
                                         null) { // Skip overlapping genes which also overlap upstream and/or downstream of the variant
                             continue;
                         }
                     }
                     else {
-                        if ((gene_name != null && getEnsemblMappingResult().getEnsemblOverlappingGene().contains(gene_name)) ||
+                        if ((gene_name != null && ensemblMappingResult.getEnsemblOverlappingGene().contains(gene_name)) ||
                                 gene_name ==
                                         null) { // Skip overlapping genes which also overlap upstream and/or downstream of the variant
                             continue;
@@ -672,22 +695,44 @@ public class EnsemblMappingPipeline {
                 if (closest_gene.length() == 0 && new_pos != boundary) {
                     // Recursive code to find the nearest upstream or downstream gene
                     closest_gene =
-                            this.getNearestGene(chromosome, snp_position, new_pos_string, boundary, rest_opt, type,
-                                                source, eRelease);
+                            this.getNearestGene(ensemblMappingResult, chromosome, snp_position, new_pos_string,
+                                                boundary, rest_opt, type, source, eRelease);
                 }
             }
         }
         else {
             if (new_pos != boundary) {
                 // Recursive code to find the nearest upstream or downstream gene
-                closest_gene = this.getNearestGene(chromosome, snp_position, new_pos_string, boundary, rest_opt, type,
-                                                   source, eRelease);
+                closest_gene = this.getNearestGene(ensemblMappingResult, chromosome, snp_position, new_pos_string,
+                                                   boundary, rest_opt, type, source, eRelease);
             }
         }
         return closest_gene;
     }
 
 
+    /**
+     * Get the genes overlapping a region, from the local genome annotation when one is loaded for the source,
+     * otherwise from the Ensembl overlap region endpoint
+     *
+     * @param chromosome the chromosome name
+     * @param position1  the 5' position of the region
+     * @param position2  the 3' position of the region
+     * @param rest_opt   the extra parameters to add at the end of the REST call url (inherited from other methods)
+     * @param source     the source of the data (Ensembl or NCBI)
+     * @return A JSONArray object containing a list of JSONObjects corresponding to the genes overlapping the region
+     */
+    private JSONArray getGeneOverlapCalls(EnsemblMappingResult ensemblMappingResult,
+                                          String chromosome, Integer position1, Integer position2, String rest_opt,
+                                          String source, String eRelease)
+            throws EnsemblRestIOException {
+        if (genomeAnnotationIndex.isLoaded(source)) {
+            return genomeAnnotationIndex.getOverlappingGenes(source, chromosome, position1, position2);
+        }
+        return getOverlapRegionCalls(ensemblMappingResult, chromosome, position1, position2, rest_opt, eRelease);
+    }
+
+
     /**
      * Ensembl REST API call for the overlap region endpoint
      *
@@ -697,7 +742,8 @@ public class EnsemblMappingPipeline {
      * @param rest_opt   the extra parameters to add at the end of the REST call url (inherited from other methods)
      * @return A JSONArray object containing a list of JSONObjects corresponding to the genes overlapping the region
      */
-    private JSONArray getOverlapRegionCalls(String chromosome, Integer position1, Integer position2, String rest_opt, String eRelease)
+    private JSONArray getOverlapRegionCalls(EnsemblMappingResult ensemblMappingResult,
+                                            String chromosome, Integer position1, Integer position2, String rest_opt, String eRelease)
             throws EnsemblRestIOException {
 
         String data = chromosome + ":" + position1 + "-" + position2;
@@ -718,7 +764,7 @@ public class EnsemblMappingPipeline {
 
         else {
             // Errors
-            getEnsemblMappingResult().addPipelineErrors(restResponseResult.getError());
+            ensemblMappingResult.addPipelineErrors(restResponseResult.getError());
             overlap_result = new JSONArray("[{\"overlap_error\":\"1\"}]");
         }
 
@@ -727,12 +773,17 @@ public class EnsemblMappingPipeline {
 
 
     /**
-     * Get the end position of a given chromosome, using an Ensembl REST API call
+     * Get the end position of a given chromosome, from the local genome annotation or using an Ensembl REST API call
      *
      * @param chromosome the chromosome name
      * @return the position of the end of the chromosome
      */
     private int getChromosomeEnd(String chromosome, String eRelease) throws EnsemblRestIOException {
+        Integer length = genomeAnnotationIndex.getChromosomeLength(chromosome);
+        if (length != null) {
+            return length;
+        }
+
         int chr_end = 0;
         String webservice = "info_assembly";
 
@@ -762,19 +813,20 @@ public class EnsemblMappingPipeline {
      * @param webservice      The name of the REST web service
      * @param default_message The default error message
      */
-    private void checkError(JSONObject result, String webservice, String default_message)
+    private void checkError(EnsemblMappingResult ensemblMappingResult,
+                            JSONObject result, String webservice, String default_message)
             throws EnsemblRestIOException {
 
         if (result.getString("error").contains("page not found")) {
-            getEnsemblMappingResult().addPipelineErrors("Web service '" + webservice + "' not found or not working.");
+            ensemblMappingResult.addPipelineErrors("Web service '" + webservice + "' not found or not working.");
             throw new EnsemblRestIOException("Web service " + webservice + " not found or not working.");
         }
         else {
             if (default_message.equals("")) {
-                getEnsemblMappingResult().addPipelineErrors(result.getString("error"));
+                ensemblMappingResult.addPipelineErrors(result.getString("error"));
             }
             else {
-                getEnsemblMappingResult().addPipelineErrors(default_message);
+                ensemblMappingResult.addPipelineErrors(default_message);
             }
         }
     }
@@ -832,12 +884,4 @@ public class EnsemblMappingPipeline {
     public List<String> getReportedGenesToIgnore() {
         return reportedGenesToIgnore;
     }
-
-    public EnsemblMappingResult getEnsemblMappingResult() {
-        return ensemblMappingResult;
-    }
-
-    public void setEnsemblMappingResult(EnsemblMappingResult ensemblMappingResult) {
-        this.ensemblMappingResult = ensemblMappingResult;
-    }
 }
@@ -0,0 +1,127 @@
+package uk.ac.ebi.spot.goci.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static interval tree of the genes of one chromosome.
+ * <p>
+ * Genes are sorted by start position and the sorted array is read as an implicit balanced binary search tree (the
+ * middle of each index range is the root of that range). Each node also keeps the largest end position of its
+ * subtree, so an overlap query only visits the branches that can hold a match: O(log n + k) for k results.
+ */
+public class GeneIntervalTree {
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final int[] maxEnds;
+
+    private final String[] ids;
+
+    private final String[] names;
+
+    public GeneIntervalTree(List<GeneAnnotation> genes) {
+        GeneAnnotation[] sorted = genes.toArray(new GeneAnnotation[genes.size()]);
+        Arrays.sort(sorted,
+                    Comparator.comparingInt(GeneAnnotation::getStart).thenComparingInt(GeneAnnotation::getEnd));
+
+        int size = sorted.length;
+        starts = new int[size];
+        ends = new int[size];
+        maxEnds = new int[size];
+        ids = new String[size];
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = sorted[i].getStart();
+            ends[i] = sorted[i].getEnd();
+            ids[i] = sorted[i].getId();
+            names[i] = sorted[i].getName();
+        }
+        index(0, size - 1);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Find the genes overlapping a region, both ends included
+     *
+     * @param start 5' position of the region
+     * @param end   3' position of the region
+     * @return the overlapping genes, sorted by start position
+     */
+    public List<GeneAnnotation> findOverlapping(int start, int end) {
+        List<GeneAnnotation> genes = new ArrayList<>();
+        find(0, starts.length - 1, start, end, genes);
+        return genes;
+    }
+
+    private int index(int low, int high) {
+        if (low > high) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (low + high) >>> 1;
+        maxEnds[mid] = Math.max(ends[mid], Math.max(index(low, mid - 1), index(mid + 1, high)));
+        return maxEnds[mid];
+    }
+
+    // In-order traversal, so results come out sorted by start
+    private void find(int low, int high, int start, int end, List<GeneAnnotation> genes) {
+        if (low > high) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        if (maxEnds[mid] < start) {
+            return;
+        }
+        find(low, mid - 1, start, end, genes);
+        if (starts[mid] <= end) {
+            if (ends[mid] >= start) {
+                genes.add(new GeneAnnotation(ids[mid], names[mid], starts[mid], ends[mid]));
+            }
+            find(mid + 1, high, start, end, genes);
+        }
+    }
+
+    /**
+     * A gene of the annotation, with the fields the mapping pipeline reads from the Ensembl overlap endpoint
+     */
+    public static class GeneAnnotation {
+
+        private final String id;
+
+        private final String name;
+
+        private final int start;
+
+        private final int end;
+
+        public GeneAnnotation(String id, String name, int start, int end) {
+            this.id = id;
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+}
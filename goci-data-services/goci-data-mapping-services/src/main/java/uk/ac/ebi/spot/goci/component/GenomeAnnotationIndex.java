@@ -0,0 +1,224 @@
+package uk.ac.ebi.spot.goci.component;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.spot.goci.component.GeneIntervalTree.GeneAnnotation;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local copy of the gene annotation of the Ensembl release, used by the {@link EnsemblMappingPipeline} instead of the
+ * Ensembl overlap endpoint to find overlapping, upstream and downstream genes.
+ * <p>
+ * One GTF or GFF3 file (optionally gzipped) can be given per source with "mapping.annotation.ensembl_file" and
+ * "mapping.annotation.ncbi_file". Their genes are loaded into one {@link GeneIntervalTree} per chromosome. Chromosome
+ * lengths are read from the GFF3 "##sequence-region" headers. A source without a file keeps using the REST API.
+ */
+@Component
+public class GenomeAnnotationIndex {
+
+    @Value("${mapping.ensembl_source}")
+    private String ensemblSource;
+
+    @Value("${mapping.ncbi_source}")
+    private String ncbiSource;
+
+    @Value("${mapping.annotation.ensembl_file:}")
+    private String ensemblFile;
+
+    @Value("${mapping.annotation.ncbi_file:}")
+    private String ncbiFile;
+
+    // Source -> chromosome -> genes
+    private final Map<String, Map<String, GeneIntervalTree>> genes = new HashMap<>();
+
+    private final Map<String, Integer> chromosomeLengths = new HashMap<>();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @PostConstruct
+    public void init() {
+        load(ensemblSource, ensemblFile);
+        load(ncbiSource, ncbiFile);
+    }
+
+    public boolean isLoaded(String source) {
+        return genes.containsKey(source);
+    }
+
+    /**
+     * Get the genes overlapping a region, in the same JSON form as the Ensembl overlap endpoint
+     *
+     * @param source     the source of the data (Ensembl or NCBI)
+     * @param chromosome the chromosome name
+     * @param start      the 5' position of the region
+     * @param end        the 3' position of the region
+     * @return A JSONArray of JSONObjects with the "id", "external_name", "start" and "end" of each gene
+     */
+    public JSONArray getOverlappingGenes(String source, String chromosome, int start, int end) {
+        JSONArray overlappingGenes = new JSONArray();
+        GeneIntervalTree tree = genes.get(source).get(chromosome);
+        if (tree != null) {
+            for (GeneAnnotation gene : tree.findOverlapping(start, end)) {
+                JSONObject json = new JSONObject();
+                json.put("id", gene.getId());
+                json.put("external_name", gene.getName());
+                json.put("seq_region_name", chromosome);
+                json.put("start", gene.getStart());
+                json.put("end", gene.getEnd());
+                overlappingGenes.put(json);
+            }
+        }
+        return overlappingGenes;
+    }
+
+    /**
+     * @param chromosome the chromosome name
+     * @return the length of the chromosome, or null if no annotation file declares it
+     */
+    public Integer getChromosomeLength(String chromosome) {
+        return chromosomeLengths.get(chromosome);
+    }
+
+    private void load(String source, String file) {
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<GeneAnnotation>> genesByChromosome = new HashMap<>();
+        // RefSeq sequence accession -> chromosome name
+        Map<String, String> sequenceNames = new HashMap<>();
+        try (InputStream in = open(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("##sequence-region")) {
+                    String[] region = line.trim().split("\\s+");
+                    if (region.length == 4) {
+                        chromosomeLengths.put(chromosomeName(region[1]), Integer.valueOf(region[3]));
+                    }
+                }
+                else if (!line.startsWith("#") && !line.isEmpty()) {
+                    String[] columns = line.split("\t");
+                    if (columns.length == 9 && columns[2].equals("region")) {
+                        parseRegion(columns, sequenceNames);
+                    }
+                    else if (columns.length == 9 && isGene(columns[2])) {
+                        GeneAnnotation gene = parseGene(columns);
+                        if (gene != null) {
+                            String chromosome = sequenceNames.getOrDefault(columns[0], chromosomeName(columns[0]));
+                            genesByChromosome.computeIfAbsent(chromosome, chr -> new ArrayList<>()).add(gene);
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Unable to load " + source + " genome annotation from " + file, e);
+        }
+
+        Map<String, GeneIntervalTree> trees = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<String, List<GeneAnnotation>> chromosome : genesByChromosome.entrySet()) {
+            trees.put(chromosome.getKey(), new GeneIntervalTree(chromosome.getValue()));
+            count += chromosome.getValue().size();
+        }
+        genes.put(source, trees);
+        getLog().info("Loaded " + count + " " + source + " genes on " + trees.size() + " sequences from " + file);
+    }
+
+    private InputStream open(String file) throws IOException {
+        InputStream in = Files.newInputStream(Paths.get(file));
+        return file.endsWith(".gz") ? new GZIPInputStream(in) : in;
+    }
+
+    // Same gene biotypes as the overlap endpoint with "feature=gene"
+    private boolean isGene(String type) {
+        return type.equals("gene") || type.equals("ncRNA_gene") || type.equals("pseudogene");
+    }
+
+    // RefSeq names its sequences by accession (NC_000001.11), their region line gives the chromosome
+    private void parseRegion(String[] columns, Map<String, String> sequenceNames) {
+        String chromosome = parseAttributes(columns[8]).get("chromosome");
+        if (chromosome != null && !sequenceNames.containsKey(columns[0])) {
+            sequenceNames.put(columns[0], chromosome);
+            chromosomeLengths.putIfAbsent(chromosome, Integer.valueOf(columns[4]));
+        }
+    }
+
+    // Genes without a name are skipped by the pipeline anyway
+    private GeneAnnotation parseGene(String[] columns) {
+        Map<String, String> attributes = parseAttributes(columns[8]);
+
+        // RefSeq identifies genes by their NCBI GeneID, its ID (gene-XXX) and gene_id only hold the symbol
+        String id = geneIdXref(attributes.containsKey("Dbxref") ? attributes.get("Dbxref") : attributes.get("db_xref"));
+        if (id == null) {
+            id = attributes.get("gene_id");
+        }
+        if (id == null && attributes.containsKey("ID")) {
+            id = attributes.get("ID").replaceFirst("^gene:", "");
+        }
+        String name = attributes.get("gene_name");
+        if (name == null) {
+            name = attributes.containsKey("Name") ? attributes.get("Name") : attributes.get("gene");
+        }
+
+        if (id == null || name == null) {
+            return null;
+        }
+        return new GeneAnnotation(id, name, Integer.parseInt(columns[3]), Integer.parseInt(columns[4]));
+    }
+
+    private String geneIdXref(String xrefs) {
+        if (xrefs != null) {
+            for (String xref : xrefs.split(",")) {
+                if (xref.startsWith("GeneID:")) {
+                    return xref.substring("GeneID:".length());
+                }
+            }
+        }
+        return null;
+    }
+
+    // Handles both GTF (key "value";) and GFF3 (key=value;) attributes
+    private Map<String, String> parseAttributes(String column) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String attribute : column.split(";")) {
+            String pair = attribute.trim();
+            int equals = pair.indexOf('=');
+            int space = pair.indexOf(' ');
+            if (equals > 0 && (space < 0 || equals < space)) {
+                attributes.putIfAbsent(pair.substring(0, equals), pair.substring(equals + 1));
+            }
+            else if (space > 0) {
+                attributes.putIfAbsent(pair.substring(0, space), pair.substring(space + 1).replace("\"", "").trim());
+            }
+        }
+        return attributes;
+    }
+
+    // Ensembl names chromosomes without the UCSC "chr" prefix
+    private String chromosomeName(String seqId) {
+        return seqId.startsWith("chr") ? seqId.substring(3) : seqId;
+    }
+}
@@ -0,0 +1,162 @@
+package uk.ac.ebi.spot.goci.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.spot.goci.service.EnsemblLatencyHistogram;
+import uk.ac.ebi.spot.goci.service.EnsemblRateLimiter;
+import uk.ac.ebi.spot.goci.service.EnsemblRestcallCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of a mapping run: associations done and failed, throughput and estimated time left, together with the
+ * Ensembl REST call cache hit ratio, Ensembl latency percentiles and rate limiter waits. The cache and latency figures
+ * only count the calls made since the run started.
+ * <p>
+ * A progress report is logged at most every "mapping.progress_interval" seconds while the run goes on, and once at the
+ * end. The same figures can be read from the getters at any time.
+ */
+@Component
+public class MappingProgressMonitor {
+
+    @Value("${mapping.progress_interval:60}")
+    private int progressInterval;
+
+    private EnsemblRestcallCache ensemblRestcallCache;
+
+    private EnsemblLatencyHistogram ensemblLatencyHistogram;
+
+    private EnsemblRateLimiter ensemblRateLimiter;
+
+    private int total;
+
+    private int done;
+
+    private int failed;
+
+    private long startTime;
+
+    private long lastReportTime;
+
+    // Cache counters and latencies when the run started
+    private long startHits;
+
+    private long startMisses;
+
+    private EnsemblLatencyHistogram startLatencies = new EnsemblLatencyHistogram();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @Autowired
+    public MappingProgressMonitor(EnsemblRestcallCache ensemblRestcallCache,
+                                  EnsemblLatencyHistogram ensemblLatencyHistogram,
+                                  EnsemblRateLimiter ensemblRateLimiter) {
+        this.ensemblRestcallCache = ensemblRestcallCache;
+        this.ensemblLatencyHistogram = ensemblLatencyHistogram;
+        this.ensemblRateLimiter = ensemblRateLimiter;
+    }
+
+    /**
+     * Start following a new run
+     *
+     * @param total number of associations to map
+     */
+    public synchronized void start(int total) {
+        this.total = total;
+        this.done = 0;
+        this.failed = 0;
+        this.startTime = System.nanoTime();
+        this.lastReportTime = startTime;
+        this.startHits = ensemblRestcallCache.getMemoryHits() + ensemblRestcallCache.getDiskHits();
+        this.startMisses = ensemblRestcallCache.getMisses();
+        this.startLatencies = ensemblLatencyHistogram.copy();
+    }
+
+    /**
+     * Count handled associations, and log a report if the last one is older than the progress interval
+     *
+     * @param done   number of associations handled, failed ones included
+     * @param failed number of those whose mapping failed
+     */
+    public synchronized void advance(int done, int failed) {
+        this.done += done;
+        this.failed += failed;
+
+        long now = System.nanoTime();
+        if (now - lastReportTime >= TimeUnit.SECONDS.toNanos(progressInterval)) {
+            lastReportTime = now;
+            getLog().info(report());
+        }
+    }
+
+    public synchronized void finish() {
+        getLog().info("Mapping finished. " + report());
+    }
+
+    public synchronized String report() {
+        long eta = getEta();
+        EnsemblLatencyHistogram latencies = getLatencies();
+        return String.format("Mapped %d of %d associations (%d failed), %.2f associations/s, ETA %s. " +
+                                     "Ensembl cache hit ratio %.1f%%, latency p50 %.0fms p90 %.0fms p99 %.0fms " +
+                                     "over %d requests, %d rate limit waits",
+                             done, total, failed, getThroughput(),
+                             eta < 0 ? "unknown" : String.format("%dh%02dm", eta / 3600, eta / 60 % 60),
+                             getHitRatio() * 100,
+                             latencies.getPercentile(50),
+                             latencies.getPercentile(90),
+                             latencies.getPercentile(99),
+                             latencies.getCount(),
+                             ensemblRateLimiter.getWaitCount());
+    }
+
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public synchronized int getDone() {
+        return done;
+    }
+
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return associations handled per second since the start of the run
+     */
+    public synchronized double getThroughput() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0 ? done / seconds : 0;
+    }
+
+    /**
+     * @return estimated seconds left at the current throughput, or -1 before the first association is done
+     */
+    public synchronized long getEta() {
+        double throughput = getThroughput();
+        return throughput > 0 ? (long) ((total - done) / throughput) : -1;
+    }
+
+    /**
+     * @return the Ensembl REST call cache hit ratio since the start of the run, 0 before the first call
+     */
+    public synchronized double getHitRatio() {
+        long hits = ensemblRestcallCache.getMemoryHits() + ensemblRestcallCache.getDiskHits() - startHits;
+        long total = hits + ensemblRestcallCache.getMisses() - startMisses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return the latencies of the Ensembl requests sent since the start of the run
+     */
+    public synchronized EnsemblLatencyHistogram getLatencies() {
+        return ensemblLatencyHistogram.since(startLatencies);
+    }
+}
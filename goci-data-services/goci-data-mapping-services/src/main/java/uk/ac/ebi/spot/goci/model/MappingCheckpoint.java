@@ -0,0 +1,34 @@
+package uk.ac.ebi.spot.goci.model;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * DTO that holds how far a full catalogue mapping run got: the id of the last association handled, in the descending
+ * id order associations are mapped in, and the ids of the associations whose mapping failed so far.
+ */
+public class MappingCheckpoint {
+
+    private Long lastAssociationId;
+
+    private SortedSet<Long> failedAssociationIds = new TreeSet<>();
+
+    public MappingCheckpoint() {
+    }
+
+    public Long getLastAssociationId() {
+        return lastAssociationId;
+    }
+
+    public void setLastAssociationId(Long lastAssociationId) {
+        this.lastAssociationId = lastAssociationId;
+    }
+
+    public SortedSet<Long> getFailedAssociationIds() {
+        return failedAssociationIds;
+    }
+
+    public void setFailedAssociationIds(SortedSet<Long> failedAssociationIds) {
+        this.failedAssociationIds = failedAssociationIds;
+    }
+}
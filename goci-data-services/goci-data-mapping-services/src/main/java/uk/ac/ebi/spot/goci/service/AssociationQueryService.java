@@ -8,7 +8,10 @@ import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.repository.AssociationRepository;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Created by emma on 14/08/2015.
@@ -27,6 +30,9 @@ import java.util.Collection;
 @Service
 public class AssociationQueryService {
 
+    // Stays below the Oracle limit of 1000 expressions in an IN list
+    private static final int FIND_CHUNK_SIZE = 1000;
+
     // Repositories
     private AssociationRepository associationRepository;
 
@@ -72,6 +78,32 @@ public class AssociationQueryService {
     }
 
 
+    /**
+     * Find the associations still to map when resuming a mapping of all associations, which goes by descending id
+     *
+     * @param lastAssociationId id of the last association already mapped
+     */
+    @Transactional(readOnly = true)
+    public Collection<Association> findAllAssociationsAfter(Long lastAssociationId) {
+        Collection<Association> allAssociations =
+                associationRepository.findByIdLessThan(lastAssociationId, sortByIdDesc());
+        allAssociations.forEach(this::loadAssociatedData);
+        return allAssociations;
+    }
+
+    @Transactional(readOnly = true)
+    public Collection<Association> findAssociations(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<Association> associations = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i += FIND_CHUNK_SIZE) {
+            associations.addAll(associationRepository.findAll(
+                    idList.subList(i, Math.min(i + FIND_CHUNK_SIZE, idList.size()))));
+        }
+        associations.sort(Comparator.comparing(Association::getId).reversed());
+        associations.forEach(this::loadAssociatedData);
+        return associations;
+    }
+
     @Transactional(readOnly = true)
     public Collection<Association> findAssociationAssociationData(Collection<Association> allAssociations) {
         allAssociations.forEach(this::loadAssociatedData);
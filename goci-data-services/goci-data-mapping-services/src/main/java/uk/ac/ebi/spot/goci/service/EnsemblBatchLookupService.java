@@ -0,0 +1,74 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.component.EnsemblMappingPipeline;
+import uk.ac.ebi.spot.goci.service.EnsemblIdentifierLookupService.Lookup;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Service that looks up a whole batch of rsIDs and reported genes with {@link EnsemblIdentifierLookupService} before
+ * the mapping pipeline runs.
+ * <p>
+ * Results are stored in the REST call history under the same type and parameter the pipeline uses for its single GET
+ * calls ("snp"/rsID and "lookup_symbol"/gene), so the pipeline then finds them there. Ids Ensembl does not return are
+ * left for the pipeline to query one by one.
+ */
+@Service
+public class EnsemblBatchLookupService {
+
+    private EnsemblIdentifierLookupService ensemblIdentifierLookupService;
+    private EnsemblRestcallHistoryService ensemblRestcallHistoryService;
+    private EnsemblMappingPipeline ensemblMappingPipeline;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @Autowired
+    public EnsemblBatchLookupService(EnsemblIdentifierLookupService ensemblIdentifierLookupService,
+                                     EnsemblRestcallHistoryService ensemblRestcallHistoryService,
+                                     EnsemblMappingPipeline ensemblMappingPipeline) {
+        this.ensemblIdentifierLookupService = ensemblIdentifierLookupService;
+        this.ensemblRestcallHistoryService = ensemblRestcallHistoryService;
+        this.ensemblMappingPipeline = ensemblMappingPipeline;
+    }
+
+    /**
+     * Load the stored results every SNP mapping repeats, i.e. the chromosome lengths, once for the whole mapping run
+     *
+     * @param eRelease Ensembl release
+     */
+    public void warmUp(String eRelease) {
+        ensemblRestcallHistoryService.prefetchAll("info_assembly", eRelease);
+    }
+
+    /**
+     * Look up all rsIDs and reported genes of a batch of associations
+     *
+     * @param rsIds         rsIDs about to be mapped
+     * @param reportedGenes author reported genes about to be checked
+     * @param eRelease      Ensembl release
+     */
+    public void lookup(Collection<String> rsIds, Collection<String> reportedGenes, String eRelease) {
+        // Same normalisation as EnsemblMappingPipeline.checkReportedGenes
+        Set<String> genes = new LinkedHashSet<>();
+        for (String reportedGene : reportedGenes) {
+            String gene = reportedGene.replaceAll(" ", "");
+            if (!ensemblMappingPipeline.getReportedGenesToIgnore().contains(gene)) {
+                genes.add(gene);
+            }
+        }
+
+        ensemblIdentifierLookupService.lookup(eRelease,
+                                              new Lookup("variation", "snp", rsIds, null),
+                                              new Lookup("lookup_symbol", "lookup_symbol", genes, null));
+    }
+}
@@ -38,16 +38,9 @@ public class EnsemblRestService {
     @NotNull @Value("${ensembl.server}")
     private String server;
 
-    @NotNull @Value("${mapping.requestPerSecond}")
-    private Integer requestPerSecond;
+    private EnsemblRateLimiter ensemblRateLimiter;
 
-    @NotNull @Value("${mapping.requestCount}")
-    private Integer requestCount;
-
-    @NotNull @Value("${mapping.maxSleepTime}")
-    private Integer maxSleepTime;
-
-    private long limitStartTime = System.currentTimeMillis();
+    private EnsemblLatencyHistogram ensemblLatencyHistogram;
 
     private Hashtable<String, String> endpoints = new Hashtable<String, String>();
 
@@ -57,6 +50,13 @@ public class EnsemblRestService {
         return log;
     }
 
+    @Autowired
+    public EnsemblRestService(EnsemblRateLimiter ensemblRateLimiter,
+                              EnsemblLatencyHistogram ensemblLatencyHistogram) {
+        this.ensemblRateLimiter = ensemblRateLimiter;
+        this.ensemblLatencyHistogram = ensemblLatencyHistogram;
+    }
+
     @PostConstruct
     public void init() {
         // Set proxy
@@ -116,8 +116,6 @@ public class EnsemblRestService {
         RestResponseResult restResponseResult = new RestResponseResult();
 
         try {
-            rateLimit();
-
             // Build URL
             if (!Objects.equals(rest_parameters, "")) {
                 Matcher matcher = Pattern.compile("^\\?").matcher(rest_parameters);
@@ -164,21 +162,27 @@ public class EnsemblRestService {
             tries++;
 
             try {
+                ensemblRateLimiter.acquire();
                 getLog().trace("Querying URL: " + url);
+                long start = System.nanoTime();
                 HttpResponse<JsonNode> response = Unirest.get(url)
                         .header("Content-Type", "application/json")
                         .asJson();
+                ensemblLatencyHistogram.record(System.nanoTime() - start);
                 String retryHeader = response.getHeaders().getFirst("Retry-After");
                 getLog().trace("URL response: " + response.getStatus());
 
+                // Adapts the shared rate, and holds back all clients on Retry-After
+                ensemblRateLimiter.update(response.getHeaders());
+
 
                 if (response.getStatus() == 200) { // Success
                     success = true;
                     //restResponseResult.setRestResult(response.getBody());
                 }
                 else if (response.getStatus() == 429 && retryHeader != null) { // Too Many Requests
-                    Long waitSeconds = Long.valueOf(retryHeader);
-                    Thread.sleep(waitSeconds * 1000);
+                    // The limiter makes the next attempt wait for Retry-After
+                    getLog().debug("Too many requests, retrying " + url + " after " + retryHeader + "s");
                 }
                 else {
 
@@ -216,6 +220,7 @@ public class EnsemblRestService {
                 getLog().error(
                         "Caught exception from Ensembl Rest call, this call will be retried after " + wait + "s.", e);
                 Thread.sleep(wait * 1000);
+                wait = wait * 2;
             }
         }
 
@@ -230,30 +235,6 @@ public class EnsemblRestService {
     }
 
 
-    /**
-     * Check if the program reached the rate limit of calls per second
-     *
-     * @throws InterruptedException
-     */
-    private void rateLimit() throws InterruptedException {
-
-        requestCount = getRequestCount();
-        requestCount++;
-
-        if (requestCount == getRequestPerSecond()) {
-            long currentTime = System.currentTimeMillis();
-            long diff = currentTime - getLimitStartTime();
-            //if less than a second has passed then sleep for the remainder of the second
-            if (diff < getMaxSleepTime()) {
-                Thread.sleep(getMaxSleepTime() - diff);
-            }
-
-            //reset
-            setLimitStartTime(System.currentTimeMillis());
-            setRequestCount(0);
-        }
-    }
-
     public Hashtable<String, String> getEndpoints() {
         return endpoints;
     }
@@ -270,28 +251,4 @@ public class EnsemblRestService {
         this.server = server;
     }
 
-    public int getRequestPerSecond() {
-        return requestPerSecond;
-    }
-
-    public int getRequestCount() {
-        return requestCount;
-    }
-
-    public void setRequestCount(int requestCount) {
-        this.requestCount = requestCount;
-    }
-
-    public long getLimitStartTime() {
-        return limitStartTime;
-    }
-
-    public void setLimitStartTime(long limitStartTime) {
-        this.limitStartTime = limitStartTime;
-    }
-
-    public int getMaxSleepTime() {
-        return maxSleepTime;
-    }
-
 }
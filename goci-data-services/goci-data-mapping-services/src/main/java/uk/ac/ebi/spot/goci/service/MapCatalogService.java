@@ -7,9 +7,11 @@ import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.exception.EnsemblMappingException;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.AssociationReport;
+import uk.ac.ebi.spot.goci.model.MappingCheckpoint;
 import uk.ac.ebi.spot.goci.repository.AssociationReportRepository;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Created by emma on 05/02/2016.
@@ -27,6 +29,7 @@ public class MapCatalogService {
     private AssociationQueryService associationService;
     private MappingErrorComparisonService mappingErrorComparisonService;
     private MappingService mappingService;
+    private MappingCheckpointService mappingCheckpointService;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -38,15 +41,17 @@ public class MapCatalogService {
     public MapCatalogService(AssociationReportRepository associationReportRepository,
                              AssociationQueryService associationService,
                              MappingErrorComparisonService mappingErrorComparisonService,
-                             MappingService mappingService) {
+                             MappingService mappingService,
+                             MappingCheckpointService mappingCheckpointService) {
         this.associationReportRepository = associationReportRepository;
         this.associationService = associationService;
         this.mappingErrorComparisonService = mappingErrorComparisonService;
         this.mappingService = mappingService;
+        this.mappingCheckpointService = mappingCheckpointService;
     }
 
     /**
-     * Get all associations in database and map
+     * Get all associations in database and map, starting a new checkpoint (see {@link MappingCheckpointService})
      *
      * @param performer name of curator/job carrying out the mapping
      */
@@ -58,8 +63,11 @@ public class MapCatalogService {
         // Get all associations via service
         Collection<Association> associations = associationService.findAllAssociations();
         getLog().info("Mapping all associations in database, total number: " + associations.size());
+        MappingCheckpoint checkpoint = new MappingCheckpoint();
+        mappingCheckpointService.save(checkpoint);
         try {
-            mappingService.validateAndMapAllAssociations(associations, performer);
+            mappingService.validateAndMapAllAssociations(
+                    associations, performer, (batch, failed) -> recordBatch(checkpoint, batch, failed, true));
         }
         catch (EnsemblMappingException e) {
             throw new EnsemblMappingException("Attempt to map all associations failed", e);
@@ -67,6 +75,68 @@ public class MapCatalogService {
         mappingErrorComparisonService.compareOldVersusNewErrors(oldAssociationReports, false,0,0);
     }
 
+    /**
+     * Carry on with a mapping of all associations that was interrupted, from its last checkpoint
+     *
+     * @param performer name of curator/job carrying out the mapping
+     */
+    public void resumeMapCatalogContents(String performer) throws EnsemblMappingException {
+        MappingCheckpoint checkpoint = mappingCheckpointService.load();
+        if (checkpoint.getLastAssociationId() == null) {
+            getLog().info("No mapping checkpoint found, mapping all associations");
+            mapCatalogContents(performer);
+            return;
+        }
+
+        Collection<Association> associations =
+                associationService.findAllAssociationsAfter(checkpoint.getLastAssociationId());
+        getLog().info("Resuming mapping after association " + checkpoint.getLastAssociationId() +
+                              ", number left: " + associations.size());
+        try {
+            mappingService.validateAndMapAllAssociations(
+                    associations, performer, (batch, failed) -> recordBatch(checkpoint, batch, failed, true));
+        }
+        catch (EnsemblMappingException e) {
+            throw new EnsemblMappingException("Attempt to map all associations failed", e);
+        }
+    }
+
+    /**
+     * Map again the associations that failed in the run recorded by the last checkpoint. Those that fail again stay
+     * in the checkpoint for a later retry.
+     *
+     * @param performer name of curator/job carrying out the mapping
+     */
+    public void retryFailedAssociations(String performer) throws EnsemblMappingException {
+        MappingCheckpoint checkpoint = mappingCheckpointService.load();
+        Collection<Association> associations =
+                associationService.findAssociations(checkpoint.getFailedAssociationIds());
+        getLog().info("Retrying mapping of failed associations, total number: " + associations.size());
+
+        // Associations deleted since the failure are not retried
+        checkpoint.getFailedAssociationIds().clear();
+        associations.forEach(association -> checkpoint.getFailedAssociationIds().add(association.getId()));
+        try {
+            mappingService.validateAndMapAllAssociations(
+                    associations, performer, (batch, failed) -> recordBatch(checkpoint, batch, failed, false));
+        }
+        catch (EnsemblMappingException e) {
+            throw new EnsemblMappingException("Attempt to map failed associations failed", e);
+        }
+    }
+
+    private void recordBatch(MappingCheckpoint checkpoint,
+                             List<Association> batch,
+                             List<Long> failed,
+                             boolean advance) {
+        batch.forEach(association -> checkpoint.getFailedAssociationIds().remove(association.getId()));
+        checkpoint.getFailedAssociationIds().addAll(failed);
+        if (advance) {
+            checkpoint.setLastAssociationId(batch.get(batch.size() - 1).getId());
+        }
+        mappingCheckpointService.save(checkpoint);
+    }
+
     public void mapCatalogContentsNight(String performer) throws EnsemblMappingException {
         Collection<Association> associations = associationService.findAssociationToMap();
         getLog().info("Mapping all associations in database, total number: " + associations.size());
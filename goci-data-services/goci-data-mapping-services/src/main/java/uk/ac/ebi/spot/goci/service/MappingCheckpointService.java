@@ -0,0 +1,97 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.model.MappingCheckpoint;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Service that keeps the {@link MappingCheckpoint} of the full catalogue mapping in the file set with
+ * "mapping.checkpoint.file", so an interrupted run can be resumed and its failed associations retried.
+ * <p>
+ * The file is replaced atomically, see {@link CheckpointFile}. Without a file set, checkpoints are neither saved nor
+ * loaded.
+ */
+@Service
+public class MappingCheckpointService {
+
+    private static final String LAST_ASSOCIATION_ID = "lastAssociationId";
+
+    private static final String FAILED_ASSOCIATION_IDS = "failedAssociationIds";
+
+    @Value("${mapping.checkpoint.file:}")
+    private String file;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public boolean isEnabled() {
+        return file != null && !file.isEmpty();
+    }
+
+    /**
+     * @return the saved checkpoint, or an empty one if there is none
+     */
+    public MappingCheckpoint load() {
+        MappingCheckpoint checkpoint = new MappingCheckpoint();
+        if (!isEnabled()) {
+            return checkpoint;
+        }
+
+        Properties properties;
+        try {
+            properties = new CheckpointFile(file).load();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to read mapping checkpoint " + file, e);
+        }
+        if (properties == null) {
+            return checkpoint;
+        }
+
+        String lastAssociationId = properties.getProperty(LAST_ASSOCIATION_ID, "");
+        if (!lastAssociationId.isEmpty()) {
+            checkpoint.setLastAssociationId(Long.valueOf(lastAssociationId));
+        }
+        for (String id : properties.getProperty(FAILED_ASSOCIATION_IDS, "").split(",")) {
+            if (!id.trim().isEmpty()) {
+                checkpoint.getFailedAssociationIds().add(Long.valueOf(id.trim()));
+            }
+        }
+        getLog().info("Loaded mapping checkpoint: last association " + checkpoint.getLastAssociationId() + ", " +
+                              checkpoint.getFailedAssociationIds().size() + " failed");
+        return checkpoint;
+    }
+
+    public void save(MappingCheckpoint checkpoint) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(LAST_ASSOCIATION_ID,
+                               checkpoint.getLastAssociationId() != null ?
+                                       checkpoint.getLastAssociationId().toString() : "");
+        properties.setProperty(FAILED_ASSOCIATION_IDS,
+                               checkpoint.getFailedAssociationIds()
+                                       .stream()
+                                       .map(String::valueOf)
+                                       .collect(Collectors.joining(",")));
+
+        try {
+            new CheckpointFile(file).save(properties, "Mapping checkpoint");
+        }
+        catch (IOException e) {
+            // Losing a checkpoint only means redoing some work on resume, carry on mapping
+            getLog().error("Unable to save mapping checkpoint " + file, e);
+        }
+    }
+}
@@ -4,10 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import uk.ac.ebi.spot.goci.component.EnsemblMappingPipeline;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.ac.ebi.spot.goci.component.EnsemblMappingExecutor;
 import uk.ac.ebi.spot.goci.component.EnsemblRelease;
+import uk.ac.ebi.spot.goci.component.MappingProgressMonitor;
 import uk.ac.ebi.spot.goci.exception.EnsemblMappingException;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.EnsemblMappingResult;
@@ -22,6 +26,9 @@ import uk.ac.ebi.spot.goci.repository.SecureUserRepository;
 import uk.ac.ebi.spot.goci.repository.SingleNucleotidePolymorphismRepository;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
 /**
  * Created by emma on 13/08/2015.
@@ -33,6 +40,12 @@ import java.util.*;
 @Service
 public class MappingService {
 
+    @Value("${mapping.batch_size:100}")
+    private int batchSize;
+
+    @Value("${mapping.commit_interval:50}")
+    private int commitInterval;
+
     private SingleNucleotidePolymorphismRepository singleNucleotidePolymorphismRepository;
 
     // Services
@@ -41,11 +54,13 @@ public class MappingService {
     private AssociationReportService associationReportService;
     private MappingRecordService mappingRecordService;
     private SingleNucleotidePolymorphismQueryService singleNucleotidePolymorphismQueryService;
-    private EnsemblMappingPipeline ensemblMappingPipeline;
+    private EnsemblMappingExecutor ensemblMappingExecutor;
+    private EnsemblBatchLookupService ensemblBatchLookupService;
     private TrackingOperationService trackingOperationService;
     private SecureUserRepository secureUserRepository;
     private EnsemblRelease ensemblRelease;
-
+    private MappingProgressMonitor mappingProgressMonitor;
+    private TransactionTemplate transactionTemplate;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -60,20 +75,26 @@ public class MappingService {
                           AssociationReportService associationReportService,
                           MappingRecordService mappingRecordService,
                           SingleNucleotidePolymorphismQueryService singleNucleotidePolymorphismQueryService,
-                          EnsemblMappingPipeline ensemblMappingPipeline,
+                          EnsemblMappingExecutor ensemblMappingExecutor,
+                          EnsemblBatchLookupService ensemblBatchLookupService,
                           @Qualifier("associationTrackingOperationServiceImpl") TrackingOperationService trackingOperationService,
                           SecureUserRepository secureUserRepository,
-                          EnsemblRelease ensemblRelease) {
+                          EnsemblRelease ensemblRelease,
+                          MappingProgressMonitor mappingProgressMonitor,
+                          PlatformTransactionManager transactionManager) {
         this.singleNucleotidePolymorphismRepository = singleNucleotidePolymorphismRepository;
         this.snpLocationMappingService = snpLocationMappingService;
         this.snpGenomicContextMappingService = snpGenomicContextMappingService;
         this.associationReportService = associationReportService;
         this.mappingRecordService = mappingRecordService;
         this.singleNucleotidePolymorphismQueryService = singleNucleotidePolymorphismQueryService;
-        this.ensemblMappingPipeline = ensemblMappingPipeline;
+        this.ensemblMappingExecutor = ensemblMappingExecutor;
+        this.ensemblBatchLookupService = ensemblBatchLookupService;
         this.trackingOperationService = trackingOperationService;
         this.secureUserRepository = secureUserRepository;
         this.ensemblRelease = ensemblRelease;
+        this.mappingProgressMonitor = mappingProgressMonitor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
@@ -119,55 +140,152 @@ public class MappingService {
 
     /**
      * Perform validation and mapping of all database associations
+     * <p>
+     * Associations are handled in batches of "mapping.batch_size", in two stages. In the compute stage the rsIDs and
+     * reported genes of a whole batch are looked up with batched Ensembl calls and its SNPs are queued on the {@link
+     * EnsemblMappingExecutor}. In the persistence stage the results are stored on the calling thread, in one
+     * transaction per "mapping.commit_interval" associations. The next batch is queued before the previous one is
+     * stored, so mapping and database writes overlap. Progress is reported by the {@link MappingProgressMonitor}.
      *
      * @param associations Collection of associations to map
      * @param performer    name of curator/job carrying out the mapping
      */
     public void validateAndMapAllAssociations(Collection<Association> associations, String performer)
             throws EnsemblMappingException {
+        validateAndMapAllAssociations(associations, performer, (batch, batchFailed) -> {});
+    }
+
+    /**
+     * Perform validation and mapping of all database associations, reporting each stored batch
+     * <p>
+     * See {@link #validateAndMapAllAssociations(Collection, String)}
+     *
+     * @param associations  Collection of associations to map
+     * @param performer     name of curator/job carrying out the mapping
+     * @param onBatchStored called once each batch is stored, with its associations in mapping order and the ids of
+     *                      those that failed, e.g. to checkpoint the run
+     */
+    public void validateAndMapAllAssociations(Collection<Association> associations,
+                                              String performer,
+                                              BiConsumer<List<Association>, List<Long>> onBatchStored)
+            throws EnsemblMappingException {
 
         // Default mapping user
         SecureUser user = secureUserRepository.findByEmail("automatic_mapping_process");
         String eRelease = this.getEnsemblRelease();
-        int totalAssociationDone=1;
         List<Long> associationsFailed = new ArrayList<Long>();
-            for (Association association : associations) {
-                try {
-
-                    getLog().debug("Start doMapping Association nr:" + String.valueOf(totalAssociationDone));
-                    doMapping(association, eRelease);
-
-                    // Update mapping event
-                    trackingOperationService.update(association, user, "ASSOCIATION_MAPPING");
-
-                    // Once mapping is complete, update mapping record
-                    getLog().debug("Update mapping record");
-                    mappingRecordService.updateAssociationMappingRecord(association, new Date(), performer);
-                    totalAssociationDone = totalAssociationDone + 1;
-                } catch (EnsemblMappingException e) {
-                    //throw new EnsemblMappingException("Attempt to map all associations failed", e);
-                    associationsFailed.add(association.getId());
+        ensemblBatchLookupService.warmUp(eRelease);
+        mappingProgressMonitor.start(associations.size());
+
+        Map<Association, List<PendingSnpMapping>> previousBatch = Collections.emptyMap();
+        Iterator<Association> associationIterator = associations.iterator();
+        while (associationIterator.hasNext()) {
+
+            // Collect the SNPs of the next batch of associations
+            Map<Association, List<PendingSnpMapping>> batch = new LinkedHashMap<>();
+            while (associationIterator.hasNext() && batch.size() < batchSize) {
+                Association association = associationIterator.next();
+                batch.put(association, collectSnpMappings(association));
+            }
 
+            // Look up all of their rsIDs and reported genes at once, then queue them
+            Collection<String> batchRsIds = new ArrayList<>();
+            Collection<String> batchReportedGenes = new ArrayList<>();
+            for (List<PendingSnpMapping> pendingSnpMappings : batch.values()) {
+                for (PendingSnpMapping pendingSnpMapping : pendingSnpMappings) {
+                    batchRsIds.add(pendingSnpMapping.getSnp().getRsId());
+                    batchReportedGenes.addAll(pendingSnpMapping.getReportedGenes());
                 }
             }
+            ensemblBatchLookupService.lookup(batchRsIds, batchReportedGenes, eRelease);
+            batch.values().forEach(pendingSnpMappings -> submitMapping(pendingSnpMappings, eRelease));
+
+            associationsFailed.addAll(storeBatch(previousBatch, user, performer, onBatchStored));
+            previousBatch = batch;
+        }
+        associationsFailed.addAll(storeBatch(previousBatch, user, performer, onBatchStored));
+        mappingProgressMonitor.finish();
+
         getLog().debug("Number of associations FAILED");
         getLog().debug(String.valueOf(associationsFailed.size()));
     }
 
-    private void doMapping(Association association, String eRelease) throws EnsemblMappingException {
+    /**
+     * Wait for the mapping of a batch of associations and store it, committing every "mapping.commit_interval"
+     * associations. Associations whose mapping failed, or whose commit failed, are left as they were in the database.
+     *
+     * @return the ids of the failed associations
+     */
+    private List<Long> storeBatch(Map<Association, List<PendingSnpMapping>> batch,
+                                  SecureUser user,
+                                  String performer,
+                                  BiConsumer<List<Association>, List<Long>> onBatchStored) {
+
+        List<Long> associationsFailed = new ArrayList<>();
+        if (batch.isEmpty()) {
+            return associationsFailed;
+        }
 
-        getLog().info("Mapping association: " + association.getId());
+        Map<Association, List<PendingSnpMapping>> mapped = new LinkedHashMap<>();
+        for (Map.Entry<Association, List<PendingSnpMapping>> pending : batch.entrySet()) {
+            try {
+                awaitMapping(pending.getKey(), pending.getValue());
+                mapped.put(pending.getKey(), pending.getValue());
+            }
+            catch (EnsemblMappingException e) {
+                associationsFailed.add(pending.getKey().getId());
+            }
+        }
 
-        // Map to store returned location data, this is used in
-        // snpLocationMappingService to process all locations linked
-        // to a single snp in one go
-        Map<String, Set<Location>> snpToLocationsMap = new HashMap<>();
+        List<Association> toStore = new ArrayList<>(mapped.keySet());
+        int interval = Math.max(1, commitInterval);
+        for (int i = 0; i < toStore.size(); i += interval) {
+            Map<Association, List<PendingSnpMapping>> chunk = new LinkedHashMap<>();
+            for (Association association : toStore.subList(i, Math.min(i + interval, toStore.size()))) {
+                chunk.put(association, mapped.get(association));
+            }
 
-        // Collection to store all genomic contexts
-        Collection<GenomicContext> allGenomicContexts = new ArrayList<>();
+            try {
+                transactionTemplate.execute(status -> {
+                    storeMappings(chunk);
+                    for (Association association : chunk.keySet()) {
+                        // Update mapping event
+                        trackingOperationService.update(association, user, "ASSOCIATION_MAPPING");
 
-        // Collection to store all errors for one association
-        Collection<String> associationPipelineErrors = new ArrayList<>();
+                        // Once mapping is complete, update mapping record
+                        getLog().debug("Update mapping record");
+                        mappingRecordService.updateAssociationMappingRecord(association, new Date(), performer);
+                    }
+                    return null;
+                });
+            }
+            catch (RuntimeException e) {
+                getLog().error("Storing the mapping of " + chunk.size() + " associations failed, rolled back", e);
+                chunk.keySet().forEach(association -> associationsFailed.add(association.getId()));
+            }
+        }
+
+        mappingProgressMonitor.advance(batch.size(), associationsFailed.size());
+        onBatchStored.accept(new ArrayList<>(batch.keySet()), associationsFailed);
+        return associationsFailed;
+    }
+
+    private void doMapping(Association association, String eRelease) throws EnsemblMappingException {
+        List<PendingSnpMapping> pendingSnpMappings = collectSnpMappings(association);
+        submitMapping(pendingSnpMappings, eRelease);
+        awaitMapping(association, pendingSnpMappings);
+        storeMappings(Collections.singletonMap(association, pendingSnpMappings));
+    }
+
+    /**
+     * Get all SNPs of an association with the author reported genes of their locus
+     *
+     * @param association Association to map
+     * @return the SNPs to map, in locus order
+     */
+    private List<PendingSnpMapping> collectSnpMappings(Association association) {
+
+        List<PendingSnpMapping> pendingSnpMappings = new ArrayList<>();
 
         // For each loci get the SNP and author reported genes
         Collection<Locus> studyAssociationLoci = association.getLoci();
@@ -185,102 +303,108 @@ public class MappingService {
                 authorReportedGeneNamesLinkedToSnp.add(authorReportedGeneLinkedToSnp.getGeneName().trim());
             }
 
-            // Pass rs_id and author reported genes to mapping component
             for (SingleNucleotidePolymorphism snpLinkedToLocus : snpsLinkedToLocus) {
+                pendingSnpMappings.add(new PendingSnpMapping(snpLinkedToLocus, authorReportedGeneNamesLinkedToSnp));
+            }
+        }
+        return pendingSnpMappings;
+    }
 
-                String snpRsId = snpLinkedToLocus.getRsId();
-                EnsemblMappingResult ensemblMappingResult = new EnsemblMappingResult();
-
-                // Try to map supplied data
-                try {
-                    getLog().debug("Running mapping....");
-                    ensemblMappingResult =
-                            ensemblMappingPipeline.run_pipeline(snpRsId, authorReportedGeneNamesLinkedToSnp, eRelease);
-                }
-                catch (Exception e) {
-                    getLog().error("Encountered a " + e.getClass().getSimpleName() +
-                                           " whilst trying to run mapping of SNP " + snpRsId +
-                                           ", found in association: " + association.getId(), e);
-                    throw new EnsemblMappingException();
-                }
+    /**
+     * Pass rs_id and author reported genes to mapping component
+     *
+     * @param pendingSnpMappings SNPs to map
+     * @param eRelease           Ensembl release
+     */
+    private void submitMapping(List<PendingSnpMapping> pendingSnpMappings, String eRelease) {
+        for (PendingSnpMapping pendingSnpMapping : pendingSnpMappings) {
+            getLog().debug("Running mapping....");
+            pendingSnpMapping.setResult(ensemblMappingExecutor.submit(pendingSnpMapping.getSnp().getRsId(),
+                                                                      pendingSnpMapping.getReportedGenes(),
+                                                                      eRelease));
+        }
+    }
 
-                getLog().debug("Mapping complete");
-                // First remove old locations and genomic contexts
-                snpLocationMappingService.removeExistingSnpLocations(snpLinkedToLocus);
-                snpGenomicContextMappingService.removeExistingGenomicContexts(snpLinkedToLocus);
-
-                Collection<Location> locations = ensemblMappingResult.getLocations();
-                Collection<GenomicContext> snpGenomicContexts = ensemblMappingResult.getGenomicContexts();
-                ArrayList<String> pipelineErrors = ensemblMappingResult.getPipelineErrors();
-
-                // Update functional class
-                snpLinkedToLocus.setFunctionalClass(ensemblMappingResult.getFunctionalClass());
-                snpLinkedToLocus.setLastUpdateDate(new Date());
-
-                snpLinkedToLocus.setMerged(Long.valueOf(ensemblMappingResult.getMerged()));
-
-                // Update the merge table
-                if (ensemblMappingResult.getMerged() == 1) {
-                    String currentSnpId = ensemblMappingResult.getCurrentSnpId();
-                    SingleNucleotidePolymorphism currentSnp =
-                            singleNucleotidePolymorphismRepository.findByRsId(currentSnpId);
-                    // Create a new entry in the SingleNucleotidePolymorphism SQL table for the current rsID
-                    // Add the current SingleNucleotidePolymorphism to the "merged" rsID
-                    if (currentSnp == null) {
-                        currentSnp = new SingleNucleotidePolymorphism();
-                        currentSnp.setRsId(currentSnpId);
-                        currentSnp.setFunctionalClass(snpLinkedToLocus.getFunctionalClass());
-                        singleNucleotidePolymorphismRepository.save(currentSnp);
-                        currentSnp = singleNucleotidePolymorphismRepository.findByRsId(currentSnpId);
-                    }
-                    snpLinkedToLocus.setCurrentSnp(currentSnp);
-                }
-                singleNucleotidePolymorphismRepository.save(snpLinkedToLocus);
-
-                // Store location information for SNP
-                if (!locations.isEmpty()) {
-                    for (Location location : locations) {
-
-                        // Next time we see SNP, add location to set
-                        // This would only occur is SNP has multiple locations
-                        if (snpToLocationsMap.containsKey(snpRsId)) {
-                            snpToLocationsMap.get(snpRsId).add(location);
-                        }
-
-                        // First time we see a SNP store the location
-                        else {
-                            Set<Location> snpLocation = new HashSet<>();
-                            snpLocation.add(location);
-                            snpToLocationsMap.put(snpRsId, snpLocation);
-                        }
-                    }
-                }
-                else {
-                    getLog().warn("Attempt to map SNP: " + snpRsId + " returned no location details");
-                    pipelineErrors.add("Attempt to map SNP: " + snpRsId + " returned no location details");
-                }
+    /**
+     * Wait for the mapping of all SNPs of an association
+     *
+     * @param association        Association being mapped
+     * @param pendingSnpMappings SNPs queued on the mapping executor
+     * @throws EnsemblMappingException if any of the SNPs could not be mapped
+     */
+    private void awaitMapping(Association association, List<PendingSnpMapping> pendingSnpMappings)
+            throws EnsemblMappingException {
 
-                // Store genomic context data for snp
-                if (!snpGenomicContexts.isEmpty()) {
-                    allGenomicContexts.addAll(snpGenomicContexts);
-                }
-                else {
-                    getLog().warn("Attempt to map SNP: " + snpRsId + " returned no mapped genes");
-                    pipelineErrors.add("Attempt to map SNP: " + snpRsId + " returned no mapped genes");
-                }
+        for (PendingSnpMapping pendingSnpMapping : pendingSnpMappings) {
+            String snpRsId = pendingSnpMapping.getSnp().getRsId();
+            try {
+                pendingSnpMapping.setMappingResult(pendingSnpMapping.getResult().get());
+            }
+            catch (ExecutionException e) {
+                getLog().error("Encountered a " + e.getCause().getClass().getSimpleName() +
+                                       " whilst trying to run mapping of SNP " + snpRsId +
+                                       ", found in association: " + association.getId(), e.getCause());
+                throw new EnsemblMappingException();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                getLog().error("Interrupted whilst waiting for mapping of SNP " + snpRsId +
+                                       ", found in association: " + association.getId(), e);
+                throw new EnsemblMappingException();
+            }
+        }
+        getLog().debug("Mapping complete");
+    }
 
-                if (!pipelineErrors.isEmpty()) {
-                    associationPipelineErrors.addAll(pipelineErrors);
-                }
+    /**
+     * Store the mapping of several associations. The old locations and genomic contexts of all their SNPs are removed
+     * up front with batch deletes, and old locations the new mapping did not link again are cleaned up at the end.
+     * Must run in a transaction for the Hibernate JDBC batching to group the writes.
+     * <p>
+     * The SNPs collected with the associations are detached copies, read before earlier chunks and batches were
+     * stored, so they may still hold genomic contexts and locations those have already replaced. Each rsID is
+     * therefore read again in this transaction, and its mapping stored once only on that copy, even if several
+     * associations share it.
+     *
+     * @param mappings Associations with the mapped SNPs
+     */
+    private void storeMappings(Map<Association, List<PendingSnpMapping>> mappings) {
+
+        Map<String, EnsemblMappingResult> snpMappings = new LinkedHashMap<>();
+        mappings.values().forEach(pendingSnpMappings -> pendingSnpMappings.forEach(
+                pendingSnpMapping -> snpMappings.putIfAbsent(pendingSnpMapping.getSnp().getRsId(),
+                                                             pendingSnpMapping.getMappingResult())));
+
+        Map<String, SingleNucleotidePolymorphism> snps = new LinkedHashMap<>();
+        for (String snpRsId : snpMappings.keySet()) {
+            SingleNucleotidePolymorphism snp = singleNucleotidePolymorphismRepository.findByRsId(snpRsId);
+            if (snp == null) {
+                getLog().error("Storing mapping of SNP not found in database, RS_ID:" + snpRsId);
+                throw new RuntimeException("Storing mapping of SNP not found in database, RS_ID: " + snpRsId);
             }
+            snps.put(snpRsId, snp);
         }
 
-        // Create association report based on whether there is errors or not
-        if (!associationPipelineErrors.isEmpty()) {
-            associationReportService.processAssociationErrors(association, associationPipelineErrors);
+        // First remove old locations and genomic contexts
+        Set<Long> oldLocationIds = new HashSet<>();
+        oldLocationIds.addAll(snpLocationMappingService.removeExistingSnpLocations(snps.values()));
+        oldLocationIds.addAll(snpGenomicContextMappingService.removeExistingGenomicContexts(snps.values()));
+
+        // Map to store returned location data, this is used in
+        // snpLocationMappingService to process all locations linked
+        // to a single snp in one go
+        Map<String, Set<Location>> snpToLocationsMap = new HashMap<>();
+
+        // Collection to store all genomic contexts
+        Collection<GenomicContext> allGenomicContexts = new ArrayList<>();
+
+        for (Map.Entry<String, EnsemblMappingResult> snpMapping : snpMappings.entrySet()) {
+            storeSnp(snps.get(snpMapping.getKey()), snpMapping.getValue(), snpToLocationsMap, allGenomicContexts);
         }
-        else {
-            associationReportService.updateAssociationReportDetails(association);
+
+        // Create association reports based on whether there are errors or not
+        for (Map.Entry<Association, List<PendingSnpMapping>> mapping : mappings.entrySet()) {
+            reportMapping(mapping.getKey(), mapping.getValue());
         }
 
         // Save data
@@ -294,5 +418,130 @@ public class MappingService {
             snpGenomicContextMappingService.processGenomicContext(allGenomicContexts);
             getLog().debug("Updating genomic context details complete");
         }
+
+        snpLocationMappingService.cleanUpLocations(oldLocationIds);
+    }
+
+    /**
+     * Save the mapped details of a SNP and collect its locations and genomic contexts for storing
+     *
+     * @param snpLinkedToLocus     the SNP, as read in the current transaction
+     * @param ensemblMappingResult its mapping
+     */
+    private void storeSnp(SingleNucleotidePolymorphism snpLinkedToLocus,
+                          EnsemblMappingResult ensemblMappingResult,
+                          Map<String, Set<Location>> snpToLocationsMap,
+                          Collection<GenomicContext> allGenomicContexts) {
+
+        String snpRsId = snpLinkedToLocus.getRsId();
+
+        // Update functional class
+        snpLinkedToLocus.setFunctionalClass(ensemblMappingResult.getFunctionalClass());
+        snpLinkedToLocus.setLastUpdateDate(new Date());
+
+        snpLinkedToLocus.setMerged(Long.valueOf(ensemblMappingResult.getMerged()));
+
+        // Update the merge table
+        if (ensemblMappingResult.getMerged() == 1) {
+            String currentSnpId = ensemblMappingResult.getCurrentSnpId();
+            SingleNucleotidePolymorphism currentSnp =
+                    singleNucleotidePolymorphismRepository.findByRsId(currentSnpId);
+            // Create a new entry in the SingleNucleotidePolymorphism SQL table for the current rsID
+            // Add the current SingleNucleotidePolymorphism to the "merged" rsID
+            if (currentSnp == null) {
+                currentSnp = new SingleNucleotidePolymorphism();
+                currentSnp.setRsId(currentSnpId);
+                currentSnp.setFunctionalClass(snpLinkedToLocus.getFunctionalClass());
+                currentSnp = singleNucleotidePolymorphismRepository.save(currentSnp);
+            }
+            snpLinkedToLocus.setCurrentSnp(currentSnp);
+        }
+        singleNucleotidePolymorphismRepository.save(snpLinkedToLocus);
+
+        // Store location information for SNP
+        Collection<Location> locations = ensemblMappingResult.getLocations();
+        if (!locations.isEmpty()) {
+            snpToLocationsMap.computeIfAbsent(snpRsId, rsId -> new HashSet<>()).addAll(locations);
+        }
+
+        // Store genomic context data for snp
+        allGenomicContexts.addAll(ensemblMappingResult.getGenomicContexts());
+    }
+
+    /**
+     * Update the mapping report of an association with the errors found mapping each of its SNPs
+     */
+    private void reportMapping(Association association, List<PendingSnpMapping> pendingSnpMappings) {
+
+        getLog().info("Mapping association: " + association.getId());
+
+        // Collection to store all errors for one association
+        Collection<String> associationPipelineErrors = new ArrayList<>();
+
+        for (PendingSnpMapping pendingSnpMapping : pendingSnpMappings) {
+            String snpRsId = pendingSnpMapping.getSnp().getRsId();
+            EnsemblMappingResult ensemblMappingResult = pendingSnpMapping.getMappingResult();
+
+            associationPipelineErrors.addAll(ensemblMappingResult.getPipelineErrors());
+            if (ensemblMappingResult.getLocations().isEmpty()) {
+                getLog().warn("Attempt to map SNP: " + snpRsId + " returned no location details");
+                associationPipelineErrors.add("Attempt to map SNP: " + snpRsId + " returned no location details");
+            }
+            if (ensemblMappingResult.getGenomicContexts().isEmpty()) {
+                getLog().warn("Attempt to map SNP: " + snpRsId + " returned no mapped genes");
+                associationPipelineErrors.add("Attempt to map SNP: " + snpRsId + " returned no mapped genes");
+            }
+        }
+
+        if (!associationPipelineErrors.isEmpty()) {
+            associationReportService.processAssociationErrors(association, associationPipelineErrors);
+        }
+        else {
+            associationReportService.updateAssociationReportDetails(association);
+        }
+    }
+
+    /**
+     * A SNP to map, the author reported genes of its locus and, once queued on the mapping executor, the future
+     * holding its mapping result and then the result itself
+     */
+    private static class PendingSnpMapping {
+
+        private final SingleNucleotidePolymorphism snp;
+
+        private final Collection<String> reportedGenes;
+
+        private Future<EnsemblMappingResult> result;
+
+        private EnsemblMappingResult mappingResult;
+
+        PendingSnpMapping(SingleNucleotidePolymorphism snp, Collection<String> reportedGenes) {
+            this.snp = snp;
+            this.reportedGenes = reportedGenes;
+        }
+
+        SingleNucleotidePolymorphism getSnp() {
+            return snp;
+        }
+
+        Collection<String> getReportedGenes() {
+            return reportedGenes;
+        }
+
+        Future<EnsemblMappingResult> getResult() {
+            return result;
+        }
+
+        void setResult(Future<EnsemblMappingResult> result) {
+            this.result = result;
+        }
+
+        EnsemblMappingResult getMappingResult() {
+            return mappingResult;
+        }
+
+        void setMappingResult(EnsemblMappingResult mappingResult) {
+            this.mappingResult = mappingResult;
+        }
     }
 }
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -40,6 +41,8 @@ import java.util.Set;
 @Service
 public class SnpGenomicContextMappingService {
 
+    private static final int DELETE_CHUNK_SIZE = 500;
+
     private SingleNucleotidePolymorphismRepository singleNucleotidePolymorphismRepository;
     private GeneRepository geneRepository;
     private GenomicContextRepository genomicContextRepository;
@@ -528,47 +531,46 @@ public class SnpGenomicContextMappingService {
     }
 
     /**
-     * Method to remove the existing genomic contexts linked to a SNP
+     * Method to remove the existing genomic contexts linked to SNPs, with one delete statement per
+     * {@value #DELETE_CHUNK_SIZE} genomic contexts. Locations left without SNPs or genomic contexts are not deleted
+     * here, see {@link SnpLocationMappingService#cleanUpLocations(Collection)}
      *
-     * @param snp SNP from which to remove the associated genomic contexts
+     * @param snps SNPs from which to remove the associated genomic contexts
+     * @return Ids of the locations of the removed genomic contexts
      */
-    public void removeExistingGenomicContexts(SingleNucleotidePolymorphism snp) {
+    public Set<Long> removeExistingGenomicContexts(Collection<SingleNucleotidePolymorphism> snps) {
+
+        Set<Long> oldSnpLocationIds = new HashSet<>();
+        Map<Long, GenomicContext> oldGenomicContexts = new LinkedHashMap<>();
+        Collection<SingleNucleotidePolymorphism> snpsToSave = new ArrayList<>();
 
-        // Get a list of locations currently genomic context
-        Collection<GenomicContext> snpGenomicContexts = snp.getGenomicContexts();
+        for (SingleNucleotidePolymorphism snp : snps) {
 
-        if (snpGenomicContexts != null && !snpGenomicContexts.isEmpty()) {
-            // Remove old genomic contexts, as these will be updated with latest mapping
-            snp.setGenomicContexts(new ArrayList<>());
-            singleNucleotidePolymorphismRepository.save(snp);
-            Set<Long> oldSnpLocationIds = new HashSet<>();
+            // Get a list of locations currently genomic context
+            Collection<GenomicContext> snpGenomicContexts = snp.getGenomicContexts();
 
-            for (GenomicContext snpGenomicContext : snpGenomicContexts) {
-                if (snpGenomicContext.getLocation() != null) {
-                    oldSnpLocationIds.add(snpGenomicContext.getLocation().getId());
+            if (snpGenomicContexts != null && !snpGenomicContexts.isEmpty()) {
+                for (GenomicContext snpGenomicContext : snpGenomicContexts) {
+                    if (snpGenomicContext.getLocation() != null) {
+                        oldSnpLocationIds.add(snpGenomicContext.getLocation().getId());
+                    }
+                    oldGenomicContexts.put(snpGenomicContext.getId(), snpGenomicContext);
                 }
-                genomicContextRepository.delete(snpGenomicContext);
-            }
 
-            for (Long oldSnpLocationId : oldSnpLocationIds) {
-                cleanUpLocations(oldSnpLocationId);
+                // Remove old genomic contexts, as these will be updated with latest mapping
+                snp.setGenomicContexts(new ArrayList<>());
+                snpsToSave.add(snp);
             }
-
         }
-    }
 
-    /**
-     * Method to remove any old locations that no longer have snps or genomic contexts linked to them
-     *
-     * @param id Id of location object
-     */
-    private void cleanUpLocations(Long id) {
-        List<SingleNucleotidePolymorphism> snps =
-                singleNucleotidePolymorphismRepository.findByLocationsId(id);
-        List<GenomicContext> genomicContexts = genomicContextRepository.findByLocationId(id);
+        if (!snpsToSave.isEmpty()) {
+            singleNucleotidePolymorphismRepository.save(snpsToSave);
+        }
 
-        if (snps.size() == 0 && genomicContexts.size() == 0) {
-            locationRepository.delete(id);
+        List<GenomicContext> toDelete = new ArrayList<>(oldGenomicContexts.values());
+        for (int i = 0; i < toDelete.size(); i += DELETE_CHUNK_SIZE) {
+            genomicContextRepository.deleteInBatch(toDelete.subList(i, Math.min(i + DELETE_CHUNK_SIZE, toDelete.size())));
         }
+        return oldSnpLocationIds;
     }
 }
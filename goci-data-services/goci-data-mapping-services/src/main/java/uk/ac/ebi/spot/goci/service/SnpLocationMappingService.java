@@ -29,6 +29,9 @@ import java.util.Set;
 @Service
 public class SnpLocationMappingService {
 
+    // Stays below the Oracle limit of 1000 expressions in an IN list
+    private static final int CLEAN_UP_CHUNK_SIZE = 500;
+
     // Repositories
     private LocationRepository locationRepository;
     private SingleNucleotidePolymorphismRepository singleNucleotidePolymorphismRepository;
@@ -142,46 +145,64 @@ public class SnpLocationMappingService {
     }
 
     /**
-     * Method to remove the existing locations linked to a SNP
+     * Method to remove the existing locations linked to SNPs. Locations left without SNPs or genomic contexts are not
+     * deleted here, as the mapping about to be stored may link them again, see {@link #cleanUpLocations(Collection)}
      *
-     * @param snp SNP from which to remove the associated locations
+     * @param snps SNPs from which to remove the associated locations
+     * @return Ids of the removed locations
      */
-    public void removeExistingSnpLocations(SingleNucleotidePolymorphism snp) {
+    public Set<Long> removeExistingSnpLocations(Collection<SingleNucleotidePolymorphism> snps) {
 
-        // Get a list of locations currently linked to SNP
-        Collection<Location> oldSnpLocations = snp.getLocations();
+        Set<Long> oldSnpLocationIds = new HashSet<>();
+        Collection<SingleNucleotidePolymorphism> snpsToSave = new ArrayList<>();
 
-        if (oldSnpLocations != null && !oldSnpLocations.isEmpty()) {
-            Set<Long> oldSnpLocationIds = new HashSet<>();
-            for (Location oldSnpLocation : oldSnpLocations) {
-                oldSnpLocationIds.add(oldSnpLocation.getId());
-            }
+        for (SingleNucleotidePolymorphism snp : snps) {
 
-            // Remove old locations
-            snp.setLocations(new ArrayList<>());
-            singleNucleotidePolymorphismRepository.save(snp);
+            // Get a list of locations currently linked to SNP
+            Collection<Location> oldSnpLocations = snp.getLocations();
 
-            // Clean-up old locations that were linked to SNP
-            if (oldSnpLocationIds.size() > 0) {
-                for (Long oldSnpLocationId : oldSnpLocationIds) {
-                    cleanUpLocations(oldSnpLocationId);
+            if (oldSnpLocations != null && !oldSnpLocations.isEmpty()) {
+                for (Location oldSnpLocation : oldSnpLocations) {
+                    oldSnpLocationIds.add(oldSnpLocation.getId());
                 }
+
+                // Remove old locations
+                snp.setLocations(new ArrayList<>());
+                snpsToSave.add(snp);
             }
         }
+
+        if (!snpsToSave.isEmpty()) {
+            singleNucleotidePolymorphismRepository.save(snpsToSave);
+        }
+        return oldSnpLocationIds;
     }
 
     /**
-     * Method to remove any old locations that no longer have snps or genomic contexts linked to them
+     * Method to remove any old locations that no longer have snps or genomic contexts linked to them. Locations are
+     * checked and deleted with one query of each kind per {@value #CLEAN_UP_CHUNK_SIZE} ids.
      *
-     * @param id Id of location object
+     * @param ids Ids of location objects
      */
-    private void cleanUpLocations(Long id) {
-        List<SingleNucleotidePolymorphism> snps =
-                singleNucleotidePolymorphismRepository.findByLocationsId(id);
-        List<GenomicContext> genomicContexts = genomicContextRepository.findByLocationId(id);
+    public void cleanUpLocations(Collection<Long> ids) {
+
+        List<Long> locationIds = new ArrayList<>(ids);
+        for (int i = 0; i < locationIds.size(); i += CLEAN_UP_CHUNK_SIZE) {
+            List<Long> chunk = locationIds.subList(i, Math.min(i + CLEAN_UP_CHUNK_SIZE, locationIds.size()));
 
-        if (snps.size() == 0 && genomicContexts.size() == 0) {
-            locationRepository.delete(id);
+            Set<Long> unusedLocationIds = new HashSet<>(chunk);
+            for (SingleNucleotidePolymorphism snp : singleNucleotidePolymorphismRepository.findByLocationsIdIn(chunk)) {
+                for (Location location : snp.getLocations()) {
+                    unusedLocationIds.remove(location.getId());
+                }
+            }
+            for (GenomicContext genomicContext : genomicContextRepository.findByLocationIdIn(chunk)) {
+                unusedLocationIds.remove(genomicContext.getLocation().getId());
+            }
+
+            if (!unusedLocationIds.isEmpty()) {
+                locationRepository.deleteInBatch(locationRepository.findAll(unusedLocationIds));
+            }
         }
     }
 
@@ -0,0 +1,119 @@
+package uk.ac.ebi.spot.goci.component;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.spot.goci.component.GeneIntervalTree.GeneAnnotation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GeneIntervalTreeTest {
+
+    private GeneIntervalTree tree;
+
+    @Before
+    public void setUp() {
+        // Given out of order, C overlaps the variant at 600 used for the upstream and downstream queries
+        tree = new GeneIntervalTree(Arrays.asList(new GeneAnnotation("D", "D", 800, 900),
+                                                  new GeneAnnotation("A", "A", 100, 200),
+                                                  new GeneAnnotation("E", "E", 1000, 1200),
+                                                  new GeneAnnotation("C", "C", 500, 700),
+                                                  new GeneAnnotation("B", "B", 300, 450)));
+    }
+
+    @Test
+    public void overlapIncludesBothBoundaries() {
+        assertThat(ids(tree.findOverlapping(100, 100))).containsExactly("A");
+        assertThat(ids(tree.findOverlapping(200, 200))).containsExactly("A");
+        assertThat(ids(tree.findOverlapping(50, 100))).containsExactly("A");
+        assertThat(ids(tree.findOverlapping(200, 300))).containsExactly("A", "B");
+        assertThat(ids(tree.findOverlapping(450, 500))).containsExactly("B", "C");
+
+        assertThat(tree.findOverlapping(99, 99)).isEmpty();
+        assertThat(tree.findOverlapping(201, 299)).isEmpty();
+        assertThat(tree.findOverlapping(1201, 5000)).isEmpty();
+    }
+
+    @Test
+    public void overlappingGenesAreSortedByStart() {
+        assertThat(ids(tree.findOverlapping(1, 2000))).containsExactly("A", "B", "C", "D", "E");
+        assertThat(ids(tree.findOverlapping(650, 850))).containsExactly("C", "D");
+    }
+
+    @Test
+    public void nearestUpstreamAndDownstreamGenesAreFound() {
+        // The pipeline queries the window on each side of the variant, and keeps the closest gene not overlapping it
+        assertThat(ids(tree.findOverlapping(200, 600))).containsExactly("A", "B", "C");
+        assertThat(nearestUpstream(600, 400)).isEqualTo("B");
+        assertThat(ids(tree.findOverlapping(600, 1000))).containsExactly("C", "D", "E");
+        assertThat(nearestDownstream(600, 400)).isEqualTo("D");
+
+        // Genes just reaching into the window
+        assertThat(nearestUpstream(600, 150)).isEqualTo("B");
+        assertThat(nearestDownstream(600, 200)).isEqualTo("D");
+
+        // No gene in the window
+        assertThat(nearestUpstream(600, 149)).isNull();
+        assertThat(nearestDownstream(600, 199)).isNull();
+        assertThat(nearestUpstream(50, 49)).isNull();
+        assertThat(nearestDownstream(1300, 1000)).isNull();
+    }
+
+    @Test
+    public void emptyChromosomeHasNoGenes() {
+        GeneIntervalTree empty = new GeneIntervalTree(Collections.emptyList());
+
+        assertThat(empty.size()).isEqualTo(0);
+        assertThat(empty.findOverlapping(1, Integer.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    public void overlapMatchesLinearScan() {
+        Random random = new Random(42);
+        List<GeneAnnotation> genes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(100000);
+            genes.add(new GeneAnnotation("G" + i, "G" + i, start, start + random.nextInt(5000)));
+        }
+        GeneIntervalTree randomTree = new GeneIntervalTree(genes);
+        assertThat(randomTree.size()).isEqualTo(500);
+
+        for (int query = 0; query < 200; query++) {
+            int start = random.nextInt(105000);
+            int end = start + random.nextInt(2000);
+            List<String> expected = genes.stream()
+                    .filter(gene -> gene.getStart() <= end && gene.getEnd() >= start)
+                    .map(GeneAnnotation::getId)
+                    .collect(Collectors.toList());
+            assertThat(ids(randomTree.findOverlapping(start, end))).containsOnly(expected.toArray(new String[0]));
+            assertThat(randomTree.findOverlapping(start, end)).hasSize(expected.size());
+        }
+    }
+
+    private String nearestUpstream(int position, int distance) {
+        return tree.findOverlapping(position - distance, position).stream()
+                .filter(gene -> gene.getEnd() < position)
+                .max(Comparator.comparingInt(GeneAnnotation::getEnd))
+                .map(GeneAnnotation::getId)
+                .orElse(null);
+    }
+
+    private String nearestDownstream(int position, int distance) {
+        return tree.findOverlapping(position, position + distance).stream()
+                .filter(gene -> gene.getStart() > position)
+                .min(Comparator.comparingInt(GeneAnnotation::getStart))
+                .map(GeneAnnotation::getId)
+                .orElse(null);
+    }
+
+    private static List<String> ids(List<GeneAnnotation> genes) {
+        return genes.stream().map(GeneAnnotation::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.ebi.spot.goci.component;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GenomeAnnotationIndexTest {
+
+    private static final String REFSEQ_REGION = "NC_000001.11\tRefSeq\tregion\t1\t248956422\t.\t+\t.\t" +
+            "ID=NC_000001.11:1..248956422;Dbxref=taxon:9606;Name=1;chromosome=1;gbkey=Src;genome=chromosome";
+
+    private static final String REFSEQ_REGION_2 = "NC_000002.12\tRefSeq\tregion\t1\t242193529\t.\t+\t.\t" +
+            "ID=NC_000002.12:1..242193529;Dbxref=taxon:9606;Name=2;chromosome=2;gbkey=Src;genome=chromosome";
+
+    private static final String REFSEQ_GENE = "NC_000001.11\tBestRefSeq\tpseudogene\t11874\t14409\t.\t+\t.\t" +
+            "ID=gene-DDX11L1;Dbxref=GeneID:100287102,HGNC:HGNC:37102;Name=DDX11L1;gbkey=Gene;gene=DDX11L1;" +
+            "gene_biotype=transcribed_pseudogene;pseudo=true";
+
+    private static final String ENSEMBL_GENE = "1\thavana\tncRNA_gene\t11869\t14409\t.\t+\t.\t" +
+            "ID=gene:ENSG00000223972;Name=DDX11L1;biotype=transcribed_unprocessed_pseudogene;" +
+            "gene_id=ENSG00000223972;logic_name=havana_homo_sapiens;version=5";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GenomeAnnotationIndex genomeAnnotationIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        File ensemblFile = folder.newFile("ensembl.gff3");
+        Files.write(ensemblFile.toPath(),
+                    Arrays.asList("##gff-version 3",
+                                  "##sequence-region   1 1 248956422",
+                                  "##sequence-region   X 1 156040895",
+                                  ENSEMBL_GENE),
+                    StandardCharsets.UTF_8);
+        File ncbiFile = folder.newFile("refseq.gff3");
+        Files.write(ncbiFile.toPath(),
+                    Arrays.asList("##gff-version 3", REFSEQ_REGION, REFSEQ_GENE, REFSEQ_REGION_2),
+                    StandardCharsets.UTF_8);
+
+        genomeAnnotationIndex = new GenomeAnnotationIndex();
+        ReflectionTestUtils.setField(genomeAnnotationIndex, "ensemblSource", "Ensembl");
+        ReflectionTestUtils.setField(genomeAnnotationIndex, "ncbiSource", "NCBI");
+        ReflectionTestUtils.setField(genomeAnnotationIndex, "ensemblFile", ensemblFile.getPath());
+        ReflectionTestUtils.setField(genomeAnnotationIndex, "ncbiFile", ncbiFile.getPath());
+        genomeAnnotationIndex.init();
+    }
+
+    @Test
+    public void refSeqGeneIsIdentifiedByGeneId() throws Exception {
+        JSONArray genes = genomeAnnotationIndex.getOverlappingGenes("NCBI", "1", 12000, 12001);
+
+        assertThat(genes.length()).isEqualTo(1);
+        JSONObject gene = genes.getJSONObject(0);
+        assertThat(gene.getString("id")).isEqualTo("100287102");
+        assertThat(gene.getString("external_name")).isEqualTo("DDX11L1");
+        assertThat(gene.getInt("start")).isEqualTo(11874);
+        assertThat(gene.getInt("end")).isEqualTo(14409);
+    }
+
+    @Test
+    public void ensemblGeneIsIdentifiedByStableId() throws Exception {
+        JSONArray genes = genomeAnnotationIndex.getOverlappingGenes("Ensembl", "1", 12000, 12001);
+
+        assertThat(genes.length()).isEqualTo(1);
+        JSONObject gene = genes.getJSONObject(0);
+        assertThat(gene.getString("id")).isEqualTo("ENSG00000223972");
+        assertThat(gene.getString("external_name")).isEqualTo("DDX11L1");
+        assertThat(gene.getInt("start")).isEqualTo(11869);
+    }
+
+    @Test
+    public void chromosomeLengthIsReadFromBothFormats() throws Exception {
+        // X is only declared by an Ensembl sequence-region header, 2 only by a RefSeq region line
+        assertThat(genomeAnnotationIndex.getChromosomeLength("1")).isEqualTo(248956422);
+        assertThat(genomeAnnotationIndex.getChromosomeLength("X")).isEqualTo(156040895);
+        assertThat(genomeAnnotationIndex.getChromosomeLength("2")).isEqualTo(242193529);
+        assertThat(genomeAnnotationIndex.getChromosomeLength("NC_000002.12")).isNull();
+        assertThat(genomeAnnotationIndex.getChromosomeLength("3")).isNull();
+    }
+
+    @Test
+    public void chromosomeWithoutGenesHasNoOverlappingGenes() throws Exception {
+        assertThat(genomeAnnotationIndex.getOverlappingGenes("NCBI", "2", 1, 242193529).length()).isEqualTo(0);
+        assertThat(genomeAnnotationIndex.getOverlappingGenes("Ensembl", "2", 1, 242193529).length()).isEqualTo(0);
+        assertThat(genomeAnnotationIndex.getOverlappingGenes("NCBI", "1", 1, 11873).length()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,68 @@
+package uk.ac.ebi.spot.goci.component;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.ac.ebi.spot.goci.service.EnsemblLatencyHistogram;
+import uk.ac.ebi.spot.goci.service.EnsemblRateLimiter;
+import uk.ac.ebi.spot.goci.service.EnsemblRestcallCache;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MappingProgressMonitorTest {
+
+    @Mock
+    private EnsemblRestcallCache ensemblRestcallCache;
+
+    @Mock
+    private EnsemblRateLimiter ensemblRateLimiter;
+
+    private EnsemblLatencyHistogram ensemblLatencyHistogram;
+
+    private MappingProgressMonitor mappingProgressMonitor;
+
+    @Before
+    public void setUp() {
+        ensemblLatencyHistogram = new EnsemblLatencyHistogram();
+        mappingProgressMonitor =
+                new MappingProgressMonitor(ensemblRestcallCache, ensemblLatencyHistogram, ensemblRateLimiter);
+    }
+
+    @Test
+    public void figuresOnlyCountCallsOfTheCurrentRun() {
+        // A previous run: slow requests and only cache misses
+        for (int i = 0; i < 100; i++) {
+            ensemblLatencyHistogram.record(TimeUnit.SECONDS.toNanos(10));
+        }
+        when(ensemblRestcallCache.getMemoryHits()).thenReturn(0L);
+        when(ensemblRestcallCache.getDiskHits()).thenReturn(0L);
+        when(ensemblRestcallCache.getMisses()).thenReturn(100L);
+
+        mappingProgressMonitor.start(10);
+        assertThat(mappingProgressMonitor.getLatencies().getCount()).isEqualTo(0);
+        assertThat(mappingProgressMonitor.getLatencies().getPercentile(50)).isEqualTo(0);
+        assertThat(mappingProgressMonitor.getHitRatio()).isEqualTo(0);
+
+        // This run: fast requests, three hits for one miss
+        for (int i = 0; i < 10; i++) {
+            ensemblLatencyHistogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        when(ensemblRestcallCache.getMemoryHits()).thenReturn(2L);
+        when(ensemblRestcallCache.getDiskHits()).thenReturn(1L);
+        when(ensemblRestcallCache.getMisses()).thenReturn(101L);
+
+        assertThat(mappingProgressMonitor.getLatencies().getCount()).isEqualTo(10);
+        assertThat(mappingProgressMonitor.getLatencies().getPercentile(99)).isEqualTo(1);
+        assertThat(mappingProgressMonitor.getHitRatio()).isEqualTo(0.75);
+
+        // The histogram itself still covers every request since startup
+        assertThat(ensemblLatencyHistogram.getCount()).isEqualTo(110);
+        assertThat(ensemblLatencyHistogram.getPercentile(99)).isGreaterThan(10000);
+    }
+}
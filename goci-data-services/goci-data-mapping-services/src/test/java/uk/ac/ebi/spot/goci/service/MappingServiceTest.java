@@ -0,0 +1,241 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.ac.ebi.spot.goci.component.EnsemblMappingExecutor;
+import uk.ac.ebi.spot.goci.component.EnsemblRelease;
+import uk.ac.ebi.spot.goci.component.MappingProgressMonitor;
+import uk.ac.ebi.spot.goci.model.Association;
+import uk.ac.ebi.spot.goci.model.EnsemblMappingResult;
+import uk.ac.ebi.spot.goci.model.GenomicContext;
+import uk.ac.ebi.spot.goci.model.Location;
+import uk.ac.ebi.spot.goci.model.Locus;
+import uk.ac.ebi.spot.goci.model.SingleNucleotidePolymorphism;
+import uk.ac.ebi.spot.goci.repository.SecureUserRepository;
+import uk.ac.ebi.spot.goci.repository.SingleNucleotidePolymorphismRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MappingServiceTest {
+
+    @Mock
+    private SingleNucleotidePolymorphismRepository singleNucleotidePolymorphismRepository;
+
+    @Mock
+    private SnpLocationMappingService snpLocationMappingService;
+
+    @Mock
+    private SnpGenomicContextMappingService snpGenomicContextMappingService;
+
+    @Mock
+    private AssociationReportService associationReportService;
+
+    @Mock
+    private MappingRecordService mappingRecordService;
+
+    @Mock
+    private SingleNucleotidePolymorphismQueryService singleNucleotidePolymorphismQueryService;
+
+    @Mock
+    private EnsemblMappingExecutor ensemblMappingExecutor;
+
+    @Mock
+    private EnsemblBatchLookupService ensemblBatchLookupService;
+
+    @Mock
+    private TrackingOperationService trackingOperationService;
+
+    @Mock
+    private SecureUserRepository secureUserRepository;
+
+    @Mock
+    private EnsemblRelease ensemblRelease;
+
+    @Mock
+    private MappingProgressMonitor mappingProgressMonitor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MappingService mappingService;
+
+    @Before
+    public void setUp() throws Exception {
+        mappingService = new MappingService(singleNucleotidePolymorphismRepository,
+                                            snpLocationMappingService,
+                                            snpGenomicContextMappingService,
+                                            associationReportService,
+                                            mappingRecordService,
+                                            singleNucleotidePolymorphismQueryService,
+                                            ensemblMappingExecutor,
+                                            ensemblBatchLookupService,
+                                            trackingOperationService,
+                                            secureUserRepository,
+                                            ensemblRelease,
+                                            mappingProgressMonitor,
+                                            transactionManager);
+        ReflectionTestUtils.setField(mappingService, "commitInterval", 50);
+        ReflectionTestUtils.setField(mappingService, "batchSize", 10);
+        when(ensemblRelease.getReleaseVersion()).thenReturn(88);
+    }
+
+    @Test
+    public void storeSnpSharedByAssociationsOfOneChunkOnce() throws Exception {
+        // Each association holds its own copy of the shared SNP
+        SingleNucleotidePolymorphism snpOfFirst = snp(1L, "rs123");
+        SingleNucleotidePolymorphism snpOfSecond = snp(1L, "rs123");
+        Association first = association(10L, 100L);
+        Association second = association(20L, 200L);
+        SingleNucleotidePolymorphism storedSnp = snp(1L, "rs123");
+        when(singleNucleotidePolymorphismRepository.findByRsId("rs123")).thenReturn(storedSnp);
+        when(singleNucleotidePolymorphismQueryService.findByRiskAllelesLociId(100L))
+                .thenReturn(Collections.singletonList(snpOfFirst));
+        when(singleNucleotidePolymorphismQueryService.findByRiskAllelesLociId(200L))
+                .thenReturn(Collections.singletonList(snpOfSecond));
+
+        Location location = new Location();
+        location.setChromosomeName("1");
+        location.setChromosomePosition(1000);
+        when(ensemblMappingExecutor.submit(eq("rs123"), anyCollectionOf(String.class), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(mappingResult(snpOfFirst, location)))
+                .thenReturn(CompletableFuture.completedFuture(mappingResult(snpOfSecond, location)));
+
+        mappingService.validateAndMapAllAssociations(Arrays.asList(first, second), "test");
+
+        verify(singleNucleotidePolymorphismRepository, times(1)).save(any(SingleNucleotidePolymorphism.class));
+        verify(singleNucleotidePolymorphismRepository).save(storedSnp);
+
+        ArgumentCaptor<Map> locations = ArgumentCaptor.forClass(Map.class);
+        verify(snpLocationMappingService, times(1)).storeSnpLocation(locations.capture());
+        assertThat(locations.getValue()).containsOnlyKeys("rs123");
+        assertThat((Set<Location>) locations.getValue().get("rs123")).containsExactly(location);
+
+        ArgumentCaptor<Collection> genomicContexts = ArgumentCaptor.forClass(Collection.class);
+        verify(snpGenomicContextMappingService, times(1)).processGenomicContext(genomicContexts.capture());
+        assertThat(genomicContexts.getValue()).hasSize(1);
+
+        ArgumentCaptor<Collection> removedSnps = ArgumentCaptor.forClass(Collection.class);
+        verify(snpLocationMappingService).removeExistingSnpLocations(removedSnps.capture());
+        assertThat(removedSnps.getValue()).containsExactly(storedSnp);
+
+        // Both associations are still reported
+        verify(associationReportService).updateAssociationReportDetails(first);
+        verify(associationReportService).updateAssociationReportDetails(second);
+    }
+
+    @Test
+    public void removeContextsOfSnpSharedAcrossChunksAndBatchesOnce() throws Exception {
+        ReflectionTestUtils.setField(mappingService, "commitInterval", 1);
+        ReflectionTestUtils.setField(mappingService, "batchSize", 2);
+
+        // The database holds one old genomic context for the SNP
+        List<GenomicContext> storedContexts = new ArrayList<>();
+        storedContexts.add(genomicContext(1L));
+        AtomicLong nextContextId = new AtomicLong(1);
+        List<Long> removedContextIds = new ArrayList<>();
+
+        // Collected copies, read before any chunk is stored
+        for (long locusId : new long[]{100L, 200L, 300L}) {
+            SingleNucleotidePolymorphism collected = snp(1L, "rs123");
+            collected.setGenomicContexts(new ArrayList<>(storedContexts));
+            when(singleNucleotidePolymorphismQueryService.findByRiskAllelesLociId(locusId))
+                    .thenReturn(Collections.singletonList(collected));
+        }
+        // Copies read in a chunk transaction see what earlier chunks stored
+        when(singleNucleotidePolymorphismRepository.findByRsId("rs123")).thenAnswer(invocation -> {
+            SingleNucleotidePolymorphism stored = snp(1L, "rs123");
+            stored.setGenomicContexts(new ArrayList<>(storedContexts));
+            return stored;
+        });
+        when(snpGenomicContextMappingService.removeExistingGenomicContexts(
+                anyCollectionOf(SingleNucleotidePolymorphism.class))).thenAnswer(invocation -> {
+            for (Object snp : (Collection) invocation.getArguments()[0]) {
+                for (GenomicContext context : ((SingleNucleotidePolymorphism) snp).getGenomicContexts()) {
+                    removedContextIds.add(context.getId());
+                    storedContexts.removeIf(storedContext -> storedContext.getId().equals(context.getId()));
+                }
+            }
+            return Collections.emptySet();
+        });
+        doAnswer(invocation -> {
+            int contextCount = ((Collection) invocation.getArguments()[0]).size();
+            for (int i = 0; i < contextCount; i++) {
+                storedContexts.add(genomicContext(nextContextId.incrementAndGet()));
+            }
+            return null;
+        }).when(snpGenomicContextMappingService).processGenomicContext(anyCollectionOf(GenomicContext.class));
+
+        Location location = new Location();
+        location.setChromosomeName("1");
+        location.setChromosomePosition(1000);
+        when(ensemblMappingExecutor.submit(eq("rs123"), anyCollectionOf(String.class), anyString()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(mappingResult(snp(1L, "rs123"),
+                                                                                          location)));
+
+        // Two chunks of the first batch, and a second batch
+        mappingService.validateAndMapAllAssociations(Arrays.asList(association(10L, 100L),
+                                                                   association(20L, 200L),
+                                                                   association(30L, 300L)), "test");
+
+        assertThat(removedContextIds).containsExactly(1L, 2L, 3L);
+        assertThat(storedContexts).extracting("id").containsExactly(4L);
+    }
+
+    private static GenomicContext genomicContext(Long id) {
+        GenomicContext genomicContext = new GenomicContext();
+        genomicContext.setId(id);
+        return genomicContext;
+    }
+
+    private static SingleNucleotidePolymorphism snp(Long id, String rsId) {
+        SingleNucleotidePolymorphism snp = new SingleNucleotidePolymorphism();
+        snp.setId(id);
+        snp.setRsId(rsId);
+        return snp;
+    }
+
+    private static Association association(Long id, Long locusId) {
+        Locus locus = new Locus();
+        locus.setId(locusId);
+        Association association = new Association();
+        association.setId(id);
+        association.setLoci(Collections.singletonList(locus));
+        return association;
+    }
+
+    private static EnsemblMappingResult mappingResult(SingleNucleotidePolymorphism snp, Location location) {
+        EnsemblMappingResult result = new EnsemblMappingResult();
+        result.setRsId(snp.getRsId());
+        result.setFunctionalClass("intron_variant");
+        result.setLocations(Collections.singletonList(location));
+        GenomicContext genomicContext = new GenomicContext();
+        genomicContext.setSnp(snp);
+        result.addGenomicContext(genomicContext);
+        return result;
+    }
+}
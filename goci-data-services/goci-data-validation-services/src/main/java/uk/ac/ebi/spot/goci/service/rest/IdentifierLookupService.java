@@ -0,0 +1,68 @@
+package uk.ac.ebi.spot.goci.service.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.service.EnsemblIdentifierLookupService;
+import uk.ac.ebi.spot.goci.service.EnsemblIdentifierLookupService.Lookup;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Service that resolves every distinct SNP identifier and gene symbol of a batch of associations before they are
+ * validated, so that the checks of {@link SnpCheckingRestService} and {@link GeneCheckingRestService} find them in the
+ * REST call history instead of calling Ensembl once per association.
+ * <p>
+ * The identifiers are looked up in batches by {@link EnsemblIdentifierLookupService}. Identifiers Ensembl does not
+ * return are then checked one by one, so that their errors are stored too.
+ */
+@Service
+public class IdentifierLookupService {
+
+    private EnsemblIdentifierLookupService ensemblIdentifierLookupService;
+
+    private SnpCheckingRestService snpCheckingRestService;
+
+    private GeneCheckingRestService geneCheckingRestService;
+
+    @Autowired
+    public IdentifierLookupService(EnsemblIdentifierLookupService ensemblIdentifierLookupService,
+                                   SnpCheckingRestService snpCheckingRestService,
+                                   GeneCheckingRestService geneCheckingRestService) {
+        this.ensemblIdentifierLookupService = ensemblIdentifierLookupService;
+        this.snpCheckingRestService = snpCheckingRestService;
+        this.geneCheckingRestService = geneCheckingRestService;
+    }
+
+    /**
+     * Look up all SNP identifiers and gene symbols about to be validated
+     *
+     * @param snps     SNP identifiers, may contain duplicates
+     * @param genes    gene symbols, may contain duplicates
+     * @param eRelease Ensembl release
+     */
+    public void lookup(Collection<String> snps, Collection<String> genes, String eRelease) {
+        // Same identifiers ValidationChecks sends to Ensembl
+        Set<String> snpIds = new LinkedHashSet<>();
+        for (String snp : snps) {
+            if (snp != null && !snp.isEmpty()) {
+                snpIds.add(snp);
+            }
+        }
+        Set<String> geneIds = new LinkedHashSet<>();
+        for (String gene : genes) {
+            if (gene != null && !gene.isEmpty() && !gene.equalsIgnoreCase("intergenic") &&
+                    !gene.equalsIgnoreCase("NR")) {
+                geneIds.add(gene);
+            }
+        }
+
+        ensemblIdentifierLookupService.lookup(
+                eRelease,
+                new Lookup("variation", "snp", snpIds,
+                           snp -> snpCheckingRestService.checkSnpIdentifierIsValid(snp, eRelease)),
+                new Lookup("lookup_symbol", "lookup_symbol", geneIds,
+                           gene -> geneCheckingRestService.checkGeneSymbolIsValid(gene, eRelease)));
+    }
+}
@@ -0,0 +1,103 @@
+package uk.ac.ebi.spot.goci.service.rest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.ac.ebi.spot.goci.model.RestResponseResult;
+import uk.ac.ebi.spot.goci.service.EnsemblIdentifierLookupService;
+import uk.ac.ebi.spot.goci.service.EnsemblRestTemplateService;
+import uk.ac.ebi.spot.goci.service.EnsemblRestcallHistoryService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IdentifierLookupServiceTest {
+
+    private IdentifierLookupService identifierLookupService;
+
+    private EnsemblIdentifierLookupService ensemblIdentifierLookupService;
+
+    @Mock
+    private EnsemblRestTemplateService ensemblRestTemplateService;
+
+    @Mock
+    private EnsemblRestcallHistoryService ensemblRestcallHistoryService;
+
+    @Mock
+    private SnpCheckingRestService snpCheckingRestService;
+
+    @Mock
+    private GeneCheckingRestService geneCheckingRestService;
+
+    private static final String eRelease = "88";
+
+    @Before
+    public void setUp() throws Exception {
+        ensemblIdentifierLookupService =
+                new EnsemblIdentifierLookupService(ensemblRestTemplateService, ensemblRestcallHistoryService);
+        ensemblIdentifierLookupService.setLookupThreads(2);
+        ensemblIdentifierLookupService.setLookupBatchSize(2);
+        identifierLookupService = new IdentifierLookupService(ensemblIdentifierLookupService,
+                                                              snpCheckingRestService,
+                                                              geneCheckingRestService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ensemblIdentifierLookupService.shutdown();
+    }
+
+    @Test
+    public void lookupSendsDistinctMissingIdentifiersOnly() throws Exception {
+        when(ensemblRestcallHistoryService.prefetch(eq("snp"), anyCollection(), eq(eRelease)))
+                .thenReturn(new LinkedHashSet<>(Arrays.asList("rs2", "rs3")));
+        when(ensemblRestcallHistoryService.prefetch(eq("lookup_symbol"), anyCollection(), eq(eRelease)))
+                .thenReturn(new LinkedHashSet<>());
+
+        RestResponseResult rs2 = new RestResponseResult();
+        Map<String, RestResponseResult> found = Collections.singletonMap("rs2", rs2);
+        when(ensemblRestTemplateService.postRestCall(eq("variation"), anyCollection(), anyInt())).thenReturn(found);
+
+        identifierLookupService.lookup(Arrays.asList("rs1", "rs2", "rs2", "rs3", ""),
+                                       Arrays.asList("BRCA1", "intergenic", "NR"),
+                                       eRelease);
+
+        verify(ensemblRestcallHistoryService).prefetch("snp",
+                                                       new LinkedHashSet<>(Arrays.asList("rs1", "rs2", "rs3")),
+                                                       eRelease);
+        verify(ensemblRestcallHistoryService).prefetch("lookup_symbol",
+                                                       new LinkedHashSet<>(Collections.singletonList("BRCA1")),
+                                                       eRelease);
+        verify(ensemblRestTemplateService).postRestCall("variation", Arrays.asList("rs2", "rs3"), 2);
+        verify(ensemblRestcallHistoryService).create(rs2, "snp", "rs2", eRelease);
+
+        // Identifiers Ensembl did not return are checked one by one
+        verify(snpCheckingRestService).checkSnpIdentifierIsValid("rs3", eRelease);
+        verify(snpCheckingRestService, never()).checkSnpIdentifierIsValid("rs2", eRelease);
+        verify(ensemblRestTemplateService, never()).postRestCall(eq("lookup_symbol"), anyCollection(), anyInt());
+        verifyZeroInteractions(geneCheckingRestService);
+    }
+
+    @Test
+    public void lookupWithoutReleaseIsSkipped() throws Exception {
+        identifierLookupService.lookup(Collections.singletonList("rs1"), Collections.singletonList("BRCA1"), "");
+        verifyZeroInteractions(ensemblRestcallHistoryService,
+                               ensemblRestTemplateService,
+                               snpCheckingRestService,
+                               geneCheckingRestService);
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import uk.ac.ebi.spot.goci.curation.exception.DataIntegrityException;
 import uk.ac.ebi.spot.goci.curation.exception.FileUploadException;
 import uk.ac.ebi.spot.goci.curation.model.AssociationUploadErrorView;
+import uk.ac.ebi.spot.goci.curation.model.AssociationUploadJob;
 import uk.ac.ebi.spot.goci.curation.model.AssociationValidationView;
 import uk.ac.ebi.spot.goci.curation.model.LastViewedAssociation;
 import uk.ac.ebi.spot.goci.curation.model.MappingDetails;
@@ -72,6 +73,7 @@ public class AssociationController {
     private CheckEfoTermAssignmentService checkEfoTermAssignmentService;
     private AssociationOperationsService associationOperationsService;
     private AssociationUploadService associationUploadService;
+    private AssociationUploadJobService associationUploadJobService;
     private CurrentUserDetailsService currentUserDetailsService;
     private AssociationValidationReportService associationValidationReportService;
     private AssociationDeletionService associationDeletionService;
@@ -107,6 +109,7 @@ public class AssociationController {
                                  CheckEfoTermAssignmentService checkEfoTermAssignmentService,
                                  AssociationOperationsService associationOperationsService,
                                  AssociationUploadService associationUploadService,
+                                 AssociationUploadJobService associationUploadJobService,
                                  CurrentUserDetailsService currentUserDetailsService,
                                  AssociationValidationReportService associationValidationReportService,
                                  AssociationDeletionService associationDeletionService,
@@ -125,6 +128,7 @@ public class AssociationController {
         this.checkEfoTermAssignmentService = checkEfoTermAssignmentService;
         this.associationOperationsService = associationOperationsService;
         this.associationUploadService = associationUploadService;
+        this.associationUploadJobService = associationUploadJobService;
         this.currentUserDetailsService = currentUserDetailsService;
         this.associationValidationReportService = associationValidationReportService;
         this.associationDeletionService = associationDeletionService;
@@ -182,7 +186,7 @@ public class AssociationController {
     }
 
 
-    // Upload a spreadsheet of snp association information
+    // Upload a spreadsheet of snp association information, which is validated and saved in the background
     @RequestMapping(value = "/studies/{studyId}/associations/upload",
             produces = MediaType.TEXT_HTML_VALUE,
             method = RequestMethod.POST)
@@ -195,23 +199,55 @@ public class AssociationController {
         Study study = studyRepository.findOne(studyId);
         model.addAttribute("study", study);
 
-        List<AssociationUploadErrorView> fileErrors = null;
-        List<AssociationUploadErrorView> xlsErrors = null;
-        try {
-            fileErrors =
-                    associationUploadService.upload(file, study, currentUserDetailsService.getUserFromRequest(request));
+        AssociationUploadJob job =
+                associationUploadJobService.submit(file, study, currentUserDetailsService.getUserFromRequest(request));
+        return "redirect:/studies/" + studyId + "/associations/upload/" + job.getId();
+    }
+
+    // Show the progress of an upload, or its outcome once it has finished
+    @RequestMapping(value = "/studies/{studyId}/associations/upload/{jobId}",
+            produces = MediaType.TEXT_HTML_VALUE,
+            method = RequestMethod.GET)
+    public String viewStudySnpsUpload(@PathVariable Long studyId,
+                                      @PathVariable String jobId,
+                                      Model model) {
+
+        AssociationUploadJob job = associationUploadJobService.getJob(jobId);
+        if (job == null || !job.getStudyId().equals(studyId)) {
+            return "redirect:/studies/" + studyId + "/associations";
+        }
+
+        Study study = studyRepository.findOne(studyId);
+        model.addAttribute("study", study);
+        model.addAttribute("uploadJob", job);
+
+        if (job.getStatus() == AssociationUploadJob.Status.FAILED && job.getFailure() != null) {
+            // Same pages as the exception handlers used when files were uploaded within the request
+            switch (job.getFailure()) {
+                case WRONG_FILE_FORMAT:
+                    return "error_pages/wrong_file_format_warning";
+                case FILE_NOT_FOUND:
+                    return "error_pages/file_not_found";
+                case DATA_UPLOAD_PROBLEM:
+                    return "error_pages/data_upload_problem";
+                default:
+                    break;
+            }
         }
-        catch (EnsemblMappingException e) {
+        if (job.getStatus() != AssociationUploadJob.Status.COMPLETED) {
+            return "association_upload_progress";
+        }
+        if (job.isMappingFailure()) {
             return "ensembl_mapping_failure";
         }
 
-        if (fileErrors != null && !fileErrors.isEmpty()) {
-            // Split
-            getLog().error("Errors found in file: " + file.getOriginalFilename());
+        List<AssociationUploadErrorView> fileErrors = new ArrayList<>(job.getErrors());
+        if (!fileErrors.isEmpty()) {
+            getLog().error("Errors found in file: " + job.getFileName());
 
             // Split the general collection of errors in two different structures. For view purpose.
-            xlsErrors = AssociationUploadService.splitByXLSError(fileErrors);
-            model.addAttribute("fileName", file.getOriginalFilename());
+            List<AssociationUploadErrorView> xlsErrors = AssociationUploadService.splitByXLSError(fileErrors);
+            model.addAttribute("fileName", job.getFileName());
             model.addAttribute("fileErrors", fileErrors);
             model.addAttribute("xlsErrors", xlsErrors);
 
@@ -222,6 +258,43 @@ public class AssociationController {
         }
     }
 
+    // Status of an upload, for polling
+    @RequestMapping(value = "/studies/{studyId}/associations/upload/{jobId}/status",
+            produces = MediaType.APPLICATION_JSON_VALUE,
+            method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, String> studySnpsUploadStatus(@PathVariable Long studyId, @PathVariable String jobId) {
+
+        Map<String, String> result = new HashMap<>();
+        AssociationUploadJob job = associationUploadJobService.getJob(jobId);
+        if (job == null || !job.getStudyId().equals(studyId)) {
+            result.put("status", "UNKNOWN");
+            result.put("message", "No such upload");
+        }
+        else {
+            result.put("status", job.getStatus().name());
+            result.put("message", job.getMessage());
+            result.put("fileName", job.getFileName());
+            result.put("errors", Integer.toString(job.getErrors().size()));
+        }
+        return result;
+    }
+
+    // Cancel an upload that has not started saving associations
+    @RequestMapping(value = "/studies/{studyId}/associations/upload/{jobId}/cancel",
+            produces = MediaType.TEXT_HTML_VALUE,
+            method = RequestMethod.POST)
+    public String cancelStudySnpsUpload(@PathVariable Long studyId,
+                                        @PathVariable String jobId) {
+
+        AssociationUploadJob job = associationUploadJobService.getJob(jobId);
+        if (job != null && job.getStudyId().equals(studyId) && associationUploadJobService.cancel(jobId)) {
+            getLog().info("Upload of file " + job.getFileName() + " cancelled");
+            return "redirect:/studies/" + studyId + "/associations";
+        }
+        return "redirect:/studies/" + studyId + "/associations/upload/" + jobId;
+    }
+
     // Generate a empty form page to add standard snp
     @RequestMapping(value = "/studies/{studyId}/associations/add_standard",
             produces = MediaType.TEXT_HTML_VALUE,
@@ -0,0 +1,181 @@
+package uk.ac.ebi.spot.goci.curation.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * Progress and result of an association spreadsheet upload that is validated and saved in the background.
+ * <p>
+ * A job is queued, then validated, then saved.  It can be cancelled while it is queued or being validated; once saving
+ * has started the associations of the file are always saved.
+ */
+public class AssociationUploadJob {
+
+    public enum Status {
+        QUEUED, VALIDATING, SAVING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isDone() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * Why a job failed, so that the same error page is shown as when files were uploaded within the request
+     */
+    public enum Failure {
+        REJECTED, WRONG_FILE_FORMAT, FILE_NOT_FOUND, DATA_UPLOAD_PROBLEM, ERROR
+    }
+
+    private final String id;
+
+    private final Long studyId;
+
+    private final String fileName;
+
+    private final Date submitted = new Date();
+
+    private Date finished;
+
+    private Status status = Status.QUEUED;
+
+    private String message = "Waiting for other uploads to finish";
+
+    private List<AssociationUploadErrorView> errors = Collections.emptyList();
+
+    private boolean mappingFailure;
+
+    private Failure failure;
+
+    private Future<?> future;
+
+    public AssociationUploadJob(Long studyId, String fileName) {
+        this.id = UUID.randomUUID().toString();
+        this.studyId = studyId;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Start validating the file
+     *
+     * @return false if the job was cancelled before it started
+     */
+    public synchronized boolean startValidating() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.VALIDATING;
+        message = "Validating associations";
+        return true;
+    }
+
+    /**
+     * Start saving the associations of a valid file, after which the job can no longer be cancelled
+     *
+     * @return false if the job was cancelled during validation
+     */
+    public synchronized boolean startSaving() {
+        if (status != Status.VALIDATING) {
+            return false;
+        }
+        status = Status.SAVING;
+        message = "Saving associations";
+        return true;
+    }
+
+    public synchronized void complete(List<AssociationUploadErrorView> errors) {
+        if (!status.isDone()) {
+            this.errors = new ArrayList<>(errors);
+            finish(Status.COMPLETED, errors.isEmpty() ? "Upload complete" : "Errors found in file");
+        }
+    }
+
+    public synchronized void completeWithMappingFailure() {
+        if (!status.isDone()) {
+            mappingFailure = true;
+            finish(Status.COMPLETED, "Ensembl mapping failed");
+        }
+    }
+
+    public synchronized void fail(Failure failure, String message) {
+        if (!status.isDone()) {
+            this.failure = failure;
+            finish(Status.FAILED, message);
+        }
+    }
+
+    /**
+     * Cancel a job that is queued or being validated
+     *
+     * @return the status the job was cancelled in, or null if it could not be cancelled
+     */
+    public synchronized Status cancel() {
+        Status cancelledStatus = status;
+        if (cancelledStatus != Status.QUEUED && cancelledStatus != Status.VALIDATING) {
+            return null;
+        }
+        // Validation is not interrupted, its result is discarded instead of being saved
+        if (future != null) {
+            future.cancel(false);
+        }
+        finish(Status.CANCELLED, "Upload cancelled");
+        return cancelledStatus;
+    }
+
+    private void finish(Status status, String message) {
+        this.status = status;
+        this.message = message;
+        this.finished = new Date();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getStudyId() {
+        return studyId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    public synchronized Date getFinished() {
+        return finished;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized boolean isDone() {
+        return status.isDone();
+    }
+
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    public synchronized List<AssociationUploadErrorView> getErrors() {
+        return errors;
+    }
+
+    public synchronized boolean isMappingFailure() {
+        return mappingFailure;
+    }
+
+    public synchronized Failure getFailure() {
+        return failure;
+    }
+
+    public synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+}
@@ -0,0 +1,251 @@
+package uk.ac.ebi.spot.goci.curation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import uk.ac.ebi.spot.goci.curation.model.AssociationUploadErrorView;
+import uk.ac.ebi.spot.goci.curation.model.AssociationUploadJob;
+import uk.ac.ebi.spot.goci.exception.EnsemblMappingException;
+import uk.ac.ebi.spot.goci.exception.SheetProcessingException;
+import uk.ac.ebi.spot.goci.model.SecureUser;
+import uk.ac.ebi.spot.goci.model.Study;
+import uk.ac.ebi.spot.goci.model.ValidationSummary;
+import uk.ac.ebi.spot.goci.repository.StudyRepository;
+
+import javax.annotation.PreDestroy;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that validates and saves uploaded association spreadsheets in the background, so that large files do not
+ * hold the HTTP request open.
+ * <p>
+ * Uploads run on "upload.jobs.threads" threads; at most "upload.jobs.queue_size" further uploads wait for a thread and
+ * any more are refused straight away.  Finished jobs can be fetched for "upload.jobs.retention" seconds.
+ * <p>
+ * Files are validated outside of any transaction.  As there is no request scoped session in the background, a valid
+ * file's study is reloaded and its associations saved in a transaction of their own.
+ */
+@Service
+public class AssociationUploadJobService {
+
+    @Value("${upload.jobs.threads:2}")
+    private int jobThreads = 2;
+
+    @Value("${upload.jobs.queue_size:10}")
+    private int jobQueueSize = 10;
+
+    @Value("${upload.jobs.retention:3600}")
+    private long jobRetention = 3600;
+
+    private AssociationUploadService associationUploadService;
+
+    private StudyRepository studyRepository;
+
+    private StudyFileService studyFileService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, AssociationUploadJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    @Autowired
+    public AssociationUploadJobService(AssociationUploadService associationUploadService,
+                                       StudyRepository studyRepository,
+                                       StudyFileService studyFileService,
+                                       PlatformTransactionManager transactionManager) {
+        this.associationUploadService = associationUploadService;
+        this.studyRepository = studyRepository;
+        this.studyFileService = studyFileService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Store an uploaded file in the study dir and queue it to be validated and saved
+     * <p>
+     * The file is stored before returning as the multipart file is removed once the request completes.
+     *
+     * @param file  XLSX file supplied by user
+     * @param study study to add associations to
+     * @param user  user that uploaded the file
+     * @return the queued job, or a failed job if too many uploads are already waiting
+     */
+    public AssociationUploadJob submit(MultipartFile file, Study study, SecureUser user) throws IOException {
+        removeExpiredJobs();
+
+        String originalFilename = file.getOriginalFilename();
+        getLog().info("Uploading file: ".concat(originalFilename));
+        associationUploadService.uploadFile(file, study.getId());
+
+        AssociationUploadJob job = new AssociationUploadJob(study.getId(), originalFilename);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(getJobExecutor().submit(() -> run(job, user)));
+        }
+        catch (RejectedExecutionException e) {
+            getLog().warn("Upload of file " + originalFilename + " refused, too many uploads queued");
+            studyFileService.deleteFile(study.getId(), originalFilename);
+            job.fail(AssociationUploadJob.Failure.REJECTED,
+                     "Too many uploads are being processed, please try again later");
+        }
+        return job;
+    }
+
+    private void run(AssociationUploadJob job, SecureUser user) {
+        if (!job.startValidating()) {
+            return;
+        }
+        try {
+            ValidationSummary validationSummary =
+                    associationUploadService.validate(job.getFileName(), job.getStudyId());
+            List<AssociationUploadErrorView> fileErrors =
+                    associationUploadService.findErrors(validationSummary, job.getFileName(), job.getStudyId());
+            if (validationSummary == null || !fileErrors.isEmpty()) {
+                job.complete(fileErrors);
+                return;
+            }
+
+            // Cancelled during validation, so the valid file is discarded as well
+            if (!job.startSaving()) {
+                studyFileService.deleteFile(job.getStudyId(), job.getFileName());
+                return;
+            }
+
+            boolean mapped = transactionTemplate.execute(transactionStatus -> {
+                Study study = studyRepository.findOne(job.getStudyId());
+                try {
+                    associationUploadService.save(validationSummary, job.getFileName(), study, user);
+                    return true;
+                }
+                catch (EnsemblMappingException e) {
+                    return false;
+                }
+            });
+            if (mapped) {
+                job.complete(fileErrors);
+            }
+            else {
+                job.completeWithMappingFailure();
+            }
+        }
+        catch (SheetProcessingException e) {
+            getLog().error("Upload of file " + job.getFileName() + " failed, wrong file format", e);
+            job.fail(AssociationUploadJob.Failure.WRONG_FILE_FORMAT, "Wrong file format");
+        }
+        catch (IOException e) {
+            getLog().error("Upload of file " + job.getFileName() + " failed", e);
+            if (e instanceof FileNotFoundException || e.getCause() instanceof FileNotFoundException) {
+                job.fail(AssociationUploadJob.Failure.FILE_NOT_FOUND, "File not found");
+            }
+            else {
+                job.fail(AssociationUploadJob.Failure.DATA_UPLOAD_PROBLEM, "Upload failed: " + e.getMessage());
+            }
+        }
+        catch (RuntimeException e) {
+            getLog().error("Upload of file " + job.getFileName() + " failed", e);
+            job.fail(AssociationUploadJob.Failure.ERROR, "Upload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param id job id
+     * @return the job, or null if there is no such job or it finished too long ago
+     */
+    public AssociationUploadJob getJob(String id) {
+        removeExpiredJobs();
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancel a job that is queued or being validated
+     * <p>
+     * The file of a queued job is deleted straight away; a job being validated deletes its file once validation ends.
+     *
+     * @param id job id
+     * @return true if the job was cancelled
+     */
+    public boolean cancel(String id) {
+        AssociationUploadJob job = getJob(id);
+        if (job == null) {
+            return false;
+        }
+        AssociationUploadJob.Status cancelledStatus = job.cancel();
+        if (cancelledStatus == AssociationUploadJob.Status.QUEUED) {
+            studyFileService.deleteFile(job.getStudyId(), job.getFileName());
+        }
+        return cancelledStatus != null;
+    }
+
+    private void removeExpiredJobs() {
+        long expiry = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(getJobRetention());
+        jobs.values().removeIf(job -> job.isDone() && job.getFinished().getTime() < expiry);
+    }
+
+    protected synchronized ThreadPoolExecutor getJobExecutor() {
+        if (jobExecutor == null) {
+            int threads = Math.max(1, getJobThreads());
+            AtomicInteger threadCount = new AtomicInteger();
+            jobExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                                 new ArrayBlockingQueue<>(Math.max(1, getJobQueueSize())),
+                                                 runnable -> {
+                                                     Thread thread = new Thread(runnable);
+                                                     thread.setName("association-upload-" +
+                                                                            threadCount.incrementAndGet());
+                                                     thread.setDaemon(true);
+                                                     return thread;
+                                                 });
+        }
+        return jobExecutor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (jobExecutor != null) {
+            jobExecutor.shutdownNow();
+        }
+    }
+
+    public int getJobThreads() {
+        return jobThreads;
+    }
+
+    public void setJobThreads(int jobThreads) {
+        this.jobThreads = jobThreads;
+    }
+
+    public int getJobQueueSize() {
+        return jobQueueSize;
+    }
+
+    public void setJobQueueSize(int jobQueueSize) {
+        this.jobQueueSize = jobQueueSize;
+    }
+
+    public long getJobRetention() {
+        return jobRetention;
+    }
+
+    public void setJobRetention(long jobRetention) {
+        this.jobRetention = jobRetention;
+    }
+}
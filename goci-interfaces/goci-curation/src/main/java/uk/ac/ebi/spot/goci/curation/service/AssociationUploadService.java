@@ -84,71 +84,119 @@ public class AssociationUploadService {
 
     public List<AssociationUploadErrorView> upload(MultipartFile file, Study study, SecureUser user)
             throws IOException, EnsemblMappingException {
+        getLog().info("Uploading file: ".concat(file.getOriginalFilename()));
+        uploadFile(file, study.getId());
+        return validateAndSave(file.getOriginalFilename(), study, user);
+    }
+
+    /**
+     * Validate a file already uploaded to the study dir and save its associations if no errors are found
+     *
+     * @param originalFilename name of the uploaded file
+     * @param study            study the file was uploaded to
+     * @param user             user that uploaded the file
+     * @return validation errors, empty if the associations were saved
+     */
+    public List<AssociationUploadErrorView> validateAndSave(String originalFilename, Study study, SecureUser user)
+            throws IOException, EnsemblMappingException {
+
+        ValidationSummary validationSummary = validate(originalFilename, study.getId());
 
         // File errors will contain any validation errors and be returned to controller if any are found
-        List<AssociationUploadErrorView> fileErrors = new ArrayList<>();
-        String originalFilename = file.getOriginalFilename();
-        getLog().info("Uploading file: ".concat(originalFilename));
+        List<AssociationUploadErrorView> fileErrors = findErrors(validationSummary, originalFilename, study.getId());
+        if (validationSummary != null && fileErrors.isEmpty()) {
+            save(validationSummary, originalFilename, study, user);
+        }
+        return fileErrors;
+    }
 
-        // Upload file
+    /**
+     * Validate a file already uploaded to the study dir, without saving anything
+     *
+     * @param originalFilename name of the uploaded file
+     * @param studyId          study the file was uploaded to
+     * @return the validation summary of the file
+     */
+    public ValidationSummary validate(String originalFilename, Long studyId) throws IOException {
         try {
-            uploadFile(file, study.getId());
-
             // Send file, including path, to SNP batch loader process
-            File uploadedFile = studyFileService.getFileFromFileName(study.getId(), originalFilename);
-            ValidationSummary validationSummary =
-                    associationFileUploadService.processAndValidateAssociationFile(uploadedFile, "full");
-
-            if (validationSummary != null) {
-                // Check if we have any row errors
-                long rowErrorCount = validationSummary.getRowValidationSummaries().parallelStream()
-                        .filter(rowValidationSummary -> !rowValidationSummary.getErrors().isEmpty())
+            File uploadedFile = studyFileService.getFileFromFileName(studyId, originalFilename);
+            return associationFileUploadService.processAndValidateAssociationFile(uploadedFile, "full");
+        }
+        catch (IOException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Get the errors found validating a file, deleting the file from the study dir if there are any
+     *
+     * @param validationSummary validation summary of the file, may be null
+     * @param originalFilename  name of the uploaded file
+     * @param studyId           study the file was uploaded to
+     * @return validation errors, empty if the associations of the file can be saved
+     */
+    public List<AssociationUploadErrorView> findErrors(ValidationSummary validationSummary,
+                                                       String originalFilename,
+                                                       Long studyId) {
+
+        List<AssociationUploadErrorView> fileErrors = new ArrayList<>();
+        if (validationSummary != null) {
+            // Check if we have any row errors
+            long rowErrorCount = validationSummary.getRowValidationSummaries().parallelStream()
+                    .filter(rowValidationSummary -> !rowValidationSummary.getErrors().isEmpty())
+                    .count();
+
+            // Errors found
+            if (rowErrorCount > 0) {
+                studyFileService.deleteFile(studyId, originalFilename);
+                getLog().error("Row errors found in file: " + originalFilename);
+                validationSummary.getRowValidationSummaries().forEach(
+                        rowValidationSummary -> fileErrors.addAll(processRowError(rowValidationSummary))
+                );
+            }
+            else {
+
+                // Determine if we have any errors rather than warnings
+                // Errors prevent saving association
+                List<ValidationError> allAssociationsErrors = new ArrayList<>();
+                validationSummary.getAssociationSummaries()
+                        .forEach(associationSummary -> allAssociationsErrors.addAll(associationSummary.getErrors()));
+                long associationErrorCount = allAssociationsErrors.parallelStream()
+                        .filter(validationError -> !validationError.getWarning())
                         .count();
 
-                // Errors found
-                if (rowErrorCount > 0) {
-                    studyFileService.deleteFile(study.getId(), originalFilename);
-                    getLog().error("Row errors found in file: " + originalFilename);
-                    validationSummary.getRowValidationSummaries().forEach(
-                            rowValidationSummary -> fileErrors.addAll(processRowError(rowValidationSummary))
+                if (associationErrorCount > 0) {
+                    studyFileService.deleteFile(studyId, originalFilename);
+                    getLog().error("Association errors found in file: " + originalFilename);
+                    validationSummary.getAssociationSummaries().forEach(
+                            associationSummary -> fileErrors.addAll(processAssociationError(associationSummary))
                     );
                 }
-                else {
-
-                    // Determine if we have any errors rather than warnings
-                    // Errors prevent saving association
-                    List<ValidationError> allAssociationsErrors = new ArrayList<>();
-                    validationSummary.getAssociationSummaries()
-                            .forEach(associationSummary -> allAssociationsErrors.addAll(associationSummary.getErrors()));
-                    long associationErrorCount = allAssociationsErrors.parallelStream()
-                            .filter(validationError -> !validationError.getWarning())
-                            .count();
-
-                    if (associationErrorCount > 0) {
-                        studyFileService.deleteFile(study.getId(), originalFilename);
-                        getLog().error("Association errors found in file: " + originalFilename);
-                        validationSummary.getAssociationSummaries().forEach(
-                                associationSummary -> fileErrors.addAll(processAssociationError(associationSummary))
-                        );
-                    }
-                    else {
-
-                        Integer numberOfAssociations = validationSummary.getAssociationSummaries().size();
-                        String description = numberOfAssociations.toString()
-                                .concat(" associations created from upload of '")
-                                .concat(originalFilename)
-                                .concat("'");
-
-                        createBatchUploadEvent(study, description, user);
-                        saveAssociations(validationSummary.getAssociationSummaries(), study, user);
-                    }
-                }
             }
-            return fileErrors;
-        }
-        catch (IOException e) {
-            throw new IOException(e);
         }
+        return fileErrors;
+    }
+
+    /**
+     * Save the associations of a valid file
+     *
+     * @param validationSummary validation summary of the file, without errors
+     * @param originalFilename  name of the uploaded file
+     * @param study             study to add the associations to
+     * @param user              user that uploaded the file
+     */
+    public void save(ValidationSummary validationSummary, String originalFilename, Study study, SecureUser user)
+            throws EnsemblMappingException {
+
+        Integer numberOfAssociations = validationSummary.getAssociationSummaries().size();
+        String description = numberOfAssociations.toString()
+                .concat(" associations created from upload of '")
+                .concat(originalFilename)
+                .concat("'");
+
+        createBatchUploadEvent(study, description, user);
+        saveAssociations(validationSummary.getAssociationSummaries(), study, user);
     }
 
     /**
@@ -186,7 +234,7 @@ public class AssociationUploadService {
      * @param file    XLSX file supplied by user
      * @param studyId study to link file to
      */
-    private void uploadFile(MultipartFile file, Long studyId) throws IOException {
+    public void uploadFile(MultipartFile file, Long studyId) throws IOException {
         studyFileService.upload(file, studyId);
     }
 
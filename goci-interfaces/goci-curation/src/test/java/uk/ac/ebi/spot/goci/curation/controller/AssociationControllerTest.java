@@ -16,6 +16,7 @@ import uk.ac.ebi.spot.goci.builder.SecureUserBuilder;
 import uk.ac.ebi.spot.goci.builder.StudyBuilder;
 import uk.ac.ebi.spot.goci.curation.model.AssociationEventView;
 import uk.ac.ebi.spot.goci.curation.model.AssociationUploadErrorView;
+import uk.ac.ebi.spot.goci.curation.model.AssociationUploadJob;
 import uk.ac.ebi.spot.goci.curation.model.AssociationValidationView;
 import uk.ac.ebi.spot.goci.curation.model.LastViewedAssociation;
 import uk.ac.ebi.spot.goci.curation.model.MappingDetails;
@@ -26,6 +27,7 @@ import uk.ac.ebi.spot.goci.curation.service.AssociationDeletionService;
 import uk.ac.ebi.spot.goci.curation.service.AssociationDownloadService;
 import uk.ac.ebi.spot.goci.curation.service.AssociationEventsViewService;
 import uk.ac.ebi.spot.goci.curation.service.AssociationOperationsService;
+import uk.ac.ebi.spot.goci.curation.service.AssociationUploadJobService;
 import uk.ac.ebi.spot.goci.curation.service.AssociationUploadService;
 import uk.ac.ebi.spot.goci.curation.service.AssociationValidationReportService;
 import uk.ac.ebi.spot.goci.curation.service.CheckEfoTermAssignmentService;
@@ -35,7 +37,6 @@ import uk.ac.ebi.spot.goci.curation.service.SingleSnpMultiSnpAssociationService;
 import uk.ac.ebi.spot.goci.curation.service.SnpAssociationTableViewService;
 import uk.ac.ebi.spot.goci.curation.service.SnpInteractionAssociationService;
 import uk.ac.ebi.spot.goci.curation.service.StudyAssociationBatchDeletionEventService;
-import uk.ac.ebi.spot.goci.exception.EnsemblMappingException;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.SecureUser;
 import uk.ac.ebi.spot.goci.model.Study;
@@ -109,6 +110,9 @@ public class AssociationControllerTest {
     @Mock
     private AssociationUploadService associationUploadService;
 
+    @Mock
+    private AssociationUploadJobService associationUploadJobService;
+
     @Mock
     private CurrentUserDetailsService currentUserDetailsService;
 
@@ -160,6 +164,7 @@ public class AssociationControllerTest {
                 checkEfoTermAssignmentService,
                 associationOperationsService,
                 associationUploadService,
+                associationUploadJobService,
                 currentUserDetailsService,
                 associationValidationReportService,
                 associationDeletionService,
@@ -218,71 +223,148 @@ public class AssociationControllerTest {
     }
 
     @Test
-    public void uploadStudySnpsFileWithError() throws Exception {
+    public void uploadStudySnpsSubmitsJob() throws Exception {
 
         // Create objects required for testing
         MockMultipartFile file =
                 new MockMultipartFile("file", "filename.txt", "text/plain", "TEST".getBytes());
-        AssociationUploadErrorView associationUploadErrorView1 =
-                new AssociationUploadErrorView(1, "OR", "Value is not empty", false, "data");
-        List<AssociationUploadErrorView> uploadErrorViews = Collections.singletonList(associationUploadErrorView1);
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), file.getOriginalFilename());
 
         // Stubbing
         when(studyRepository.findOne(Matchers.anyLong())).thenReturn(STUDY);
         when(currentUserDetailsService.getUserFromRequest(Matchers.any(HttpServletRequest.class))).thenReturn(
                 SECURE_USER);
-        when(associationUploadService.upload(file, STUDY, SECURE_USER)).thenReturn(uploadErrorViews);
+        when(associationUploadJobService.submit(file, STUDY, SECURE_USER)).thenReturn(job);
 
         mockMvc.perform(fileUpload("/studies/1234/associations/upload").file(file).param("studyId", "1234"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(view().name("redirect:/studies/1234/associations/upload/" + job.getId()));
+
+        verify(studyRepository, times(1)).findOne(Matchers.anyLong());
+        verify(associationUploadJobService, times(1)).submit(file, STUDY, SECURE_USER);
+        verifyZeroInteractions(associationUploadService);
+    }
+
+    @Test
+    public void viewStudySnpsUploadInProgress() throws Exception {
+
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), "filename.txt");
+        job.startValidating();
+
+        // Stubbing
+        when(studyRepository.findOne(Matchers.anyLong())).thenReturn(STUDY);
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
+
+        mockMvc.perform(get("/studies/1234/associations/upload/" + job.getId()).accept(MediaType.TEXT_HTML_VALUE))
                 .andExpect(status().isOk())
-                .andExpect(model().attribute("fileName", file.getOriginalFilename()))
+                .andExpect(model().attributeExists("study"))
+                .andExpect(model().attribute("uploadJob", job))
+                .andExpect(view().name("association_upload_progress"));
+    }
+
+    @Test
+    public void viewStudySnpsUploadFileWithError() throws Exception {
+
+        // Create objects required for testing
+        AssociationUploadErrorView associationUploadErrorView1 =
+                new AssociationUploadErrorView(1, "OR", "Value is not empty", false, "data");
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), "filename.txt");
+        job.startValidating();
+        job.complete(Collections.singletonList(associationUploadErrorView1));
+
+        // Stubbing
+        when(studyRepository.findOne(Matchers.anyLong())).thenReturn(STUDY);
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
+
+        mockMvc.perform(get("/studies/1234/associations/upload/" + job.getId()).accept(MediaType.TEXT_HTML_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("fileName", "filename.txt"))
                 .andExpect(model().attribute("fileErrors", instanceOf(List.class)))
                 .andExpect(model().attribute("fileErrors", hasSize(1)))
                 .andExpect(model().attributeExists("study"))
                 .andExpect(view().name("error_pages/association_file_upload_error"));
 
         verify(studyRepository, times(1)).findOne(Matchers.anyLong());
-        verify(associationUploadService, times(1)).upload(file, STUDY, SECURE_USER);
     }
 
     @Test
-    public void uploadStudySnpsFileWithNoError() throws Exception {
+    public void viewStudySnpsUploadFileWithNoError() throws Exception {
 
-        // Create objects required for testing
-        MockMultipartFile file =
-                new MockMultipartFile("file", "filename.txt", "text/plain", "TEST".getBytes());
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), "filename.txt");
+        job.startValidating();
+        job.startSaving();
+        job.complete(Collections.emptyList());
 
         // Stubbing
         when(studyRepository.findOne(Matchers.anyLong())).thenReturn(STUDY);
-        when(currentUserDetailsService.getUserFromRequest(Matchers.any(HttpServletRequest.class))).thenReturn(
-                SECURE_USER);
-        when(associationUploadService.upload(file, STUDY, SECURE_USER)).thenReturn(Collections.EMPTY_LIST);
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
 
-        mockMvc.perform(fileUpload("/studies/1234/associations/upload").file(file).param("studyId", "1234"))
+        mockMvc.perform(get("/studies/1234/associations/upload/" + job.getId()).accept(MediaType.TEXT_HTML_VALUE))
                 .andExpect(status().is3xxRedirection())
-                .andExpect(model().attributeExists("study"))
                 .andExpect(view().name("redirect:/studies/1234/associations"));
-        verify(studyRepository, times(1)).findOne(Matchers.anyLong());
     }
 
     @Test
-    public void uploadStudySnpsFileWithMappingError() throws Exception {
+    public void viewStudySnpsUploadFileWithMappingError() throws Exception {
 
-        // Create objects required for testing
-        MockMultipartFile file =
-                new MockMultipartFile("file", "filename.txt", "text/plain", "TEST".getBytes());
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), "filename.txt");
+        job.startValidating();
+        job.startSaving();
+        job.completeWithMappingFailure();
 
         // Stubbing
         when(studyRepository.findOne(Matchers.anyLong())).thenReturn(STUDY);
-        when(currentUserDetailsService.getUserFromRequest(Matchers.any(HttpServletRequest.class))).thenReturn(
-                SECURE_USER);
-        when(associationUploadService.upload(file, STUDY, SECURE_USER)).thenThrow(EnsemblMappingException.class);
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
 
-        mockMvc.perform(fileUpload("/studies/1234/associations/upload").file(file).param("studyId", "1234"))
+        mockMvc.perform(get("/studies/1234/associations/upload/" + job.getId()).accept(MediaType.TEXT_HTML_VALUE))
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("study"))
                 .andExpect(view().name("ensembl_mapping_failure"));
-        verify(studyRepository, times(1)).findOne(Matchers.anyLong());
+    }
+
+    @Test
+    public void viewStudySnpsUploadFileWithWrongFormat() throws Exception {
+
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), "filename.txt");
+        job.startValidating();
+        job.fail(AssociationUploadJob.Failure.WRONG_FILE_FORMAT, "Wrong file format");
+
+        // Stubbing
+        when(studyRepository.findOne(Matchers.anyLong())).thenReturn(STUDY);
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
+
+        mockMvc.perform(get("/studies/1234/associations/upload/" + job.getId()).accept(MediaType.TEXT_HTML_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(view().name("error_pages/wrong_file_format_warning"));
+    }
+
+    @Test
+    public void viewStudySnpsUploadOfOtherStudy() throws Exception {
+
+        AssociationUploadJob job = new AssociationUploadJob(999L, "filename.txt");
+
+        // Stubbing
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
+
+        mockMvc.perform(get("/studies/1234/associations/upload/" + job.getId()).accept(MediaType.TEXT_HTML_VALUE))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(view().name("redirect:/studies/1234/associations"));
+        verify(studyRepository, never()).findOne(Matchers.anyLong());
+    }
+
+    @Test
+    public void cancelStudySnpsUpload() throws Exception {
+
+        AssociationUploadJob job = new AssociationUploadJob(STUDY.getId(), "filename.txt");
+
+        // Stubbing
+        when(associationUploadJobService.getJob(job.getId())).thenReturn(job);
+        when(associationUploadJobService.cancel(job.getId())).thenReturn(true);
+
+        mockMvc.perform(post("/studies/1234/associations/upload/" + job.getId() + "/cancel"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(view().name("redirect:/studies/1234/associations"));
+        verify(associationUploadJobService, times(1)).cancel(job.getId());
     }
 
     @Test
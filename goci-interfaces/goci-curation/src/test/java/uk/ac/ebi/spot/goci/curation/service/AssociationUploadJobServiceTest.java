@@ -0,0 +1,184 @@
+package uk.ac.ebi.spot.goci.curation.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.ac.ebi.spot.goci.builder.SecureUserBuilder;
+import uk.ac.ebi.spot.goci.builder.StudyBuilder;
+import uk.ac.ebi.spot.goci.curation.model.AssociationUploadErrorView;
+import uk.ac.ebi.spot.goci.curation.model.AssociationUploadJob;
+import uk.ac.ebi.spot.goci.exception.SheetProcessingException;
+import uk.ac.ebi.spot.goci.model.SecureUser;
+import uk.ac.ebi.spot.goci.model.Study;
+import uk.ac.ebi.spot.goci.model.ValidationSummary;
+import uk.ac.ebi.spot.goci.repository.StudyRepository;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AssociationUploadJobServiceTest {
+
+    @Mock
+    private AssociationUploadService associationUploadService;
+
+    @Mock
+    private StudyRepository studyRepository;
+
+    @Mock
+    private StudyFileService studyFileService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AssociationUploadJobService associationUploadJobService;
+
+    private final CountDownLatch validationReleased = new CountDownLatch(1);
+
+    private static final SecureUser SECURE_USER =
+            new SecureUserBuilder().setId(564L).setEmail("test@test.com").setPasswordHash("738274$$").build();
+
+    private static final Study STUDY = new StudyBuilder().setId(100L).build();
+
+    private static final AssociationUploadErrorView ERROR =
+            new AssociationUploadErrorView(1, "OR", "Value is not empty", false, "data");
+
+    @Before
+    public void setUp() throws Exception {
+        associationUploadJobService = new AssociationUploadJobService(associationUploadService,
+                                                                      studyRepository,
+                                                                      studyFileService,
+                                                                      transactionManager);
+        associationUploadJobService.setJobThreads(1);
+        associationUploadJobService.setJobQueueSize(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        validationReleased.countDown();
+        associationUploadJobService.shutdown();
+    }
+
+    @Test
+    public void submitRefusedWhenQueueIsFull() throws Exception {
+        blockValidation();
+
+        AssociationUploadJob running = associationUploadJobService.submit(file("running.xlsx"), STUDY, SECURE_USER);
+        AssociationUploadJob queued = associationUploadJobService.submit(file("queued.xlsx"), STUDY, SECURE_USER);
+        AssociationUploadJob refused = associationUploadJobService.submit(file("refused.xlsx"), STUDY, SECURE_USER);
+
+        assertThat(running.isDone()).isFalse();
+        assertThat(queued.getStatus()).isEqualTo(AssociationUploadJob.Status.QUEUED);
+        assertThat(refused.getStatus()).isEqualTo(AssociationUploadJob.Status.FAILED);
+        assertThat(refused.getFailure()).isEqualTo(AssociationUploadJob.Failure.REJECTED);
+        verify(studyFileService).deleteFile(STUDY.getId(), "refused.xlsx");
+        verify(studyFileService, never()).deleteFile(STUDY.getId(), "queued.xlsx");
+    }
+
+    @Test
+    public void cancelQueuedJobDeletesItsFile() throws Exception {
+        blockValidation();
+
+        associationUploadJobService.submit(file("running.xlsx"), STUDY, SECURE_USER);
+        AssociationUploadJob queued = associationUploadJobService.submit(file("queued.xlsx"), STUDY, SECURE_USER);
+
+        assertThat(associationUploadJobService.cancel(queued.getId())).isTrue();
+        assertThat(queued.getStatus()).isEqualTo(AssociationUploadJob.Status.CANCELLED);
+        verify(studyFileService).deleteFile(STUDY.getId(), "queued.xlsx");
+
+        validationReleased.countDown();
+        awaitJobs();
+        verify(associationUploadService, never()).validate("queued.xlsx", STUDY.getId());
+    }
+
+    @Test
+    public void cancelSavingJobIsRefused() throws Exception {
+        ValidationSummary validationSummary = new ValidationSummary();
+        when(associationUploadService.validate("file.xlsx", STUDY.getId())).thenReturn(validationSummary);
+        when(associationUploadService.findErrors(validationSummary, "file.xlsx", STUDY.getId()))
+                .thenReturn(Collections.emptyList());
+        when(studyRepository.findOne(STUDY.getId())).thenReturn(STUDY);
+
+        AssociationUploadJob job = associationUploadJobService.submit(file("file.xlsx"), STUDY, SECURE_USER);
+        awaitJobs();
+
+        assertThat(job.getStatus()).isEqualTo(AssociationUploadJob.Status.COMPLETED);
+        assertThat(associationUploadJobService.cancel(job.getId())).isFalse();
+        verify(associationUploadService).save(validationSummary, "file.xlsx", STUDY, SECURE_USER);
+        verify(studyFileService, never()).deleteFile(anyLong(), anyString());
+    }
+
+    @Test
+    public void finishedJobsExpire() throws Exception {
+        when(associationUploadService.findErrors(any(ValidationSummary.class), eq("file.xlsx"), eq(STUDY.getId())))
+                .thenReturn(Collections.singletonList(ERROR));
+        when(associationUploadService.validate("file.xlsx", STUDY.getId())).thenReturn(new ValidationSummary());
+
+        AssociationUploadJob job = associationUploadJobService.submit(file("file.xlsx"), STUDY, SECURE_USER);
+        awaitJobs();
+
+        assertThat(associationUploadJobService.getJob(job.getId())).isSameAs(job);
+        assertThat(job.getErrors()).containsExactly(ERROR);
+
+        associationUploadJobService.setJobRetention(0);
+        Thread.sleep(5);
+        assertThat(associationUploadJobService.getJob(job.getId())).isNull();
+    }
+
+    @Test
+    public void wrongFileFormatIsRecorded() throws Exception {
+        when(associationUploadService.validate("file.xlsx", STUDY.getId()))
+                .thenThrow(new SheetProcessingException("Not a spreadsheet"));
+
+        AssociationUploadJob job = associationUploadJobService.submit(file("file.xlsx"), STUDY, SECURE_USER);
+        awaitJobs();
+
+        assertThat(job.getStatus()).isEqualTo(AssociationUploadJob.Status.FAILED);
+        assertThat(job.getFailure()).isEqualTo(AssociationUploadJob.Failure.WRONG_FILE_FORMAT);
+    }
+
+    @Test
+    public void missingFileIsRecorded() throws Exception {
+        when(associationUploadService.validate("file.xlsx", STUDY.getId()))
+                .thenThrow(new IOException(new FileNotFoundException("file.xlsx")));
+
+        AssociationUploadJob job = associationUploadJobService.submit(file("file.xlsx"), STUDY, SECURE_USER);
+        awaitJobs();
+
+        assertThat(job.getStatus()).isEqualTo(AssociationUploadJob.Status.FAILED);
+        assertThat(job.getFailure()).isEqualTo(AssociationUploadJob.Failure.FILE_NOT_FOUND);
+    }
+
+    private void blockValidation() throws Exception {
+        when(associationUploadService.validate(anyString(), anyLong())).thenAnswer(invocation -> {
+            validationReleased.await();
+            return null;
+        });
+    }
+
+    private void awaitJobs() throws Exception {
+        associationUploadJobService.getJobExecutor().shutdown();
+        assertThat(associationUploadJobService.getJobExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("file", name, "application/vnd.ms-excel", "TEST".getBytes());
+    }
+}
@@ -3,7 +3,10 @@ package uk.ac.ebi.spot.goci.pussycat.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.SingleNucleotidePolymorphism;
 import uk.ac.ebi.spot.goci.model.Study;
@@ -20,8 +24,10 @@ import uk.ac.ebi.spot.goci.pussycat.lang.Filter;
 import uk.ac.ebi.spot.goci.pussycat.manager.PussycatManager;
 import uk.ac.ebi.spot.goci.pussycat.renderlet.RenderletNexus;
 import uk.ac.ebi.spot.goci.pussycat.service.DiagramConversionService;
+import uk.ac.ebi.spot.goci.pussycat.session.CachedSVG;
 import uk.ac.ebi.spot.goci.pussycat.session.PussycatSession;
 import uk.ac.ebi.spot.goci.pussycat.session.PussycatSessionStrategy;
+import uk.ac.ebi.spot.goci.pussycat.session.SVGCachingPussycatSession;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
@@ -29,6 +35,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -49,7 +56,7 @@ import static uk.ac.ebi.spot.goci.pussycat.lang.Filtering.template;
  */
 @Controller
 public class PussycatGOCIController {
-
+    private static final MediaType SVG_CONTENT_TYPE = MediaType.parseMediaType("image/svg+xml;charset=UTF-8");
 
     private PussycatSessionStrategy sessionStrategy;
     private PussycatManager pussycatManager;
@@ -97,20 +104,21 @@ public class PussycatGOCIController {
     }
 
     @RequestMapping(value = "/gwasdiagram")
-    public @ResponseBody String renderGWASDiagram(HttpSession session)
+    public ResponseEntity<byte[]> renderGWASDiagram(HttpSession session, WebRequest request)
             throws PussycatSessionNotReadyException, NoRenderableDataException {
         // render all data using the pussycat session for this http session
-        return getPussycatSession(session).performRendering(getRenderletNexus(session));
+        return renderDiagram(session, request, createRenderletNexus(session));
     }
 
     @RequestMapping(value = "/gwasdiagram/associations")
-    public @ResponseBody String renderAssociations(@RequestParam(value = "pvaluemin",
+    public ResponseEntity<byte[]> renderAssociations(@RequestParam(value = "pvaluemin",
                                                                  required = false) String pvalueMin,
                                                    @RequestParam(value = "pvaluemax",
                                                                  required = false) String pvalueMax,
                                                    @RequestParam(value = "datemin", required = false) String dateMin,
                                                    @RequestParam(value = "datemax", required = false) String dateMax,
-                                                   HttpSession session)
+                                                   HttpSession session,
+                                                   WebRequest request)
             throws PussycatSessionNotReadyException, NoRenderableDataException {
 
         getLog().debug("Received a new rendering request - " +
@@ -131,31 +139,71 @@ public class PussycatGOCIController {
         }
         Filter pvalueFilter = null;
         Filter dateFilter = null;
+        RenderletNexus renderletNexus = createRenderletNexus(session);
 
         if (pvalueMin != null || pvalueMax != null) {
             pvalueFilter = setPvalueFilter(pvalueMin, pvalueMax);
-            getRenderletNexus(session).setRenderingContext(pvalueFilter);
+            renderletNexus.setRenderingContext(pvalueFilter);
         }
 
         if (dateMin != null || dateMax != null) {
             dateFilter = setDateFilter(dateMin, dateMax);
-            getRenderletNexus(session).setRenderingContext(dateFilter);
+            renderletNexus.setRenderingContext(dateFilter);
         }
 
 
         if (dateFilter == null && pvalueFilter == null) {
-            return getPussycatSession(session).performRendering(getRenderletNexus(session));
+            return renderDiagram(session, request, renderletNexus);
         }
         else if (dateFilter == null && pvalueFilter != null) {
-            return getPussycatSession(session).performRendering(getRenderletNexus(session), pvalueFilter);
+            return renderDiagram(session, request, renderletNexus, pvalueFilter);
 
         }
         else if (pvalueFilter == null && dateFilter != null) {
-            return getPussycatSession(session).performRendering(getRenderletNexus(session), dateFilter);
+            return renderDiagram(session, request, renderletNexus, dateFilter);
+
+        }
+        else {
+            return renderDiagram(session, request, renderletNexus, dateFilter, pvalueFilter);
+        }
+    }
 
+    /**
+     * Renders a diagram for the given filters, as a response that browsers can revalidate with a conditional GET.
+     * Cached diagrams carry an ETag and Last-Modified date, and are sent gzipped as cached if the client accepts it.
+     * The gzipped and uncompressed diagrams have different ETags, so a cache never serves one for the other.
+     *
+     * @return the diagram response, or null if the client copy is still valid (the response is then a 304)
+     */
+    protected ResponseEntity<byte[]> renderDiagram(HttpSession session,
+                                                   WebRequest request,
+                                                   RenderletNexus renderletNexus,
+                                                   Filter... filters)
+            throws PussycatSessionNotReadyException, NoRenderableDataException {
+        PussycatSession pussycatSession = getPussycatSession(session);
+        if (!(pussycatSession instanceof SVGCachingPussycatSession)) {
+            String svg = pussycatSession.performRendering(renderletNexus, filters);
+            return ResponseEntity.ok()
+                    .contentType(SVG_CONTENT_TYPE)
+                    .body(svg.getBytes(StandardCharsets.UTF_8));
+        }
+
+        CachedSVG svg = ((SVGCachingPussycatSession) pussycatSession).performCachedRendering(renderletNexus, filters);
+        boolean gzip = CachedSVG.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = gzip ? svg.getGzipETag() : svg.getETag();
+        if (request.checkNotModified(eTag, svg.getLastModified())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(SVG_CONTENT_TYPE)
+                .eTag(eTag)
+                .lastModified(svg.getLastModified())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(svg.getGzippedSVG());
         }
         else {
-            return getPussycatSession(session).performRendering(getRenderletNexus(session), dateFilter, pvalueFilter);
+            return response.body(svg.getSVG().getBytes(StandardCharsets.UTF_8));
         }
     }
 
@@ -256,7 +304,7 @@ public class PussycatGOCIController {
     public @ResponseBody String renderSNPs(HttpSession session)
             throws PussycatSessionNotReadyException, NoRenderableDataException {
         SingleNucleotidePolymorphism snp = template(SingleNucleotidePolymorphism.class);
-        return getPussycatSession(session).performRendering(getRenderletNexus(session), filter(snp));
+        return getPussycatSession(session).performRendering(createRenderletNexus(session), filter(snp));
     }
 
     @RequestMapping(value = "/snps/{rsID}")
@@ -264,14 +312,14 @@ public class PussycatGOCIController {
             throws PussycatSessionNotReadyException, NoRenderableDataException {
         SingleNucleotidePolymorphism snp = template(SingleNucleotidePolymorphism.class);
         Filter filter = refine(snp).on(snp.getRsId()).hasValue(rsID);
-        return getPussycatSession(session).performRendering(getRenderletNexus(session), filter);
+        return getPussycatSession(session).performRendering(createRenderletNexus(session), filter);
     }
 
     @RequestMapping(value = "/associations")
     public @ResponseBody String renderAllAssociations(HttpSession session)
             throws PussycatSessionNotReadyException, NoRenderableDataException {
         Association ta = template(Association.class);
-        return getPussycatSession(session).performRendering(getRenderletNexus(session), filter(ta));
+        return getPussycatSession(session).performRendering(createRenderletNexus(session), filter(ta));
     }
 
     @RequestMapping(value = "/traits/{efoURI}")
@@ -279,7 +327,7 @@ public class PussycatGOCIController {
             throws PussycatSessionNotReadyException, NoRenderableDataException {
         Association ta = template(Association.class);
         Filter filter = refine(ta).on(ta.getEfoTraits()).hasValue(URI.create(efoURI));
-        return getPussycatSession(session).performRendering(getRenderletNexus(session), filter);
+        return getPussycatSession(session).performRendering(createRenderletNexus(session), filter);
     }
 
     /**
@@ -357,6 +405,18 @@ public class PussycatGOCIController {
         }
     }
 
+    /**
+     * Creates a new renderlet nexus for a single rendering request.  Rendering context and rendered state are never
+     * shared between requests, even from the same HttpSession, so that requests can be rendered concurrently
+     *
+     * @param session the http session in which to perform this request
+     * @return a renderlet nexus for this request only
+     * @throws PussycatSessionNotReadyException
+     */
+    protected RenderletNexus createRenderletNexus(HttpSession session) throws PussycatSessionNotReadyException {
+        return getPussycatManager().createRenderletNexus(getPussycatSession(session));
+    }
+
     protected RenderletNexus getRenderletNexus(HttpSession session) throws PussycatSessionNotReadyException {
         getLog().debug("Attempting to obtain RenderletNexus session for HttpSession '" + session.getId() + "'");
 
@@ -401,15 +461,16 @@ public class PussycatGOCIController {
         }
         Filter pvalueFilter = null;
         Filter dateFilter = null;
+        RenderletNexus renderletNexus = createRenderletNexus(session);
 
         if (pvalueMin != null || pvalueMax != null) {
             pvalueFilter = setPvalueFilter(pvalueMin, pvalueMax);
-            getRenderletNexus(session).setRenderingContext(pvalueFilter);
+            renderletNexus.setRenderingContext(pvalueFilter);
         }
 
         if (dateMin != null || dateMax != null) {
             dateFilter = setDateFilter(dateMin, dateMax);
-            getRenderletNexus(session).setRenderingContext(dateFilter);
+            renderletNexus.setRenderingContext(dateFilter);
         }
 
         String svg;
@@ -417,15 +478,15 @@ public class PussycatGOCIController {
 
 
         if (dateFilter == null && pvalueFilter == null) {
-            svg = getPussycatSession(session).performRendering(getRenderletNexus(session));
+            svg = getPussycatSession(session).performRendering(renderletNexus);
             fileName = fileName.concat("_all.svg");
         }
         else if (dateFilter == null && pvalueFilter != null) {
-            svg = getPussycatSession(session).performRendering(getRenderletNexus(session), pvalueFilter);
+            svg = getPussycatSession(session).performRendering(renderletNexus, pvalueFilter);
             fileName = fileName.concat("_latest.svg");
         }
         else if (pvalueFilter == null && dateFilter != null) {
-            svg = getPussycatSession(session).performRendering(getRenderletNexus(session), dateFilter);
+            svg = getPussycatSession(session).performRendering(renderletNexus, dateFilter);
             if (dateMax != null) {
                 fileName = fileName.concat("_all-").concat(dateMax).concat(".svg");
             }
@@ -434,7 +495,7 @@ public class PussycatGOCIController {
             }
         }
         else {
-            svg = getPussycatSession(session).performRendering(getRenderletNexus(session), dateFilter, pvalueFilter);
+            svg = getPussycatSession(session).performRendering(renderletNexus, dateFilter, pvalueFilter);
             if (dateMax != null) {
                 fileName = fileName.concat("_").concat(dateMax).concat(".svg");
             }
@@ -17,14 +17,15 @@ import java.util.Set;
 //import uk.ac.ebi.spot.goci.ui.model.AssociationSummary;
 
 /**
- * A pussycat session that acts as a proxy over a concrete implementation, but caches (to disk) SVG documents that are
- * rendered on demand.
+ * A pussycat session that acts as a proxy over a concrete implementation, but caches (in memory and to disk) SVG
+ * documents that are rendered on demand.
  * <p>
  * The caching strategy is to take the supplied home directory and create within this directory a uniquely named file
  * for each request to {@link #performRendering(uk.ac.ebi.spot.goci.pussycat.renderlet.RenderletNexus,
  * uk.ac.ebi.spot.goci.lang.Filter[])}.  This implementation does this by creating a hash of the supplied arguments and
  * saving the SVG output to this file.  It is possible to reacquire documents from this cache on repeated requests,
- * effectively creating a disk-based "lazy-load" strategy for SVG rendering.
+ * effectively creating a disk-based "lazy-load" strategy for SVG rendering.  The most recently used documents are also
+ * kept in memory, see {@link AbstractSVGIOPussycatSession} for eviction and invalidation.
  *
  * @author Tony Burdett
  * @date 02/08/12
@@ -57,21 +58,29 @@ public class SVGCachingPussycatSession extends AbstractSVGIOPussycatSession {
 
     @Override public String performRendering(RenderletNexus renderletNexus, Filter... filters)
             throws PussycatSessionNotReadyException, NoRenderableDataException {
+        return performCachedRendering(renderletNexus, filters).getSVG();
+    }
+
+    /**
+     * Returns the cached SVG document for the supplied filters, rendering and caching it first if necessary.  Unlike
+     * {@link #performRendering(RenderletNexus, Filter...)}, the document is returned gzipped together with its entity
+     * tag and last modification time, so that it can be served to clients as is and revalidated by them.
+     */
+    public CachedSVG performCachedRendering(RenderletNexus renderletNexus, Filter... filters)
+            throws PussycatSessionNotReadyException, NoRenderableDataException {
         String filename = generateFilename(filters);
-        String svg;
         try {
-            if (isInCache(filename)) {
-                // this document already exists in cache, load document
-                getLog().debug("Reusing cached SVG file for the supplied filters (file " + filename + ")");
-                svg = readSVG(filename);
+            CachedSVG svg = readSVG(filename);
+            if (svg != null) {
+                // this document already exists in cache, reuse it
+                getLog().debug("Reusing cached SVG for the supplied filters (key " + filename + ")");
             }
             else {
                 // need to perform rendering, delegate to proxy
-                getLog().debug("No cached SVG file for the supplied filters " +
-                                       "(filename expected: " + filename + "), delegating request");
-                svg = getProxiedSession().performRendering(renderletNexus, filters);
-                // and write the svg to disk
-                writeSVG(filename, svg);
+                getLog().debug("No cached SVG for the supplied filters " +
+                                       "(key expected: " + filename + "), delegating request");
+                // and cache the svg
+                svg = writeSVG(filename, getProxiedSession().performRendering(renderletNexus, filters));
             }
             return svg;
         }
@@ -15,7 +15,6 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
-import uk.ac.ebi.spot.goci.service.DataImportExportService;
 import uk.ac.ebi.spot.goci.service.FilterDataProcessingService;
 
 import java.io.File;
@@ -31,9 +30,6 @@ public class AssociationFilterApplication {
     private static Boolean prune = false;
     private static Double threshold = 1e-5;
 
-    @Autowired
-    private DataImportExportService dataImportExportService;
-
     @Autowired
     private FilterDataProcessingService filterDataProcessingService;
 
@@ -167,12 +163,9 @@ public class AssociationFilterApplication {
 
     private void doFiltering(File inputFile, File outputFile) {
         try {
-            getLog().info("Reading input file");
-            String[][] data = dataImportExportService.readFromFile(inputFile);
-            getLog().info("Input file processed, starting data transformation and filtering process");
-            String[][] transformAssocations = filterDataProcessingService.filterInputData(data, threshold, prune);
-            getLog().info("Exporting filtered data to file");
-            dataImportExportService.writeToFile(transformAssocations, outputFile);
+            getLog().info("Filtering input file, streaming filtered data to output file");
+            filterDataProcessingService.filterFile(inputFile, outputFile, threshold, prune);
+            getLog().info("Filtered data exported to file");
         }
 //        catch (IOException e) {
 //            e.printStackTrace();
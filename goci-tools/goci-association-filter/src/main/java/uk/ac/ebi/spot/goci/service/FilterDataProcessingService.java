@@ -4,8 +4,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.io.TabularReader;
+import uk.ac.ebi.spot.goci.io.TabularWriter;
 import uk.ac.ebi.spot.goci.model.FilterAssociation;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -29,6 +32,9 @@ public class FilterDataProcessingService {
     @Autowired
     private FilteringService filteringService;
 
+    @Autowired
+    private DataImportExportService dataImportExportService;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -42,39 +48,114 @@ public class FilterDataProcessingService {
         Map<String, List<FilterAssociation>> allAssociations = processInputData(data, threshold);
 
         if(allAssociations.get("included").size() != 0) {
-            List<FilterAssociation> associations = allAssociations.get("included");
+            List<FilterAssociation> filtered = filterAssociations(allAssociations.get("included"));
 
+            if(allAssociations.get("excluded").size() != 0 && !pruneOutput) {
+                  filtered.addAll(allAssociations.get("excluded"));
+            }
 
-            getLog().info("Starting sorting by chromosome");
-            Map<String, List<FilterAssociation>> byChrom = filteringService.groupByChromosomeName(associations);
-
-            getLog().info("Sorting by chromosome done");
+            String[][] output = transformAssociations(filtered);
+            return output;
+        }
+        else{
+            System.err.println("Your data contains no associations below your chosen significance threshold");
 
-            getLog().info("Starting sorting by bp location");
+            throw new Exception("Your data contains no associations below your chosen significance threshold");
+        }
+    }
 
-            Map<String, List<FilterAssociation>> byLoc = filteringService.sortByBPLocation(byChrom);
+    /**
+     * Filter a file row by row, writing the result to another file.  Only the associations below the threshold are
+     * held in memory, as they are needed to select the top associations; the associations above the threshold are
+     * read again from the input file and written straight to the output file, unless the output is pruned.
+     */
+    public void filterFile(File inputFile, File outputFile, Double threshold, Boolean pruneOutput) throws Exception {
+        List<FilterAssociation> included = new ArrayList<>();
+        long excluded = 0;
 
-            getLog().info("Sorting by bp location done");
+        try (TabularReader reader = dataImportExportService.openFile(inputFile)) {
+            headers = nextDataRow(reader);
+            if (headers == null) {
+                throw new Exception("Your data contains no headers");
+            }
+            processHeaders();
 
+            String[] row;
+            while ((row = nextDataRow(reader)) != null) {
+                FilterAssociation fa = createAssociation(row);
+                if (fa.getPvalue() < threshold) {
+                    included.add(fa);
+                }
+                else {
+                    excluded++;
+                }
+            }
+        }
+        getLog().info("Read " + included.size() + " associations below and " + excluded +
+                              " associations above the threshold");
 
-            getLog().info("Starting filtering process");
+        if (included.isEmpty()) {
+            System.err.println("Your data contains no associations below your chosen significance threshold");
 
-            List<FilterAssociation> filtered = filteringService.filterTopAssociations(byLoc);
-            getLog().info("Filtering process complete");
+            throw new Exception("Your data contains no associations below your chosen significance threshold");
+        }
 
+        List<FilterAssociation> filtered = filterAssociations(included);
 
-            if(allAssociations.get("excluded").size() != 0 && !pruneOutput) {
-                  filtered.addAll(allAssociations.get("excluded"));
+        try (TabularWriter writer = dataImportExportService.createFile(outputFile)) {
+            writer.writeRow(transformHeaders());
+            for (FilterAssociation fa : filtered) {
+                writer.writeRow(transformAssociation(fa));
             }
 
-            String[][] output = transformAssociations(filtered);
-            return output;
+            if (excluded != 0 && !pruneOutput) {
+                try (TabularReader reader = dataImportExportService.openFile(inputFile)) {
+                    // skip the headers
+                    nextDataRow(reader);
+                    String[] row;
+                    while ((row = nextDataRow(reader)) != null) {
+                        FilterAssociation fa = createAssociation(row);
+                        if (!(fa.getPvalue() < threshold)) {
+                            writer.writeRow(transformAssociation(fa));
+                        }
+                    }
+                }
+            }
+            getLog().info("Wrote " + (writer.getRowCount() - 1) + " associations to " + outputFile);
         }
-        else{
-            System.err.println("Your data contains no associations below your chosen significance threshold");
+    }
 
-            throw new Exception("Your data contains no associations below your chosen significance threshold");
+    /**
+     * @return the next row that is neither empty nor commented, or null at the end of the file
+     */
+    private String[] nextDataRow(TabularReader reader) {
+        while (reader.hasNext()) {
+            String[] row = reader.next();
+            if (row.length != 0 && !row[0].startsWith("#")) {
+                return row;
+            }
         }
+        return null;
+    }
+
+    private List<FilterAssociation> filterAssociations(List<FilterAssociation> associations) {
+        getLog().info("Starting sorting by chromosome");
+        Map<String, List<FilterAssociation>> byChrom = filteringService.groupByChromosomeName(associations);
+
+        getLog().info("Sorting by chromosome done");
+
+        getLog().info("Starting sorting by bp location");
+
+        Map<String, List<FilterAssociation>> byLoc = filteringService.sortByBPLocation(byChrom);
+
+        getLog().info("Sorting by bp location done");
+
+
+        getLog().info("Starting filtering process");
+
+        List<FilterAssociation> filtered = filteringService.filterTopAssociations(byLoc);
+        getLog().info("Filtering process complete");
+        return filtered;
     }
 
     public void processHeaders(){
@@ -119,121 +200,135 @@ public class FilterDataProcessingService {
                 System.out.println((i*100)/data.length + " % done");
             }
 
-            String strongestAllele = data[i][rs_id];
-            String chromosomeName = data[i][chromosome];
-            String chromosomePosition  = data[i][bp_location];
+            FilterAssociation fa = createAssociation(data[i]);
 
-            String pval = data[i][pvalue].toLowerCase();
+            if(fa.getPvalue() < threshold){
+                included.add(fa);
+            }
+            else{
+                excluded.add(fa);
+            }
 
-            Double pvalueFull = Double.parseDouble(pval);
+        }
 
-            Double pvalueMantissa;
-            Integer pvalueExponent;
+        associations.put("included", included);
+        associations.put("excluded", excluded);
+        return associations;
+    }
 
-            if(!pval.contains("e")){
-                double m = pvalueFull;
-                int e = 0;
 
-                while(m < 1){
-                    e--;
-                    m = m*10;
-                }
-                pvalueMantissa = m;
-                pvalueExponent = e;
-            }
-            else {
-                String[] p = pval.split("e");
-                pvalueMantissa = Double.parseDouble(p[0]);
-                pvalueExponent = Integer.parseInt(p[1]);
-            }
+    public FilterAssociation createAssociation(String[] row) {
+        String strongestAllele = row[rs_id];
+        String chromosomeName = row[chromosome];
+        String chromosomePosition  = row[bp_location];
 
-            FilterAssociation fa = new FilterAssociation(strongestAllele, pvalueMantissa, pvalueExponent, chromosomeName, chromosomePosition);
+        String pval = row[pvalue].toLowerCase();
 
-            if(pvalueExponent < -323){
-                fa.setPrecisionConcern(true);
-            }
+        Double pvalueFull = Double.parseDouble(pval);
+
+        Double pvalueMantissa;
+        Integer pvalueExponent;
 
-            if(ld_block != null){
-                fa.setLdBlock(data[i][ld_block]);
+        if(!pval.contains("e")){
+            double m = pvalueFull;
+            int e = 0;
+
+            while(m < 1){
+                e--;
+                m = m*10;
             }
+            pvalueMantissa = m;
+            pvalueExponent = e;
+        }
+        else {
+            String[] p = pval.split("e");
+            pvalueMantissa = Double.parseDouble(p[0]);
+            pvalueExponent = Integer.parseInt(p[1]);
+        }
 
-            fa.setPvalue(pvalueFull);
+        FilterAssociation fa = new FilterAssociation(strongestAllele, pvalueMantissa, pvalueExponent, chromosomeName,
+                                                     chromosomePosition);
 
-            List<String> otherVals = new ArrayList<>();
+        if(pvalueExponent < -323){
+            fa.setPrecisionConcern(true);
+        }
 
-            for(int o : other){
-                otherVals.add(data[i][o]);
-            }
-            
-            fa.setOtherInformation(otherVals);
+        if(ld_block != null){
+            fa.setLdBlock(row[ld_block]);
+        }
 
-            if(pvalueFull < threshold){
-                included.add(fa);
-            }
-            else{
-                excluded.add(fa);
-            }
+        fa.setPvalue(pvalueFull);
+
+        List<String> otherVals = new ArrayList<>();
 
+        for(int o : other){
+            otherVals.add(row[o]);
         }
 
-        associations.put("included", included);
-        associations.put("excluded", excluded);
-        return associations;
+        fa.setOtherInformation(otherVals);
+        return fa;
     }
 
 
     public String[][] transformAssociations(List<FilterAssociation> filtered) {
         List<String[]> lines = new ArrayList<>();
 
-        String[] newHeaders = new String[headers.length+1];
-
-        for(int i=0; i< headers.length; i++){
-            newHeaders[i] = headers[i];
-        }
-        newHeaders[headers.length] = "isTopAssociation";
-        lines.add(newHeaders);
+        lines.add(transformHeaders());
 
         System.out.println("About to prepare " + filtered.size() + " entries for export");
 
 
-        for(FilterAssociation f : filtered){
-            if((filtered.indexOf(f)*100)%filtered.size() == 0.0) {
-                System.out.println((filtered.indexOf(f)*100)/filtered.size() + " % done");
+        for(int i = 0; i < filtered.size(); i++){
+            if((i*100)%filtered.size() == 0) {
+                System.out.println((i*100)/filtered.size() + " % done");
             }
 
-            String[] line = new String[headers.length + 1];
+            lines.add(transformAssociation(filtered.get(i)));
+        }
+        return lines.toArray(new String[lines.size()][]);
+    }
 
-            line[rs_id] = f.getStrongestAllele();
-            line[chromosome] = f.getChromosomeName();
-            line[bp_location] = f.getChromosomePosition().toString();
+    public String[] transformHeaders() {
+        String[] newHeaders = new String[headers.length+1];
 
-            if(f.getIsAmbigious() && f.getIsTopAssociation()) {
-                line[headers.length] = "REQUIRES REVIEW";
-            }
-            else {
-                line[headers.length] = f.getIsTopAssociation().toString();
-            }
+        for(int i=0; i< headers.length; i++){
+            newHeaders[i] = headers[i];
+        }
+        newHeaders[headers.length] = "isTopAssociation";
+        return newHeaders;
+    }
 
-            if (f.getPrecisionConcern()) {
-                String m = f.getPvalueMantissa().toString();
-                String e = f.getPvalueExponent().toString();
-                line[pvalue] = m + "e" + e;
-            }
-            else {
-                line[pvalue] = String.valueOf(f.getPvalue());
-            }
+    public String[] transformAssociation(FilterAssociation f) {
+        String[] line = new String[headers.length + 1];
 
-            for (int o : other) {
-                line[o] = f.getOtherInformation().get(other.indexOf(o));
-            }
+        line[rs_id] = f.getStrongestAllele();
+        line[chromosome] = f.getChromosomeName();
+        line[bp_location] = f.getChromosomePosition().toString();
 
-            if (ld_block != null) {
-                line[ld_block] = f.getLdBlock();
-            }
+        if(f.getIsAmbigious() && f.getIsTopAssociation()) {
+            line[headers.length] = "REQUIRES REVIEW";
+        }
+        else {
+            line[headers.length] = f.getIsTopAssociation().toString();
+        }
+
+        if (f.getPrecisionConcern()) {
+            String m = f.getPvalueMantissa().toString();
+            String e = f.getPvalueExponent().toString();
+            line[pvalue] = m + "e" + e;
+        }
+        else {
+            line[pvalue] = String.valueOf(f.getPvalue());
+        }
 
-            lines.add(line);
+        List<String> otherInformation = f.getOtherInformation();
+        for (int o = 0; o < other.size(); o++) {
+            line[other.get(o)] = otherInformation.get(o);
+        }
 
+        if (ld_block != null) {
+            line[ld_block] = f.getLdBlock();
         }
-        return lines.toArray(new String[lines.size()][]);
+        return line;
     }
 }
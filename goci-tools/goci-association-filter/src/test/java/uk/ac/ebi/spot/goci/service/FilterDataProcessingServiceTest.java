@@ -0,0 +1,74 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FilterDataProcessingServiceTest {
+
+    private static final double THRESHOLD = 1e-5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DataImportExportService dataImportExportService;
+
+    private FilterDataProcessingService filterDataProcessingService;
+
+    private File inputFile;
+
+    @Before
+    public void setUp() throws Exception {
+        dataImportExportService = new DataImportExportService();
+        ReflectionTestUtils.setField(dataImportExportService, "delim", "\t");
+        ReflectionTestUtils.setField(dataImportExportService, "encoding", "UTF-8");
+
+        filterDataProcessingService = new FilterDataProcessingService();
+        ReflectionTestUtils.setField(filterDataProcessingService, "filteringService", new FilteringService());
+        ReflectionTestUtils.setField(filterDataProcessingService, "dataImportExportService", dataImportExportService);
+
+        inputFile = folder.newFile("input.tsv");
+        Files.write(inputFile.toPath(),
+                    Arrays.asList("rs_id\tpvalue\tchromosome\tbp_location\tgene",
+                                  "rs1\t1e-10\t1\t1000\tGENE1",
+                                  "rs2\t2e-8\t1\t50000\tGENE2",
+                                  "rs3\t0.01\t1\t60000\tGENE3",
+                                  "rs4\t3e-12\t2\t2000\tGENE4",
+                                  "rs5\t0.5\t2\t900000\tGENE5",
+                                  "rs6\t4e-7\t2\t950000\tGENE6",
+                                  "rs7\t6e-9\t2\t990000\tGENE7"),
+                    StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFilterFileMatchesFilterInputData() throws Exception {
+        assertFilterFileMatchesFilterInputData(false);
+    }
+
+    @Test
+    public void testPrunedFilterFileMatchesFilterInputData() throws Exception {
+        assertFilterFileMatchesFilterInputData(true);
+    }
+
+    private void assertFilterFileMatchesFilterInputData(boolean pruneOutput) throws Exception {
+        String[][] expected = filterDataProcessingService.filterInputData(
+                dataImportExportService.readFromFile(inputFile), THRESHOLD, pruneOutput);
+
+        File outputFile = folder.newFile("output.tsv");
+        filterDataProcessingService.filterFile(inputFile, outputFile, THRESHOLD, pruneOutput);
+        String[][] actual = dataImportExportService.readFromFile(outputFile);
+
+        assertEquals(pruneOutput ? 6 : 8, expected.length);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -36,6 +36,7 @@ import java.util.Arrays;
 public class GOCIDataPublisherDriver {
     private static File assertedOntologyFile;
     private static File inferredOntologyFile;
+    private static boolean streaming;
 
     @Autowired
     private GWASOWLPublisher gwasOwlPublisher;
@@ -65,7 +66,12 @@ public class GOCIDataPublisherDriver {
             int parseArgs = parseArguments(strings);
             if (parseArgs == 0) {
                 // execute publisher
-                this.publishAndSave(assertedOntologyFile, inferredOntologyFile);
+                if (streaming) {
+                    this.stream(assertedOntologyFile);
+                }
+                else {
+                    this.publishAndSave(assertedOntologyFile, inferredOntologyFile);
+                }
             }
             else {
                 // could not parse arguments, exit with exit code >1 (depending on parsing problem)
@@ -114,6 +120,8 @@ public class GOCIDataPublisherDriver {
                         String dateFilter = cl.getOptionValue("d");
                         FilterProperties.setDateFilter(dateFilter);
                     }
+
+                    streaming = cl.hasOption("s");
                 }
                 else {
                     System.err.println("-o (ontology output file) argument is required");
@@ -154,6 +162,11 @@ public class GOCIDataPublisherDriver {
                 new Option("d", "date", true, "The date on which to filter the knowledge base, in format YYYY-MM-DD");
         options.addOption(dateFilterOption);
 
+        Option streamOption = new Option("s", "stream", false,
+                                         "Convert studies in chunks, writing each chunk straight to the output file " +
+                                                 "(no inferred view)");
+        options.addOption(streamOption);
+
         return options;
     }
 
@@ -197,6 +210,23 @@ public class GOCIDataPublisherDriver {
         }
     }
 
+    public void stream(File assertedOntologyFile) throws RuntimeException {
+        try {
+            System.out.println("Attempting to convert and stream GWAS data as OWL...");
+            getGwasOwlPublisher().streamGWASData(assertedOntologyFile);
+            System.out.println("..done!");
+
+            if (inferredOntologyFile != null) {
+                System.out.println("Inferred view is not available when streaming, skipping");
+            }
+        }
+        catch (OWLConversionException e) {
+            System.err.println("Failed to publish data to OWL: " + e.getMessage());
+            getLog().error("Failed to publish data to OWL: ", e);
+            throw new RuntimeException(e);
+        }
+    }
+
     public void loadAndPrintStats(File assertedOntologyFile) {
         try {
             // load ontology
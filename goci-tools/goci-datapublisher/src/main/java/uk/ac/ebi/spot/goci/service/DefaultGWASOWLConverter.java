@@ -1,11 +1,11 @@
 package uk.ac.ebi.spot.goci.service;
 
-import org.semanticweb.owlapi.model.AddAxiom;
 import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.ImportChange;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLDataFactory;
@@ -47,6 +47,9 @@ import java.util.Set;
 /**
  * A default implementation of {@link GWASOWLConverter} that fetches data from the GWAS catalog using a {@link
  * uk.ac.ebi.spot.goci.ontology.owl.OntologyLoader} and converts all obtained {@link Study} objects to OWL.
+ * <p>
+ * The axioms for a collection of objects are collected as they are converted, and added to the ontology in a single
+ * change, rather than one change per axiom.
  *
  * @author Tony Burdett Date 26/01/12
  */
@@ -108,26 +111,32 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
     }
 
     public void addStudiesToOntology(Collection<Study> studies, OWLOntology ontology) {
+        Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
         for (Study study : studies) {
-            convertStudy(study, ontology);
+            convertStudy(study, ontology, axioms);
         }
+        getManager().addAxioms(ontology, axioms);
     }
 
     public void addSNPsToOntology(Collection<SingleNucleotidePolymorphism> snps, OWLOntology ontology) {
+        Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
         for (SingleNucleotidePolymorphism snp : snps) {
-            convertSNP(snp, ontology);
+            convertSNP(snp, ontology, axioms);
         }
+        getManager().addAxioms(ontology, axioms);
     }
 
     public void addAssociationsToOntology(Collection<Association> associations, OWLOntology ontology) {
         // the set of warnings that were issued during mappings
         Set<String> issuedWarnings = new HashSet<String>();
+        Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
         for (Association association : associations) {
-            convertAssociation(association, ontology, issuedWarnings);
+            convertAssociation(association, ontology, issuedWarnings, axioms);
         }
+        getManager().addAxioms(ontology, axioms);
     }
 
-    protected void convertStudy(Study study, OWLOntology ontology) {
+    protected void convertStudy(Study study, OWLOntology ontology, Set<OWLAxiom> axioms) {
         // get the study class
         OWLClass studyCls = getDataFactory().getOWLClass(IRI.create(OntologyConstants.STUDY_CLASS_IRI));
 
@@ -137,7 +146,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
         // assert class membership
         OWLClassAssertionAxiom classAssertion = getDataFactory().getOWLClassAssertionAxiom(studyCls, studyIndiv);
-        getManager().addAxiom(ontology, classAssertion);
+        axioms.add(classAssertion);
 
         // add datatype properties...
 
@@ -157,8 +166,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
         OWLLiteral author = getDataFactory().getOWLLiteral(study.getAuthor());
         OWLDataPropertyAssertionAxiom author_relation =
                 getDataFactory().getOWLDataPropertyAssertionAxiom(has_author, studyIndiv, author);
-        AddAxiom add_author = new AddAxiom(ontology, author_relation);
-        getManager().applyChange(add_author);
+        axioms.add(author_relation);
 
         // assert publication_date relation
         if (study.getPublicationDate() != null) {
@@ -173,23 +181,20 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                     getDataFactory().getOWLDataPropertyAssertionAxiom(has_publication_date,
                                                                       studyIndiv,
                                                                       publication_date);
-            AddAxiom add_publication_date = new AddAxiom(ontology, publication_date_relation);
-            getManager().applyChange(add_publication_date);
+            axioms.add(publication_date_relation);
         }
 
         // assert pubmed_id relation
         OWLLiteral pubmed_id = getDataFactory().getOWLLiteral(study.getPubmedId());
         OWLDataPropertyAssertionAxiom pubmed_id_relation =
                 getDataFactory().getOWLDataPropertyAssertionAxiom(has_pubmed_id, studyIndiv, pubmed_id);
-        AddAxiom add_pubmed_id = new AddAxiom(ontology, pubmed_id_relation);
-        getManager().applyChange(add_pubmed_id);
+        axioms.add(pubmed_id_relation);
 
         // assert label
         OWLLiteral study_label = getDataFactory().getOWLLiteral(pubmed_id.toString());
         OWLAnnotationAssertionAxiom label_annotation =
                 getDataFactory().getOWLAnnotationAssertionAxiom(rdfsLabel, studyIndiv.getIRI(), study_label);
-        AddAxiom add_label = new AddAxiom(ontology, label_annotation);
-        getManager().applyChange(add_label);
+        axioms.add(label_annotation);
 
         // add object properties...
 
@@ -211,18 +216,16 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
             // assert relation
             OWLObjectPropertyAssertionAxiom has_part_relation =
                     getDataFactory().getOWLObjectPropertyAssertionAxiom(has_part, studyIndiv, taIndiv);
-            AddAxiom addAxiomChange = new AddAxiom(ontology, has_part_relation);
-            getManager().applyChange(addAxiomChange);
+            axioms.add(has_part_relation);
 
             OWLObjectPropertyAssertionAxiom is_part_of_relation =
                     getDataFactory().getOWLObjectPropertyAssertionAxiom(part_of, taIndiv, studyIndiv);
-            AddAxiom addAxiomChangeRev = new AddAxiom(ontology, is_part_of_relation);
-            getManager().applyChange(addAxiomChangeRev);
+            axioms.add(is_part_of_relation);
 
         }
     }
 
-    protected void convertSNP(SingleNucleotidePolymorphism snp, OWLOntology ontology) {
+    protected void convertSNP(SingleNucleotidePolymorphism snp, OWLOntology ontology, Set<OWLAxiom> axioms) {
         // get the snp class
         OWLClass snpClass = getDataFactory().getOWLClass(IRI.create(OntologyConstants.SNP_CLASS_IRI));
 
@@ -232,7 +235,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
         // assert class membership
         OWLClassAssertionAxiom classAssertion = getDataFactory().getOWLClassAssertionAxiom(snpClass, snpIndiv);
-        getManager().addAxiom(ontology, classAssertion);
+        axioms.add(classAssertion);
 
         // add datatype properties...
 
@@ -251,8 +254,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
         OWLLiteral rsid = getDataFactory().getOWLLiteral(snp.getRsId());
         OWLDataPropertyAssertionAxiom rsid_relation =
                 getDataFactory().getOWLDataPropertyAssertionAxiom(has_snp_rsid, snpIndiv, rsid);
-        AddAxiom add_rsid = new AddAxiom(ontology, rsid_relation);
-        getManager().applyChange(add_rsid);
+        axioms.add(rsid_relation);
 
         // assert bp_pos relation
         if (snp.getLocations() != null) {
@@ -264,8 +266,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
                     OWLDataPropertyAssertionAxiom bp_pos_relation =
                             getDataFactory().getOWLDataPropertyAssertionAxiom(has_bp_pos, snpIndiv, bp_pos);
-                    AddAxiom add_bp_pos = new AddAxiom(ontology, bp_pos_relation);
-                    getManager().applyChange(add_bp_pos);
+                    axioms.add(bp_pos_relation);
                 }
             }
         }
@@ -276,8 +277,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
         // assert label
         OWLAnnotationAssertionAxiom snp_label_annotation =
                 getDataFactory().getOWLAnnotationAssertionAxiom(rdfsLabel, snpIndiv.getIRI(), rsid);
-        AddAxiom add_snp_label = new AddAxiom(ontology, snp_label_annotation);
-        getManager().applyChange(add_snp_label);
+        axioms.add(snp_label_annotation);
 
         // get the band class
         OWLClass bandClass = getDataFactory().getOWLClass(IRI.create(OntologyConstants.CYTOGENIC_REGION_CLASS_IRI));
@@ -316,33 +316,29 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                 // assert class membership
                 OWLClassAssertionAxiom bandClassAssertion =
                         getDataFactory().getOWLClassAssertionAxiom(bandClass, bandIndiv);
-                getManager().addAxiom(ontology, bandClassAssertion);
+                axioms.add(bandClassAssertion);
 
 
                 // assert name relation
                 OWLLiteral name = getDataFactory().getOWLLiteral(region.getName());
                 OWLDataPropertyAssertionAxiom name_relation =
                         getDataFactory().getOWLDataPropertyAssertionAxiom(has_name, bandIndiv, name);
-                AddAxiom add_name = new AddAxiom(ontology, name_relation);
-                getManager().applyChange(add_name);
+                axioms.add(name_relation);
 
                 // assert label
                 OWLAnnotationAssertionAxiom band_label_annotation =
                         getDataFactory().getOWLAnnotationAssertionAxiom(rdfsLabel, bandIndiv.getIRI(), name);
-                AddAxiom add_band_label = new AddAxiom(ontology, band_label_annotation);
-                getManager().applyChange(add_band_label);
+                axioms.add(band_label_annotation);
 
                 // assert located_in relation
                 OWLObjectPropertyAssertionAxiom located_in_relation =
                         getDataFactory().getOWLObjectPropertyAssertionAxiom(located_in, snpIndiv, bandIndiv);
-                AddAxiom add_located_in = new AddAxiom(ontology, located_in_relation);
-                getManager().applyChange(add_located_in);
+                axioms.add(located_in_relation);
 
                 // assert location_of relation
                 OWLObjectPropertyAssertionAxiom location_of_relation =
                         getDataFactory().getOWLObjectPropertyAssertionAxiom(location_of, bandIndiv, snpIndiv);
-                AddAxiom add_location_of = new AddAxiom(ontology, location_of_relation);
-                getManager().applyChange(add_location_of);
+                axioms.add(location_of_relation);
 
                 // get the appropriate chromosome class given the chromosome name
                 OWLClass chrClass = getDataFactory().getOWLClass(IRI.create(OntologyConstants.CHROMOSOME_CLASS_IRI));
@@ -360,14 +356,13 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
                     OWLClassAssertionAxiom chrClassAssertion =
                             getDataFactory().getOWLClassAssertionAxiom(chrClass, chrIndiv);
-                    getManager().addAxiom(ontology, chrClassAssertion);
+                    axioms.add(chrClassAssertion);
 
                     // assert chr_name relation
                     OWLLiteral chr_name = getDataFactory().getOWLLiteral(chromName);
                     OWLDataPropertyAssertionAxiom chr_name_relation =
                             getDataFactory().getOWLDataPropertyAssertionAxiom(has_chr_name, chrIndiv, chr_name);
-                    AddAxiom add_chr_name = new AddAxiom(ontology, chr_name_relation);
-                    getManager().applyChange(add_chr_name);
+                    axioms.add(chr_name_relation);
 
                     // assert label
                     OWLLiteral chr_label = getDataFactory().getOWLLiteral("Chromosome " + chromName);
@@ -375,20 +370,17 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                             getDataFactory().getOWLAnnotationAssertionAxiom(rdfsLabel,
                                                                             chrIndiv.getIRI(),
                                                                             chr_label);
-                    AddAxiom add_chr_label = new AddAxiom(ontology, chr_label_annotation);
-                    getManager().applyChange(add_chr_label);
+                    axioms.add(chr_label_annotation);
 
                     // assert has_part relation
                     OWLObjectPropertyAssertionAxiom has_part_relation =
                             getDataFactory().getOWLObjectPropertyAssertionAxiom(has_part, chrIndiv, bandIndiv);
-                    AddAxiom add_has_part = new AddAxiom(ontology, has_part_relation);
-                    getManager().applyChange(add_has_part);
+                    axioms.add(has_part_relation);
 
                     // assert part_of relation
                     OWLObjectPropertyAssertionAxiom part_of_relation =
                             getDataFactory().getOWLObjectPropertyAssertionAxiom(part_of, bandIndiv, chrIndiv);
-                    AddAxiom add_part_of = new AddAxiom(ontology, part_of_relation);
-                    getManager().applyChange(add_part_of);
+                    axioms.add(part_of_relation);
 
                 }
             }
@@ -399,7 +391,10 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
         }
     }
 
-    protected void convertAssociation(Association association, OWLOntology ontology, Set<String> issuedWarnings) {
+    protected void convertAssociation(Association association,
+                                      OWLOntology ontology,
+                                      Set<String> issuedWarnings,
+                                      Set<OWLAxiom> axioms) {
         // get the trait association class
         OWLClass taClass = getDataFactory().getOWLClass(IRI.create(OntologyConstants.TRAIT_ASSOCIATION_CLASS_IRI));
 
@@ -410,7 +405,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
         // assert class membership
         OWLClassAssertionAxiom classAssertion = getDataFactory().getOWLClassAssertionAxiom(taClass, taIndiv);
-        getManager().addAxiom(ontology, classAssertion);
+        axioms.add(classAssertion);
 
         // get datatype relations
         OWLDataProperty has_p_value = getDataFactory().getOWLDataProperty(
@@ -430,8 +425,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
             //            OWLLiteral pValue = getDataFactory().getOWLLiteral(association.getPvalueMantissa()+"e"+association.getPvalueExponent());
             OWLDataPropertyAssertionAxiom p_value_relation =
                     getDataFactory().getOWLDataPropertyAssertionAxiom(has_p_value, taIndiv, pValue);
-            AddAxiom add_p_value = new AddAxiom(ontology, p_value_relation);
-            getManager().applyChange(add_p_value);
+            axioms.add(p_value_relation);
         }
         // get the snp instance for this association
         OWLNamedIndividual snpIndiv;
@@ -462,7 +456,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                     OWLClass snpClass = getDataFactory().getOWLClass(IRI.create(OntologyConstants.SNP_CLASS_IRI));
                     OWLClassAssertionAxiom snpClassAssertion =
                             getDataFactory().getOWLClassAssertionAxiom(snpClass, snpIndiv);
-                    getManager().addAxiom(ontology, snpClassAssertion);
+                    axioms.add(snpClassAssertion);
 
                     // assert rsid relation
                     OWLDataProperty has_snp_rsid = getDataFactory().getOWLDataProperty(
@@ -470,14 +464,12 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                     OWLLiteral rsid = getDataFactory().getOWLLiteral(snp.getRsId());
                     OWLDataPropertyAssertionAxiom rsid_relation =
                             getDataFactory().getOWLDataPropertyAssertionAxiom(has_snp_rsid, snpIndiv, rsid);
-                    AddAxiom add_rsid = new AddAxiom(ontology, rsid_relation);
-                    getManager().applyChange(add_rsid);
+                    axioms.add(rsid_relation);
 
                     // assert label
                     OWLAnnotationAssertionAxiom snp_label_annotation =
                             getDataFactory().getOWLAnnotationAssertionAxiom(rdfsLabel, snpIndiv.getIRI(), rsid);
-                    AddAxiom add_snp_label = new AddAxiom(ontology, snp_label_annotation);
-                    getManager().applyChange(add_snp_label);
+                    axioms.add(snp_label_annotation);
 
                 }
 
@@ -490,13 +482,11 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                 // assert relations
                 OWLObjectPropertyAssertionAxiom has_subject_snp_relation =
                         getDataFactory().getOWLObjectPropertyAssertionAxiom(has_subject, taIndiv, snpIndiv);
-                AddAxiom add_has_subject_snp = new AddAxiom(ontology, has_subject_snp_relation);
-                getManager().applyChange(add_has_subject_snp);
+                axioms.add(has_subject_snp_relation);
 
                 OWLObjectPropertyAssertionAxiom is_subject_of_snp_relation =
                         getDataFactory().getOWLObjectPropertyAssertionAxiom(is_subject_of, snpIndiv, taIndiv);
-                AddAxiom add_is_subject_of_snp = new AddAxiom(ontology, is_subject_of_snp_relation);
-                getManager().applyChange(add_is_subject_of_snp);
+                axioms.add(is_subject_of_snp_relation);
             }
 
             // get the EFO class for the trait
@@ -536,14 +526,13 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
                 OWLDataPropertyAssertionAxiom gwas_trait_relation =
                         getDataFactory().getOWLDataPropertyAssertionAxiom(has_gwas_trait_name, taIndiv, gwasTrait);
-                AddAxiom add_gwas_trait_name = new AddAxiom(ontology, gwas_trait_relation);
-                getManager().applyChange(add_gwas_trait_name);
+                axioms.add(gwas_trait_relation);
 
 
                 // assert class membership
                 OWLClassAssertionAxiom traitClassAssertion =
                         getDataFactory().getOWLClassAssertionAxiom(traitClass, traitIndiv);
-                getManager().addAxiom(ontology, traitClassAssertion);
+                axioms.add(traitClassAssertion);
 
                 // get object properties
                 OWLObjectProperty has_object =
@@ -554,13 +543,11 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
                 // assert relations
                 OWLObjectPropertyAssertionAxiom has_object_trait_relation =
                         getDataFactory().getOWLObjectPropertyAssertionAxiom(has_object, taIndiv, traitIndiv);
-                AddAxiom add_has_object_trait = new AddAxiom(ontology, has_object_trait_relation);
-                getManager().applyChange(add_has_object_trait);
+                axioms.add(has_object_trait_relation);
 
                 OWLObjectPropertyAssertionAxiom is_object_of_trait_relation =
                         getDataFactory().getOWLObjectPropertyAssertionAxiom(is_object_of, traitIndiv, taIndiv);
-                AddAxiom add_is_object_of_trait = new AddAxiom(ontology, is_object_of_trait_relation);
-                getManager().applyChange(add_is_object_of_trait);
+                axioms.add(is_object_of_trait_relation);
 
 
             }
@@ -571,8 +558,7 @@ public class DefaultGWASOWLConverter implements GWASOWLConverter {
 
             OWLAnnotationAssertionAxiom label_annotation =
                     getDataFactory().getOWLAnnotationAssertionAxiom(rdfsLabel, taIndiv.getIRI(), label);
-            AddAxiom add_band_label = new AddAxiom(ontology, label_annotation);
-            getManager().applyChange(add_band_label);
+            axioms.add(label_annotation);
 
 
         }
@@ -1,5 +1,6 @@
 package uk.ac.ebi.spot.goci.service;
 
+import org.coode.owlapi.turtle.TurtleOntologyFormat;
 import org.semanticweb.HermiT.Reasoner;
 import org.semanticweb.owlapi.io.RDFXMLOntologyFormat;
 import org.semanticweb.owlapi.model.IRI;
@@ -29,6 +30,11 @@ import org.semanticweb.owlapi.util.InferredSubObjectPropertyAxiomGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.exception.OWLConversionException;
 import uk.ac.ebi.spot.goci.model.Association;
@@ -43,11 +49,18 @@ import uk.ac.ebi.spot.goci.repository.SingleNucleotidePolymorphismRepository;
 import uk.ac.ebi.spot.goci.repository.StudyRepository;
 import uk.ac.ebi.spot.goci.utils.FilterProperties;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 //import uk.ac.ebi.spot.goci.utils.OntologyUtils;
 
@@ -61,6 +74,9 @@ public class DefaultGWASOWLPublisher implements GWASOWLPublisher {
     private OntologyLoader ontologyLoader;
     private int studiesLimit = -1;
 
+    @Value("${publisher.chunk_size:500}")
+    private int chunkSize = 500;
+
     private StudyRepository studyRepository;
     private StudyService studyService;
 
@@ -104,6 +120,14 @@ public class DefaultGWASOWLPublisher implements GWASOWLPublisher {
         this.studiesLimit = studiesLimit;
     }
 
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
     public StudyRepository getStudyRepository() {
         return studyRepository;
     }
@@ -311,6 +335,121 @@ public class DefaultGWASOWLPublisher implements GWASOWLPublisher {
         return conversion;
     }
 
+    /**
+     * Reads published studies "publisher.chunk_size" at a time, in id order.  Each chunk is converted, with the
+     * associations and SNPs of its studies, into an ontology of its own, which is appended to the output file as a
+     * Turtle document and then discarded.  Turtle documents can be concatenated, so the file holds all the data once
+     * the last chunk is written.  SNPs shared between chunks are only converted the first time.
+     * <p>
+     * The studies limit and the p-value and date filters apply as they do for {@link #publishGWASData()}.
+     */
+    public void streamGWASData(File outputFile) throws OWLConversionException {
+        getLog().info("Streaming GWAS catalog data to " + outputFile.getAbsolutePath() + ", " + getChunkSize() +
+                              " studies at a time...");
+        int studyLimit = getStudiesLimit() == -1 ? Integer.MAX_VALUE : getStudiesLimit();
+        Set<Long> convertedSnpIds = new HashSet<Long>();
+        int studyCount = 0;
+        int chunkCount = 0;
+        long axiomCount = 0;
+
+        Pageable pager = new PageRequest(0, getChunkSize(), new Sort(new Sort.Order("id")));
+        Long lastId = Long.MIN_VALUE;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            Slice<Study> page;
+            do {
+                page = getStudyService().deepFindPublishedStudiesAfter(lastId, pager);
+                List<Study> studies = page.getContent();
+                if (studies.isEmpty()) {
+                    break;
+                }
+                lastId = studies.get(studies.size() - 1).getId();
+
+                List<Study> chunk = new ArrayList<Study>();
+                for (Study study : studies) {
+                    if (studyCount < studyLimit && isPublishable(study)) {
+                        chunk.add(study);
+                        studyCount++;
+                    }
+                }
+
+                OWLOntology conversion = getConverter().createConversionOntology();
+                try {
+                    convertChunk(chunk, conversion, convertedSnpIds);
+                    getManager().saveOntology(conversion, new TurtleOntologyFormat(), new UnclosableOutputStream(out));
+                    axiomCount += conversion.getAxiomCount();
+                }
+                finally {
+                    getManager().removeOntology(conversion);
+                }
+                chunkCount++;
+                getLog().debug("Converted and saved chunk " + chunkCount + ", " + studyCount + " studies so far");
+            }
+            while (page.hasNext() && studyCount < studyLimit);
+        }
+        catch (IOException | OWLOntologyStorageException e) {
+            throw new OWLConversionException("Failed to stream GWAS data to " + outputFile.getAbsolutePath(), e);
+        }
+        getLog().info("GWAS catalog data saved ok: " + studyCount + " studies in " + chunkCount + " chunks, " +
+                              axiomCount + " axioms, at " + outputFile.getAbsolutePath());
+    }
+
+    /**
+     * Checks a study can be published: it has a disease trait, is published and not unpublished, and passes the date
+     * filter if there is one
+     */
+    private boolean isPublishable(Study study) {
+        if (study.getDiseaseTrait() == null) {
+            getLog().error("Study '" + study.getId() + "' has no disease trait");
+            return false;
+        }
+        if (study.getHousekeeping().getCatalogPublishDate() == null ||
+                study.getHousekeeping().getCatalogUnpublishDate() != null) {
+            return false;
+        }
+        return FilterProperties.getDateFilter() == null ||
+                study.getPublicationDate().before(FilterProperties.getDateFilter());
+    }
+
+    /**
+     * Converts a chunk of studies, with their associations that pass the p-value filter and the SNPs of those
+     * associations not converted by an earlier chunk
+     */
+    private void convertChunk(List<Study> studies, OWLOntology conversion, Set<Long> convertedSnpIds)
+            throws OWLConversionException {
+        Collection<Association> traitAssociations = new ArrayList<Association>();
+        Collection<SingleNucleotidePolymorphism> snps = new ArrayList<SingleNucleotidePolymorphism>();
+        for (Study study : studies) {
+            for (Association association : study.getAssociations()) {
+                if (passesPvalueFilter(association)) {
+                    traitAssociations.add(association);
+                    for (Locus locus : association.getLoci()) {
+                        for (RiskAllele riskAllele : locus.getStrongestRiskAlleles()) {
+                            if (convertedSnpIds.add(riskAllele.getSnp().getId())) {
+                                snps.add(riskAllele.getSnp());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        getConverter().addSNPsToOntology(snps, conversion);
+        getConverter().addAssociationsToOntology(traitAssociations, conversion);
+        getConverter().addStudiesToOntology(studies, conversion);
+    }
+
+    private boolean passesPvalueFilter(Association association) {
+        if (FilterProperties.getPvalueFilter() == null) {
+            return true;
+        }
+        if (association.getPvalueMantissa() == null || association.getPvalueExponent() == null) {
+            return false;
+        }
+        float filter = (float) (FilterProperties.getPvalueMant() * Math.pow(10, FilterProperties.getPvalueExp()));
+        float pval = (float) (association.getPvalueMantissa() * Math.pow(10, association.getPvalueExponent()));
+        return pval < filter;
+    }
+
     public OWLReasoner publishGWASDataInferredView(OWLOntology ontology) throws OWLConversionException {
         getLog().debug("Loading any missing imports...");
         StringBuilder loadedOntologies = new StringBuilder();
@@ -453,4 +592,22 @@ public class DefaultGWASOWLPublisher implements GWASOWLPublisher {
                               termMismatches + "/" + correctCount +
                               " failed due to missing or duplicated terms in EFO");
     }
+
+    /**
+     * Writes through to the output file, but ignores close() so that the ontology storer cannot close the file after
+     * writing a chunk
+     */
+    private static class UnclosableOutputStream extends FilterOutputStream {
+        private UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override public void close() throws IOException {
+            flush();
+        }
+    }
 }
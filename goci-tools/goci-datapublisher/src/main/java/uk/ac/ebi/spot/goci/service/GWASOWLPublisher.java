@@ -22,6 +22,15 @@ public interface GWASOWLPublisher {
      */
     OWLOntology publishGWASData() throws OWLConversionException;
 
+    /**
+     * Fetches published studies from the GWAS catalog a chunk at a time, converts each chunk to OWL and appends it to
+     * the given file, so that the whole catalog is never held in memory
+     *
+     * @param outputFile the location the data should be written to
+     * @throws OWLConversionException if conversion or writing of the data failed
+     */
+    void streamGWASData(File outputFile) throws OWLConversionException;
+
     /**
      * Publishes the inferred view of the GWAS catalog data from the asserted ontology.
      *
@@ -0,0 +1,113 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import uk.ac.ebi.spot.goci.model.Association;
+import uk.ac.ebi.spot.goci.model.SingleNucleotidePolymorphism;
+import uk.ac.ebi.spot.goci.model.Study;
+import uk.ac.ebi.spot.goci.ontology.OntologyConstants;
+import uk.ac.ebi.spot.goci.ontology.owl.OntologyLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that the converter adds the axioms of each collection of objects to the ontology in a single change
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultGWASOWLConverterTest {
+
+    private static final String EFO_URI = "http://www.ebi.ac.uk/efo/EFO_0000400";
+
+    @Mock
+    private OntologyLoader ontologyLoader;
+
+    private OWLOntologyManager manager;
+
+    private DefaultGWASOWLConverter converter;
+
+    private OWLOntology conversion;
+
+    private final List<List<OWLOntologyChange>> appliedChanges = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OWLManager.createOWLOntologyManager();
+        when(ontologyLoader.getOntology()).thenReturn(manager.createOntology());
+        converter = new DefaultGWASOWLConverter(ontologyLoader);
+        conversion = converter.createConversionOntology();
+        manager.addOntologyChangeListener(changes -> appliedChanges.add(new ArrayList<>(changes)));
+    }
+
+    @Test
+    public void testEachCollectionIsAddedInOneChange() throws Exception {
+        SingleNucleotidePolymorphism snp1 = GWASTestData.snp(1, "1", 1000, "1p36.33");
+        SingleNucleotidePolymorphism snp2 = GWASTestData.snp(2, "2", 2000, "2q11");
+        Study study = GWASTestData.study(1, "diabetes");
+        Association association1 = GWASTestData.association(11, study, snp1, EFO_URI);
+        Association association2 = GWASTestData.association(12, study, snp2, EFO_URI);
+
+        converter.addSNPsToOntology(Arrays.asList(snp1, snp2), conversion);
+        converter.addAssociationsToOntology(Arrays.asList(association1, association2), conversion);
+        converter.addStudiesToOntology(Arrays.asList(study), conversion);
+
+        // one list of changes per collection, each change adding a distinct axiom
+        assertEquals(3, appliedChanges.size());
+        Set<OWLAxiom> addedAxioms = new HashSet<>();
+        int changeCount = 0;
+        for (List<OWLOntologyChange> changes : appliedChanges) {
+            assertTrue(changes.size() > 1);
+            for (OWLOntologyChange change : changes) {
+                assertTrue(change instanceof AddAxiom);
+                addedAxioms.add(change.getAxiom());
+                changeCount++;
+            }
+        }
+        assertEquals(changeCount, addedAxioms.size());
+        assertEquals(conversion.getAxioms(), addedAxioms);
+
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        OWLNamedIndividual studyIndiv = individual(study);
+        OWLNamedIndividual associationIndiv = individual(association2);
+        OWLNamedIndividual snpIndiv = individual(snp2);
+        assertTrue(conversion.containsAxiom(factory.getOWLClassAssertionAxiom(
+                factory.getOWLClass(IRI.create(OntologyConstants.STUDY_CLASS_IRI)), studyIndiv)));
+        assertTrue(conversion.containsAxiom(factory.getOWLObjectPropertyAssertionAxiom(
+                property(OntologyConstants.HAS_PART_PROPERTY_IRI), studyIndiv, associationIndiv)));
+        assertTrue(conversion.containsAxiom(factory.getOWLObjectPropertyAssertionAxiom(
+                property(OntologyConstants.HAS_SUBJECT_IRI), associationIndiv, snpIndiv)));
+        assertTrue(conversion.containsAxiom(factory.getOWLDataPropertyAssertionAxiom(
+                factory.getOWLDataProperty(IRI.create(OntologyConstants.HAS_SNP_REFERENCE_ID_PROPERTY_IRI)),
+                snpIndiv,
+                factory.getOWLLiteral("rs2"))));
+    }
+
+    private OWLNamedIndividual individual(Object object) {
+        return manager.getOWLDataFactory().getOWLNamedIndividual(
+                converter.getMinter().mint(OntologyConstants.GWAS_ONTOLOGY_BASE_IRI, object));
+    }
+
+    private OWLObjectProperty property(String iri) {
+        return manager.getOWLDataFactory().getOWLObjectProperty(IRI.create(iri));
+    }
+}
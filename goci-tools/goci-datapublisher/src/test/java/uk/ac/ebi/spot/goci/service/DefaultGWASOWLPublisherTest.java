@@ -0,0 +1,128 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import uk.ac.ebi.spot.goci.model.Association;
+import uk.ac.ebi.spot.goci.model.SingleNucleotidePolymorphism;
+import uk.ac.ebi.spot.goci.model.Study;
+import uk.ac.ebi.spot.goci.ontology.OntologyConstants;
+import uk.ac.ebi.spot.goci.ontology.owl.OntologyLoader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that the Turtle documents written chunk by chunk when streaming hold the same axioms as the single document
+ * saved from a conversion of all data at once
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultGWASOWLPublisherTest {
+
+    private static final String EFO_URI = "http://www.ebi.ac.uk/efo/EFO_0000400";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private StudyService studyService;
+
+    @Mock
+    private AssociationService associationService;
+
+    @Mock
+    private SingleNucleotidePolymorphismService singleNucleotidePolymorphismService;
+
+    @Mock
+    private OntologyLoader ontologyLoader;
+
+    private OWLOntologyManager manager;
+
+    private DefaultGWASOWLPublisher publisher;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OWLManager.createOWLOntologyManager();
+        when(ontologyLoader.getOntology()).thenReturn(manager.createOntology());
+        publisher = new DefaultGWASOWLPublisher(studyService,
+                                                associationService,
+                                                singleNucleotidePolymorphismService,
+                                                new DefaultGWASOWLConverter(ontologyLoader),
+                                                ontologyLoader);
+        publisher.setChunkSize(2);
+    }
+
+    @Test
+    public void testChunkedOutputHoldsTheAxiomsOfTheSingleDocument() throws Exception {
+        // rs1 is shared by studies of both chunks, and the unpublished study is left out of both outputs
+        SingleNucleotidePolymorphism snp1 = GWASTestData.snp(1, "1", 1000, "1p36.33");
+        SingleNucleotidePolymorphism snp2 = GWASTestData.snp(2, "2", 2000, "2q11");
+        SingleNucleotidePolymorphism snp3 = GWASTestData.snp(3, "2", 3000, "2q11");
+        Study study1 = GWASTestData.study(1, "diabetes");
+        Study study2 = GWASTestData.study(2, "asthma");
+        Study study3 = GWASTestData.study(3, "obesity");
+        Study unpublished = GWASTestData.study(4, "height");
+        unpublished.getHousekeeping().setCatalogUnpublishDate(new Date());
+        Association association1 = GWASTestData.association(11, study1, snp1, EFO_URI);
+        Association association2 = GWASTestData.association(12, study2, snp2, EFO_URI);
+        Association association3 = GWASTestData.association(13, study3, snp1, EFO_URI);
+        Association association4 = GWASTestData.association(14, study3, snp3, EFO_URI);
+        Association association5 = GWASTestData.association(15, unpublished, snp3, EFO_URI);
+
+        when(studyService.deepFindPublishedStudies())
+                .thenReturn(new ArrayList<>(Arrays.asList(study1, study2, study3, unpublished)));
+        when(associationService.findReallyAll()).thenReturn(new ArrayList<>(
+                Arrays.asList(association1, association2, association3, association4, association5)));
+        when(singleNucleotidePolymorphismService.findAll()).thenReturn(Arrays.asList(snp1, snp2, snp3));
+        when(studyService.deepFindPublishedStudiesAfter(eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(study1, study2), null, true));
+        when(studyService.deepFindPublishedStudiesAfter(eq(2L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(study3, unpublished), null, false));
+
+        File singleFile = folder.newFile("gwas-data.owl");
+        OWLOntology single = publisher.publishGWASData();
+        publisher.saveGWASData(single, singleFile);
+        manager.removeOntology(single);
+
+        File streamedFile = folder.newFile("gwas-data.ttl");
+        publisher.streamGWASData(streamedFile);
+        verify(studyService, times(2)).deepFindPublishedStudiesAfter(any(Long.class), any(Pageable.class));
+
+        Set<OWLAxiom> singleAxioms = parse(singleFile);
+        assertTrue(singleAxioms.size() > 50);
+        assertEquals(singleAxioms, parse(streamedFile));
+    }
+
+    private static Set<OWLAxiom> parse(File file) throws Exception {
+        OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration()
+                .addIgnoredImport(IRI.create(OntologyConstants.GWAS_ONTOLOGY_SCHEMA_IRI))
+                .addIgnoredImport(IRI.create(OntologyConstants.EFO_ONTOLOGY_SCHEMA_IRI));
+        return OWLManager.createOWLOntologyManager()
+                .loadOntologyFromOntologyDocument(new FileDocumentSource(file), configuration)
+                .getAxioms();
+    }
+}
@@ -0,0 +1,76 @@
+package uk.ac.ebi.spot.goci.service;
+
+import uk.ac.ebi.spot.goci.model.Association;
+import uk.ac.ebi.spot.goci.model.DiseaseTrait;
+import uk.ac.ebi.spot.goci.model.EfoTrait;
+import uk.ac.ebi.spot.goci.model.Housekeeping;
+import uk.ac.ebi.spot.goci.model.Location;
+import uk.ac.ebi.spot.goci.model.Locus;
+import uk.ac.ebi.spot.goci.model.Region;
+import uk.ac.ebi.spot.goci.model.RiskAllele;
+import uk.ac.ebi.spot.goci.model.SingleNucleotidePolymorphism;
+import uk.ac.ebi.spot.goci.model.Study;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * Builds published studies, with their associations and SNPs, for the conversion tests
+ */
+class GWASTestData {
+
+    private GWASTestData() {
+    }
+
+    static Study study(long id, String trait) {
+        Study study = new Study();
+        study.setId(id);
+        study.setAuthor("Author " + id);
+        study.setPubmedId(String.valueOf(1000 + id));
+        study.setPublicationDate(new Date(1262304000000L + id * 86400000L));
+        study.setDiseaseTrait(new DiseaseTrait(id, trait));
+        Housekeeping housekeeping = new Housekeeping();
+        housekeeping.setCatalogPublishDate(new Date(1262304000000L));
+        study.setHousekeeping(housekeeping);
+        study.setAssociations(new ArrayList<>());
+        return study;
+    }
+
+    static Association association(long id, Study study, SingleNucleotidePolymorphism snp, String efoUri) {
+        RiskAllele riskAllele = new RiskAllele();
+        riskAllele.setId(id);
+        riskAllele.setSnp(snp);
+        Locus locus = new Locus();
+        locus.setId(id);
+        locus.setStrongestRiskAlleles(Collections.singletonList(riskAllele));
+        EfoTrait efoTrait = new EfoTrait();
+        efoTrait.setId(id);
+        efoTrait.setTrait(study.getDiseaseTrait().getTrait());
+        efoTrait.setUri(efoUri);
+
+        Association association = new Association();
+        association.setId(id);
+        association.setPvalueMantissa(5);
+        association.setPvalueExponent(-8);
+        association.setStudy(study);
+        association.setLoci(Collections.singletonList(locus));
+        association.setEfoTraits(Collections.singletonList(efoTrait));
+        study.getAssociations().add(association);
+        return association;
+    }
+
+    static SingleNucleotidePolymorphism snp(long id, String chromosome, int position, String band) {
+        Location location = new Location();
+        location.setId(id);
+        location.setChromosomeName(chromosome);
+        location.setChromosomePosition(position);
+        location.setRegion(new Region(band));
+
+        SingleNucleotidePolymorphism snp = new SingleNucleotidePolymorphism();
+        snp.setId(id);
+        snp.setRsId("rs" + id);
+        snp.setLocations(Collections.singletonList(location));
+        return snp;
+    }
+}
@@ -89,6 +89,26 @@ public class MappingApplication {
                             exitCode += 2;
                         }
                         break;
+                    case RESUME:
+                        try {
+                            doMappingResume();
+                        }
+                        catch (Exception e) {
+                            System.err.println("Mapping failed(" + e.getMessage() + ")");
+                            getLog().error("Mapping failed", e);
+                            exitCode += 2;
+                        }
+                        break;
+                    case RETRY:
+                        try {
+                            doMappingRetry();
+                        }
+                        catch (Exception e) {
+                            System.err.println("Mapping failed(" + e.getMessage() + ")");
+                            getLog().error("Mapping failed", e);
+                            exitCode += 2;
+                        }
+                        break;
                     default:
                         System.err.println("No mapping argument supplied");
                         exitCode += 1;
@@ -121,6 +141,30 @@ public class MappingApplication {
 
     }
 
+    private void doMappingResume() {
+        getLog().info("Resuming mapping of all associations with performer: " + this.performer);
+        try {
+            mapCatalogService.resumeMapCatalogContents(this.performer);
+            getLog().info("Finished mapping by performer:  " + this.performer);
+        }
+        catch (EnsemblMappingException e) {
+            getLog().error("Mapping failed due to Ensembl API communication issue");
+        }
+
+    }
+
+    private void doMappingRetry() {
+        getLog().info("Retrying mapping of failed associations with performer: " + this.performer);
+        try {
+            mapCatalogService.retryFailedAssociations(this.performer);
+            getLog().info("Finished mapping by performer:  " + this.performer);
+        }
+        catch (EnsemblMappingException e) {
+            getLog().error("Mapping failed due to Ensembl API communication issue");
+        }
+
+    }
+
     private Options bindOptions() {
         Options options = new Options();
 
@@ -157,6 +201,29 @@ public class MappingApplication {
         options.addOptionGroup(modeGroup);
 
 
+        Option resumeOption = new Option(
+                "r",
+                "resume",
+                false,
+                "Resumes an interrupted mapping of all associations from the checkpoint set with " +
+                        "mapping.checkpoint.file");
+        resumeOption.setArgName("performer");
+        resumeOption.setRequired(true);
+        modeGroup.addOption(resumeOption);
+        options.addOptionGroup(modeGroup);
+
+
+        Option retryOption = new Option(
+                "f",
+                "retry_failed",
+                false,
+                "Maps again the associations recorded as failed in the checkpoint set with mapping.checkpoint.file");
+        retryOption.setArgName("performer");
+        retryOption.setRequired(true);
+        modeGroup.addOption(retryOption);
+        options.addOptionGroup(modeGroup);
+
+
         return options;
     }
 
@@ -197,6 +264,16 @@ public class MappingApplication {
                     this.performer = cl.getArgList().get(0).toString();
                 }
 
+                if (cl.hasOption("r")) {
+                    this.opMode = OperationMode.RESUME;
+                    this.performer = cl.getArgList().get(0).toString();
+                }
+
+                if (cl.hasOption("f")) {
+                    this.opMode = OperationMode.RETRY;
+                    this.performer = cl.getArgList().get(0).toString();
+                }
+
             }
         }
         catch (ParseException e) {
@@ -209,7 +286,9 @@ public class MappingApplication {
 
     private enum OperationMode {
         MAPPING,
-        NIGHT
+        NIGHT,
+        RESUME,
+        RETRY
     }
 
 }
@@ -26,8 +26,15 @@ public class SolrIndexerApplication {
             long start_time = System.currentTimeMillis();
             System.out.println("Building indexes with supplied params: " + Arrays.toString(strings));
             solrIndexer.enableSysOutLogging();
-            System.out.print("Converting all GWAS database objects...");
-            int docCount = solrIndexer.fetchAndIndex();
+            int docCount;
+            if (Arrays.asList(strings).contains("--delta")) {
+                System.out.print("Converting GWAS database objects changed since the last run...");
+                docCount = solrIndexer.fetchAndIndexChanges();
+            }
+            else {
+                System.out.print("Converting all GWAS database objects...");
+                docCount = solrIndexer.fetchAndIndex();
+            }
             System.out.println("done!\n");
             long end_time = System.currentTimeMillis();
             String time = String.format("%.1f", ((double) (end_time - start_time)) / 1000);
@@ -5,8 +5,16 @@ import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.model.AssociationDocument;
 import uk.ac.ebi.spot.goci.model.DiseaseTraitDocument;
 import uk.ac.ebi.spot.goci.model.EfoDocument;
+import uk.ac.ebi.spot.goci.model.EfoTrait;
+import uk.ac.ebi.spot.goci.model.Study;
 import uk.ac.ebi.spot.goci.model.StudyDocument;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * Javadocs go here!
  *
@@ -29,18 +37,33 @@ public class AssociationEnrichmentService implements DocumentEnrichmentService<A
     }
 
     @Override public void doEnrichment(AssociationDocument document) {
-        long id = Long.valueOf(document.getId().split(":")[1]);
+        doEnrichment(Collections.singletonList(document));
+    }
 
-        studyService.findByAssociationId(id).forEach(
-                study -> {
-                    document.addStudyId(String.valueOf(study.getId()));
-                    document.embed(new StudyDocument(study));
-                });
+    /**
+     * Fetches the studies and EFO traits of the whole page at once.  The reported trait of an association is the
+     * disease trait of its (published) study, so it comes with the study.
+     */
+    @Override public void doEnrichment(List<AssociationDocument> documents) {
+        List<Long> ids = documents.stream()
+                .map(document -> Long.valueOf(document.getId().split(":")[1]))
+                .collect(Collectors.toList());
+        Map<Long, Study> studies = studyService.findByAssociationIds(ids);
+        Map<Long, Collection<EfoTrait>> mappedTraits = traitService.findMappedTraitByAssociationIds(ids);
 
-        traitService.findReportedTraitByAssociationId(id).forEach(
-                trait -> document.embed(new DiseaseTraitDocument(trait)));
+        for (int i = 0; i < documents.size(); i++) {
+            AssociationDocument document = documents.get(i);
+            Study study = studies.get(ids.get(i));
+            if (study != null) {
+                document.addStudyId(String.valueOf(study.getId()));
+                document.embed(new StudyDocument(study));
+                if (study.getDiseaseTrait() != null) {
+                    document.embed(new DiseaseTraitDocument(study.getDiseaseTrait()));
+                }
+            }
 
-        traitService.findMappedTraitByAssociationId(id).forEach(
-                trait -> document.embed(new EfoDocument(trait)));
+            mappedTraits.getOrDefault(ids.get(i), Collections.emptyList()).forEach(
+                    trait -> document.embed(new EfoDocument(trait)));
+        }
     }
 }
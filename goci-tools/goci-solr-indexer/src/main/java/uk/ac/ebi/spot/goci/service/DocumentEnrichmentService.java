@@ -2,6 +2,8 @@ package uk.ac.ebi.spot.goci.service;
 
 import uk.ac.ebi.spot.goci.model.Document;
 
+import java.util.List;
+
 /**
  * A service that can be used to add enrich a {@link Document} prior to indexing by adding additional information to it,
  * which may be obtained from an external source
@@ -19,4 +21,14 @@ public interface DocumentEnrichmentService<D extends Document> {
     int getPriority();
 
     void doEnrichment(D document);
+
+    /**
+     * Enrich a whole page of documents.  Services that look up related data should override this to fetch it for all
+     * the documents at once, with one query per relation rather than per document.
+     *
+     * @param documents the documents to enrich
+     */
+    default void doEnrichment(List<D> documents) {
+        documents.forEach(this::doEnrichment);
+    }
 }
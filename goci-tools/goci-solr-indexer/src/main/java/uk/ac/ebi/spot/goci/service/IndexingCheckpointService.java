@@ -0,0 +1,79 @@
+package uk.ac.ebi.spot.goci.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * Service that keeps the high-water mark of delta indexing, the time up to which database changes are known to be in
+ * the Solr index, in the file set with "indexer.delta.file".
+ * <p>
+ * The file is replaced atomically, see {@link CheckpointFile}, so a crash never leaves a half written mark.
+ */
+@Service
+public class IndexingCheckpointService {
+
+    private static final String INDEXED_UNTIL = "indexedUntil";
+
+    @Value("${indexer.delta.file:}")
+    private String file;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public boolean isEnabled() {
+        return file != null && !file.isEmpty();
+    }
+
+    /**
+     * @return the saved high-water mark, or null if there is none yet
+     */
+    public Date load() {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        Properties properties;
+        try {
+            properties = new CheckpointFile(file).load();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to read indexing checkpoint " + file, e);
+        }
+        if (properties == null) {
+            return null;
+        }
+
+        String indexedUntil = properties.getProperty(INDEXED_UNTIL, "");
+        if (indexedUntil.isEmpty()) {
+            return null;
+        }
+        Date date = new Date(Long.valueOf(indexedUntil));
+        getLog().info("Loaded indexing checkpoint: indexed until " + date);
+        return date;
+    }
+
+    public void save(Date indexedUntil) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(INDEXED_UNTIL, String.valueOf(indexedUntil.getTime()));
+
+        try {
+            new CheckpointFile(file).save(properties, "Indexing checkpoint, " + indexedUntil);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to save indexing checkpoint " + file, e);
+        }
+    }
+}
@@ -8,12 +8,15 @@ import javax.annotation.PostConstruct;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Generic wrapper class to convert any model objects into the corresponding Document object types.  The document type
@@ -47,32 +50,62 @@ public class ObjectConverter {
     }
 
     public <O, D extends Document<O>> D convert(O object, Class<D> documentType) {
-        try {
-            // generate document by creating a new instance and passing the object to the constructor
-            D document = documentType.getDeclaredConstructor(object.getClass()).newInstance(object);
+        // generate document by creating a new instance and passing the object to the constructor
+        D document = createDocument(object, documentType);
 
-            // enrich using any available enrichment services
-            // noinspection unchecked
-            documentToEnricherMap.keySet()
-                    .stream()
-                    .filter(enricherType -> matches(enricherType, documentType))
-                    .map(documentToEnricherMap::get)
-                    .flatMap(Collection::stream)
-                    .sorted(new Comparator<DocumentEnrichmentService>() {
-                        @Override public int compare(DocumentEnrichmentService des1, DocumentEnrichmentService des2) {
-                            return des1.getPriority() - des2.getPriority();
-                        }
-                    })
-                    .forEach(documentEnrichmentService -> documentEnrichmentService.doEnrichment(document));
+        // enrich using any available enrichment services
+        // noinspection unchecked
+        getEnrichmentServices(documentType)
+                .forEach(documentEnrichmentService -> documentEnrichmentService.doEnrichment(document));
+
+        // and return
+        return document;
+    }
+
+    /**
+     * Convert a page of objects, handing the whole page to each enrichment service in turn so that related data is
+     * fetched for all the documents together
+     *
+     * @param objects      the objects to convert
+     * @param documentType the type of document to create
+     * @return the documents, in the same order as the objects
+     */
+    public <O, D extends Document<O>> List<D> convert(List<O> objects, Class<D> documentType) {
+        List<D> documents = new ArrayList<>();
+        for (O object : objects) {
+            documents.add(createDocument(object, documentType));
+        }
 
-            // and return
-            return document;
+        // noinspection unchecked
+        getEnrichmentServices(documentType)
+                .forEach(documentEnrichmentService -> documentEnrichmentService.doEnrichment(documents));
+        return documents;
+    }
+
+    private <O, D extends Document<O>> D createDocument(O object, Class<D> documentType) {
+        try {
+            return documentType.getDeclaredConstructor(object.getClass()).newInstance(object);
         }
         catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Enrichment services for this document type, in priority order
+    private List<DocumentEnrichmentService> getEnrichmentServices(Class<?> documentType) {
+        return documentToEnricherMap.keySet()
+                .stream()
+                .filter(enricherType -> matches(enricherType, documentType))
+                .map(documentToEnricherMap::get)
+                .flatMap(Collection::stream)
+                .sorted(new Comparator<DocumentEnrichmentService>() {
+                    @Override public int compare(DocumentEnrichmentService des1, DocumentEnrichmentService des2) {
+                        return des1.getPriority() - des2.getPriority();
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
     private Optional<Class<?>> getDocumentType(DocumentEnrichmentService serviceToTest) {
         Type[] types = serviceToTest.getClass().getGenericInterfaces();
         for (Type type : types) {
@@ -1,11 +1,19 @@
 package uk.ac.ebi.spot.goci.service;
 
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.solr.core.mapping.SolrDocument;
 import org.springframework.data.solr.repository.SolrCrudRepository;
+import uk.ac.ebi.spot.goci.exception.SolrIndexingException;
 import uk.ac.ebi.spot.goci.model.Document;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -16,10 +24,14 @@ import java.util.List;
  * @date 14/01/15
  */
 public abstract class ObjectDocumentMapper<O, D extends Document<O>> {
+    // number of ids sent in each Solr delete request
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
     private ObjectConverter objectConverter;
 
     private Class<D> documentType;
     private SolrCrudRepository<D, String> index;
+    private SolrClient solrClient;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -35,6 +47,11 @@ public abstract class ObjectDocumentMapper<O, D extends Document<O>> {
         this.index = index;
     }
 
+    @Autowired
+    public void setSolrClient(SolrClient solrClient) {
+        this.solrClient = solrClient;
+    }
+
     public D map(O object) {
         D document = objectConverter.convert(object, documentType);
         index.save(document);
@@ -43,13 +60,8 @@ public abstract class ObjectDocumentMapper<O, D extends Document<O>> {
 
     public List<D> map(List<O> objects) {
         if (objects.size() > 0) {
-            List<D> documents = new ArrayList<>();
-            objects.stream()
-                    .peek(object -> getLog().debug("Mapping " + object.toString() + ""))
-                    .map(object -> objectConverter.convert(object, documentType))
-                    .filter(doc -> doc != null)
-                    .forEach(documents::add);
-            index.save(documents);
+            List<D> documents = convert(objects);
+            save(documents);
             return documents;
         }
         else {
@@ -57,4 +69,61 @@ public abstract class ObjectDocumentMapper<O, D extends Document<O>> {
             return Collections.emptyList();
         }
     }
+
+    /**
+     * Convert and enrich objects into documents, without indexing them
+     *
+     * @param objects the objects to convert
+     * @return the documents, in the same order
+     */
+    public List<D> convert(List<O> objects) {
+        objects.forEach(object -> getLog().debug("Mapping " + object.toString() + ""));
+        return objectConverter.convert(objects, documentType);
+    }
+
+    /**
+     * Index documents in one Solr update
+     *
+     * @param documents the documents to index
+     */
+    public void save(List<D> documents) {
+        if (documents.size() > 0) {
+            index.save(documents);
+        }
+    }
+
+    /**
+     * Remove documents from the index, sending one delete request per {@value #DELETE_CHUNK_SIZE} ids and committing
+     * once at the end. Ids that are not in the index are ignored
+     *
+     * @param ids the ids of the documents to remove
+     */
+    public void delete(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String core = AnnotationUtils.findAnnotation(documentType, SolrDocument.class).solrCoreName();
+        List<String> chunk = new ArrayList<>();
+        try {
+            for (String id : ids) {
+                chunk.add(id);
+                if (chunk.size() == DELETE_CHUNK_SIZE) {
+                    deleteById(core, chunk);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                deleteById(core, chunk);
+            }
+            solrClient.commit(core);
+        }
+        catch (SolrServerException | IOException e) {
+            throw new SolrIndexingException("Failed to delete " + ids.size() + " documents from " + core, e);
+        }
+    }
+
+    private void deleteById(String core, List<String> chunk) throws SolrServerException, IOException {
+        getLog().debug("Deleting " + chunk.size() + " documents from " + chunk.get(0));
+        solrClient.deleteById(core, chunk);
+        chunk.clear();
+    }
 }
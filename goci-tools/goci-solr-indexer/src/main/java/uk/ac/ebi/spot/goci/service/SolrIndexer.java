@@ -3,24 +3,43 @@ package uk.ac.ebi.spot.goci.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.spot.goci.exception.SolrIndexingException;
 import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.DiseaseTrait;
+import uk.ac.ebi.spot.goci.model.Document;
 import uk.ac.ebi.spot.goci.model.EfoTrait;
 import uk.ac.ebi.spot.goci.model.Study;
+import uk.ac.ebi.spot.goci.repository.DeletedAssociationRepository;
+import uk.ac.ebi.spot.goci.repository.DeletedStudyRepository;
 import uk.ac.ebi.spot.goci.repository.DiseaseTraitRepository;
 import uk.ac.ebi.spot.goci.repository.EfoTraitRepository;
 
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Javadocs go here!
@@ -34,6 +53,9 @@ public class SolrIndexer {
     private DiseaseTraitRepository diseaseTraitRepository;
     private AssociationService associationService;
     private EfoTraitRepository efoTraitRepository;
+    private DeletedStudyRepository deletedStudyRepository;
+    private DeletedAssociationRepository deletedAssociationRepository;
+    private IndexingCheckpointService indexingCheckpointService;
 
     private StudyMapper studyMapper;
     private TraitMapper traitMapper;
@@ -41,9 +63,29 @@ public class SolrIndexer {
     private EfoMapper efoMapper;
 
     private int pageSize = 1000;
-    private int maxPages = -1;
     private boolean sysOutLogging = false;
 
+    @Value("${indexer.fetch_mode:keyset}")
+    private String fetchMode;
+
+    @Value("${indexer.delta.overlap:300}")
+    private int deltaOverlap;
+
+    @Value("${indexer.fetch_threads:4}")
+    private int fetchThreads;
+
+    @Value("${indexer.convert_threads:4}")
+    private int convertThreads;
+
+    @Value("${indexer.write_threads:2}")
+    private int writeThreads;
+
+    @Value("${indexer.queue_size:8}")
+    private int queueSize;
+
+    private ExecutorService convertExecutor;
+    private ExecutorService writeExecutor;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -55,6 +97,9 @@ public class SolrIndexer {
                        DiseaseTraitRepository diseaseTraitRepository,
                        EfoTraitRepository efoTraitRepository,
                        AssociationService associationService,
+                       DeletedStudyRepository deletedStudyRepository,
+                       DeletedAssociationRepository deletedAssociationRepository,
+                       IndexingCheckpointService indexingCheckpointService,
                        StudyMapper studyMapper,
                        TraitMapper traitMapper,
                        AssociationMapper associationMapper,
@@ -63,6 +108,9 @@ public class SolrIndexer {
         this.diseaseTraitRepository = diseaseTraitRepository;
         this.efoTraitRepository = efoTraitRepository;
         this.associationService = associationService;
+        this.deletedStudyRepository = deletedStudyRepository;
+        this.deletedAssociationRepository = deletedAssociationRepository;
+        this.indexingCheckpointService = indexingCheckpointService;
         this.studyMapper = studyMapper;
         this.traitMapper = traitMapper;
         this.associationMapper = associationMapper;
@@ -85,8 +133,27 @@ public class SolrIndexer {
         this.sysOutLogging = false;
     }
 
+    /**
+     * Index all studies, associations, traits and EFO terms.
+     * <p>
+     * Indexing runs as a pipeline of three stages joined by bounded queues, each with its own thread pool: pages of
+     * objects are fetched from the database ("indexer.fetch_threads", the four document types are fetched in
+     * parallel), converted and enriched into documents ("indexer.convert_threads"), and saved to Solr one page per
+     * update ("indexer.write_threads"). Each queue holds at most "indexer.queue_size" pages; once it is full, the stage
+     * feeding it runs the next step itself, which throttles it to the pace of the slower stage.
+     * <p>
+     * Objects are fetched in id order, by keyset pagination: each page is read with "id greater than the last id of
+     * the previous page" and no total count, so every page costs the same and a full reindex takes time linear in the
+     * size of the catalogue. With "indexer.fetch_mode" set to "stream", studies and associations are instead read
+     * through one query per type, streamed from a database cursor. Each page is loaded and detached from the streaming
+     * session before it is handed to the conversion stage, as with keyset pages.
+     *
+     * @return the number of objects indexed
+     */
     public int fetchAndIndex() {
-        ExecutorService taskExecutor = Executors.newFixedThreadPool(1);
+        ExecutorService taskExecutor = Executors.newFixedThreadPool(Math.max(1, fetchThreads));
+        convertExecutor = createStageExecutor(convertThreads);
+        writeExecutor = createStageExecutor(writeThreads);
 
         Future<Integer> studyCountFuture = taskExecutor.submit(this::mapStudies);
         Future<Integer> associationCountFuture = taskExecutor.submit(this::mapAssociations);
@@ -104,90 +171,226 @@ public class SolrIndexer {
             throw new SolrIndexingException("Failed to map one or more documents into Solr", e);
         }
         finally {
-            taskExecutor.shutdown();
-            int s = 5;
-            try {
-                taskExecutor.awaitTermination(s, TimeUnit.SECONDS);
-            }
-            catch (InterruptedException e) {
-                getLog().error("The application failed to terminate cleanly in " + s + " seconds.");
-            }
+            shutdown(taskExecutor, convertExecutor, writeExecutor);
         }
     }
 
-    Integer mapStudies() {
-        Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "publicationDate"));
-        Pageable pager = new PageRequest(0, pageSize, sort);
-        Page<Study> studyPage = studyService.findPublishedStudies(pager);
-        studyMapper.map(studyPage.getContent());
-        while (studyPage.hasNext()) {
-            if (maxPages != -1 && studyPage.getNumber() >= maxPages - 1) {
-                break;
-            }
-            pager = pager.next();
-            studyPage = studyService.findPublishedStudies(pager);
-            studyMapper.map(studyPage.getContent());
-            if (sysOutLogging) {
-                System.out.print(".");
-            }
+    /**
+     * Index only what changed since the last run, as recorded by the {@link IndexingCheckpointService}, or everything
+     * if there is no record of a last run.
+     * <p>
+     * The high-water mark saved for the next run is the start time of this one, less "indexer.delta.overlap" seconds,
+     * so that changes committed while the run goes on, or stamped by a server with a slightly different clock, are
+     * picked up again next time. Reindexing a document twice is harmless.
+     *
+     * @return the number of documents indexed or removed
+     */
+    public int fetchAndIndexChanges() {
+        Date since = indexingCheckpointService.load();
+        Date indexedUntil = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(deltaOverlap));
+        int count = since != null ? indexChangesSince(since) : fetchAndIndex();
+        indexingCheckpointService.save(indexedUntil);
+        return count;
+    }
+
+    /**
+     * Reindex the published studies and associations changed since the given date, according to their housekeeping,
+     * last update and last mapping dates, together with the disease traits and EFO terms they refer to, whose
+     * documents embed them. Documents of studies unpublished since, and of studies and associations deleted since
+     * (as recorded in the deleted study and association tables), are removed from the index.
+     */
+    int indexChangesSince(Date since) {
+        convertExecutor = createStageExecutor(convertThreads);
+        writeExecutor = createStageExecutor(writeThreads);
+        try {
+            List<Study> studies = studyService.findPublishedStudiesChangedSince(since);
+            List<Association> associations = associationService.findPublishedAssociationsChangedSince(since);
+            List<Study> unpublishedStudies = studyService.findStudiesUnpublishedSince(since);
+
+            Map<Long, DiseaseTrait> traits = new LinkedHashMap<>();
+            Map<Long, EfoTrait> efoTraits = new LinkedHashMap<>();
+            Stream.concat(studies.stream(), unpublishedStudies.stream()).forEach(
+                    study -> {
+                        if (study.getDiseaseTrait() != null) {
+                            traits.putIfAbsent(study.getDiseaseTrait().getId(), study.getDiseaseTrait());
+                        }
+                        study.getEfoTraits().forEach(trait -> efoTraits.putIfAbsent(trait.getId(), trait));
+                    });
+            associations.forEach(
+                    association -> association.getEfoTraits()
+                            .forEach(trait -> efoTraits.putIfAbsent(trait.getId(), trait)));
+            getLog().info("Indexing changes since " + since + ": " + studies.size() + " studies, " +
+                                  associations.size() + " associations, " + traits.size() + " traits, " +
+                                  efoTraits.size() + " EFO terms, " +
+                                  unpublishedStudies.size() + " unpublished studies");
+
+            int count = deleteRemovedSince(since, unpublishedStudies);
+            count += index(pages -> paginate(studies, pages), studyMapper);
+            count += index(pages -> paginate(associations, pages), associationMapper);
+            count += index(pages -> paginate(new ArrayList<>(traits.values()), pages), traitMapper);
+            count += index(pages -> paginate(new ArrayList<>(efoTraits.values()), pages), efoMapper);
+            return count;
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw new SolrIndexingException("Failed to index changes since " + since, e);
+        }
+        finally {
+            shutdown(convertExecutor, writeExecutor);
         }
-        return (int) studyPage.getTotalElements();
     }
 
-    Integer mapAssociations() {
-        Sort sort = new Sort(new Sort.Order("id"));
-        Pageable pager = new PageRequest(0, pageSize, sort);
-        Page<Association> associationPage = associationService.findPublishedAssociations(pager);
-        associationMapper.map(associationPage.getContent());
-        while (associationPage.hasNext()) {
-            if (maxPages != -1 && associationPage.getNumber() >= maxPages - 1) {
-                break;
-            }
-            pager = pager.next();
-            associationPage = associationService.findPublishedAssociations(pager);
-            associationMapper.map(associationPage.getContent());
-            if (sysOutLogging) {
-                System.out.print(".");
-            }
+    /**
+     * Remove the documents of the unpublished studies and their associations, and of the studies and associations
+     * deleted since the given date
+     *
+     * @return the number of documents removed
+     */
+    private int deleteRemovedSince(Date since, List<Study> unpublishedStudies) {
+        // Same ids as generated by Document, the decapitalized class name and the database id
+        Set<String> studyIds = new LinkedHashSet<>();
+        Set<String> associationIds = new LinkedHashSet<>();
+        unpublishedStudies.forEach(
+                study -> {
+                    studyIds.add("study:" + study.getId());
+                    study.getAssociations()
+                            .forEach(association -> associationIds.add("association:" + association.getId()));
+                });
+
+        // Deletion events are dated by day only
+        Date day = Date.from(since.toInstant()
+                                     .atZone(ZoneId.systemDefault())
+                                     .toLocalDate()
+                                     .atStartOfDay(ZoneId.systemDefault())
+                                     .toInstant());
+        deletedStudyRepository.findDistinctByEventsEventDateGreaterThanEqual(day)
+                .forEach(study -> studyIds.add("study:" + study.getId()));
+        deletedAssociationRepository.findDistinctByEventsEventDateGreaterThanEqual(day)
+                .forEach(association -> associationIds.add("association:" + association.getId()));
+
+        studyMapper.delete(studyIds);
+        associationMapper.delete(associationIds);
+        return studyIds.size() + associationIds.size();
+    }
+
+    Integer mapStudies() throws InterruptedException, ExecutionException {
+        if (isStreaming()) {
+            return index(pages -> studyService.streamPublishedStudies(pageSize, pages), studyMapper);
         }
-        return (int) associationPage.getTotalElements();
+        return index(pages -> fetchByKeyset(studyService::findPublishedStudiesAfter, Study::getId, pages),
+                     studyMapper);
     }
 
-    Integer mapTraits() {
-        Sort sort = new Sort(new Sort.Order("trait"));
-        Pageable pager = new PageRequest(0, pageSize, sort);
-        Page<DiseaseTrait> diseaseTraitPage = diseaseTraitRepository.findAll(pager);
-        traitMapper.map(diseaseTraitPage.getContent());
-        while (diseaseTraitPage.hasNext()) {
-            if (maxPages != -1 && diseaseTraitPage.getNumber() >= maxPages - 1) {
-                break;
-            }
-            pager = pager.next();
-            diseaseTraitPage = diseaseTraitRepository.findAll(pager);
-            traitMapper.map(diseaseTraitPage.getContent());
+    Integer mapAssociations() throws InterruptedException, ExecutionException {
+        if (isStreaming()) {
+            return index(pages -> associationService.streamPublishedAssociations(pageSize, pages), associationMapper);
+        }
+        return index(pages -> fetchByKeyset(associationService::findPublishedAssociationsAfter,
+                                            Association::getId,
+                                            pages),
+                     associationMapper);
+    }
+
+    Integer mapTraits() throws InterruptedException, ExecutionException {
+        return index(pages -> fetchByKeyset(diseaseTraitRepository::findByIdGreaterThan, DiseaseTrait::getId, pages),
+                     traitMapper);
+    }
+
+    Integer mapEfo() throws InterruptedException, ExecutionException {
+        return index(pages -> fetchByKeyset(efoTraitRepository::findByIdGreaterThan, EfoTrait::getId, pages),
+                     efoMapper);
+    }
+
+    private boolean isStreaming() {
+        return "stream".equalsIgnoreCase(fetchMode);
+    }
+
+    /**
+     * Fetch stage for one document type: read all pages and hand each one to the conversion stage, then wait until
+     * every page has been saved
+     *
+     * @param fetchAll reads all objects of this type, passing each page to the given consumer
+     * @return the total number of objects of this type
+     */
+    private <O, D extends Document<O>> Integer index(Consumer<Consumer<List<O>>> fetchAll,
+                                                     ObjectDocumentMapper<O, D> mapper)
+            throws InterruptedException, ExecutionException {
+        List<Future<Future<?>>> pages = new ArrayList<>();
+        AtomicInteger count = new AtomicInteger();
+
+        fetchAll.accept(page -> {
+            pages.add(submitPage(page, mapper));
+            count.addAndGet(page.size());
             if (sysOutLogging) {
                 System.out.print(".");
             }
+        });
+
+        // Surface the first conversion or Solr failure
+        for (Future<Future<?>> conversion : pages) {
+            conversion.get().get();
         }
-        return (int) diseaseTraitPage.getTotalElements();
+        return count.get();
     }
 
-    Integer mapEfo() {
-        Sort sort = new Sort(new Sort.Order("id"));
-        Pageable pager = new PageRequest(0, pageSize, sort);
-        Page<EfoTrait> efoTraitPage = efoTraitRepository.findAll(pager);
-        efoMapper.map(efoTraitPage.getContent());
-        while (efoTraitPage.hasNext()) {
-            if (maxPages != -1 && efoTraitPage.getNumber() >= maxPages - 1) {
-                break;
+    /**
+     * Read all objects page by page in id order, each page starting after the last id of the previous one
+     */
+    private <O> void fetchByKeyset(BiFunction<Long, Pageable, Slice<O>> fetchPage,
+                                   Function<O, Long> getId,
+                                   Consumer<List<O>> pages) {
+        Pageable pager = new PageRequest(0, pageSize, new Sort(new Sort.Order("id")));
+        Long lastId = Long.MIN_VALUE;
+        Slice<O> page;
+        do {
+            page = fetchPage.apply(lastId, pager);
+            List<O> objects = page.getContent();
+            if (!objects.isEmpty()) {
+                pages.accept(objects);
+                lastId = getId.apply(objects.get(objects.size() - 1));
             }
-            pager = pager.next();
-            efoTraitPage = efoTraitRepository.findAll(pager);
-            efoMapper.map(efoTraitPage.getContent());
-            if (sysOutLogging) {
-                System.out.print(".");
+        }
+        while (page.hasNext());
+    }
+
+    /**
+     * Hand objects already read over in pages of the page size
+     */
+    private <O> void paginate(List<O> objects, Consumer<List<O>> pages) {
+        for (int i = 0; i < objects.size(); i += pageSize) {
+            pages.accept(objects.subList(i, Math.min(i + pageSize, objects.size())));
+        }
+    }
+
+    private <O, D extends Document<O>> Future<Future<?>> submitPage(List<O> objects,
+                                                                    ObjectDocumentMapper<O, D> mapper) {
+        return convertExecutor.submit(() -> {
+            List<D> documents = mapper.convert(objects);
+            return writeExecutor.submit(() -> mapper.save(documents));
+        });
+    }
+
+    private ThreadPoolExecutor createStageExecutor(int threads) {
+        int workers = Math.max(1, threads);
+        return new ThreadPoolExecutor(workers,
+                                      workers,
+                                      0L,
+                                      TimeUnit.MILLISECONDS,
+                                      new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void shutdown(ExecutorService... executors) {
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+        int s = 5;
+        try {
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(s, TimeUnit.SECONDS);
             }
         }
-        return (int) efoTraitPage.getTotalElements();
+        catch (InterruptedException e) {
+            getLog().error("The application failed to terminate cleanly in " + s + " seconds.");
+        }
     }
 }
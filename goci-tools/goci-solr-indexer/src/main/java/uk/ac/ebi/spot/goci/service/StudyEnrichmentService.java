@@ -6,9 +6,13 @@ import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.AssociationDocument;
 import uk.ac.ebi.spot.goci.model.DiseaseTraitDocument;
 import uk.ac.ebi.spot.goci.model.EfoDocument;
+import uk.ac.ebi.spot.goci.model.Study;
 import uk.ac.ebi.spot.goci.model.StudyDocument;
 
-import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Javadocs go here!
@@ -19,13 +23,13 @@ import java.util.Collection;
 @Service
 public class StudyEnrichmentService implements DocumentEnrichmentService<StudyDocument> {
     private AssociationService associationService;
-    private TraitService traitService;
+    private StudyService studyService;
 
     @Autowired
     public StudyEnrichmentService(AssociationService associationService,
-                                  TraitService traitService) {
+                                  StudyService studyService) {
         this.associationService = associationService;
-        this.traitService = traitService;
+        this.studyService = studyService;
     }
 
     @Override public int getPriority() {
@@ -33,15 +37,34 @@ public class StudyEnrichmentService implements DocumentEnrichmentService<StudyDo
     }
 
     @Override public void doEnrichment(StudyDocument document) {
-        long id = Long.valueOf(document.getId().split(":")[1]);
+        doEnrichment(Collections.singletonList(document));
+    }
+
+    /**
+     * Fetches the associations of the whole page at once.  Reported and mapped traits are read from the studies
+     * themselves, which are fetched together too.
+     */
+    @Override public void doEnrichment(List<StudyDocument> documents) {
+        List<Long> ids = documents.stream()
+                .map(document -> Long.valueOf(document.getId().split(":")[1]))
+                .collect(Collectors.toList());
+        Map<Long, List<Association>> associations = associationService.findPublishedAssociationsByStudyIds(ids);
+        Map<Long, Study> studies = studyService.findPublishedStudiesByIds(ids);
 
-        Collection<Association> associations = associationService.findPublishedAssociationsByStudyId(id);
-        document.setAssociationCount(associations.size());
-        associations.forEach(association -> document.embed(new AssociationDocument(association)));
+        for (int i = 0; i < documents.size(); i++) {
+            StudyDocument document = documents.get(i);
+            List<Association> studyAssociations = associations.getOrDefault(ids.get(i), Collections.emptyList());
+            document.setAssociationCount(studyAssociations.size());
+            studyAssociations.forEach(association -> document.embed(new AssociationDocument(association)));
 
-        traitService.findReportedTraitByStudyId(id).forEach(
-                trait -> document.embed(new DiseaseTraitDocument(trait)));
-        traitService.findMappedTraitByStudyId(id).forEach(
-                trait -> document.embed(new EfoDocument(trait)));
+            Study study = studies.get(ids.get(i));
+            if (study != null) {
+                if (study.getDiseaseTrait() != null) {
+                    document.embed(new DiseaseTraitDocument(study.getDiseaseTrait()));
+                }
+                study.getEfoTraits().forEach(
+                        trait -> document.embed(new EfoDocument(trait)));
+            }
+        }
     }
 }
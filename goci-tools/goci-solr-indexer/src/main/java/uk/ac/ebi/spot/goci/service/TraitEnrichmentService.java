@@ -2,14 +2,20 @@ package uk.ac.ebi.spot.goci.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.spot.goci.model.Association;
 import uk.ac.ebi.spot.goci.model.AssociationDocument;
 import uk.ac.ebi.spot.goci.model.DiseaseTraitDocument;
 import uk.ac.ebi.spot.goci.model.EfoDocument;
 import uk.ac.ebi.spot.goci.model.EfoTrait;
+import uk.ac.ebi.spot.goci.model.Study;
 import uk.ac.ebi.spot.goci.model.StudyDocument;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Javadocs go here!
@@ -21,15 +27,12 @@ import java.util.Set;
 public class TraitEnrichmentService implements DocumentEnrichmentService<DiseaseTraitDocument> {
     private StudyService studyService;
     private AssociationService associationService;
-    private TraitService traitService;
 
     @Autowired
     public TraitEnrichmentService(StudyService studyService,
-                                  AssociationService associationService,
-                                  TraitService traitService) {
+                                  AssociationService associationService) {
         this.studyService = studyService;
         this.associationService = associationService;
-        this.traitService = traitService;
     }
 
     @Override public int getPriority() {
@@ -37,23 +40,43 @@ public class TraitEnrichmentService implements DocumentEnrichmentService<Disease
     }
 
     @Override public void doEnrichment(DiseaseTraitDocument document) {
-        long id = Long.valueOf(document.getId().split(":")[1]);
-
-        studyService.findByDiseaseTraitId(id).forEach(
-                study -> {
-                    document.embed(new StudyDocument(study));
-                    // collect unique efo traits by study
-                    Set<EfoTrait> efoTraits = new HashSet<>();
-                    traitService.findMappedTraitByStudyId(study.getId()).forEach(efoTraits::add);
-                    // iterate over unique efo traits
-                    efoTraits.forEach(
-                            trait -> {
-                                // embed efo trait info in disease trait document
-                                document.embed(new EfoDocument(trait));
-                                // and embed all associations mapped to this efo trait
-                                associationService.findPublishedAssociationsByEfoTraitId(trait.getId()).forEach(
-                                        association -> document.embed(new AssociationDocument(association)));
-                            });
-                });
+        doEnrichment(Collections.singletonList(document));
+    }
+
+    /**
+     * Fetches the studies of the whole page at once, then the associations of all their EFO traits at once
+     */
+    @Override public void doEnrichment(List<DiseaseTraitDocument> documents) {
+        List<Long> ids = documents.stream()
+                .map(document -> Long.valueOf(document.getId().split(":")[1]))
+                .collect(Collectors.toList());
+        Map<Long, List<Study>> studies = studyService.findByDiseaseTraitIds(ids);
+        Set<Long> efoTraitIds = studies.values()
+                .stream()
+                .flatMap(List::stream)
+                .flatMap(study -> study.getEfoTraits().stream())
+                .map(EfoTrait::getId)
+                .collect(Collectors.toSet());
+        Map<Long, List<Association>> associations =
+                associationService.findPublishedAssociationsByEfoTraitIds(efoTraitIds);
+
+        for (int i = 0; i < documents.size(); i++) {
+            DiseaseTraitDocument document = documents.get(i);
+            studies.getOrDefault(ids.get(i), Collections.emptyList()).forEach(
+                    study -> {
+                        document.embed(new StudyDocument(study));
+                        // collect unique efo traits by study
+                        Set<EfoTrait> efoTraits = new HashSet<>(study.getEfoTraits());
+                        // iterate over unique efo traits
+                        efoTraits.forEach(
+                                trait -> {
+                                    // embed efo trait info in disease trait document
+                                    document.embed(new EfoDocument(trait));
+                                    // and embed all associations mapped to this efo trait
+                                    associations.getOrDefault(trait.getId(), Collections.emptyList()).forEach(
+                                            association -> document.embed(new AssociationDocument(association)));
+                                });
+                    });
+        }
     }
 }
@@ -0,0 +1,234 @@
+package uk.ac.ebi.spot.goci.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splitting and unescaping of the lines of tab separated files, in which cells containing tabs or newlines are
+ * surrounded by quotation marks.
+ */
+public final class TabularFormat {
+
+    private static final Logger log = LoggerFactory.getLogger(TabularFormat.class);
+
+    // quoted substrings, as removed by strict unescaping
+    private static final Pattern QUOTED_SUBSTRING = Pattern.compile("\"[^\"\\r\\n]*\"");
+
+    private TabularFormat() {
+    }
+
+    /**
+     * Determine whether the string supplied ends with an escaped newline character.  If the line does not end with a
+     * newline character, it is assumed to have been previously removed, and therefore this will determine if the line
+     * ends "within" a quote.
+     *
+     * @param line the line to inspect
+     * @return true if the string ends "within" a quote, false otherwise
+     */
+    public static boolean endsWithEscapedNewline(String line) {
+        // split line into cells
+        String[] cells = line.split("\t");
+
+        // counting back from last cell...
+        int i = cells.length - 1;
+        String nextCell = cells[i];
+
+        while (i > -1) {
+            if (nextCell.endsWith("\"")) {
+                // if it ends with a quote, we're no longer escaped
+                return false;
+            }
+            else if (nextCell.startsWith("\"")) {
+                // if it starts with a quote, we're defo escaped
+                return true;
+            }
+            else {
+                // nextCell neither ends or starts with newline, so check previous cell for context
+                nextCell = cells[i--];
+            }
+        }
+
+        // if we got to here, it means we reached first cell and none are escaped
+        return false;
+    }
+
+    /**
+     * Compensate for a newline character that has been inserted into a single line and then escaped.       *
+     *
+     * @param firstLine  the first line, i.e. the one ending with an escaped newline character
+     * @param secondLine the second line, i.e. the one that is a logical continuation of the first
+     * @return the result string, with the newline character removed
+     */
+    public static String compensateForEscapedNewlines(String firstLine, String secondLine) {
+        if (endsWithEscapedNewline(firstLine)) {
+            return firstLine.concat(System.getProperty("line.separator")).concat(secondLine);
+        }
+        else {
+            // if the first line doesn't end in an escaped newline, you've done something daft
+            String message = "A line was supplied that did not end in an escaped " +
+                    "newline character.  The line was: " + firstLine;
+
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Splits this line into cells, ignoring any escaping found.  Empty cells are preserved as empty strings.  Any
+     * trailing whitespace in cells present is trimmed if 'trimWhitespace' is true, otherwise every cell is preserved
+     * verbosely.
+     *
+     * @param line           the line to split
+     * @param ignoreEscaping whether to ignore escaped tab and newline characters
+     * @param trimWhitespace whether to act in 'strict' mode, preserving any leading and trailing whitespace characters,
+     *                       or whether to automatically remove them
+     * @return the resulting string array
+     */
+    public static String[] splitLine(String line, boolean ignoreEscaping, boolean trimWhitespace) {
+        if (!ignoreEscaping) {
+            String[] cells;
+            if (trimWhitespace) {
+                // trim the line and split into cells
+                cells = line.trim().split("\t", -1);
+            }
+            else {
+                // just split into cells
+                cells = line.split("\t", -1);
+            }
+
+            List<String> logicalCells = new ArrayList<String>();
+
+            StringBuffer sb = null;
+            for (String s : cells) {
+                // trim if desired
+                String cell = s;
+                if (trimWhitespace) {
+                    cell = cell.trim();
+                }
+
+                if (sb != null) {
+                    if (!cell.startsWith("\"") && cell.endsWith("\"")) {
+                        // this cell ends with a quote but doesn't start with one, so it ends the current logical cell
+                        sb.append(cell);
+                        logicalCells.add(sb.toString());
+                        sb = null;
+                    }
+                    else {
+                        // an escaped tab within the current logical cell, keep the cell verbatim
+                        sb.append(s).append("\t");
+                    }
+                }
+                else if (cell.startsWith("\"") && !cell.endsWith("\"")) {
+                    // this cell starts with a quote but doesn't end with one
+                    // so this is the start of a new logical cell
+                    // NOTE that we might have trimmed escaped whitespace from the end of this string, so restore
+
+                    // restore by adding a full stop to the end of the original string, then trim
+                    cell = s.concat(".").trim();
+                    // now remove final character
+                    cell = cell.substring(0, cell.length() - 1);
+                    // start new logical cell
+                    sb = new StringBuffer();
+                    sb.append(cell).append("\t");
+                }
+                else {
+                    // this cell both starts and ends with or without quotes, or contains a quoted remark
+                    // (e.g. 'Tony said "Hello World"')
+                    logicalCells.add(cell);
+                }
+            }
+            if (sb != null) {
+                // the line ended within a quote, keep the unterminated logical cell rather than losing it
+                logicalCells.add(sb.substring(0, sb.length() - 1));
+            }
+            return logicalCells.toArray(new String[logicalCells.size()]);
+        }
+        else {
+            // trim if desired - check each cell
+            if (trimWhitespace) {
+                // trim the line and split into cells
+                String[] cells = line.trim().split("\t", -1);
+                List<String> logicalCells = new ArrayList<String>();
+                for (String cell : cells) {
+                    logicalCells.add(cell.trim());
+                }
+                return logicalCells.toArray(new String[logicalCells.size()]);
+            }
+            else {
+                return line.split("\t", -1);
+            }
+        }
+    }
+
+    /**
+     * Removes any quotation marks around the given cells that are used to escape the values contained within, using
+     * relaxed mode by default.  Equivalent to <code>removeEscaping(cells, false);</code>
+     *
+     * @param cells the cells to remove escaping from
+     * @return the resulting cells, after escaping has been removed
+     */
+    public static String[] removeEscaping(String[] cells) {
+        return removeEscaping(cells, false);
+    }
+
+    /**
+     * Removes any escaping present in the given cells, akin to how Excel writes out CSV files surrounding cells with
+     * quotation marks. If quotation marks are used to surround some values, and this signifies that they should be used
+     * as part of the value supplied; this includes tabs, newlines and other such characters.
+     * <p>
+     * In 'strict' mode, all such quotation marks are removed from the whole cell.  Strict checking requires regular
+     * expression checking, and therefore can fail if the string contains irregular markup (for example, HTML
+     * fragments).  Also note that this method will not work with lines that end in an escaped newline character, and
+     * you should explicitly remove these characters first using the {@link #endsWithEscapedNewline(String)} and {@link
+     * #compensateForEscapedNewlines(String, String)} methods first.
+     * <p>
+     * In 'relaxed' mode, this method removes quotations ONLY when present at the beginning and end of a cell. This form
+     * is different from strict checking in that it does not use regular expressions to check for quoted substrings -
+     * rather, it just checks the first and last character of each cell for quotations. Relaxed mode will work with
+     * lines that end in an escaped newline character or may not pass regular expression checks.
+     * <p>
+     *
+     * @param cells     the cells on a line, after escaping with quotation marks
+     * @param useStrict whether to use the strict definition of escaping (i.e. quotes in any position on a line), or
+     *                  whether to consider quotations at the beginning and end of cells only.
+     * @return a cell with all quotations removed
+     */
+    public static String[] removeEscaping(String[] cells, boolean useStrict) {
+        String[] result = new String[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            String cell = cells[i];
+            if (useStrict) {
+                // regex to find quoted substrings
+                Matcher m = QUOTED_SUBSTRING.matcher(cell);
+                boolean quotedSubstrings = false;
+                while (m.find()) {
+                    MatchResult mr = m.toMatchResult();
+                    log.debug("Found string escaped with quotes, '" + mr.group() + "', removing quotations");
+                    quotedSubstrings = true;
+                }
+                // finally, remove all quotes
+                if (quotedSubstrings) {
+                    result[i] = cell.replaceAll("\"", "");
+                }
+                else {
+                    result[i] = cell;
+                }
+            }
+            else {
+                if (cell.startsWith("\"") && cell.endsWith("\"")) {
+                    result[i] = cell.substring(1, cell.length() - 1);
+                }
+                else {
+                    result[i] = cell;
+                }
+            }
+        }
+
+        return result;
+    }
+}
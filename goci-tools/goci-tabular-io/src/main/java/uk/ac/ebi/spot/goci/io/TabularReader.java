@@ -0,0 +1,186 @@
+package uk.ac.ebi.spot.goci.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a tab separated file one row at a time, so that files of any size can be processed in constant memory.
+ * <p>
+ * Lines ending in an escaped newline are joined with the lines that continue them before being split into cells.
+ * Commented lines (starting with '#') are returned whole as a single cell and empty lines as an empty row.
+ * <p>
+ * Errors reading the underlying file while iterating are thrown as {@link UncheckedIOException}.
+ */
+public class TabularReader implements Iterator<String[]>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedReader reader;
+
+    private final boolean stripEscaping;
+
+    private final boolean trimWhitespace;
+
+    private String[] nextRow;
+
+    private boolean finished;
+
+    private long rowCount;
+
+    private boolean containsEscapedNewlines;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * @param reader         reader to read lines from
+     * @param stripEscaping  whether to remove the quotation marks escaping cells
+     * @param trimWhitespace whether to trim leading and trailing whitespace from cells
+     */
+    public TabularReader(Reader reader, boolean stripEscaping, boolean trimWhitespace) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader
+                : new BufferedReader(reader, BUFFER_SIZE);
+        this.stripEscaping = stripEscaping;
+        this.trimWhitespace = trimWhitespace;
+    }
+
+    public TabularReader(InputStream in, String encoding, boolean stripEscaping, boolean trimWhitespace) {
+        this(new InputStreamReader(in, Charset.forName(encoding)), stripEscaping, trimWhitespace);
+    }
+
+    /**
+     * Open a file for reading through a buffered file channel
+     */
+    public static TabularReader open(File file, String encoding, boolean stripEscaping, boolean trimWhitespace)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        Reader reader = Channels.newReader(channel,
+                                           Charset.forName(encoding).newDecoder()
+                                                   .onMalformedInput(CodingErrorAction.REPLACE)
+                                                   .onUnmappableCharacter(CodingErrorAction.REPLACE),
+                                           BUFFER_SIZE);
+        return new TabularReader(reader, stripEscaping, trimWhitespace);
+    }
+
+    @Override public boolean hasNext() {
+        if (nextRow == null && !finished) {
+            try {
+                nextRow = readRow();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (nextRow == null) {
+                finished = true;
+                logSummary();
+            }
+        }
+        return nextRow != null;
+    }
+
+    @Override public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows after row " + rowCount);
+        }
+        String[] row = nextRow;
+        nextRow = null;
+        rowCount++;
+        return row;
+    }
+
+    /**
+     * The remaining rows as a sequential stream; closing the stream closes this reader
+     */
+    public Stream<String[]> stream() {
+        Spliterator<String[]> rows =
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * @return the number of rows returned so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private String[] readRow() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        if (line.trim().equals("")) {
+            // empty line, represented by an empty row
+            return new String[0];
+        }
+        if (line.startsWith("#")) {
+            // commented line, add the comment wholesale
+            return new String[]{line};
+        }
+
+        // while the line ends with an escaped newline, join it with the next line, which may itself be continued
+        while (TabularFormat.endsWithEscapedNewline(line)) {
+            containsEscapedNewlines = true;
+            String nextLine = reader.readLine();
+            if (nextLine == null) {
+                break;
+            }
+            line = line.concat(System.lineSeparator()).concat(nextLine);
+        }
+
+        // split the line into it's constituent cells, then remove escaping so as not to change how cells are split
+        String[] cells = TabularFormat.splitLine(line, false, trimWhitespace);
+        if (stripEscaping) {
+            cells = TabularFormat.removeEscaping(cells);
+        }
+        return cells;
+    }
+
+    private void logSummary() {
+        if (containsEscapedNewlines) {
+            getLog().warn("This file contains escaped newline characters.  " +
+                                  "Logical line numbers (as reported by this parser) may be different from " +
+                                  "physical line numbers, depending on the application being used to view this file");
+        }
+        getLog().debug("Read all " + rowCount + " rows");
+    }
+
+    /**
+     * Close the underlying reader, and with it the stream or file being read
+     */
+    @Override public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,94 @@
+package uk.ac.ebi.spot.goci.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * Writes delimited rows one at a time through a buffered, encoding writer, so that files of any size can be written in
+ * constant memory.  Rows are separated by the platform line separator, with no separator after the last row.
+ */
+public class TabularWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+
+    private final String delimiter;
+
+    private long rowCount;
+
+    /**
+     * @param writer    writer to write rows to
+     * @param delimiter delimiter between the cells of a row
+     */
+    public TabularWriter(Writer writer, String delimiter) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, BUFFER_SIZE);
+        this.delimiter = delimiter;
+    }
+
+    public TabularWriter(OutputStream out, String encoding, String delimiter) {
+        this(new OutputStreamWriter(out, Charset.forName(encoding)), delimiter);
+    }
+
+    /**
+     * Create or overwrite a file for writing through a buffered file channel
+     */
+    public static TabularWriter open(File file, String encoding, String delimiter) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.CREATE,
+                                               StandardOpenOption.TRUNCATE_EXISTING,
+                                               StandardOpenOption.WRITE);
+        Writer writer = Channels.newWriter(channel,
+                                           Charset.forName(encoding).newEncoder()
+                                                   .onMalformedInput(CodingErrorAction.REPLACE)
+                                                   .onUnmappableCharacter(CodingErrorAction.REPLACE),
+                                           BUFFER_SIZE);
+        return new TabularWriter(writer, delimiter);
+    }
+
+    public void writeRow(String[] cells) throws IOException {
+        if (rowCount > 0) {
+            writer.write(System.lineSeparator());
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            writer.write(cells[i]);
+        }
+        rowCount++;
+    }
+
+    public void writeRows(Iterator<String[]> rows) throws IOException {
+        while (rows.hasNext()) {
+            writeRow(rows.next());
+        }
+    }
+
+    /**
+     * @return the number of rows written so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,132 @@
+package uk.ac.ebi.spot.goci.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TabularReaderTest {
+
+    @Test
+    public void testQuotedCells() throws IOException {
+        List<String[]> rows = readAll("rs_id\t\"with\ttabs\"\t\"a\tb\tc\"\tplain\n" +
+                                              "rs1\t\"quoted\"\tsaid \"hi\"\t\tend\n");
+
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"rs_id", "with\ttabs", "a\tb\tc", "plain"}, rows.get(0));
+        assertArrayEquals(new String[]{"rs1", "quoted", "said \"hi\"", "", "end"}, rows.get(1));
+    }
+
+    @Test
+    public void testEscapedNewlineJoinsLines() throws IOException {
+        List<String[]> rows = readAll("rs1\t\"first line\n" +
+                                              "second line\n" +
+                                              "third line\"\tlast\n" +
+                                              "rs2\tnext\n");
+
+        assertEquals(2, rows.size());
+        String joined = "first line" + System.lineSeparator() + "second line" + System.lineSeparator() + "third line";
+        assertArrayEquals(new String[]{"rs1", joined, "last"}, rows.get(0));
+        assertArrayEquals(new String[]{"rs2", "next"}, rows.get(1));
+    }
+
+    @Test
+    public void testCommentAndEmptyLines() throws IOException {
+        List<String[]> rows = readAll("# a comment\twith a tab\n" +
+                                              "\n" +
+                                              "   \n" +
+                                              "rs1\tvalue\n");
+
+        assertEquals(4, rows.size());
+        assertArrayEquals(new String[]{"# a comment\twith a tab"}, rows.get(0));
+        assertArrayEquals(new String[0], rows.get(1));
+        assertArrayEquals(new String[0], rows.get(2));
+        assertArrayEquals(new String[]{"rs1", "value"}, rows.get(3));
+    }
+
+    @Test
+    public void testTrailingOpenQuoteEndsWithLastLine() throws IOException {
+        List<String[]> rows = readAll("rs1\tvalue\n" +
+                                              "rs2\t\"never closed\n" +
+                                              "more");
+
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"rs2", "\"never closed" + System.lineSeparator() + "more"}, rows.get(1));
+    }
+
+    @Test
+    public void testReadStreamWithoutMarkSupport() throws IOException {
+        byte[] bytes = "rs1\t\"first\nsecond\"\nrs2\tvalue".getBytes(StandardCharsets.UTF_8);
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override public boolean markSupported() {
+                return false;
+            }
+
+            @Override public synchronized void mark(int readlimit) {
+                throw new UnsupportedOperationException("mark");
+            }
+
+            @Override public synchronized void reset() throws IOException {
+                throw new IOException("reset");
+            }
+        };
+
+        List<String[]> rows = new ArrayList<>();
+        try (TabularReader reader = new TabularReader(in, "UTF-8", true, true)) {
+            reader.forEachRemaining(rows::add);
+            assertEquals(2, reader.getRowCount());
+            assertFalse(reader.hasNext());
+        }
+
+        assertArrayEquals(new String[]{"rs1", "first" + System.lineSeparator() + "second"}, rows.get(0));
+        assertArrayEquals(new String[]{"rs2", "value"}, rows.get(1));
+    }
+
+    @Test
+    public void testStreamReadsRemainingRowsAndClosesReader() throws IOException {
+        boolean[] closed = new boolean[1];
+        StringReader in = new StringReader("rs_id\tvalue\n" +
+                                                   "rs1\t\"first\nsecond\"\n" +
+                                                   "rs2\tnext\n") {
+            @Override public void close() {
+                closed[0] = true;
+                super.close();
+            }
+        };
+
+        TabularReader reader = new TabularReader(in, true, true);
+        assertArrayEquals(new String[]{"rs_id", "value"}, reader.next());
+        List<String> cells;
+        try (Stream<String[]> rows = reader.stream()) {
+            cells = rows.map(row -> row[1]).collect(Collectors.toList());
+            assertFalse(closed[0]);
+        }
+
+        assertTrue(closed[0]);
+        assertEquals(3, reader.getRowCount());
+        assertEquals(2, cells.size());
+        assertEquals("first" + System.lineSeparator() + "second", cells.get(0));
+        assertEquals("next", cells.get(1));
+    }
+
+    private List<String[]> readAll(String content) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (TabularReader reader = new TabularReader(new StringReader(content), true, true)) {
+            reader.forEachRemaining(rows::add);
+        }
+        return rows;
+    }
+}
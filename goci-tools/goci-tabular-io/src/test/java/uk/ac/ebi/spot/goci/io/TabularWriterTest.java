@@ -0,0 +1,44 @@
+package uk.ac.ebi.spot.goci.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class TabularWriterTest {
+
+    @Test
+    public void testNoNewlineAfterLastRow() throws IOException {
+        StringWriter out = new StringWriter();
+        try (TabularWriter writer = new TabularWriter(out, "\t")) {
+            writer.writeRows(Arrays.asList(new String[]{"rs_id", "pvalue"},
+                                           new String[]{"rs1", "1e-8"},
+                                           new String[]{"rs2", ""}).iterator());
+            assertEquals(3, writer.getRowCount());
+        }
+
+        String newline = System.lineSeparator();
+        assertEquals("rs_id\tpvalue" + newline + "rs1\t1e-8" + newline + "rs2\t", out.toString());
+    }
+
+    @Test
+    public void testSingleRowHasNoNewline() throws IOException {
+        StringWriter out = new StringWriter();
+        try (TabularWriter writer = new TabularWriter(out, ",")) {
+            writer.writeRow(new String[]{"a", "b"});
+        }
+
+        assertEquals("a,b", out.toString());
+    }
+
+    @Test
+    public void testNoRowsWritesNothing() throws IOException {
+        StringWriter out = new StringWriter();
+        new TabularWriter(out, "\t").close();
+
+        assertEquals("", out.toString());
+    }
+}